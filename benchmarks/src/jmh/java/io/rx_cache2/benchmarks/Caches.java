@@ -0,0 +1,117 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.benchmarks;
+
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.EvictionPolicy;
+import io.rx_cache2.FsyncPolicy;
+import io.rx_cache2.internal.CacheKey;
+import io.rx_cache2.internal.Disk;
+import io.rx_cache2.internal.JolyglotSerializer;
+import io.rx_cache2.internal.Memory;
+import io.rx_cache2.internal.Persistence;
+import io.rx_cache2.internal.Record;
+import io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence;
+import io.rx_cache2.internal.cache.EvictRecord;
+import io.rx_cache2.internal.cache.HasRecordExpired;
+import io.rx_cache2.internal.cache.KeyIndex;
+import io.rx_cache2.internal.cache.RecordAccesses;
+import io.rx_cache2.internal.cache.RetrieveRecord;
+import io.rx_cache2.internal.cache.SaveRecord;
+import io.rx_cache2.internal.cache.TwoLayersCache;
+import io.rx_cache2.internal.encrypt.BuiltInEncryptor;
+import io.rx_cache2.internal.encrypt.FileEncryptor;
+import io.rx_cache2.internal.stats.StatsRecorder;
+import io.victoralbertos.jolyglot.JolyglotGenerics;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Builds the layers of the cache the way {@code RxCacheModule} does, so the benchmarks measure
+ * them without the proxy in front of them.
+ */
+public final class Caches {
+  public static final String ENCRYPT_KEY = "benchmark";
+  public static final int MAX_MB_PERSISTENCE_CACHE = 1024;
+
+  private Caches() {
+  }
+
+  public static Disk disk(File cacheDirectory, JolyglotGenerics jolyglot) {
+    return new Disk(cacheDirectory, new FileEncryptor(new BuiltInEncryptor()),
+        new JolyglotSerializer(jolyglot), FsyncPolicy.NEVER, CacheTracer.NONE);
+  }
+
+  public static TwoLayersCache twoLayersCache(Memory memory, Persistence persistence) {
+    HasRecordExpired hasRecordExpired = new HasRecordExpired();
+    KeyIndex keyIndex = new KeyIndex(persistence);
+    RecordAccesses recordAccesses = new RecordAccesses();
+    StatsRecorder statsRecorder = new StatsRecorder();
+    EvictRecord evictRecord =
+        new EvictRecord(memory, persistence, keyIndex, statsRecorder, CacheTracer.NONE);
+    EvictExpirableRecordsPersistence evictExpirableRecordsPersistence =
+        new EvictExpirableRecordsPersistence(memory, persistence, MAX_MB_PERSISTENCE_CACHE,
+            ENCRYPT_KEY, recordAccesses, EvictionPolicy.LRU, statsRecorder);
+
+    return new TwoLayersCache(evictRecord,
+        new RetrieveRecord(memory, persistence, evictRecord, hasRecordExpired, ENCRYPT_KEY,
+            recordAccesses, CacheTracer.NONE),
+        new SaveRecord(memory, persistence, MAX_MB_PERSISTENCE_CACHE,
+            evictExpirableRecordsPersistence, ENCRYPT_KEY, keyIndex, recordAccesses,
+            CacheTracer.NONE), statsRecorder);
+  }
+
+  public static File createTempDirectory() throws IOException {
+    File directory = File.createTempFile("rx_cache_benchmark", "");
+    if (!directory.delete() || !directory.mkdir()) {
+      throw new IOException("Unable to create " + directory);
+    }
+    return directory;
+  }
+
+  public static void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) deleteRecursively(child);
+    }
+    file.delete();
+  }
+
+  /**
+   * Memory which keeps nothing, so every retrieval reaches the persistence layer.
+   */
+  public static final class NoMemory implements Memory {
+    @Override public <T> Record<T> getIfPresent(CacheKey key) {
+      return null;
+    }
+
+    @Override public <T> void put(CacheKey key, Record<T> record) {
+    }
+
+    @Override public Set<CacheKey> keySet() {
+      return Collections.emptySet();
+    }
+
+    @Override public void evict(CacheKey key) {
+    }
+
+    @Override public void evictAll() {
+    }
+  }
+}
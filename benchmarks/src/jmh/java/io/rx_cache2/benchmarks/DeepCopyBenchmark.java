@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.benchmarks;
+
+import io.rx_cache2.CopyStrategy;
+import io.rx_cache2.internal.JolyglotSerializer;
+import io.rx_cache2.internal.cache.GetDeepCopy;
+import io.rx_cache2.internal.cache.memory.ConcurrentReferenceMemory;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the copy of the data emitted on every hit, with every {@link CopyStrategy}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeepCopyBenchmark {
+  @Param public CopyStrategy copyStrategy;
+  @Param({Jolyglots.GSON, Jolyglots.JACKSON, Jolyglots.MOSHI}) public String jolyglot;
+  @Param({"1", "100", "1000"}) public int items;
+
+  private File cacheDirectory;
+  private GetDeepCopy getDeepCopy;
+  private List<Item> data;
+
+  @Setup public void setUp() throws IOException {
+    cacheDirectory = Caches.createTempDirectory();
+    getDeepCopy = new GetDeepCopy(new ConcurrentReferenceMemory(),
+        Caches.disk(cacheDirectory, Jolyglots.of(jolyglot)),
+        new JolyglotSerializer(Jolyglots.of(jolyglot)), CopyStrategy.SERIALIZATION);
+    data = Item.listOf(items);
+  }
+
+  @TearDown public void tearDown() {
+    Caches.deleteRecursively(cacheDirectory);
+  }
+
+  @Benchmark public List<Item> deepCopy() {
+    return getDeepCopy.deepCopy(data, copyStrategy);
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.benchmarks;
+
+import io.rx_cache2.internal.Disk;
+import io.rx_cache2.internal.Record;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures reading and deserializing a record persisted by {@link Disk}, across payload sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DiskBenchmark {
+  private static final String KEY = "items";
+
+  @Param({Jolyglots.GSON, Jolyglots.JACKSON, Jolyglots.MOSHI}) public String jolyglot;
+  @Param({"1", "100", "10000"}) public int items;
+
+  private File cacheDirectory;
+  private Disk disk;
+
+  @Setup public void setUp() throws IOException {
+    cacheDirectory = Caches.createTempDirectory();
+    disk = Caches.disk(cacheDirectory, Jolyglots.of(jolyglot));
+    disk.saveRecord(KEY, new Record<>(Item.listOf(items), false, null), false, null);
+  }
+
+  @TearDown public void tearDown() {
+    Caches.deleteRecursively(cacheDirectory);
+  }
+
+  @Benchmark public Record<List<Item>> retrieveRecord() {
+    return disk.retrieveRecord(KEY, false, null);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The data cached by the benchmarks, a list of them is the payload of a record.
+ */
+public class Item {
+  private int id;
+  private String title;
+  private String description;
+
+  public Item() {
+  }
+
+  public Item(int id, String title, String description) {
+    this.id = id;
+    this.title = title;
+    this.description = description;
+  }
+
+  public static List<Item> listOf(int size) {
+    List<Item> items = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      items.add(new Item(i, "Item " + i,
+          "Contrary to popular belief, Lorem Ipsum is not simply random text " + i));
+    }
+    return items;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public void setId(int id) {
+    this.id = id;
+  }
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public void setDescription(String description) {
+    this.description = description;
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.victoralbertos.jolyglot.GsonSpeaker;
+import io.victoralbertos.jolyglot.JacksonSpeaker;
+import io.victoralbertos.jolyglot.JolyglotGenerics;
+import io.victoralbertos.jolyglot.MoshiSpeaker;
+
+/**
+ * The Jolyglot backends the benchmarks are parameterized over, by the name used in their
+ * {@code @Param}.
+ */
+public final class Jolyglots {
+  public static final String GSON = "gson", JACKSON = "jackson", MOSHI = "moshi";
+
+  private Jolyglots() {
+  }
+
+  public static JolyglotGenerics of(String backend) {
+    if (GSON.equals(backend)) return new GsonSpeaker();
+    if (MOSHI.equals(backend)) return new MoshiSpeaker();
+    if (JACKSON.equals(backend)) {
+      ObjectMapper objectMapper = new ObjectMapper();
+      objectMapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+      return new JacksonSpeaker(objectMapper);
+    }
+
+    throw new IllegalArgumentException("Unknown Jolyglot backend: " + backend);
+  }
+}
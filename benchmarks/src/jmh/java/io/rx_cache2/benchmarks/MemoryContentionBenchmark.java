@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.benchmarks;
+
+import io.rx_cache2.internal.CacheKey;
+import io.rx_cache2.internal.Memory;
+import io.rx_cache2.internal.Record;
+import io.rx_cache2.internal.cache.memory.ConcurrentReferenceMemory;
+import io.rx_cache2.internal.cache.memory.ReferenceMapMemory;
+import io.rx_cache2.internal.cache.memory.TinyLfuMemory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures the throughput of the {@link Memory} implementations when many threads read and write
+ * them concurrently, as the subscribers on Schedulers.io() do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+public class MemoryContentionBenchmark {
+  private static final int KEYS = 1024;
+
+  public enum Implementation {
+    REFERENCE_MAP, CONCURRENT_REFERENCE, TINY_LFU
+  }
+
+  @Param public Implementation implementation;
+  @Param({"10"}) public int writePercentage;
+
+  private Memory memory;
+  private CacheKey[] keys;
+
+  @Setup public void setUp() {
+    memory = memory(implementation);
+    keys = new CacheKey[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      keys[i] = CacheKey.of(String.valueOf(i), "", "");
+      memory.put(keys[i], new Record<>(i, true, null));
+    }
+  }
+
+  @Benchmark public Record<Integer> readAndWrite() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    CacheKey key = keys[random.nextInt(KEYS)];
+    if (random.nextInt(100) < writePercentage) {
+      Record<Integer> record = new Record<>(random.nextInt(), true, null);
+      memory.put(key, record);
+      return record;
+    }
+    return memory.getIfPresent(key);
+  }
+
+  private static Memory memory(Implementation implementation) {
+    switch (implementation) {
+      case REFERENCE_MAP:
+        return new ReferenceMapMemory();
+      case CONCURRENT_REFERENCE:
+        return new ConcurrentReferenceMemory();
+      default:
+        return new TinyLfuMemory(KEYS);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.benchmarks;
+
+import io.reactivex.Observable;
+import io.rx_cache2.DynamicKey;
+import io.rx_cache2.internal.RxCache;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures a call to a provider built by {@link RxCache#using(Class)} which is served from
+ * memory, from the proxy to the emission of the copy of the data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProvidersBenchmark {
+  public interface Providers {
+    Observable<List<Item>> getItems(Observable<List<Item>> items);
+
+    Observable<List<Item>> getItems(Observable<List<Item>> items, DynamicKey page);
+  }
+
+  @Param({Jolyglots.GSON, Jolyglots.JACKSON, Jolyglots.MOSHI}) public String jolyglot;
+  @Param({"100"}) public int items;
+
+  private File cacheDirectory;
+  private Providers providers;
+  private Observable<List<Item>> loader;
+  private DynamicKey page;
+
+  @Setup public void setUp() throws IOException {
+    cacheDirectory = Caches.createTempDirectory();
+    providers = new RxCache.Builder()
+        .persistence(cacheDirectory, Jolyglots.of(jolyglot))
+        .using(Providers.class);
+
+    loader = Observable.just(Item.listOf(items));
+    page = new DynamicKey(1);
+    providers.getItems(loader).blockingFirst();
+    providers.getItems(loader, page).blockingFirst();
+  }
+
+  @TearDown public void tearDown() {
+    Caches.deleteRecursively(cacheDirectory);
+  }
+
+  @Benchmark public List<Item> provider() {
+    return providers.getItems(loader).blockingFirst();
+  }
+
+  @Benchmark public List<Item> providerWithDynamicKey() {
+    return providers.getItems(loader, page).blockingFirst();
+  }
+}
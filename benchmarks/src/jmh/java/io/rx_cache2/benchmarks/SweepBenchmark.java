@@ -0,0 +1,74 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.benchmarks;
+
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.internal.Disk;
+import io.rx_cache2.internal.Record;
+import io.rx_cache2.internal.cache.EvictExpiredRecordsPersistence;
+import io.rx_cache2.internal.cache.HasRecordExpired;
+import io.rx_cache2.internal.cache.RecordSweeper;
+import io.rx_cache2.internal.cache.memory.ConcurrentReferenceMemory;
+import io.rx_cache2.internal.stats.StatsRecorder;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the sweep which looks for expired records over every record persisted. None of them
+ * expires, so every invocation goes through all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SweepBenchmark {
+  @Param({"100", "1000", "10000"}) public int records;
+  @Param({"1", "4"}) public int parallelism;
+
+  private File cacheDirectory;
+  private EvictExpiredRecordsPersistence evictExpiredRecordsPersistence;
+
+  @Setup public void setUp() throws IOException {
+    cacheDirectory = Caches.createTempDirectory();
+    Disk disk = Caches.disk(cacheDirectory, Jolyglots.of(Jolyglots.GSON));
+    for (int i = 0; i < records; i++) {
+      disk.saveRecord("items" + i, new Record<>(Item.listOf(1), true, null), false, null);
+    }
+
+    evictExpiredRecordsPersistence = new EvictExpiredRecordsPersistence(
+        new ConcurrentReferenceMemory(), disk, new HasRecordExpired(),
+        new RecordSweeper(disk, null, parallelism, null, null), new StatsRecorder(),
+        CacheTracer.NONE);
+  }
+
+  @TearDown public void tearDown() {
+    Caches.deleteRecursively(cacheDirectory);
+  }
+
+  @Benchmark public Integer evictExpiredRecords() {
+    return evictExpiredRecordsPersistence.startEvictingExpiredRecords().blockingFirst();
+  }
+}
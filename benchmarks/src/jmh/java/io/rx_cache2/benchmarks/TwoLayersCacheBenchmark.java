@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.benchmarks;
+
+import io.rx_cache2.internal.Disk;
+import io.rx_cache2.internal.Memory;
+import io.rx_cache2.internal.Record;
+import io.rx_cache2.internal.cache.TwoLayersCache;
+import io.rx_cache2.internal.cache.memory.ConcurrentReferenceMemory;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures {@link TwoLayersCache#retrieve} when the record is found in memory, and when it has to
+ * be read from the persistence layer, encrypted or not.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TwoLayersCacheBenchmark {
+  private static final String PROVIDER_KEY = "items";
+
+  public enum Hit {
+    MEMORY, PERSISTENCE, ENCRYPTED_PERSISTENCE
+  }
+
+  @Param public Hit hit;
+  @Param({Jolyglots.GSON, Jolyglots.JACKSON, Jolyglots.MOSHI}) public String jolyglot;
+  @Param({"100"}) public int items;
+
+  private File cacheDirectory;
+  private TwoLayersCache twoLayersCache;
+  private boolean encrypted;
+
+  @Setup public void setUp() throws IOException {
+    cacheDirectory = Caches.createTempDirectory();
+    Disk disk = Caches.disk(cacheDirectory, Jolyglots.of(jolyglot));
+    Memory memory = hit == Hit.MEMORY ? new ConcurrentReferenceMemory() : new Caches.NoMemory();
+    encrypted = hit == Hit.ENCRYPTED_PERSISTENCE;
+
+    twoLayersCache = Caches.twoLayersCache(memory, disk);
+    twoLayersCache.save(PROVIDER_KEY, "", "", Item.listOf(items), null, false, encrypted);
+  }
+
+  @TearDown public void tearDown() {
+    Caches.deleteRecursively(cacheDirectory);
+  }
+
+  @Benchmark public Record<List<Item>> retrieve() {
+    return twoLayersCache.retrieve(PROVIDER_KEY, "", "", false, null, encrypted);
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal;
+
+import io.reactivex.Observable;
+import io.rx_cache2.ConfigProvider;
+import io.rx_cache2.DynamicKeyGroup;
+import io.rx_cache2.EvictDynamicKeyGroup;
+import io.rx_cache2.LifeCache;
+import io.rx_cache2.benchmarks.Item;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the translation of a call to a provider into its {@link ConfigProvider} done by
+ * {@link ProxyTranslator} on every call to the proxy, without reaching the cache. It lives in the
+ * package of {@link ProxyTranslator} because the translator is not part of the public api.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProxyTranslatorBenchmark {
+  public interface Providers {
+    Observable<List<Item>> getItems(Observable<List<Item>> items);
+
+    @LifeCache(duration = 1, timeUnit = TimeUnit.MINUTES)
+    Observable<List<Item>> getItems(Observable<List<Item>> items, DynamicKeyGroup page,
+        EvictDynamicKeyGroup evict);
+  }
+
+  private ProxyTranslator proxyTranslator;
+  private Method provider, providerWithDynamicKeyGroup;
+  private Object[] args, argsWithDynamicKeyGroup;
+
+  @Setup public void setUp() throws NoSuchMethodException {
+    proxyTranslator = new ProxyTranslator();
+
+    provider = Providers.class.getMethod("getItems", Observable.class);
+    providerWithDynamicKeyGroup = Providers.class.getMethod("getItems", Observable.class,
+        DynamicKeyGroup.class, EvictDynamicKeyGroup.class);
+
+    Observable<List<Item>> loader = Observable.just(Item.listOf(1));
+    args = new Object[] {loader};
+    argsWithDynamicKeyGroup = new Object[] {loader, new DynamicKeyGroup(1, "items"),
+        new EvictDynamicKeyGroup(false)};
+  }
+
+  @Benchmark public ConfigProvider provider() {
+    return proxyTranslator.processMethod(provider, args);
+  }
+
+  @Benchmark public ConfigProvider providerWithDynamicKeyGroup() {
+    return proxyTranslator.processMethod(providerWithDynamicKeyGroup, argsWithDynamicKeyGroup);
+  }
+}
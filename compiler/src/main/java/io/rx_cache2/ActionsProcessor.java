@@ -40,6 +40,8 @@ public final class ActionsProcessor extends AbstractProcessor {
     private Filer filer;
     private GetProvidersClass getProvidersClass;
     private BrewJavaFile brewJavaFile;
+    private GetProvidersImplementation getProvidersImplementation;
+    private BrewProvidersImplementation brewProvidersImplementation;
 
     @Override public synchronized void init(ProcessingEnvironment env) {
         super.init(env);
@@ -47,6 +49,9 @@ public final class ActionsProcessor extends AbstractProcessor {
         this.filer = env.getFiler();
         this.getProvidersClass = new GetProvidersClass();
         this.brewJavaFile = new BrewJavaFile();
+        this.getProvidersImplementation =
+                new GetProvidersImplementation(env.getElementUtils(), env.getTypeUtils());
+        this.brewProvidersImplementation = new BrewProvidersImplementation(env.getTypeUtils());
     }
 
     @Override public SourceVersion getSupportedSourceVersion() {
@@ -54,6 +59,21 @@ public final class ActionsProcessor extends AbstractProcessor {
     }
 
     @Override public boolean process(Set<? extends TypeElement> elements, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateProviders.class)) {
+            try {
+                ProvidersImplementation providersImplementation =
+                        getProvidersImplementation.from(element);
+                if (providersImplementation == null) continue;
+
+                JavaFile javaFile = brewProvidersImplementation.from(providersImplementation);
+                javaFile.writeTo(filer);
+            } catch (GetProvidersClass.ValidationException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), e.getElement());
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR, e.getMessage(), element);
+            }
+        }
+
         for (Element element : roundEnv.getRootElements()) {
             try {
                 ProvidersClass testClass = getProvidersClass.from(element);
@@ -75,6 +95,7 @@ public final class ActionsProcessor extends AbstractProcessor {
     @Override public Set<String> getSupportedAnnotationTypes() {
         Set<String> annotations = new LinkedHashSet();
         annotations.add(Actionable.class.getCanonicalName());
+        annotations.add(GenerateProviders.class.getCanonicalName());
         return annotations;
     }
 
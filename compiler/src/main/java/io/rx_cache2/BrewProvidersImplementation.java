@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.rx_cache2;
+
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.rx_cache2.internal.ProcessorProviders;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.Generated;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+
+/**
+ * Generates the implementation of a providers interface annotated with {@link GenerateProviders}.
+ * Every provider holds its {@link ConfigProvider} as a constant and its calls are dispatched
+ * straight to {@link ProcessorProviders}, which is what the proxy ends up doing after reflecting
+ * over the method.
+ */
+final class BrewProvidersImplementation {
+    //Keep it in sync with io.rx_cache2.internal.ProxyProviders, which looks the class up by its name
+    static final String SUFFIX = "_RxCache";
+    private static final String NOT_EVICTING = "NOT_EVICTING";
+    private final Types types;
+
+    BrewProvidersImplementation(Types types) {
+        this.types = types;
+    }
+
+    JavaFile from(ProvidersImplementation providersImplementation) {
+        ClassName className = providersImplementation.className;
+
+        StringBuilder name = new StringBuilder();
+        for (String simpleName : className.simpleNames()) {
+            name.append(simpleName).append('_');
+        }
+        name.setLength(name.length() - 1);
+        name.append(SUFFIX);
+
+        TypeSpec.Builder builder = TypeSpec.classBuilder(name.toString())
+                .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+                .addSuperinterface(className)
+                .addAnnotation(AnnotationSpec.builder(Generated.class)
+                        .addMember("value", "$S", ActionsProcessor.class.getCanonicalName())
+                        .addMember("comments", "$S", "Generated code from RxCache. Don't modify. Or modify. It doesn't matter.")
+                        .build())
+                .addField(FieldSpec.builder(EvictProvider.class, NOT_EVICTING,
+                        Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                        .initializer("new $T(false)", EvictProvider.class)
+                        .build())
+                .addField(ProcessorProviders.class, "processorProviders",
+                        Modifier.PRIVATE, Modifier.FINAL)
+                .addMethod(MethodSpec.constructorBuilder()
+                        .addModifiers(Modifier.PUBLIC)
+                        .addParameter(ProcessorProviders.class, "processorProviders")
+                        .addStatement("this.processorProviders = processorProviders")
+                        .build());
+
+        Set<String> configNames = new HashSet<>();
+        for (ProvidersImplementation.Provider provider : providersImplementation.providers) {
+            String configName = configName(provider, configNames);
+            builder.addField(config(provider, configName));
+            builder.addMethod(provider(providersImplementation.type, provider, configName));
+        }
+
+        return JavaFile.builder(className.packageName(), builder.build())
+                .build();
+    }
+
+    /**
+     * The name of the constant which holds the config of the provider, numbered if it is
+     * overloaded.
+     */
+    private String configName(ProvidersImplementation.Provider provider, Set<String> configNames) {
+        String methodName = provider.element.getSimpleName().toString();
+        StringBuilder name = new StringBuilder("CONFIG_");
+        for (int i = 0; i < methodName.length(); i++) {
+            char c = methodName.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) name.append('_');
+            name.append(Character.toUpperCase(c));
+        }
+
+        String configName = name.toString();
+        for (int i = 2; !configNames.add(configName); i++) {
+            configName = name.toString() + "_" + i;
+        }
+        return configName;
+    }
+
+    private FieldSpec config(ProvidersImplementation.Provider provider, String configName) {
+        CodeBlock lifeTime = provider.lifeTimeMillis != null
+                ? CodeBlock.of("$LL", provider.lifeTimeMillis) : CodeBlock.of("null");
+        CodeBlock copyStrategy = provider.copyStrategy != null
+                ? CodeBlock.of("$T.$L", CopyStrategy.class, provider.copyStrategy.name())
+                : CodeBlock.of("null");
+
+        return FieldSpec.builder(ConfigProvider.class, configName,
+                Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("new $T($S, null, $L, $L, $L, $L, $L, $Lf, $L, null, null, null, null)",
+                        ConfigProvider.class, provider.providerKey, lifeTime,
+                        provider.requiredDetailedResponse, provider.expirable, provider.encrypted,
+                        provider.staleWhileRevalidate, provider.refreshAhead, copyStrategy)
+                .build();
+    }
+
+    private MethodSpec provider(DeclaredType type, ProvidersImplementation.Provider provider,
+                                String configName) {
+        List<? extends VariableElement> params = provider.element.getParameters();
+
+        CodeBlock loader = provider.loaderType == ProvidersImplementation.ReactiveType.OBSERVABLE
+                ? CodeBlock.of("$N", name(params, provider.loaderIndex))
+                : CodeBlock.of("$N.toObservable()", name(params, provider.loaderIndex));
+
+        CodeBlock dynamicKey;
+        if (provider.dynamicKeyIndex != -1) {
+            dynamicKey = CodeBlock.of("$N.getDynamicKey().toString()", name(params, provider.dynamicKeyIndex));
+        } else if (provider.dynamicKeyGroupIndex != -1) {
+            dynamicKey = CodeBlock.of("$N.getDynamicKey().toString()", name(params, provider.dynamicKeyGroupIndex));
+        } else {
+            dynamicKey = CodeBlock.of("$S", "");
+        }
+
+        CodeBlock dynamicKeyGroup = provider.dynamicKeyGroupIndex != -1
+                ? CodeBlock.of("$N.getGroup().toString()", name(params, provider.dynamicKeyGroupIndex))
+                : CodeBlock.of("$S", "");
+
+        CodeBlock evictProvider = provider.evictProviderIndex != -1
+                ? CodeBlock.of("$N", name(params, provider.evictProviderIndex))
+                : CodeBlock.of("$N", NOT_EVICTING);
+
+        CodeBlock process = CodeBlock.of("this.processorProviders.process($N.with($L, $L, $L, $L))",
+                configName, dynamicKey, dynamicKeyGroup, loader, evictProvider);
+
+        MethodSpec.Builder builder = MethodSpec.overriding(provider.element, type, types);
+
+        if (provider.returnType == ProvidersImplementation.ReactiveType.OBSERVABLE) {
+            return builder.addStatement("return $L", process).build();
+        }
+
+        String observable = "observable";
+        while (contains(params, observable)) observable += "_";
+
+        builder.addStatement("$T $N = $L", observableOf(provider.type.getReturnType()),
+                observable, process);
+
+        switch (provider.returnType) {
+            case SINGLE:
+                builder.addStatement("return $T.fromObservable($N)", Single.class, observable);
+                break;
+            case MAYBE:
+                builder.addStatement("return $T.fromSingle($T.fromObservable($N))", Maybe.class,
+                        Single.class, observable);
+                break;
+            default:
+                builder.addStatement("return $N.toFlowable($T.MISSING)", observable,
+                        BackpressureStrategy.class);
+                break;
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * The Observable which emits the same type than the reactive type returned by the provider.
+     */
+    private TypeName observableOf(TypeMirror returnType) {
+        List<? extends TypeMirror> typeArguments = ((DeclaredType) returnType).getTypeArguments();
+        if (typeArguments.isEmpty()) return ClassName.get(Observable.class);
+        return ParameterizedTypeName.get(ClassName.get(Observable.class),
+                TypeName.get(typeArguments.get(0)));
+    }
+
+    private String name(List<? extends VariableElement> params, int index) {
+        return params.get(index).getSimpleName().toString();
+    }
+
+    private boolean contains(List<? extends VariableElement> params, String name) {
+        for (VariableElement param : params) {
+            if (param.getSimpleName().contentEquals(name)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.rx_cache2;
+
+import com.google.auto.common.SuperficialValidation;
+import com.squareup.javapoet.ClassName;
+import java.util.ArrayList;
+import java.util.List;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Resolves the configuration of the providers of an interface annotated with
+ * {@link GenerateProviders} as {@link io.rx_cache2.internal.ProxyTranslator} does at runtime, so
+ * the implementation generated behaves as the proxy.
+ */
+final class GetProvidersImplementation {
+    private final Elements elements;
+    private final Types types;
+
+    GetProvidersImplementation(Elements elements, Types types) {
+        this.elements = elements;
+        this.types = types;
+    }
+
+    ProvidersImplementation from(Element element) throws GetProvidersClass.ValidationException {
+        if (!SuperficialValidation.validateElement(element)) return null;
+
+        if (element.getKind() != ElementKind.INTERFACE) {
+            throw new GetProvidersClass.ValidationException(element,
+                    "Error parsing %s. Only interfaces can be annotated with @GenerateProviders", element);
+        }
+
+        TypeElement typeElement = (TypeElement) element;
+        if (!typeElement.getTypeParameters().isEmpty()) {
+            throw new GetProvidersClass.ValidationException(element,
+                    "Error parsing %s. Generic interfaces can not be annotated with @GenerateProviders", element);
+        }
+
+        DeclaredType type = (DeclaredType) typeElement.asType();
+        List<ProvidersImplementation.Provider> providers = new ArrayList<>();
+
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(typeElement))) {
+            if (!method.getModifiers().contains(Modifier.ABSTRACT)) continue;
+            if (method.getEnclosingElement().getKind() != ElementKind.INTERFACE) continue;
+
+            providers.add(getProvider(type, method));
+        }
+
+        return new ProvidersImplementation(typeElement, type, ClassName.get(typeElement), providers);
+    }
+
+    private ProvidersImplementation.Provider getProvider(DeclaredType type, ExecutableElement method)
+            throws GetProvidersClass.ValidationException {
+        String nameMethod = method.getSimpleName().toString();
+
+        if (!method.getTypeParameters().isEmpty()) {
+            throw new GetProvidersClass.ValidationException(method,
+                    "Error parsing %s provider. Generic providers are not supported", nameMethod);
+        }
+
+        ExecutableType methodType = (ExecutableType) types.asMemberOf(type, method);
+
+        ProvidersImplementation.ReactiveType returnType = reactiveType(methodType.getReturnType());
+        if (returnType == null) {
+            throw new GetProvidersClass.ValidationException(method,
+                    "Error parsing %s provider. Only Observable, Single, Maybe or Flowable are supported as return type", nameMethod);
+        }
+
+        List<? extends TypeMirror> params = methodType.getParameterTypes();
+
+        ProvidersImplementation.ReactiveType loaderType = null;
+        int loaderIndex = -1;
+        for (ProvidersImplementation.ReactiveType candidate : ProvidersImplementation.ReactiveType.values()) {
+            loaderIndex = indexOf(method, params, candidate.typeClass);
+            if (loaderIndex != -1) {
+                loaderType = candidate;
+                break;
+            }
+        }
+
+        if (loaderType == null) {
+            throw new GetProvidersClass.ValidationException(method,
+                    "Error parsing %s provider. The provider requires one reactive type as loader: Observable, Single, Maybe or Flowable", nameMethod);
+        }
+
+        ProviderKey providerKey = method.getAnnotation(ProviderKey.class);
+        LifeCache lifeCache = method.getAnnotation(LifeCache.class);
+        Expirable expirable = method.getAnnotation(Expirable.class);
+        RefreshAhead refreshAhead = method.getAnnotation(RefreshAhead.class);
+        DeepCopy deepCopy = method.getAnnotation(DeepCopy.class);
+
+        return new ProvidersImplementation.Provider(method, methodType,
+                providerKey != null ? providerKey.value() : nameMethod,
+                lifeCache != null ? lifeCache.timeUnit().toMillis(lifeCache.duration()) : null,
+                methodType.getReturnType().toString().contains(Reply.class.getName()),
+                expirable == null || expirable.value(),
+                method.getAnnotation(Encrypt.class) != null,
+                method.getAnnotation(StaleWhileRevalidate.class) != null,
+                refreshAhead != null ? refreshAhead.value() : 0f,
+                deepCopy != null ? deepCopy.value() : null,
+                returnType, loaderType, loaderIndex,
+                indexOf(method, params, DynamicKey.class),
+                indexOf(method, params, DynamicKeyGroup.class),
+                indexOf(method, params, EvictProvider.class));
+    }
+
+    private ProvidersImplementation.ReactiveType reactiveType(TypeMirror type) {
+        if (type.getKind() != TypeKind.DECLARED) return null;
+
+        for (ProvidersImplementation.ReactiveType candidate : ProvidersImplementation.ReactiveType.values()) {
+            if (types.isSameType(types.erasure(type), erasure(candidate.typeClass))) return candidate;
+        }
+
+        return null;
+    }
+
+    /**
+     * Retrieve the index of the argument assignable to the class supplied, or -1 if there is none.
+     */
+    private int indexOf(ExecutableElement method, List<? extends TypeMirror> params,
+                        Class<?> candidateClass) throws GetProvidersClass.ValidationException {
+        TypeMirror candidate = erasure(candidateClass);
+        int index = -1;
+
+        for (int i = 0; i < params.size(); i++) {
+            if (!types.isAssignable(types.erasure(params.get(i)), candidate)) continue;
+
+            if (index != -1) {
+                throw new GetProvidersClass.ValidationException(method,
+                        "Error parsing %s provider. It supplies more than one argument of type %s", method.getSimpleName(), candidateClass.getSimpleName());
+            }
+            index = i;
+        }
+
+        return index;
+    }
+
+    private TypeMirror erasure(Class<?> candidateClass) {
+        return types.erasure(elements.getTypeElement(candidateClass.getCanonicalName()).asType());
+    }
+}
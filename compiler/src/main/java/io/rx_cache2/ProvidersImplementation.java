@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.rx_cache2;
+
+import com.squareup.javapoet.ClassName;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import java.util.List;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+
+/**
+ * A providers interface annotated with {@link GenerateProviders} and the configuration of its
+ * providers, resolved from their annotations.
+ */
+final class ProvidersImplementation {
+    final TypeElement element;
+    final DeclaredType type;
+    final ClassName className;
+    final List<Provider> providers;
+
+    ProvidersImplementation(TypeElement element, DeclaredType type, ClassName className,
+                            List<Provider> providers) {
+        this.element = element;
+        this.type = type;
+        this.className = className;
+        this.providers = providers;
+    }
+
+    static class Provider {
+        final ExecutableElement element;
+        final ExecutableType type;
+        final String providerKey;
+        final Long lifeTimeMillis;
+        final boolean requiredDetailedResponse, expirable, encrypted, staleWhileRevalidate;
+        final float refreshAhead;
+        final CopyStrategy copyStrategy;
+        final ReactiveType returnType, loaderType;
+        final int loaderIndex, dynamicKeyIndex, dynamicKeyGroupIndex, evictProviderIndex;
+
+        Provider(ExecutableElement element, ExecutableType type, String providerKey,
+                 Long lifeTimeMillis, boolean requiredDetailedResponse, boolean expirable,
+                 boolean encrypted, boolean staleWhileRevalidate, float refreshAhead,
+                 CopyStrategy copyStrategy, ReactiveType returnType, ReactiveType loaderType,
+                 int loaderIndex, int dynamicKeyIndex, int dynamicKeyGroupIndex,
+                 int evictProviderIndex) {
+            this.element = element;
+            this.type = type;
+            this.providerKey = providerKey;
+            this.lifeTimeMillis = lifeTimeMillis;
+            this.requiredDetailedResponse = requiredDetailedResponse;
+            this.expirable = expirable;
+            this.encrypted = encrypted;
+            this.staleWhileRevalidate = staleWhileRevalidate;
+            this.refreshAhead = refreshAhead;
+            this.copyStrategy = copyStrategy;
+            this.returnType = returnType;
+            this.loaderType = loaderType;
+            this.loaderIndex = loaderIndex;
+            this.dynamicKeyIndex = dynamicKeyIndex;
+            this.dynamicKeyGroupIndex = dynamicKeyGroupIndex;
+            this.evictProviderIndex = evictProviderIndex;
+        }
+    }
+
+    /**
+     * The reactive types supported as loader and as return type of the providers, in the order in
+     * which the loader is looked for among the arguments.
+     */
+    enum ReactiveType {
+        OBSERVABLE(Observable.class),
+        SINGLE(Single.class),
+        MAYBE(Maybe.class),
+        FLOWABLE(Flowable.class);
+
+        final Class<?> typeClass;
+
+        ReactiveType(Class<?> typeClass) {
+            this.typeClass = typeClass;
+        }
+    }
+}
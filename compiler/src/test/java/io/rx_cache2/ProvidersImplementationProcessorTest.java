@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.rx_cache2;
+
+import com.google.testing.compile.JavaFileObjects;
+
+import org.junit.Test;
+
+import javax.tools.JavaFileObject;
+
+import static com.google.common.truth.Truth.assertAbout;
+import static com.google.testing.compile.JavaSourceSubjectFactory.javaSource;
+
+public class ProvidersImplementationProcessorTest {
+
+    @Test public void Test_Processor() throws Exception {
+        JavaFileObject source = JavaFileObjects.forSourceString("RxProviders", ""
+            + "package test;\n"
+            + "import io.reactivex.Observable;\n"
+            + "import io.reactivex.Single;\n"
+            + "import io.rx_cache2.DynamicKey;\n"
+            + "import io.rx_cache2.EvictDynamicKey;\n"
+            + "import io.rx_cache2.GenerateProviders;\n"
+            + "import io.rx_cache2.LifeCache;\n"
+            + "import io.rx_cache2.Mock;\n"
+            + "import io.rx_cache2.ProviderKey;\n"
+            + "import io.rx_cache2.Reply;\n"
+            + "import java.util.List;\n"
+            + "import java.util.concurrent.TimeUnit;\n"
+            + "\n"
+            + "@GenerateProviders\n"
+            + "public interface RxProviders {\n"
+            + "  @LifeCache(duration = 1, timeUnit = TimeUnit.MINUTES)\n"
+            + "  Observable<List<Mock>> getMocks(Observable<List<Mock>> oMocks);\n"
+            + "\n"
+            + "  @ProviderKey(\"mocks-dynamic-key\")\n"
+            + "  Single<Reply<List<Mock>>> getMocksDynamicKey(Single<List<Mock>> oMocks, DynamicKey dynamicKey,\n"
+            + "      EvictDynamicKey evictDynamicKey);\n"
+            + "}");
+
+        JavaFileObject expectedSource = JavaFileObjects.forSourceString("test/RxProviders_RxCache", ""
+            + "package test;\n"
+            + "\n"
+            + "import io.reactivex.Observable;\n"
+            + "import io.reactivex.Single;\n"
+            + "import io.rx_cache2.ConfigProvider;\n"
+            + "import io.rx_cache2.DynamicKey;\n"
+            + "import io.rx_cache2.EvictDynamicKey;\n"
+            + "import io.rx_cache2.EvictProvider;\n"
+            + "import io.rx_cache2.Mock;\n"
+            + "import io.rx_cache2.Reply;\n"
+            + "import io.rx_cache2.internal.ProcessorProviders;\n"
+            + "import java.lang.Override;\n"
+            + "import java.util.List;\n"
+            + "import javax.annotation.Generated;\n"
+            + "\n"
+            + "@Generated(\n"
+            + "    value = \"io.rx_cache2.ActionsProcessor\",\n"
+            + "    comments = \"Generated code from RxCache. Don't modify. Or modify. It doesn't matter.\"\n"
+            + ")\n"
+            + "public final class RxProviders_RxCache implements RxProviders {\n"
+            + "  private static final EvictProvider NOT_EVICTING = new EvictProvider(false);\n"
+            + "\n"
+            + "  private static final ConfigProvider CONFIG_GET_MOCKS = new ConfigProvider(\"getMocks\", null, 60000L, false, true, false, false, 0.0f, null, null, null, null, null);\n"
+            + "\n"
+            + "  private static final ConfigProvider CONFIG_GET_MOCKS_DYNAMIC_KEY = new ConfigProvider(\"mocks-dynamic-key\", null, null, true, true, false, false, 0.0f, null, null, null, null, null);\n"
+            + "\n"
+            + "  private final ProcessorProviders processorProviders;\n"
+            + "\n"
+            + "  public RxProviders_RxCache(ProcessorProviders processorProviders) {\n"
+            + "    this.processorProviders = processorProviders;\n"
+            + "  }\n"
+            + "\n"
+            + "  @Override\n"
+            + "  public Observable<List<Mock>> getMocks(Observable<List<Mock>> oMocks) {\n"
+            + "    return this.processorProviders.process(CONFIG_GET_MOCKS.with(\"\", \"\", oMocks, NOT_EVICTING));\n"
+            + "  }\n"
+            + "\n"
+            + "  @Override\n"
+            + "  public Single<Reply<List<Mock>>> getMocksDynamicKey(Single<List<Mock>> oMocks,\n"
+            + "      DynamicKey dynamicKey, EvictDynamicKey evictDynamicKey) {\n"
+            + "    Observable<Reply<List<Mock>>> observable = this.processorProviders.process(CONFIG_GET_MOCKS_DYNAMIC_KEY.with(dynamicKey.getDynamicKey().toString(), \"\", oMocks.toObservable(), evictDynamicKey));\n"
+            + "    return Single.fromObservable(observable);\n"
+            + "  }\n"
+            + "}");
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new io.rx_cache2.ActionsProcessor())
+                .compilesWithoutError()
+                .and()
+                .generatesSources(expectedSource);
+    }
+
+    @Test public void When_Provider_Has_Not_Loader_Then_Fail() throws Exception {
+        JavaFileObject source = JavaFileObjects.forSourceString("RxProviders", ""
+            + "package test;\n"
+            + "import io.reactivex.Observable;\n"
+            + "import io.rx_cache2.GenerateProviders;\n"
+            + "import io.rx_cache2.Mock;\n"
+            + "import java.util.List;\n"
+            + "\n"
+            + "@GenerateProviders\n"
+            + "public interface RxProviders {\n"
+            + "  Observable<List<Mock>> getMocks(List<Mock> mocks);\n"
+            + "}");
+
+        assertAbout(javaSource()).that(source)
+                .processedWith(new io.rx_cache2.ActionsProcessor())
+                .failsToCompile()
+                .withErrorContaining("Error parsing getMocks provider. The provider requires one reactive type as loader");
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2;
+
+/**
+ * A snapshot of the statistics of the cache, either of every provider or of a single one.
+ *
+ * A request is a call to a provider which did not require to evict its records. It is a hit when
+ * it is served from the memory or from the persistence layer, and a miss when the loader has to be
+ * subscribed. The latencies of the memory and of the persistence layer are the ones of the
+ * retrievals of the records found on them, and the latency of the loader is the one of its
+ * subscriptions, successful or not. The misses which arrive while the loader of the same record is
+ * subscribed share it and count as coalesced loads rather than subscribing to their own loader.
+ *
+ * The evictions are the records evicted because of a provider which evicts its records, because
+ * they expired or because the persistence layer reached its size limit. The expired records evicted
+ * by the sweep done when the cache starts are only counted on the statistics of every provider.
+ *
+ * The writes are the ones done in the background by the write behind mode, which are only counted
+ * on the statistics of every provider as well.
+ */
+public final class CacheStats {
+  private final long memoryHits, persistenceHits, misses, loads, loadFailures, coalescedLoads,
+      evictions, queuedWrites, coalescedWrites, writes, failedWrites;
+  private final LatencyStats memoryLatency, persistenceLatency, loaderLatency;
+
+  public CacheStats(long memoryHits, long persistenceHits, long misses, long loads,
+      long loadFailures, long coalescedLoads, long evictions, long queuedWrites,
+      long coalescedWrites, long writes, long failedWrites, LatencyStats memoryLatency,
+      LatencyStats persistenceLatency, LatencyStats loaderLatency) {
+    this.memoryHits = memoryHits;
+    this.persistenceHits = persistenceHits;
+    this.misses = misses;
+    this.loads = loads;
+    this.loadFailures = loadFailures;
+    this.coalescedLoads = coalescedLoads;
+    this.evictions = evictions;
+    this.queuedWrites = queuedWrites;
+    this.coalescedWrites = coalescedWrites;
+    this.writes = writes;
+    this.failedWrites = failedWrites;
+    this.memoryLatency = memoryLatency;
+    this.persistenceLatency = persistenceLatency;
+    this.loaderLatency = loaderLatency;
+  }
+
+  public long getMemoryHits() {
+    return memoryHits;
+  }
+
+  public long getPersistenceHits() {
+    return persistenceHits;
+  }
+
+  public long getHits() {
+    return memoryHits + persistenceHits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  public long getRequests() {
+    return getHits() + misses;
+  }
+
+  /**
+   * The ratio of requests served from memory or from the persistence layer, 0 if there has not been
+   * any request.
+   */
+  public double getHitRatio() {
+    return ratio(getHits());
+  }
+
+  public double getMemoryHitRatio() {
+    return ratio(memoryHits);
+  }
+
+  public double getPersistenceHitRatio() {
+    return ratio(persistenceHits);
+  }
+
+  /**
+   * The number of times the loader emitted data which was cached.
+   */
+  public long getLoads() {
+    return loads;
+  }
+
+  /**
+   * The number of times the loader failed or did not emit any data.
+   */
+  public long getLoadFailures() {
+    return loadFailures;
+  }
+
+  /**
+   * The number of misses served by the loader of another request for the same record which was in
+   * progress, instead of subscribing to their own loader.
+   */
+  public long getCoalescedLoads() {
+    return coalescedLoads;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * The number of records queued to be written in the background.
+   */
+  public long getQueuedWrites() {
+    return queuedWrites;
+  }
+
+  /**
+   * The number of records queued which replaced a record of the same key before it was written.
+   */
+  public long getCoalescedWrites() {
+    return coalescedWrites;
+  }
+
+  /**
+   * The number of records written in the background.
+   */
+  public long getWrites() {
+    return writes;
+  }
+
+  /**
+   * The number of records which failed to be written in the background, which are dropped.
+   */
+  public long getFailedWrites() {
+    return failedWrites;
+  }
+
+  public LatencyStats getMemoryLatency() {
+    return memoryLatency;
+  }
+
+  public LatencyStats getPersistenceLatency() {
+    return persistenceLatency;
+  }
+
+  public LatencyStats getLoaderLatency() {
+    return loaderLatency;
+  }
+
+  private double ratio(long count) {
+    long requests = getRequests();
+    return requests == 0 ? 0 : (double) count / requests;
+  }
+
+  @Override public String toString() {
+    return getRequests() + " requests, " + memoryHits + " memory hits, " + persistenceHits
+        + " persistence hits, " + misses + " misses, " + loads + " loads, " + loadFailures
+        + " load failures, " + coalescedLoads + " coalesced loads, " + evictions + " evictions, "
+        + writes + " writes, " + failedWrites + " failed writes";
+  }
+}
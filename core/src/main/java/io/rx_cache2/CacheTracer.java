@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2;
+
+/**
+ * Traces the operations done by the cache, i.e. to emit them as Java Flight Recorder events with
+ * the tracer of the rx_cache2-jfr module. Every operation is started before it is done and its
+ * {@link Span} is finished after it, so the tracer measures its duration.
+ *
+ * The tracer is called on the hot paths of the cache, so it must return as soon as possible when
+ * it is not tracing, returning {@link Span#NONE} rather than allocating a span.
+ */
+public interface CacheTracer {
+  /**
+   * The tracer used when none is supplied, which does not trace anything.
+   */
+  CacheTracer NONE = new CacheTracer() {
+    @Override public Span start(Operation operation) {
+      return Span.NONE;
+    }
+  };
+
+  /**
+   * Starts tracing the operation, returning the span to finish once it is done.
+   */
+  Span start(Operation operation);
+
+  enum Operation {
+    /**
+     * The retrieval of a record, from memory or from persistence.
+     */
+    RETRIEVE,
+
+    /**
+     * The saving of a record, both in memory and in persistence.
+     */
+    SAVE,
+
+    /**
+     * The eviction of the records of a provider, a dynamic key or a dynamic key group.
+     */
+    EVICT,
+
+    /**
+     * The read of a record from its file.
+     */
+    DISK_READ,
+
+    /**
+     * The write of a record to its file.
+     */
+    DISK_WRITE,
+
+    /**
+     * The encryption of a record as it is written to its file. The record is serialized while it is
+     * encrypted, so it includes the serialization.
+     */
+    ENCRYPT,
+
+    /**
+     * The decryption of a record as it is read from its file. The record is deserialized while it
+     * is decrypted, so it includes the deserialization.
+     */
+    DECRYPT,
+
+    /**
+     * The migrations done when the cache starts.
+     */
+    MIGRATION,
+
+    /**
+     * The sweep which evicts the expired records when the cache starts.
+     */
+    EXPIRED_SWEEP
+  }
+
+  interface Span {
+    /**
+     * The span returned by the tracers which are not tracing the operation.
+     */
+    Span NONE = new Span() {
+      @Override public void finish(String key, Source source, long bytes) {
+      }
+    };
+
+    /**
+     * Finishes the operation.
+     *
+     * @param key The provider key of the record, or the name of its file for the operations on
+     * disk. Null if the operation does not concern a single provider.
+     * @param source The layer the record was retrieved from, null if it was not retrieved.
+     * @param bytes The size of the file read or written, or of the encrypted data for the
+     * encryption and the decryption, 0 if it is not known.
+     */
+    void finish(String key, Source source, long bytes);
+  }
+}
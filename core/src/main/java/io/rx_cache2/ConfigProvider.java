@@ -26,6 +26,9 @@ public final class ConfigProvider {
   private final boolean requiredDetailedResponse;
   private final boolean expirable;
   private final boolean encrypted;
+  private final boolean staleWhileRevalidate;
+  private final float refreshAhead;
+  private final CopyStrategy copyStrategy;
   private final String dynamicKey, dynamicKeyGroup;
   private final Observable loaderObservable;
   private final EvictProvider evictProvider;
@@ -34,12 +37,23 @@ public final class ConfigProvider {
       Long lifeTime, boolean requiredDetailedResponse,
       boolean expirable, boolean encrypted, String dynamicKey, String dynamicKeyGroup,
       Observable loaderObservable, EvictProvider evictProvider) {
+    this(providerKey, useExpiredDataIfNotLoaderAvailable, lifeTime, requiredDetailedResponse,
+        expirable, encrypted, false, 0f, null, dynamicKey, dynamicKeyGroup, loaderObservable, evictProvider);
+  }
+
+  public ConfigProvider(String providerKey, Boolean useExpiredDataIfNotLoaderAvailable,
+      Long lifeTime, boolean requiredDetailedResponse,
+      boolean expirable, boolean encrypted, boolean staleWhileRevalidate, float refreshAhead,
+      CopyStrategy copyStrategy, String dynamicKey, String dynamicKeyGroup, Observable loaderObservable, EvictProvider evictProvider) {
     this.providerKey = providerKey;
     this.useExpiredDataIfNotLoaderAvailable = useExpiredDataIfNotLoaderAvailable;
     this.lifeTime = lifeTime;
     this.requiredDetailedResponse = requiredDetailedResponse;
     this.expirable = expirable;
     this.encrypted = encrypted;
+    this.staleWhileRevalidate = staleWhileRevalidate;
+    this.refreshAhead = refreshAhead;
+    this.copyStrategy = copyStrategy;
     this.dynamicKey = dynamicKey;
     this.dynamicKeyGroup = dynamicKeyGroup;
     this.loaderObservable = loaderObservable;
@@ -47,6 +61,17 @@ public final class ConfigProvider {
     checkIntegrity();
   }
 
+  /**
+   * Retrieve a copy of this config, which holds the values resolved from the annotations of the
+   * provider, with the values of the arguments of a call to it.
+   */
+  public ConfigProvider with(String dynamicKey, String dynamicKeyGroup,
+      Observable loaderObservable, EvictProvider evictProvider) {
+    return new ConfigProvider(providerKey, useExpiredDataIfNotLoaderAvailable, lifeTime,
+        requiredDetailedResponse, expirable, encrypted, staleWhileRevalidate, refreshAhead,
+        copyStrategy, dynamicKey, dynamicKeyGroup, loaderObservable, evictProvider);
+  }
+
   public String getProviderKey() {
     return providerKey;
   }
@@ -83,6 +108,25 @@ public final class ConfigProvider {
     return encrypted;
   }
 
+  public boolean isStaleWhileRevalidate() {
+    return staleWhileRevalidate;
+  }
+
+  /**
+   * The fraction of the life time after which the record is refreshed in the background, or 0 if
+   * it is not refreshed ahead.
+   */
+  public float getRefreshAhead() {
+    return refreshAhead;
+  }
+
+  /**
+   * The strategy used to copy the data emitted, or null to use the one supplied to the builder.
+   */
+  public CopyStrategy getCopyStrategy() {
+    return copyStrategy;
+  }
+
   public Boolean useExpiredDataIfNotLoaderAvailable() {
     return useExpiredDataIfNotLoaderAvailable;
   }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2;
+
+/**
+ * Determines how the data of a record is copied before it is emitted, so the subscribers can not
+ * modify the record kept by the cache.
+ */
+public enum CopyStrategy {
+  /**
+   * The data is emitted as it is kept by the cache. Only suitable for immutable data, as the
+   * changes made by a subscriber would be observed by the next ones.
+   */
+  NONE,
+
+  /**
+   * The data is copied field by field using reflection. The objects are instantiated through their
+   * constructor without arguments, and the data which does not provide one is copied as
+   * {@link #SERIALIZATION} does.
+   */
+  REFLECTION,
+
+  /**
+   * The data is serialized and deserialized again.
+   */
+  SERIALIZATION
+}
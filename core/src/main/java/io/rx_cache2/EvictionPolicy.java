@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2;
+
+/**
+ * Determines which expirable records are evicted first from the persistence layer once it
+ * reaches its size limit. The accesses are tracked while the cache is alive, so the records which
+ * have not been accessed since it was created are the first ones evicted by any policy but
+ * {@link #TTL_FIRST}, starting from the oldest persisted.
+ */
+public enum EvictionPolicy {
+  /**
+   * The least recently accessed records are evicted first.
+   */
+  LRU,
+
+  /**
+   * The least frequently accessed records are evicted first, the least recently accessed among
+   * the ones accessed as often.
+   */
+  LFU,
+
+  /**
+   * Greedy-Dual-Size-Frequency: the records with the lowest number of accesses per byte are
+   * evicted first, so a large record needs to be accessed more often than a small one to be kept.
+   * The priority of the records accessed after an eviction is raised by the one of the last record
+   * evicted, so the records which were popular long ago age out.
+   */
+  GDSF,
+
+  /**
+   * The records which expire sooner are evicted first, the ones which never expire the last.
+   */
+  TTL_FIRST
+}
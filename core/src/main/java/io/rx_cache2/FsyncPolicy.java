@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.rx_cache2;
+
+/**
+ * Determines when the records written to disk are forced to the storage device. Records are always
+ * written to a temporary file which replaces the previous one once it is completely written, so
+ * a crash never leaves a partially written record; the policy only trades the durability of the
+ * latest writes against their latency.
+ *
+ * Forcing a record forces its contents and, where the platform allows it, the directory holding
+ * it, so the replacement of the previous file is durable too. On Windows and on the Android
+ * versions without java.nio.file only the contents are forced.
+ */
+public enum FsyncPolicy {
+  /**
+   * The records are never forced, the operating system decides when they are written.
+   */
+  NEVER,
+
+  /**
+   * Every record is forced before it replaces the previous one.
+   */
+  PER_WRITE,
+
+  /**
+   * The records written are forced in batches, periodically, on a background thread.
+   */
+  PERIODIC
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the distribution of the latencies of an operation. The percentiles are
+ * approximated by the upper bound of the range of latencies they fall into, which is at most 1/16
+ * larger than the latency measured.
+ *
+ * @see CacheStats
+ */
+public final class LatencyStats {
+  private final long count, totalNanos, maxNanos, p50Nanos, p90Nanos, p99Nanos, p999Nanos;
+
+  public LatencyStats(long count, long totalNanos, long maxNanos, long p50Nanos, long p90Nanos,
+      long p99Nanos, long p999Nanos) {
+    this.count = count;
+    this.totalNanos = totalNanos;
+    this.maxNanos = maxNanos;
+    this.p50Nanos = p50Nanos;
+    this.p90Nanos = p90Nanos;
+    this.p99Nanos = p99Nanos;
+    this.p999Nanos = p999Nanos;
+  }
+
+  /**
+   * The number of latencies measured.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  public long getMeanNanos() {
+    return count == 0 ? 0 : totalNanos / count;
+  }
+
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  public long getP50Nanos() {
+    return p50Nanos;
+  }
+
+  public long getP90Nanos() {
+    return p90Nanos;
+  }
+
+  public long getP99Nanos() {
+    return p99Nanos;
+  }
+
+  public long getP999Nanos() {
+    return p999Nanos;
+  }
+
+  @Override public String toString() {
+    return count + " measured, mean " + micros(getMeanNanos()) + "us, p50 " + micros(p50Nanos)
+        + "us, p90 " + micros(p90Nanos) + "us, p99 " + micros(p99Nanos) + "us, p99.9 "
+        + micros(p999Nanos) + "us, max " + micros(maxNanos) + "us";
+  }
+
+  private static long micros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+}
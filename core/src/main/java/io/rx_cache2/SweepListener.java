@@ -0,0 +1,26 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2;
+
+/**
+ * Receives the progress of the sweeps which go through every persisted record: the eviction of
+ * the expired records and the eviction of the classes required by the migrations. It is called
+ * from the threads which sweep the records, every so many records and once the sweep completes.
+ */
+public interface SweepListener {
+  void onProgress(SweepProgress progress);
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2;
+
+/**
+ * A snapshot of the progress of a sweep.
+ *
+ * @see SweepListener
+ */
+public final class SweepProgress {
+  private final String name;
+  private final int processed, total, evicted;
+  private final long elapsedMillis;
+  private final boolean completed;
+
+  public SweepProgress(String name, int processed, int total, int evicted, long elapsedMillis,
+      boolean completed) {
+    this.name = name;
+    this.processed = processed;
+    this.total = total;
+    this.evicted = evicted;
+    this.elapsedMillis = elapsedMillis;
+    this.completed = completed;
+  }
+
+  /**
+   * What the sweep evicts, i.e. the expired records.
+   */
+  public String getName() {
+    return name;
+  }
+
+  public int getProcessed() {
+    return processed;
+  }
+
+  public int getTotal() {
+    return total;
+  }
+
+  public int getEvicted() {
+    return evicted;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public boolean isCompleted() {
+    return completed;
+  }
+
+  /**
+   * The throughput of the sweep so far.
+   */
+  public float getRecordsPerSecond() {
+    if (elapsedMillis == 0) return processed;
+    return processed * 1000f / elapsedMillis;
+  }
+
+  @Override public String toString() {
+    return name + ": " + processed + "/" + total + " records processed, " + evicted + " evicted in "
+        + elapsedMillis + "ms";
+  }
+}
@@ -0,0 +1,577 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.rx_cache2.internal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact binary {@link Serializer}. Every value is written prefixed by a tag which identifies its
+ * kind, strings and containers are length-prefixed and objects are written field by field
+ * following a schema obtained by reflection, which is cached per class.
+ *
+ * The stream is self-describing: the name of every class and the names of the fields of every
+ * object schema are written once per stream, and later occurrences refer to them by index. Hence
+ * the type supplied on deserialization is not required to rebuild the object graph, and fields
+ * added or removed from a class since the data was persisted are tolerated.
+ *
+ * It is intended for plain data classes: transient and static fields are ignored, cyclic graphs
+ * are not supported and objects without a no-arg constructor are allocated without running any
+ * constructor, as json libraries do.
+ */
+public final class BinarySerializer implements Serializer {
+  private static final int MAGIC = 0x52584253;
+  private static final byte VERSION = 1;
+
+  private static final byte NULL = 0, BOOLEAN = 1, BYTE = 2, SHORT = 3, CHAR = 4, INT = 5,
+      LONG = 6, FLOAT = 7, DOUBLE = 8, STRING = 9, ENUM = 10, DATE = 11, BIG_INTEGER = 12,
+      BIG_DECIMAL = 13, BYTES = 14, ARRAY = 15, LIST = 16, SET = 17, MAP = 18, OBJECT = 19;
+
+  private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+
+  static {
+    for (Class<?> primitive : Arrays.<Class<?>>asList(boolean.class, byte.class, short.class,
+        char.class, int.class, long.class, float.class, double.class)) {
+      PRIMITIVES.put(primitive.getName(), primitive);
+    }
+  }
+
+  private final ConcurrentHashMap<Class<?>, ClassSchema> schemas = new ConcurrentHashMap<>();
+
+  @Override public void serialize(Object data, Type type, OutputStream outputStream)
+      throws IOException {
+    DataOutputStream output = new DataOutputStream(outputStream);
+    output.writeInt(MAGIC);
+    output.writeByte(VERSION);
+    new Writer(output).writeValue(data);
+    output.flush();
+  }
+
+  @Override public <T> T deserialize(InputStream inputStream, Type type) throws IOException {
+    DataInputStream input = new DataInputStream(inputStream);
+    if (input.readInt() != MAGIC || input.readByte() != VERSION) {
+      throw new IOException("The stream was not written by " + getClass().getSimpleName());
+    }
+
+    Object value = new Reader(input).readValue();
+    return (T) adapt(value, rawClass(type));
+  }
+
+  @Override public <T> T deserialize(File file, Type type) throws IOException {
+    InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+    try {
+      return deserialize(inputStream, type);
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  @Override public Type newParameterizedType(Type rawType, Type... typeArguments) {
+    return new ParameterizedTypeImpl(rawType, typeArguments);
+  }
+
+  @Override public Type arrayOf(Type componentType) {
+    Class<?> componentClass = rawClass(componentType);
+    return Array.newInstance(componentClass != null ? componentClass : Object.class, 0).getClass();
+  }
+
+  private ClassSchema schemaOf(Class<?> clazz) {
+    ClassSchema schema = schemas.get(clazz);
+    if (schema != null) return schema;
+
+    schema = new ClassSchema(clazz);
+    ClassSchema previous = schemas.putIfAbsent(clazz, schema);
+    return previous != null ? previous : schema;
+  }
+
+  private static Class<?> rawClass(Type type) {
+    if (type instanceof Class) return (Class<?>) type;
+    if (type instanceof ParameterizedType) return rawClass(((ParameterizedType) type).getRawType());
+    if (type instanceof GenericArrayType) return arrayOf(rawClass(
+        ((GenericArrayType) type).getGenericComponentType()));
+    return null;
+  }
+
+  private static Class<?> arrayOf(Class<?> componentClass) {
+    if (componentClass == null) componentClass = Object.class;
+    return Array.newInstance(componentClass, 0).getClass();
+  }
+
+  /**
+   * Containers are always rebuilt as array lists, linked hash sets and linked hash maps, so they
+   * are copied into the concrete class expected when it is not assignable from the former ones.
+   */
+  private static Object adapt(Object value, Class<?> expected) throws IOException {
+    if (value == null || expected == null || expected.isPrimitive()
+        || expected.isInstance(value)) {
+      return value;
+    }
+
+    try {
+      if (value instanceof Collection && Collection.class.isAssignableFrom(expected)
+          && !Modifier.isAbstract(expected.getModifiers())) {
+        Collection collection = (Collection) expected.newInstance();
+        collection.addAll((Collection) value);
+        return collection;
+      }
+
+      if (value instanceof Map && Map.class.isAssignableFrom(expected)
+          && !Modifier.isAbstract(expected.getModifiers())) {
+        Map map = (Map) expected.newInstance();
+        map.putAll((Map) value);
+        return map;
+      }
+    } catch (Exception e) {
+      throw new IOException("Unable to instantiate " + expected.getName(), e);
+    }
+
+    return value;
+  }
+
+  private static Class<?> classForName(String name) throws IOException {
+    Class<?> primitive = PRIMITIVES.get(name);
+    if (primitive != null) return primitive;
+
+    try {
+      return Class.forName(name);
+    } catch (ClassNotFoundException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static void writeString(DataOutputStream output, String value) throws IOException {
+    byte[] bytes = value.getBytes("UTF-8");
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = new byte[readLength(input)];
+    input.readFully(bytes);
+    return new String(bytes, "UTF-8");
+  }
+
+  private static int readLength(DataInputStream input) throws IOException {
+    int length = input.readInt();
+    if (length < 0) throw new IOException("Corrupt stream, negative length " + length);
+    return length;
+  }
+
+  /**
+   * Writes the values of a single stream, assigning an index to every class and schema the first
+   * time they are written.
+   */
+  private final class Writer {
+    private final DataOutputStream output;
+    private final Map<Class<?>, Integer> classes = new IdentityHashMap<>();
+    private final Map<Class<?>, Integer> objectSchemas = new IdentityHashMap<>();
+
+    Writer(DataOutputStream output) {
+      this.output = output;
+    }
+
+    void writeValue(Object value) throws IOException {
+      if (value == null) {
+        output.writeByte(NULL);
+      } else if (value instanceof String) {
+        output.writeByte(STRING);
+        writeString(output, (String) value);
+      } else if (value instanceof Integer) {
+        output.writeByte(INT);
+        output.writeInt((Integer) value);
+      } else if (value instanceof Long) {
+        output.writeByte(LONG);
+        output.writeLong((Long) value);
+      } else if (value instanceof Boolean) {
+        output.writeByte(BOOLEAN);
+        output.writeBoolean((Boolean) value);
+      } else if (value instanceof Double) {
+        output.writeByte(DOUBLE);
+        output.writeDouble((Double) value);
+      } else if (value instanceof Float) {
+        output.writeByte(FLOAT);
+        output.writeFloat((Float) value);
+      } else if (value instanceof Short) {
+        output.writeByte(SHORT);
+        output.writeShort((Short) value);
+      } else if (value instanceof Byte) {
+        output.writeByte(BYTE);
+        output.writeByte((Byte) value);
+      } else if (value instanceof Character) {
+        output.writeByte(CHAR);
+        output.writeChar((Character) value);
+      } else if (value instanceof Enum) {
+        output.writeByte(ENUM);
+        writeClass(((Enum) value).getDeclaringClass());
+        writeString(output, ((Enum) value).name());
+      } else if (value instanceof Date) {
+        output.writeByte(DATE);
+        output.writeLong(((Date) value).getTime());
+      } else if (value instanceof BigInteger) {
+        output.writeByte(BIG_INTEGER);
+        writeString(output, value.toString());
+      } else if (value instanceof BigDecimal) {
+        output.writeByte(BIG_DECIMAL);
+        writeString(output, value.toString());
+      } else if (value instanceof byte[]) {
+        byte[] bytes = (byte[]) value;
+        output.writeByte(BYTES);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+      } else if (value.getClass().isArray()) {
+        int length = Array.getLength(value);
+        output.writeByte(ARRAY);
+        writeClass(value.getClass().getComponentType());
+        output.writeInt(length);
+        for (int i = 0; i < length; i++) {
+          writeValue(Array.get(value, i));
+        }
+      } else if (value instanceof Collection) {
+        Collection<?> collection = (Collection<?>) value;
+        output.writeByte(value instanceof Set ? SET : LIST);
+        output.writeInt(collection.size());
+        for (Object element : collection) {
+          writeValue(element);
+        }
+      } else if (value instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>) value;
+        output.writeByte(MAP);
+        output.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          writeValue(entry.getKey());
+          writeValue(entry.getValue());
+        }
+      } else {
+        writeObject(value);
+      }
+    }
+
+    private void writeObject(Object value) throws IOException {
+      ClassSchema schema = schemaOf(value.getClass());
+      output.writeByte(OBJECT);
+
+      Integer index = objectSchemas.get(schema.clazz);
+      if (index != null) {
+        output.writeInt(index);
+      } else {
+        objectSchemas.put(schema.clazz, objectSchemas.size());
+        output.writeInt(-1);
+        writeString(output, schema.clazz.getName());
+        output.writeInt(schema.fields.length);
+        for (Field field : schema.fields) {
+          writeString(output, field.getName());
+        }
+      }
+
+      try {
+        for (Field field : schema.fields) {
+          writeValue(field.get(value));
+        }
+      } catch (IllegalAccessException e) {
+        throw new IOException(e);
+      }
+    }
+
+    private void writeClass(Class<?> clazz) throws IOException {
+      Integer index = classes.get(clazz);
+      if (index != null) {
+        output.writeInt(index);
+      } else {
+        classes.put(clazz, classes.size());
+        output.writeInt(-1);
+        writeString(output, clazz.getName());
+      }
+    }
+  }
+
+  /**
+   * Reads the values of a single stream, resolving the classes and schemas referenced by index.
+   */
+  private final class Reader {
+    private final DataInputStream input;
+    private final List<Class<?>> classes = new ArrayList<>();
+    private final List<StreamSchema> objectSchemas = new ArrayList<>();
+
+    Reader(DataInputStream input) {
+      this.input = input;
+    }
+
+    Object readValue() throws IOException {
+      byte tag = input.readByte();
+
+      switch (tag) {
+        case NULL:
+          return null;
+        case STRING:
+          return readString(input);
+        case INT:
+          return input.readInt();
+        case LONG:
+          return input.readLong();
+        case BOOLEAN:
+          return input.readBoolean();
+        case DOUBLE:
+          return input.readDouble();
+        case FLOAT:
+          return input.readFloat();
+        case SHORT:
+          return input.readShort();
+        case BYTE:
+          return input.readByte();
+        case CHAR:
+          return input.readChar();
+        case ENUM:
+          return Enum.valueOf((Class<Enum>) readClass(), readString(input));
+        case DATE:
+          return new Date(input.readLong());
+        case BIG_INTEGER:
+          return new BigInteger(readString(input));
+        case BIG_DECIMAL:
+          return new BigDecimal(readString(input));
+        case BYTES:
+          byte[] bytes = new byte[readLength(input)];
+          input.readFully(bytes);
+          return bytes;
+        case ARRAY:
+          return readArray();
+        case LIST:
+          int listSize = readLength(input);
+          List<Object> list = new ArrayList<>(Math.min(listSize, 1024));
+          for (int i = 0; i < listSize; i++) {
+            list.add(readValue());
+          }
+          return list;
+        case SET:
+          int setSize = readLength(input);
+          Set<Object> set = new LinkedHashSet<>();
+          for (int i = 0; i < setSize; i++) {
+            set.add(readValue());
+          }
+          return set;
+        case MAP:
+          int mapSize = readLength(input);
+          Map<Object, Object> map = new LinkedHashMap<>();
+          for (int i = 0; i < mapSize; i++) {
+            map.put(readValue(), readValue());
+          }
+          return map;
+        case OBJECT:
+          return readObject();
+        default:
+          throw new IOException("Corrupt stream, unknown tag " + tag);
+      }
+    }
+
+    private Object readArray() throws IOException {
+      Class<?> componentType = readClass();
+      int length = readLength(input);
+      Object array = Array.newInstance(componentType, length);
+
+      for (int i = 0; i < length; i++) {
+        Array.set(array, i, adapt(readValue(), componentType));
+      }
+
+      return array;
+    }
+
+    private Object readObject() throws IOException {
+      StreamSchema streamSchema = readStreamSchema();
+      Object instance = streamSchema.schema.newInstance();
+
+      try {
+        for (Field field : streamSchema.fields) {
+          Object value = readValue();
+          if (field != null) field.set(instance, adapt(value, field.getType()));
+        }
+      } catch (IllegalAccessException e) {
+        throw new IOException(e);
+      }
+
+      return instance;
+    }
+
+    private StreamSchema readStreamSchema() throws IOException {
+      int index = input.readInt();
+      if (index >= 0) {
+        if (index >= objectSchemas.size()) throw new IOException("Corrupt stream");
+        return objectSchemas.get(index);
+      }
+
+      ClassSchema schema = schemaOf(classForName(readString(input)));
+      Field[] fields = new Field[readLength(input)];
+      for (int i = 0; i < fields.length; i++) {
+        fields[i] = schema.fieldsByName.get(readString(input));
+      }
+
+      StreamSchema streamSchema = new StreamSchema(schema, fields);
+      objectSchemas.add(streamSchema);
+      return streamSchema;
+    }
+
+    private Class<?> readClass() throws IOException {
+      int index = input.readInt();
+      if (index >= 0) {
+        if (index >= classes.size()) throw new IOException("Corrupt stream");
+        return classes.get(index);
+      }
+
+      Class<?> clazz = classForName(readString(input));
+      classes.add(clazz);
+      return clazz;
+    }
+  }
+
+  /**
+   * The fields of a class as they were written on a particular stream. Fields which no longer
+   * exist are null, so their values are read and discarded.
+   */
+  private static final class StreamSchema {
+    final ClassSchema schema;
+    final Field[] fields;
+
+    StreamSchema(ClassSchema schema, Field[] fields) {
+      this.schema = schema;
+      this.fields = fields;
+    }
+  }
+
+  /**
+   * The serializable fields of a class, including the inherited ones, and the way to instantiate
+   * it.
+   */
+  private static final class ClassSchema {
+    private static Object unsafe;
+    private static Method allocateInstance;
+
+    final Class<?> clazz;
+    final Field[] fields;
+    final Map<String, Field> fieldsByName;
+    private final Constructor<?> constructor;
+
+    ClassSchema(Class<?> clazz) {
+      this.clazz = clazz;
+
+      List<Field> fields = new ArrayList<>();
+      this.fieldsByName = new HashMap<>();
+      for (Class<?> current = clazz; current != null && current != Object.class;
+          current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+              || field.isSynthetic() || fieldsByName.containsKey(field.getName())) {
+            continue;
+          }
+
+          field.setAccessible(true);
+          fields.add(field);
+          fieldsByName.put(field.getName(), field);
+        }
+      }
+      this.fields = fields.toArray(new Field[fields.size()]);
+
+      Constructor<?> constructor = null;
+      try {
+        constructor = clazz.getDeclaredConstructor();
+        constructor.setAccessible(true);
+      } catch (Exception ignore) {
+      }
+      this.constructor = constructor;
+    }
+
+    Object newInstance() throws IOException {
+      try {
+        if (constructor != null) return constructor.newInstance();
+        return allocateInstance(clazz);
+      } catch (Exception e) {
+        throw new IOException("Unable to instantiate " + clazz.getName(), e);
+      }
+    }
+
+    private static synchronized Object allocateInstance(Class<?> clazz) throws Exception {
+      if (allocateInstance == null) {
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        unsafe = theUnsafe.get(null);
+        allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+      }
+
+      return allocateInstance.invoke(unsafe, clazz);
+    }
+  }
+
+  private static final class ParameterizedTypeImpl implements ParameterizedType {
+    private final Type rawType;
+    private final Type[] typeArguments;
+
+    ParameterizedTypeImpl(Type rawType, Type[] typeArguments) {
+      this.rawType = rawType;
+      this.typeArguments = typeArguments.clone();
+    }
+
+    @Override public Type[] getActualTypeArguments() {
+      return typeArguments.clone();
+    }
+
+    @Override public Type getRawType() {
+      return rawType;
+    }
+
+    @Override public Type getOwnerType() {
+      return null;
+    }
+
+    @Override public boolean equals(Object other) {
+      if (!(other instanceof ParameterizedType)) return false;
+      ParameterizedType that = (ParameterizedType) other;
+      return rawType.equals(that.getRawType())
+          && Arrays.equals(typeArguments, that.getActualTypeArguments())
+          && that.getOwnerType() == null;
+    }
+
+    @Override public int hashCode() {
+      return rawType.hashCode() ^ Arrays.hashCode(typeArguments);
+    }
+  }
+}
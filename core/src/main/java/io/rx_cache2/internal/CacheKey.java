@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Identifies a record by its provider key, dynamic key and dynamic key group. The hash is computed
+ * from the parts once, so the memory layer never needs to concatenate them; the composed key is
+ * built the first time it is required and then reused.
+ */
+public final class CacheKey {
+  static final String PREFIX_DYNAMIC_KEY = "$d$d$d$";
+  static final String PREFIX_DYNAMIC_KEY_GROUP = "$g$g$g$";
+  private static final String PREFIX_HASH = "$h$h$h$";
+  private static final char ESCAPE = '%';
+  private static final String ESCAPED_SLASH = "%2F", ESCAPED_ESCAPE = "%25";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  //VisibleForTesting
+  static final int MAX_FILE_NAME_BYTES = 255;
+  private static final int HASHED_FILE_NAME_PREFIX_LENGTH = 64;
+
+  private final String providerKey, dynamicKey, dynamicKeyGroup;
+  private final int hash;
+  private String composedKey;
+
+  private CacheKey(String providerKey, String dynamicKey, String dynamicKeyGroup) {
+    this.providerKey = String.valueOf(providerKey);
+    this.dynamicKey = String.valueOf(dynamicKey);
+    this.dynamicKeyGroup = String.valueOf(dynamicKeyGroup);
+    this.hash = 31 * (31 * this.providerKey.hashCode() + this.dynamicKey.hashCode())
+        + this.dynamicKeyGroup.hashCode();
+  }
+
+  public static CacheKey of(String providerKey, String dynamicKey, String dynamicKeyGroup) {
+    return new CacheKey(providerKey, dynamicKey, dynamicKeyGroup);
+  }
+
+  /**
+   * Retrieve the key whose composed form is the one supplied, or null if it was not composed from a
+   * provider key, a dynamic key and a dynamic key group.
+   */
+  public static CacheKey parse(String composedKey) {
+    int dynamicKeyIndex = composedKey.lastIndexOf(PREFIX_DYNAMIC_KEY);
+    int groupIndex = composedKey.lastIndexOf(PREFIX_DYNAMIC_KEY_GROUP);
+    if (dynamicKeyIndex == -1 || groupIndex < dynamicKeyIndex + PREFIX_DYNAMIC_KEY.length()) {
+      return null;
+    }
+
+    CacheKey cacheKey = new CacheKey(composedKey.substring(0, dynamicKeyIndex),
+        composedKey.substring(dynamicKeyIndex + PREFIX_DYNAMIC_KEY.length(), groupIndex),
+        composedKey.substring(groupIndex + PREFIX_DYNAMIC_KEY_GROUP.length()));
+    cacheKey.composedKey = composedKey;
+    return cacheKey;
+  }
+
+  public String providerKey() {
+    return providerKey;
+  }
+
+  public String dynamicKey() {
+    return dynamicKey;
+  }
+
+  public String dynamicKeyGroup() {
+    return dynamicKeyGroup;
+  }
+
+  /**
+   * The key as it was composed before this type existed, which the persisted records are named
+   * after.
+   */
+  public String composedKey() {
+    String composedKey = this.composedKey;
+    if (composedKey == null) {
+      composedKey = providerKey + PREFIX_DYNAMIC_KEY + dynamicKey + PREFIX_DYNAMIC_KEY_GROUP
+          + dynamicKeyGroup;
+      this.composedKey = composedKey;
+    }
+    return composedKey;
+  }
+
+  /**
+   * Turns a key into a valid file name which maps back to it with {@link #fromFileName(String)}:
+   * '%' and '/' are percent-encoded and, if the name would exceed {@link #MAX_FILE_NAME_BYTES},
+   * it is shortened to its beginning followed by the SHA-1 of the whole key. A key without those
+   * chars which fits is returned as it is.
+   */
+  public static String toFileName(String key) {
+    String fileName = escape(key);
+
+    //A char is encoded with 3 bytes at most.
+    if (fileName.length() * 3 <= MAX_FILE_NAME_BYTES
+        || fileName.getBytes(UTF_8).length <= MAX_FILE_NAME_BYTES) {
+      return fileName;
+    }
+
+    int prefixLength = HASHED_FILE_NAME_PREFIX_LENGTH;
+    if (Character.isHighSurrogate(fileName.charAt(prefixLength - 1))) prefixLength--;
+    //Do not split an escaped char
+    int escapeIndex = fileName.lastIndexOf(ESCAPE, prefixLength - 1);
+    if (escapeIndex != -1 && escapeIndex > prefixLength - 3) prefixLength = escapeIndex;
+
+    return fileName.substring(0, prefixLength) + PREFIX_HASH + sha1(key);
+  }
+
+  /**
+   * Retrieve the key which the file name supplied was built from, or null if it was shortened
+   * with a hash, so the key can not be recovered from it.
+   */
+  public static String fromFileName(String fileName) {
+    if (isHashedFileName(fileName)) return null;
+    if (fileName.indexOf(ESCAPE) == -1) return fileName;
+
+    StringBuilder key = new StringBuilder(fileName.length());
+    for (int i = 0; i < fileName.length(); i++) {
+      char c = fileName.charAt(i);
+      if (c == ESCAPE && fileName.startsWith(ESCAPED_SLASH, i)) {
+        key.append('/');
+        i += 2;
+      } else if (c == ESCAPE && fileName.startsWith(ESCAPED_ESCAPE, i)) {
+        key.append(ESCAPE);
+        i += 2;
+      } else {
+        key.append(c);
+      }
+    }
+    return key.toString();
+  }
+
+  static boolean isHashedFileName(String fileName) {
+    return fileName.contains(PREFIX_HASH);
+  }
+
+  private static String escape(String key) {
+    if (key.indexOf('/') == -1 && key.indexOf(ESCAPE) == -1) return key;
+
+    StringBuilder fileName = new StringBuilder(key.length() + 8);
+    for (int i = 0; i < key.length(); i++) {
+      char c = key.charAt(i);
+      if (c == '/') fileName.append(ESCAPED_SLASH);
+      else if (c == ESCAPE) fileName.append(ESCAPED_ESCAPE);
+      else fileName.append(c);
+    }
+    return fileName.toString();
+  }
+
+  private static String sha1(String key) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(UTF_8));
+      char[] hex = new char[digest.length * 2];
+      for (int i = 0; i < digest.length; i++) {
+        hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+        hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+      }
+      return new String(hex);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof CacheKey)) return false;
+
+    CacheKey other = (CacheKey) o;
+    return hash == other.hash
+        && providerKey.equals(other.providerKey)
+        && dynamicKey.equals(other.dynamicKey)
+        && dynamicKeyGroup.equals(other.dynamicKeyGroup);
+  }
+
+  @Override public int hashCode() {
+    return hash;
+  }
+
+  @Override public String toString() {
+    return composedKey();
+  }
+}
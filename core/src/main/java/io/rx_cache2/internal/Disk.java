@@ -16,32 +16,49 @@
 
 package io.rx_cache2.internal;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Array;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import javax.inject.Inject;
 
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.FsyncPolicy;
 import io.rx_cache2.internal.encrypt.FileEncryptor;
-import io.victoralbertos.jolyglot.JolyglotGenerics;
 
 /**
  * Save objects in disk and evict them too. It uses Gson as json parser.
  */
 public final class Disk implements Persistence {
+  private static final int BUFFER_SIZE = 8 * 1024;
   private final File cacheDirectory;
   private final FileEncryptor fileEncryptor;
-  private final JolyglotGenerics jolyglot;
-
-  @Inject public Disk(File cacheDirectory, FileEncryptor fileEncryptor, JolyglotGenerics jolyglot) {
+  private final Serializer serializer;
+  private final DiskIndex diskIndex;
+  private final RecordTypes recordTypes;
+  private final DiskSync diskSync;
+  private final CacheTracer tracer;
+
+  @Inject public Disk(File cacheDirectory, FileEncryptor fileEncryptor, Serializer serializer,
+      FsyncPolicy fsyncPolicy, CacheTracer tracer) {
     this.cacheDirectory = cacheDirectory;
     this.fileEncryptor = fileEncryptor;
-    this.jolyglot = jolyglot;
+    this.serializer = serializer;
+    this.diskIndex = DiskIndex.of(cacheDirectory);
+    this.recordTypes = new RecordTypes(serializer);
+    this.diskSync = new DiskSync(fsyncPolicy);
+    this.tracer = tracer;
   }
 
   /**
@@ -59,36 +76,17 @@ public final class Disk implements Persistence {
   }
 
   /**
-   * Retrieve the names from all files in dir
+   * Retrieve the keys of all the files persisted, as they are tracked by the {@link DiskIndex}
    */
   @Override public List<String> allKeys() {
-    List<String> nameFiles = new ArrayList<>();
-
-    File[] files = cacheDirectory.listFiles();
-    if (files == null) return nameFiles;
-
-    for (File file : files) {
-      if (file.isFile()) {
-        nameFiles.add(file.getName());
-      }
-    }
-
-    return nameFiles;
+    return diskIndex.keys();
   }
 
   /**
    * Retrieve records accumulated memory in megabyte
    */
   @Override public int storedMB() {
-    long bytes = 0;
-
-    final File[] files = cacheDirectory.listFiles();
-    if (files == null) return 0;
-
-    for (File file : files) {
-      bytes += file.length();
-    }
-
+    long bytes = diskIndex.totalBytes();
     double megabytes = Math.ceil((double) bytes / 1024 / 1024);
     return (int) megabytes;
   }
@@ -103,68 +101,182 @@ public final class Disk implements Persistence {
    * @param encryptKey The key used to encrypt/decrypt the record to be persisted.
    */
   public void save(String key, Object data, boolean isEncrypted, String encryptKey) {
-    key = safetyKey(key);
-
-    String wrapperJSONSerialized;
+    String fileName = safetyKey(key);
 
-    if (data instanceof io.rx_cache2.internal.Record) {
-      Type type = jolyglot.newParameterizedType(data.getClass(), Object.class);
-      wrapperJSONSerialized = jolyglot.toJson(data, type);
-    } else {
-      wrapperJSONSerialized = jolyglot.toJson(data);
-    }
+    CacheTracer.Span span = tracer.start(CacheTracer.Operation.DISK_WRITE);
+    long bytes = 0;
+    File fileTmp = null;
+    try {
+      File file = new File(cacheDirectory, fileName);
+      //Loading the index deletes the temporary files it finds, so it must precede this one
+      diskIndex.load();
+      fileTmp = File.createTempFile(DiskIndex.TEMP_FILE_PREFIX, null, cacheDirectory);
+      FileOutputStream fileOutputStream = new FileOutputStream(fileTmp, false);
 
-    FileWriter fileWriter = null;
+      try {
+        OutputStream outputStream = new BufferedOutputStream(fileOutputStream, BUFFER_SIZE);
+
+        if (data instanceof io.rx_cache2.internal.Record) {
+          //The key is kept in the header when the file name can not be mapped back to it
+          String headerKey = CacheKey.fromFileName(fileName) == null ? key : null;
+          writeRecord(key, outputStream, (io.rx_cache2.internal.Record) data, headerKey,
+              isEncrypted, encryptKey);
+        } else {
+          writeBody(key, outputStream, data, null, isEncrypted, encryptKey);
+        }
 
-    try {
-      File file = new File(cacheDirectory, key);
-      fileWriter = new FileWriter(file, false);
-      fileWriter.write(wrapperJSONSerialized);
-      fileWriter.flush();
-      fileWriter.close();
-      fileWriter = null;
-
-      if (isEncrypted) {
-        fileEncryptor.encrypt(encryptKey, new File(cacheDirectory, key));
+        outputStream.flush();
+        diskSync.written(fileOutputStream);
+      } finally {
+        fileOutputStream.close();
       }
+
+      bytes = fileTmp.length();
+      commit(key, fileTmp, file, bytes, data instanceof io.rx_cache2.internal.Record
+          ? (io.rx_cache2.internal.Record) data : null);
+      diskSync.committed(file);
     } catch (Exception e) {
+      if (fileTmp != null) fileTmp.delete();
       throw new RuntimeException(e);
     } finally {
+      span.finish(key, null, bytes);
+    }
+  }
+
+  /**
+   * Write the {@link RecordHeader} of the record followed by the record serialized, which is
+   * encrypted if required. The header is never encrypted so it can be read on its own.
+   *
+   * Every record is written with its header, so the file describes the type of its data on its
+   * own and the {@link DiskIndex} is only a cache of its metadata.
+   *
+   * The serialized record is streamed into the file (through the cipher if encrypted), so no
+   * byte array as big as the whole file is allocated. It is still held entirely in memory by
+   * the {@link Serializer} while serialized, e.g. {@link JolyglotSerializer} builds the whole
+   * json as a String.
+   */
+  private void writeRecord(String key, OutputStream outputStream,
+      io.rx_cache2.internal.Record record, String headerKey, boolean isEncrypted,
+      String encryptKey) throws IOException {
+    Type type = serializer.newParameterizedType(record.getClass(), Object.class);
+    RecordHeader.from(record, isEncrypted, headerKey).write(outputStream);
+    writeBody(key, outputStream, record, type, isEncrypted, encryptKey);
+  }
+
+  private void writeBody(String key, OutputStream outputStream, Object data, Type type,
+      boolean isEncrypted, String encryptKey) throws IOException {
+    if (!isEncrypted) {
+      serializer.serialize(data, type, outputStream);
+      return;
+    }
+
+    CacheTracer.Span span = tracer.start(CacheTracer.Operation.ENCRYPT);
+    //Closing the cipher stream writes the final block, but the file must remain open to sync it
+    NonClosingOutputStream fileOutputStream = new NonClosingOutputStream(outputStream);
+    try {
+      OutputStream encryptedOutputStream = fileEncryptor.encrypt(encryptKey, fileOutputStream);
+      serializer.serialize(data, type, encryptedOutputStream);
+      encryptedOutputStream.close();
+    } finally {
+      span.finish(key, null, fileOutputStream.written);
+    }
+  }
+
+  /**
+   * Journal the record and then replace its file with the temporary one, so a crash in between
+   * leaves an entry without its file, which the index drops when it is loaded again. It is done
+   * holding the index, so it does not interleave with evictions.
+   */
+  private void commit(String key, File fileTmp, File file, long bytes,
+      io.rx_cache2.internal.Record record) throws IOException {
+    synchronized (diskIndex) {
+      diskIndex.put(key, bytes, record);
+
       try {
-        if (fileWriter != null) {
-          fileWriter.flush();
-          fileWriter.close();
-        }
+        replace(fileTmp, file);
       } catch (IOException e) {
-        e.printStackTrace();
+        file.delete();
+        diskIndex.remove(key);
+        throw e;
       }
     }
   }
 
+  /**
+   * Replace the file with the temporary one, which is atomic as long as the platform supports
+   * renaming over an existing file. Otherwise, the file is deleted first.
+   */
+  private static void replace(File fileTmp, File file) throws IOException {
+    if (fileTmp.renameTo(file)) return;
+
+    file.delete();
+    if (!fileTmp.renameTo(file)) {
+      throw new IOException("Unable to replace " + file);
+    }
+  }
+
   /**
    * Delete the object previously saved.
    *
    * @param key the key whereby the object could be deleted.
    */
   @Override public void evict(String key) {
-    key = safetyKey(key);
-    final File file = new File(cacheDirectory, key);
-    file.delete();
+    final File file = new File(cacheDirectory, safetyKey(key));
+
+    synchronized (diskIndex) {
+      file.delete();
+
+      try {
+        diskIndex.remove(key);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
   }
 
   /**
-   * Delete all objects previously saved.
+   * Delete the record previously saved unless the index knows it was saved at another time. It is
+   * done holding the index, so a save can not be committed between the check and the deletion.
+   *
+   * @param key the key whereby the record could be deleted.
+   * @param timeAtWhichWasPersisted the time at which the record to be deleted was persisted.
+   */
+  @Override public boolean evictIfPersistedAt(String key, long timeAtWhichWasPersisted) {
+    synchronized (diskIndex) {
+      DiskIndex.Entry entry = diskIndex.get(key);
+      //Only the entries of records know when they were persisted
+      if (entry != null && entry.expirable != null
+          && entry.timeAtWhichWasPersisted != timeAtWhichWasPersisted) {
+        return false;
+      }
+
+      evict(key);
+      return true;
+    }
+  }
+
+  /**
+   * Delete all objects previously saved. The temporary files of the saves in progress are kept, and
+   * those saves are committed either before or after the eviction, never in the middle of it.
    */
   @Override public void evictAll() {
-    File[] files = cacheDirectory.listFiles();
+    synchronized (diskIndex) {
+      File[] files = cacheDirectory.listFiles();
+
+      if (null != files) {
+        for (File file : files) {
+          if (file != null && !DiskIndex.isIndexFile(file.getName())
+              && !DiskIndex.isTempFile(file.getName()))
+            file.delete();
+        }
+      }
 
-    if (null != files) {
-      for (File file : files) {
-        if (file != null)
-          file.delete();
+      try {
+        diskIndex.clear();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
       }
     }
-
   }
 
   /**
@@ -176,23 +288,13 @@ public final class Disk implements Persistence {
    * @param encryptKey The key used to encrypt/decrypt the record to be persisted.
    */
   public <T> T retrieve(String key, final Class<T> clazz, boolean isEncrypted, String encryptKey) {
-    key = safetyKey(key);
-
-    File file = new File(cacheDirectory, key);
-
-    if (isEncrypted) {
-      file = fileEncryptor.decrypt(encryptKey, file);
-    }
+    File file = new File(cacheDirectory, safetyKey(key));
 
     try {
-      T data = jolyglot.fromJson(file, clazz);
+      T data = readFile(key, file, clazz, isEncrypted, encryptKey);
       return data;
     } catch (Exception ignore) {
       return null;
-    } finally {
-      if (isEncrypted) {
-        file.delete();
-      }
     }
   }
 
@@ -205,55 +307,119 @@ public final class Disk implements Persistence {
    */
   @Override public <T> io.rx_cache2.internal.Record<T> retrieveRecord(String key, boolean isEncrypted,
       String encryptKey) {
-    key = safetyKey(key);
+    File file = new File(cacheDirectory, safetyKey(key));
+    if (!file.exists()) {
+      forget(key);
+      return null;
+    }
 
-    File file = new File(cacheDirectory, key);
+    CacheTracer.Span span = tracer.start(CacheTracer.Operation.DISK_READ);
+    long bytes = 0;
+    InputStream inputStream = null;
 
     try {
-      if (isEncrypted) {
-        file = fileEncryptor.decrypt(encryptKey, file);
+      inputStream = new BufferedInputStream(new FileInputStream(file));
+      RecordHeader header = RecordHeader.read(inputStream);
+
+      if (header == null) {
+        inputStream.close();
+        inputStream = null;
+        bytes = file.length();
+        return retrieveLegacyRecord(key, file, isEncrypted, encryptKey);
       }
 
-      Type partialType = jolyglot.newParameterizedType(io.rx_cache2.internal.Record.class, Object.class);
-      io.rx_cache2.internal.Record tempDiskRecord = jolyglot.fromJson(file, partialType);
-
-      Class classData = tempDiskRecord.getDataClassName() == null
-          ? Object.class : Class.forName(tempDiskRecord.getDataClassName());
-      Class classCollectionData = tempDiskRecord.getDataCollectionClassName() == null
-          ? Object.class : Class.forName(tempDiskRecord.getDataCollectionClassName());
-
-      boolean isCollection = Collection.class.isAssignableFrom(classCollectionData);
-      boolean isArray = classCollectionData.isArray();
-      boolean isMap = Map.class.isAssignableFrom(classCollectionData);
-      io.rx_cache2.internal.Record<T> diskRecord;
-
-      if (isCollection) {
-        Type typeCollection = jolyglot.newParameterizedType(classCollectionData, classData);
-        Type typeRecord = jolyglot.newParameterizedType(io.rx_cache2.internal.Record.class, typeCollection);
-        diskRecord = jolyglot.fromJson(file.getAbsoluteFile(), typeRecord);
-      } else if (isArray) {
-        Type typeRecord = jolyglot.newParameterizedType(io.rx_cache2.internal.Record.class, classCollectionData);
-        diskRecord = jolyglot.fromJson(file.getAbsoluteFile(), typeRecord);
-      } else if (isMap) {
-        Class classKeyMap = Class.forName(tempDiskRecord.getDataKeyMapClassName());
-        Type typeMap = jolyglot.newParameterizedType(classCollectionData, classKeyMap, classData);
-        Type typeRecord = jolyglot.newParameterizedType(io.rx_cache2.internal.Record.class, typeMap);
-        diskRecord = jolyglot.fromJson(file.getAbsoluteFile(), typeRecord);
-      } else {
-        Type type = jolyglot.newParameterizedType(io.rx_cache2.internal.Record.class, classData);
-        diskRecord = jolyglot.fromJson(file.getAbsoluteFile(), type);
-      }
+      if (header.encrypted != isEncrypted) return null;
 
-      diskRecord.setSizeOnMb(file.length() / 1024f / 1024f);
+      //The header describes the type of the data, so the body is parsed just once
+      Type type = recordTypes.recordType(header.dataClassName, header.dataCollectionClassName,
+          header.dataKeyMapClassName);
+
+      bytes = file.length();
+      io.rx_cache2.internal.Record<T> diskRecord = isEncrypted
+          ? this.<io.rx_cache2.internal.Record<T>>deserializeDecrypted(key, inputStream, type,
+              bytes, encryptKey)
+          : serializer.<io.rx_cache2.internal.Record<T>>deserialize(inputStream, type);
+      diskRecord.setSizeOnMb(bytes / 1024f / 1024f);
 
       return diskRecord;
     } catch (Exception ignore) {
       return null;
     } finally {
-      if (isEncrypted) {
-        file.delete();
+      closeQuietly(inputStream);
+      span.finish(key, null, bytes);
+    }
+  }
+
+  /**
+   * Retrieve a Record persisted without {@link RecordHeader}, as every record was before it
+   * existed. The file contains the record serialized, encrypted if required.
+   */
+  private <T> io.rx_cache2.internal.Record<T> retrieveLegacyRecord(String key, File file,
+      boolean isEncrypted, String encryptKey) {
+    try {
+      Type partialType = serializer.newParameterizedType(io.rx_cache2.internal.Record.class, Object.class);
+      io.rx_cache2.internal.Record tempDiskRecord =
+          readFile(key, file, partialType, isEncrypted, encryptKey);
+
+      io.rx_cache2.internal.Record<T> diskRecord =
+          readFile(key, file, recordType(tempDiskRecord), isEncrypted, encryptKey);
+      diskRecord.setSizeOnMb(file.length() / 1024f / 1024f);
+
+      return diskRecord;
+    } catch (Exception ignore) {
+      return null;
+    }
+  }
+
+  /**
+   * Retrieve the metadata of the Record previously saved reading only its {@link RecordHeader}.
+   * Records persisted before the header existed require to be fully retrieved.
+   *
+   * @param key the key whereby the record could be retrieved.
+   * @param encryptKey The key used to decrypt legacy records.
+   */
+  @Override public <T> io.rx_cache2.internal.Record<T> retrieveRecordMetadata(String key,
+      String encryptKey) {
+    File file = new File(cacheDirectory, safetyKey(key));
+    if (!file.exists()) {
+      forget(key);
+      return null;
+    }
+
+    //The index already knows the metadata of the records it saved
+    DiskIndex.Entry entry = diskIndex.get(key);
+    if (entry != null && entry.expirable != null) {
+      io.rx_cache2.internal.Record<T> record = new io.rx_cache2.internal.Record<>(null,
+          entry.timeAtWhichWasPersisted, entry.lifeTime, entry.expirable, entry.dataClassName,
+          null, null);
+      record.setSizeOnMb(entry.sizeBytes / 1024f / 1024f);
+      return record;
+    }
+
+    try {
+      RecordHeader header = RecordHeader.read(file);
+
+      if (header != null) {
+        io.rx_cache2.internal.Record<T> record = header.toRecord(null);
+        record.setSizeOnMb(file.length() / 1024f / 1024f);
+        return record;
       }
+    } catch (IOException ignore) {
+      return null;
+    }
+
+    io.rx_cache2.internal.Record<T> record = retrieveLegacyRecord(key, file, false, encryptKey);
+
+    if (record == null && encryptKey != null && !encryptKey.isEmpty()) {
+      record = retrieveLegacyRecord(key, file, true, encryptKey);
     }
+
+    return record;
+  }
+
+  private Type recordType(io.rx_cache2.internal.Record tempDiskRecord) throws ClassNotFoundException {
+    return recordTypes.recordType(tempDiskRecord.getDataClassName(),
+        tempDiskRecord.getDataCollectionClassName(), tempDiskRecord.getDataKeyMapClassName());
   }
 
   /**
@@ -265,12 +431,10 @@ public final class Disk implements Persistence {
    */
   public <C extends Collection<T>, T> C retrieveCollection(String key, Class<C> classCollection,
       Class<T> classData) {
-    key = safetyKey(key);
-
     try {
-      File file = new File(cacheDirectory, key);
-      Type typeCollection = jolyglot.newParameterizedType(classCollection, classData);
-      T data = jolyglot.fromJson(file, typeCollection);
+      File file = new File(cacheDirectory, safetyKey(key));
+      Type typeCollection = serializer.newParameterizedType(classCollection, classData);
+      T data = readFile(file, typeCollection);
       return (C) data;
     } catch (Exception e) {
       return null;
@@ -287,13 +451,11 @@ public final class Disk implements Persistence {
    */
   public <M extends Map<K, V>, K, V> M retrieveMap(String key, Class classMap, Class<K> classMapKey,
       Class<V> classMapValue) {
-    key = safetyKey(key);
-
     try {
-      File file = new File(cacheDirectory, key);
+      File file = new File(cacheDirectory, safetyKey(key));
 
-      Type typeMap = jolyglot.newParameterizedType(classMap, classMapKey, classMapValue);
-      Object data = jolyglot.fromJson(file, typeMap);
+      Type typeMap = serializer.newParameterizedType(classMap, classMapKey, classMapValue);
+      Object data = readFile(file, typeMap);
 
       return (M) data;
     } catch (Exception e) {
@@ -308,13 +470,11 @@ public final class Disk implements Persistence {
    * @param classData type class contained by the Array
    */
   public <T> T[] retrieveArray(String key, Class<T> classData) {
-    key = safetyKey(key);
-
     try {
-      File file = new File(cacheDirectory, key);
+      File file = new File(cacheDirectory, safetyKey(key));
 
       Class<?> clazzArray = Array.newInstance(classData, 1).getClass();
-      Object data = jolyglot.fromJson(file, clazzArray);
+      Object data = readFile(file, clazzArray);
 
       return (T[]) data;
     } catch (Exception e) {
@@ -322,7 +482,92 @@ public final class Disk implements Persistence {
     }
   }
 
+  /**
+   * Remove the key of a file which no longer exists from the index. If the journal can not be
+   * written, the index drops it the next time it is loaded.
+   */
+  private void forget(String key) {
+    try {
+      diskIndex.remove(key);
+    } catch (IOException ignore) {
+    }
+  }
+
   private String safetyKey(String key) {
-    return key.replaceAll("/", "_");
+    return CacheKey.toFileName(key);
+  }
+
+  private <T> T readFile(File file, Type type) throws IOException {
+    return serializer.deserialize(file, type);
+  }
+
+  private <T> T readFile(String key, File file, Type type, boolean isEncrypted,
+      String encryptKey) throws IOException {
+    if (!isEncrypted) return serializer.deserialize(file, type);
+
+    InputStream inputStream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+
+    try {
+      return deserializeDecrypted(key, inputStream, type, file.length(), encryptKey);
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  /**
+   * Decrypt the data as it is read and deserialized, so the decrypted data never reaches the disk.
+   *
+   * @param bytes The size of the encrypted data, reported to the tracer.
+   */
+  private <T> T deserializeDecrypted(String key, InputStream inputStream, Type type, long bytes,
+      String encryptKey) throws IOException {
+    CacheTracer.Span span = tracer.start(CacheTracer.Operation.DECRYPT);
+    try {
+      InputStream decryptedInputStream =
+          new BufferedInputStream(fileEncryptor.decrypt(encryptKey, inputStream), BUFFER_SIZE);
+      return serializer.deserialize(decryptedInputStream, type);
+    } finally {
+      span.finish(key, null, bytes);
+    }
+  }
+
+  //VisibleForTesting
+  DiskSync diskSync() {
+    return diskSync;
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable == null) return;
+
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Keeps the stream open when it is closed, counting the bytes written to it meanwhile.
+   */
+  private static final class NonClosingOutputStream extends FilterOutputStream {
+    private long written;
+
+    NonClosingOutputStream(OutputStream outputStream) {
+      super(outputStream);
+    }
+
+    @Override public void write(int b) throws IOException {
+      out.write(b);
+      written++;
+    }
+
+    @Override public void write(byte[] bytes, int offset, int length) throws IOException {
+      out.write(bytes, offset, length);
+      written += length;
+    }
+
+    @Override public void close() throws IOException {
+      flush();
+    }
   }
-}
\ No newline at end of file
+}
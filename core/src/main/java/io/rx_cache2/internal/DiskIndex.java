@@ -0,0 +1,479 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the records persisted by {@link Disk}, by their keys, so listing the keys and
+ * computing the stored size does not require to read the files of the cache directory.
+ *
+ * The index is backed by an append-only journal which lives in the cache directory and it is
+ * replayed the first time the index is accessed. Then it is reconciled with the files listed in the
+ * cache directory, so a record whose journal entry was lost (or whose file was) is still tracked
+ * accurately, and the temporary files left by interrupted writes are deleted. When the journal does
+ * not exist (or it is corrupt) the index is rebuilt from the files alone.
+ *
+ * The journal is opened just to append every operation, so it is never held open. The operations
+ * fail with an IOException when the journal can not be written, before the index changes.
+ */
+final class DiskIndex {
+  static final String JOURNAL_FILE = "rx_cache.journal";
+  private static final String JOURNAL_FILE_TMP = "rx_cache.journal-tmp";
+  static final String TEMP_FILE_PREFIX = "rx_cache.tmp-";
+  private static final int MAGIC = 0x5258434A;
+  //The entries of the first version were keyed by file name rather than by the key of the record
+  private static final int VERSION = 2;
+  private static final byte OP_PUT = 1, OP_REMOVE = 2;
+  private static final int MIN_REDUNDANT_OPS_TO_COMPACT = 2000;
+
+  private static final Map<String, InstanceReference> INSTANCES = new HashMap<>();
+  //The references of the indexes collected, whose entries are removed from INSTANCES
+  private static final ReferenceQueue<DiskIndex> COLLECTED = new ReferenceQueue<>();
+
+  private final File cacheDirectory;
+  private final LinkedHashMap<String, Entry> entries;
+  private long totalBytes;
+  private int redundantOps;
+  private boolean loaded;
+  //False when the journal on disk does not match the entries, so it has to be rewritten
+  private boolean journalValid;
+
+  //VisibleForTesting
+  DiskIndex(File cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+    this.entries = new LinkedHashMap<>();
+  }
+
+  /**
+   * Retrieve the index associated with the cache directory, so every {@link Disk} instance
+   * which points to the same directory shares the same view of the persisted records.
+   */
+  static DiskIndex of(File cacheDirectory) {
+    String path = instancePath(cacheDirectory);
+
+    synchronized (INSTANCES) {
+      removeCollectedInstances();
+
+      InstanceReference reference = INSTANCES.get(path);
+      DiskIndex diskIndex = reference != null ? reference.get() : null;
+
+      if (diskIndex == null) {
+        diskIndex = new DiskIndex(cacheDirectory);
+        INSTANCES.put(path, new InstanceReference(path, diskIndex));
+      }
+
+      return diskIndex;
+    }
+  }
+
+  /**
+   * Remove the entries of the indexes collected, unless the path already maps to a new index.
+   * Called holding INSTANCES.
+   */
+  private static void removeCollectedInstances() {
+    InstanceReference reference;
+    while ((reference = (InstanceReference) COLLECTED.poll()) != null) {
+      if (INSTANCES.get(reference.path) == reference) INSTANCES.remove(reference.path);
+    }
+  }
+
+  private static String instancePath(File cacheDirectory) {
+    try {
+      return cacheDirectory.getCanonicalPath();
+    } catch (IOException e) {
+      return cacheDirectory.getAbsolutePath();
+    }
+  }
+
+  //VisibleForTesting
+  static boolean hasInstance(File cacheDirectory) {
+    synchronized (INSTANCES) {
+      removeCollectedInstances();
+      return INSTANCES.containsKey(instancePath(cacheDirectory));
+    }
+  }
+
+  static boolean isIndexFile(String name) {
+    return JOURNAL_FILE.equals(name) || JOURNAL_FILE_TMP.equals(name);
+  }
+
+  static boolean isTempFile(String name) {
+    return name.startsWith(TEMP_FILE_PREFIX);
+  }
+
+  /**
+   * Load the index, if it was not loaded yet. It must be called before creating any temporary
+   * file, because loading the index deletes the ones it finds.
+   */
+  synchronized void load() {
+    ensureLoaded();
+  }
+
+  synchronized void put(String key, long sizeBytes, Record record) throws IOException {
+    ensureLoaded();
+
+    Entry entry = record == null ? new Entry(sizeBytes, 0, null, null, null)
+        : new Entry(sizeBytes, record.getTimeAtWhichWasPersisted(), record.getLifeTime(),
+            record.getExpirable(), record.getDataClassName());
+
+    appendToJournal(OP_PUT, key, entry);
+
+    Entry previous = entries.put(key, entry);
+    if (previous != null) {
+      totalBytes -= previous.sizeBytes;
+      redundantOps++;
+    }
+    totalBytes += sizeBytes;
+
+    compactIfNeeded();
+  }
+
+  synchronized void remove(String key) throws IOException {
+    ensureLoaded();
+
+    if (!entries.containsKey(key)) return;
+    appendToJournal(OP_REMOVE, key, null);
+
+    Entry previous = entries.remove(key);
+    totalBytes -= previous.sizeBytes;
+    redundantOps++;
+
+    compactIfNeeded();
+  }
+
+  synchronized void clear() throws IOException {
+    ensureLoaded();
+
+    entries.clear();
+    totalBytes = 0;
+    rewriteJournal();
+  }
+
+  synchronized Entry get(String key) {
+    ensureLoaded();
+    return entries.get(key);
+  }
+
+  synchronized List<String> keys() {
+    ensureLoaded();
+    return new ArrayList<>(entries.keySet());
+  }
+
+  synchronized long totalBytes() {
+    ensureLoaded();
+    return totalBytes;
+  }
+
+  private void ensureLoaded() {
+    if (loaded) return;
+    loaded = true;
+
+    File journalFile = new File(cacheDirectory, JOURNAL_FILE);
+    boolean replayed = journalFile.exists() && readJournal(journalFile);
+    if (!replayed) {
+      entries.clear();
+      totalBytes = 0;
+      redundantOps = 0;
+    }
+
+    journalValid = reconcileWithDirectory() && replayed;
+
+    //A journal which can not be rewritten now is rewritten with the next operation
+    if (!journalValid) {
+      try {
+        rewriteJournal();
+      } catch (IOException ignore) {
+      }
+    }
+  }
+
+  private boolean readJournal(File journalFile) {
+    DataInputStream input = null;
+
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+      if (input.readInt() != MAGIC || input.readInt() != VERSION) return false;
+
+      while (true) {
+        byte op;
+        try {
+          op = input.readByte();
+        } catch (EOFException endOfJournal) {
+          return true;
+        }
+
+        String key = input.readUTF();
+        Entry previous;
+
+        if (op == OP_PUT) {
+          Entry entry = readEntry(input);
+          previous = entries.put(key, entry);
+          totalBytes += entry.sizeBytes;
+        } else if (op == OP_REMOVE) {
+          previous = entries.remove(key);
+        } else {
+          return false;
+        }
+
+        if (previous != null) {
+          totalBytes -= previous.sizeBytes;
+          redundantOps++;
+        }
+      }
+    } catch (IOException e) {
+      return false;
+    } finally {
+      closeQuietly(input);
+    }
+  }
+
+  /**
+   * Make the entries match the files of the cache directory: the entries without file are
+   * removed and the files without entry (or whose size does not match it) are added, from their
+   * headers. The temporary files are
+   * the leftovers of writes interrupted before replacing their record, so they are deleted.
+   *
+   * @return true if the entries already matched the files.
+   */
+  private boolean reconcileWithDirectory() {
+    File[] files = cacheDirectory.listFiles();
+    if (files == null) files = new File[0];
+
+    boolean matched = true;
+    Set<String> fileNames = new HashSet<>();
+
+    for (File file : files) {
+      String name = file.getName();
+      if (!file.isFile() || isIndexFile(name)) continue;
+
+      if (isTempFile(name)) {
+        file.delete();
+        continue;
+      }
+
+      //An entry whose size does not match was written before its file was replaced
+      String key = CacheKey.fromFileName(name);
+      Entry known = key != null ? entries.get(key) : null;
+      if (known != null && known.sizeBytes == file.length()) {
+        fileNames.add(name);
+        continue;
+      }
+
+      RecordHeader header = null;
+      try {
+        header = RecordHeader.read(file);
+      } catch (IOException ignore) {
+      }
+
+      if (key == null && header != null) key = header.key;
+
+      //A hashed file name whose key was not kept, so it could never be listed nor evicted
+      if (key == null) {
+        file.delete();
+        continue;
+      }
+
+      fileNames.add(name);
+      known = entries.get(key);
+      long sizeBytes = file.length();
+      if (known != null && known.sizeBytes == sizeBytes) continue;
+
+      entries.put(key, entryFromHeader(header, sizeBytes));
+      totalBytes += sizeBytes - (known != null ? known.sizeBytes : 0);
+      matched = false;
+    }
+
+    Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<String, Entry> entry = iterator.next();
+      if (fileNames.contains(CacheKey.toFileName(entry.getKey()))) continue;
+
+      iterator.remove();
+      totalBytes -= entry.getValue().sizeBytes;
+      matched = false;
+    }
+
+    return matched;
+  }
+
+  private static Entry entryFromHeader(RecordHeader header, long sizeBytes) {
+    if (header == null) return new Entry(sizeBytes, 0, null, null, null);
+
+    return new Entry(sizeBytes, header.timeAtWhichWasPersisted, header.lifeTime,
+        header.expirable, header.dataClassName);
+  }
+
+  private void compactIfNeeded() throws IOException {
+    if (redundantOps >= MIN_REDUNDANT_OPS_TO_COMPACT && redundantOps >= entries.size()) {
+      rewriteJournal();
+    }
+  }
+
+  private void appendToJournal(byte op, String key, Entry entry) throws IOException {
+    if (!journalValid) {
+      rewriteJournal();
+    }
+
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+        new FileOutputStream(new File(cacheDirectory, JOURNAL_FILE), true)));
+
+    try {
+      if (op == OP_PUT) {
+        writePut(output, key, entry);
+      } else {
+        output.writeByte(OP_REMOVE);
+        output.writeUTF(key);
+      }
+      output.close();
+    } catch (IOException e) {
+      closeQuietly(output);
+      //A partial entry is not known to be there, so the journal is rewritten with the next one
+      journalValid = false;
+      throw e;
+    }
+  }
+
+  /**
+   * Write a snapshot of the current entries into a new journal and replace the old one with it.
+   * If it fails, the journal is deleted, so it is rebuilt from the cache directory if the index is
+   * loaded before it is rewritten.
+   */
+  private void rewriteJournal() throws IOException {
+    journalValid = false;
+
+    File journalFileTmp = new File(cacheDirectory, JOURNAL_FILE_TMP);
+    File journalFile = new File(cacheDirectory, JOURNAL_FILE);
+    DataOutputStream output = null;
+
+    try {
+      output = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(journalFileTmp, false)));
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+
+      for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+        writePut(output, entry.getKey(), entry.getValue());
+      }
+
+      output.close();
+      output = null;
+
+      if (!journalFileTmp.renameTo(journalFile)) {
+        journalFile.delete();
+        if (!journalFileTmp.renameTo(journalFile)) {
+          throw new IOException("Unable to replace " + journalFile);
+        }
+      }
+    } catch (IOException e) {
+      closeQuietly(output);
+      journalFileTmp.delete();
+      journalFile.delete();
+      throw e;
+    }
+
+    redundantOps = 0;
+    journalValid = true;
+  }
+
+  private static void writePut(DataOutputStream output, String key, Entry entry)
+      throws IOException {
+    output.writeByte(OP_PUT);
+    output.writeUTF(key);
+    output.writeLong(entry.sizeBytes);
+    output.writeLong(entry.timeAtWhichWasPersisted);
+    output.writeLong(entry.lifeTime != null ? entry.lifeTime : -1);
+    output.writeByte(entry.expirable == null ? -1 : entry.expirable ? 1 : 0);
+    output.writeBoolean(entry.dataClassName != null);
+    if (entry.dataClassName != null) output.writeUTF(entry.dataClassName);
+  }
+
+  private static Entry readEntry(DataInputStream input) throws IOException {
+    long sizeBytes = input.readLong();
+    long timeAtWhichWasPersisted = input.readLong();
+    long lifeTime = input.readLong();
+    byte expirable = input.readByte();
+    String dataClassName = input.readBoolean() ? input.readUTF() : null;
+
+    return new Entry(sizeBytes, timeAtWhichWasPersisted, lifeTime != -1 ? lifeTime : null,
+        expirable == -1 ? null : expirable == 1, dataClassName);
+  }
+
+  /**
+   * Close the stream when it has already failed, so the original failure is the one reported.
+   */
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable == null) return;
+
+    try {
+      closeable.close();
+    } catch (IOException ignore) {
+    }
+  }
+
+  /**
+   * Metadata of a persisted record. Non record objects (as the cache version) only provide its
+   * size.
+   */
+  static final class Entry {
+    final long sizeBytes;
+    final long timeAtWhichWasPersisted;
+    final Long lifeTime;
+    final Boolean expirable;
+    final String dataClassName;
+
+    Entry(long sizeBytes, long timeAtWhichWasPersisted, Long lifeTime, Boolean expirable,
+        String dataClassName) {
+      this.sizeBytes = sizeBytes;
+      this.timeAtWhichWasPersisted = timeAtWhichWasPersisted;
+      this.lifeTime = lifeTime;
+      this.expirable = expirable;
+      this.dataClassName = dataClassName;
+    }
+  }
+
+  /**
+   * Keeps the path of the index, so its entry can be removed once the index is collected.
+   */
+  private static final class InstanceReference extends WeakReference<DiskIndex> {
+    final String path;
+
+    InstanceReference(String path, DiskIndex diskIndex) {
+      super(diskIndex, COLLECTED);
+      this.path = path;
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.rx_cache2.internal;
+
+import io.reactivex.schedulers.Schedulers;
+import io.rx_cache2.FsyncPolicy;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Forces the files written by {@link Disk} to the storage device according to the
+ * {@link FsyncPolicy} configured.
+ *
+ * Once a file has been renamed, its directory is forced as well so the rename itself survives a
+ * crash. That is only done where the platform allows opening a directory, which excludes Windows
+ * and the Android versions without java.nio.file, where only the file contents are forced.
+ */
+final class DiskSync {
+  static final long PERIOD_MS = 1000;
+  private static final boolean HAS_NIO_FILES = hasNioFiles();
+  private final FsyncPolicy policy;
+  private final Set<File> pending;
+  private boolean scheduled;
+
+  DiskSync(FsyncPolicy policy) {
+    this.policy = policy != null ? policy : FsyncPolicy.NEVER;
+    this.pending = new LinkedHashSet<>();
+  }
+
+  /**
+   * Called once the data has been completely written on the temporary file, before it is closed
+   * and renamed.
+   */
+  void written(FileOutputStream fileOutputStream) throws IOException {
+    if (policy == FsyncPolicy.PER_WRITE) {
+      fileOutputStream.getFD().sync();
+    }
+  }
+
+  /**
+   * Called once the temporary file has replaced the previous one.
+   */
+  void committed(File file) {
+    if (policy == FsyncPolicy.PER_WRITE) {
+      syncDirectory(file.getParentFile());
+      return;
+    }
+
+    if (policy != FsyncPolicy.PERIODIC) return;
+
+    synchronized (this) {
+      pending.add(file);
+      if (scheduled) return;
+      scheduled = true;
+    }
+
+    Schedulers.io().scheduleDirect(new Runnable() {
+      @Override public void run() {
+        syncPending();
+      }
+    }, PERIOD_MS, TimeUnit.MILLISECONDS);
+  }
+
+  //VisibleForTesting
+  void syncPending() {
+    List<File> files;
+    synchronized (this) {
+      files = new ArrayList<>(pending);
+      pending.clear();
+      scheduled = false;
+    }
+
+    Set<File> directories = new LinkedHashSet<>();
+    for (File file : files) {
+      directories.add(file.getParentFile());
+
+      try {
+        syncFile(file);
+      } catch (IOException e) {
+        //Otherwise the record was evicted before being synced
+        if (file.exists()) e.printStackTrace();
+      }
+    }
+
+    for (File directory : directories) {
+      syncDirectory(directory);
+    }
+  }
+
+  /**
+   * Force the contents of the file. It is opened for writing, without creating it, where
+   * java.nio.file is available, as some platforms refuse to force a file opened only for reading.
+   */
+  private static void syncFile(File file) throws IOException {
+    if (!HAS_NIO_FILES) {
+      FileInputStream fileInputStream = new FileInputStream(file);
+      try {
+        fileInputStream.getFD().sync();
+      } finally {
+        close(fileInputStream);
+      }
+      return;
+    }
+
+    FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+    try {
+      channel.force(true);
+    } finally {
+      close(channel);
+    }
+  }
+
+  /**
+   * Force the entries of the directory, so the files renamed in it are not lost on a crash.
+   */
+  private static void syncDirectory(File directory) {
+    if (!HAS_NIO_FILES || directory == null || isWindows()) return;
+
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+      channel.force(true);
+    } catch (IOException unsupported) {
+      //The platform does not allow opening or forcing a directory
+    } finally {
+      close(channel);
+    }
+  }
+
+  private static boolean isWindows() {
+    return System.getProperty("os.name", "").startsWith("Windows");
+  }
+
+  private static boolean hasNioFiles() {
+    try {
+      Class.forName("java.nio.file.Path");
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  private static void close(Closeable closeable) {
+    if (closeable == null) return;
+
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  //VisibleForTesting
+  synchronized int pendingCount() {
+    return pending.size();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.reactivex.Observable;
+import io.reactivex.functions.Action;
+import io.rx_cache2.Reply;
+import io.rx_cache2.internal.stats.StatsRecorder;
+
+/**
+ * Deduplicates the loads of the same record which are in progress at the same time: the first
+ * caller subscribes to its loader and the callers which arrive before it terminates share that
+ * subscription, and so its result, instead of subscribing to their own loaders. The callers which
+ * share it are recorded as coalesced loads of the provider.
+ */
+@Singleton
+final class InFlightLoads {
+  private final ConcurrentHashMap<CacheKey, Observable<Reply>> inFlight;
+  private final StatsRecorder statsRecorder;
+
+  @Inject InFlightLoads(StatsRecorder statsRecorder) {
+    this.inFlight = new ConcurrentHashMap<>();
+    this.statsRecorder = statsRecorder;
+  }
+
+  /**
+   * Retrieve the load in progress for the key supplied or, if there is none, start sharing the
+   * one supplied until it terminates or all its observers dispose it.
+   */
+  Observable<Reply> load(final CacheKey key, final Observable<Reply> loader) {
+    return Observable.defer(new Callable<Observable<Reply>>() {
+      @Override public Observable<Reply> call() throws Exception {
+        Observable<Reply> inProgress = inFlight.get(key);
+        if (inProgress != null) {
+          statsRecorder.recordCoalescedLoad(key.providerKey());
+          return inProgress;
+        }
+
+        final AtomicReference<Observable<Reply>> shared = new AtomicReference<>();
+        shared.set(loader
+            .doFinally(new Action() {
+              @Override public void run() throws Exception {
+                inFlight.remove(key, shared.get());
+              }
+            })
+            .replay()
+            .refCount());
+
+        inProgress = inFlight.putIfAbsent(key, shared.get());
+        if (inProgress != null) {
+          statsRecorder.recordCoalescedLoad(key.providerKey());
+          return inProgress;
+        }
+
+        return shared.get();
+      }
+    });
+  }
+}
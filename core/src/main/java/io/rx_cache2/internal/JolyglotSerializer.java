@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.rx_cache2.internal;
+
+import io.victoralbertos.jolyglot.JolyglotGenerics;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+
+/**
+ * {@link Serializer} backed by the {@link JolyglotGenerics} supplied to RxCache, which persists the
+ * data as UTF-8 json.
+ */
+public final class JolyglotSerializer implements Serializer {
+  private static final String UTF_8 = "UTF-8";
+  private final JolyglotGenerics jolyglot;
+
+  public JolyglotSerializer(JolyglotGenerics jolyglot) {
+    this.jolyglot = jolyglot;
+  }
+
+  @Override public void serialize(Object data, Type type, OutputStream outputStream)
+      throws IOException {
+    String json = type == null ? jolyglot.toJson(data) : jolyglot.toJson(data, type);
+
+    //JolyglotGenerics only serializes to String, but it is encoded in chunks rather than copied
+    //into a byte array as big as the whole json
+    Writer writer = new OutputStreamWriter(outputStream, UTF_8);
+    writer.write(json);
+    writer.flush();
+  }
+
+  @Override public <T> T deserialize(InputStream inputStream, Type type) throws IOException {
+    ByteArrayOutputStream json = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8 * 1024];
+    int count;
+    while ((count = inputStream.read(buffer)) != -1) {
+      json.write(buffer, 0, count);
+    }
+
+    return jolyglot.fromJson(json.toString(UTF_8), type);
+  }
+
+  @Override public <T> T deserialize(File file, Type type) throws IOException {
+    return jolyglot.fromJson(file, type);
+  }
+
+  @Override public Type newParameterizedType(Type rawType, Type... typeArguments) {
+    return jolyglot.newParameterizedType(rawType, typeArguments);
+  }
+
+  @Override public Type arrayOf(Type componentType) {
+    return jolyglot.arrayOf(componentType);
+  }
+}
@@ -24,6 +24,11 @@ public interface Locale {
   String REPOSITORY_DISK_ADAPTER_DOES_NOT_EXIST = "File cache directory does not exist";
   String REPOSITORY_DISK_ADAPTER_IS_NOT_WRITABLE = "File cache directory is not writable";
   String JSON_CONVERTER_CAN_NOT_BE_NULL = "JsonConverter can not be null";
+  String MAX_MEMORY_ENTRIES_MUST_BE_POSITIVE = "Max memory entries must be greater than zero";
+  String MAX_PENDING_WRITES_MUST_BE_POSITIVE = "Max pending writes must be greater than zero";
+  String SWEEP_PARALLELISM_MUST_BE_POSITIVE = "Sweep parallelism must be greater than zero";
+  String SWEEP_MAX_RECORDS_PER_SECOND_MUST_BE_POSITIVE =
+      "Sweep max records per second must be greater than zero";
   String NOT_REACTIVE_TYPE_FOR_LOADER_WAS_FOUND =
       " requires an instance of one of the next reactive types: observable, single, maybe or flowable";
   String JUST_ONE_INSTANCE = " requires just one instance of type ";
@@ -19,13 +19,13 @@ package io.rx_cache2.internal;
 import java.util.Set;
 
 public interface Memory {
-  <T> Record<T> getIfPresent(String key);
+  <T> Record<T> getIfPresent(CacheKey key);
 
-  <T> void put(String key, Record<T> record);
+  <T> void put(CacheKey key, Record<T> record);
 
-  Set<String> keySet();
+  Set<CacheKey> keySet();
 
-  void evict(String key);
+  void evict(CacheKey key);
 
   void evictAll();
 }
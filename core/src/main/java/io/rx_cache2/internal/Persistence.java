@@ -53,6 +53,16 @@ public interface Persistence {
    */
   void evict(String key);
 
+  /**
+   * Delete the record associated with its particular key as long as it has not been saved again
+   * since the time supplied, so a record replaced meanwhile is kept.
+   *
+   * @param key The key associated with the record to be deleted from persistence
+   * @param timeAtWhichWasPersisted The time at which the record to be deleted was persisted
+   * @return true if the record has been deleted
+   */
+  boolean evictIfPersistedAt(String key, long timeAtWhichWasPersisted);
+
   /**
    * Delete all the data
    */
@@ -88,4 +98,16 @@ public interface Persistence {
    * @see Record
    */
   <T> Record<T> retrieveRecord(String key, boolean isEncrypted, String encryptKey);
+
+  /**
+   * Retrieve the metadata of the record associated with its particular key, without its data.
+   * This is the cheap alternative to {@link #retrieveRecord(String, boolean, String)} for the tasks
+   * which only require to know when the record was persisted, its life time, its size or the class
+   * of its data.
+   *
+   * @param key The key associated with the Record to be retrieved from persistence
+   * @param encryptKey The key used to decrypt the record if its metadata is not available otherwise.
+   * @see Record
+   */
+  <T> Record<T> retrieveRecordMetadata(String key, String encryptKey);
 }
@@ -27,6 +27,8 @@ import io.rx_cache2.EvictDynamicKeyGroup;
 import io.rx_cache2.Reply;
 import io.rx_cache2.Source;
 import io.rx_cache2.internal.cache.GetDeepCopy;
+import io.rx_cache2.internal.cache.Retrieval;
+import io.rx_cache2.internal.stats.StatsRecorder;
 import java.util.concurrent.Callable;
 import javax.inject.Inject;
 
@@ -34,6 +36,8 @@ public final class ProcessorProvidersBehaviour implements ProcessorProviders {
   private final io.rx_cache2.internal.cache.TwoLayersCache twoLayersCache;
   private final Boolean useExpiredDataIfLoaderNotAvailable;
   private final GetDeepCopy getDeepCopy;
+  private final InFlightLoads inFlightLoads;
+  private final StatsRecorder statsRecorder;
   private final Observable<Integer> oProcesses;
   private volatile Boolean hasProcessesEnded;
 
@@ -41,27 +45,43 @@ public final class ProcessorProvidersBehaviour implements ProcessorProviders {
       io.rx_cache2.internal.cache.TwoLayersCache twoLayersCache,
       Boolean useExpiredDataIfLoaderNotAvailable,
       io.rx_cache2.internal.cache.EvictExpiredRecordsPersistence evictExpiredRecordsPersistence,
-      GetDeepCopy getDeepCopy, io.rx_cache2.internal.migration.DoMigrations doMigrations) {
+      GetDeepCopy getDeepCopy, io.rx_cache2.internal.migration.DoMigrations doMigrations,
+      InFlightLoads inFlightLoads, StatsRecorder statsRecorder) {
     this.hasProcessesEnded = false;
     this.twoLayersCache = twoLayersCache;
     this.useExpiredDataIfLoaderNotAvailable = useExpiredDataIfLoaderNotAvailable;
     this.getDeepCopy = getDeepCopy;
+    this.inFlightLoads = inFlightLoads;
+    this.statsRecorder = statsRecorder;
     this.oProcesses = startProcesses(doMigrations, evictExpiredRecordsPersistence);
   }
 
+  /**
+   * Runs the migrations and then evicts the expired records in the background. The providers only
+   * wait for the migrations which evict classes, as otherwise they could retrieve records of those
+   * classes. The rest of migrations only read and write the version of the cache, and the
+   * expiration of every record is checked again when it is retrieved.
+   */
   private Observable<Integer> startProcesses(
       io.rx_cache2.internal.migration.DoMigrations doMigrations,
       final io.rx_cache2.internal.cache.EvictExpiredRecordsPersistence evictExpiredRecordsPersistence) {
-    Observable<Integer> oProcesses = doMigrations.react().flatMap(new Function<Integer, ObservableSource<Integer>>() {
-          @Override public ObservableSource<Integer> apply(Integer ignore) throws Exception {
-            return evictExpiredRecordsPersistence.startEvictingExpiredRecords();
-          }
-        }).subscribeOn((Schedulers.io())).observeOn(Schedulers.io()).share();
+    Observable<Integer> oProcesses = doMigrations.react()
+        .subscribeOn((Schedulers.io())).observeOn(Schedulers.io()).cache();
 
+    if (!doMigrations.evictsClasses()) hasProcessesEnded = true;
 
     oProcesses.subscribe(new Consumer<Integer>() {
       @Override public void accept(Integer ignore) throws Exception {
         hasProcessesEnded = true;
+        evictExpiredRecordsPersistence.startEvictingExpiredRecords()
+            .subscribeOn(Schedulers.io())
+            .subscribe(new Consumer<Integer>() {
+              @Override public void accept(Integer ignore) throws Exception {}
+            }, new Consumer<Throwable>() {
+              @Override public void accept(Throwable error) throws Exception {
+                error.printStackTrace();
+              }
+            });
       }
     });
 
@@ -87,14 +107,22 @@ public final class ProcessorProvidersBehaviour implements ProcessorProviders {
 
   //VisibleForTesting
   <T> Observable<T> getData(final io.rx_cache2.ConfigProvider configProvider) {
-    Record<Object> record = twoLayersCache.retrieve(configProvider.getProviderKey(), configProvider.getDynamicKey(),
+    Retrieval<Object> retrieval = twoLayersCache.retrieve(configProvider.getProviderKey(), configProvider.getDynamicKey(),
         configProvider.getDynamicKeyGroup(), useExpiredDataIfLoaderNotAvailable,
-        configProvider.getLifeTimeMillis(), configProvider.isEncrypted());
+        configProvider.getLifeTimeMillis(), configProvider.isEncrypted(),
+        configProvider.isStaleWhileRevalidate(), configProvider.getRefreshAhead());
+    Record<Object> record = retrieval != null ? retrieval.getRecord() : null;
 
     Observable<Reply> replyObservable;
 
+    if (!configProvider.evictProvider().evict()) {
+      statsRecorder.recordRequest(configProvider.getProviderKey(),
+          record != null ? record.getSource() : null);
+    }
+
     if (record != null && !configProvider.evictProvider().evict()) {
       replyObservable = Observable.just(new Reply(record.getData(), record.getSource(), configProvider.isEncrypted()));
+      if (retrieval.isStale() || retrieval.isRefreshAhead()) revalidate(configProvider, record);
     } else {
       replyObservable = getDataFromLoader(configProvider, record);
     }
@@ -106,8 +134,75 @@ public final class ProcessorProvidersBehaviour implements ProcessorProviders {
     });
   }
 
+  /**
+   * Replaces the stale record, or the one about to expire, with the data of the loader without
+   * making the caller wait for it. If the loader fails the record is kept, so the next call will
+   * try again.
+   */
+  private void revalidate(io.rx_cache2.ConfigProvider configProvider, Record record) {
+    getDataFromLoader(configProvider, record)
+        .subscribeOn(Schedulers.io())
+        .subscribe(new Consumer<Reply>() {
+          @Override public void accept(Reply ignore) throws Exception {}
+        }, new Consumer<Throwable>() {
+          @Override public void accept(Throwable ignore) throws Exception {}
+        });
+  }
+
   private Observable<Reply> getDataFromLoader(final io.rx_cache2.ConfigProvider configProvider,
       final Record record) {
+    Observable<Reply> replyObservable = loadAndSave(configProvider, record);
+
+    //A call which evicts the cache can not reuse a load started without evicting it.
+    if (!configProvider.evictProvider().evict()) {
+      CacheKey key = CacheKey.of(configProvider.getProviderKey(), configProvider.getDynamicKey(),
+          configProvider.getDynamicKeyGroup());
+      replyObservable = inFlightLoads.load(key, replyObservable);
+    }
+
+    return replyObservable.onErrorReturn(new Function<Throwable, Reply>() {
+      @Override public Reply apply(Throwable throwable) throws Exception {
+        clearKeyIfNeeded(configProvider);
+
+        boolean useExpiredData = configProvider.useExpiredDataIfNotLoaderAvailable() != null ?
+            configProvider.useExpiredDataIfNotLoaderAvailable()
+            : useExpiredDataIfLoaderNotAvailable;
+
+        if (useExpiredData && record != null) {
+          return new Reply(record.getData(), record.getSource(), configProvider.isEncrypted());
+        }
+
+        throw new io.rx_cache2.RxCacheException(io.rx_cache2.internal.Locale.NOT_DATA_RETURN_WHEN_CALLING_OBSERVABLE_LOADER
+            + " "
+            + configProvider.getProviderKey(), throwable);
+      }
+    });
+  }
+
+  private Observable<Reply> loadAndSave(final io.rx_cache2.ConfigProvider configProvider,
+      final Record record) {
+    return Observable.defer(new Callable<ObservableSource<Reply>>() {
+      @Override public ObservableSource<Reply> call() throws Exception {
+        final long start = System.nanoTime();
+
+        return load(configProvider, record).doOnNext(new Consumer<Reply>() {
+          @Override public void accept(Reply reply) throws Exception {
+            if (reply.getSource() == Source.CLOUD) {
+              statsRecorder.recordLoad(configProvider.getProviderKey(), System.nanoTime() - start);
+            }
+          }
+        }).doOnError(new Consumer<Throwable>() {
+          @Override public void accept(Throwable error) throws Exception {
+            statsRecorder.recordLoadFailure(configProvider.getProviderKey(),
+                System.nanoTime() - start);
+          }
+        });
+      }
+    });
+  }
+
+  private Observable<Reply> load(final io.rx_cache2.ConfigProvider configProvider,
+      final Record record) {
     return configProvider.getLoaderObservable().map(new Function<Object, Reply>() {
       @Override public Reply apply(Object data) throws Exception {
         boolean useExpiredData = configProvider.useExpiredDataIfNotLoaderAvailable() != null ?
@@ -131,22 +226,6 @@ public final class ProcessorProvidersBehaviour implements ProcessorProviders {
             configProvider.isExpirable(), configProvider.isEncrypted());
         return new Reply(data, Source.CLOUD, configProvider.isEncrypted());
       }
-    }).onErrorReturn(new Function<Object, Object>() {
-      @Override public Object apply(Object o) throws Exception {
-        clearKeyIfNeeded(configProvider);
-
-        boolean useExpiredData = configProvider.useExpiredDataIfNotLoaderAvailable() != null ?
-            configProvider.useExpiredDataIfNotLoaderAvailable()
-            : useExpiredDataIfLoaderNotAvailable;
-
-        if (useExpiredData && record != null) {
-          return new Reply(record.getData(), record.getSource(), configProvider.isEncrypted());
-        }
-
-        throw new io.rx_cache2.RxCacheException(io.rx_cache2.internal.Locale.NOT_DATA_RETURN_WHEN_CALLING_OBSERVABLE_LOADER
-            + " "
-            + configProvider.getProviderKey(), (Throwable) o);
-      }
     });
   }
 
@@ -166,7 +245,7 @@ public final class ProcessorProvidersBehaviour implements ProcessorProviders {
   }
 
   private Object getReturnType(io.rx_cache2.ConfigProvider configProvider, Reply reply) {
-    Object data = getDeepCopy.deepCopy(reply.getData());
+    Object data = getDeepCopy.deepCopy(reply.getData(), configProvider.getCopyStrategy());
 
     if (configProvider.requiredDetailedResponse()) {
       return new Reply<>(data, reply.getSource(), configProvider.isEncrypted());
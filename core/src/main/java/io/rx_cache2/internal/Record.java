@@ -122,6 +122,19 @@ public final class Record<T> {
     }
   }
 
+  //Restores a record from the metadata persisted alongside its data
+  Record(T data, long timeAtWhichWasPersisted, Long lifeTime, Boolean expirable,
+      String dataClassName, String dataCollectionClassName, String dataKeyMapClassName) {
+    this.data = data;
+    this.timeAtWhichWasPersisted = timeAtWhichWasPersisted;
+    this.lifeTime = lifeTime;
+    this.expirable = expirable;
+    this.dataClassName = dataClassName;
+    this.dataCollectionClassName = dataCollectionClassName;
+    this.dataKeyMapClassName = dataKeyMapClassName;
+    this.source = Source.PERSISTENCE;
+  }
+
   public Source getSource() {
     return source;
   }
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Metadata of a {@link Record} which is written unencrypted at the beginning of its file, ahead of
+ * the serialized body, so it can be read without having to deserialize (or decrypt) the whole
+ * record. Every record is written with it, so the type of its data is known without the
+ * {@link DiskIndex}.
+ *
+ * Layout: magic (4 bytes) | version (1 byte) | header length (4 bytes) | header fields.
+ *
+ * The last field is the key of the record, which is only written when the name of its file can
+ * not be mapped back to it (see {@link CacheKey#fromFileName(String)}). Headers written before it
+ * existed just end earlier.
+ */
+final class RecordHeader {
+  private static final int MAGIC = 0x52584352;
+  private static final byte VERSION = 1;
+  private static final int PREAMBLE_LENGTH = 4 + 1 + 4;
+  private static final int MAX_HEADER_LENGTH = 64 * 1024;
+
+  final boolean encrypted;
+  final long timeAtWhichWasPersisted;
+  final Long lifeTime;
+  final Boolean expirable;
+  final String dataClassName, dataCollectionClassName, dataKeyMapClassName;
+  final String key;
+
+  private RecordHeader(boolean encrypted, long timeAtWhichWasPersisted, Long lifeTime,
+      Boolean expirable, String dataClassName, String dataCollectionClassName,
+      String dataKeyMapClassName, String key) {
+    this.encrypted = encrypted;
+    this.timeAtWhichWasPersisted = timeAtWhichWasPersisted;
+    this.lifeTime = lifeTime;
+    this.expirable = expirable;
+    this.dataClassName = dataClassName;
+    this.dataCollectionClassName = dataCollectionClassName;
+    this.dataKeyMapClassName = dataKeyMapClassName;
+    this.key = key;
+  }
+
+  /**
+   * @param key the key of the record, or null if the name of its file already maps back to it.
+   */
+  static RecordHeader from(Record record, boolean encrypted, String key) {
+    return new RecordHeader(encrypted, record.getTimeAtWhichWasPersisted(),
+        record.getLifeTime(), record.getExpirable(), record.getDataClassName(),
+        record.getDataCollectionClassName(), record.getDataKeyMapClassName(), key);
+  }
+
+  /**
+   * Read the header of the file supplied.
+   *
+   * @return the header or null if the file was not written with one (i.e. legacy records or non
+   * record objects).
+   */
+  static RecordHeader read(File file) throws IOException {
+    InputStream inputStream = new BufferedInputStream(new FileInputStream(file), 512);
+    try {
+      return read(inputStream);
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  /**
+   * Read the header from the stream supplied, leaving it positioned at the beginning of the body
+   * when the header is found.
+   *
+   * @return the header or null if the stream does not start with one.
+   */
+  static RecordHeader read(InputStream inputStream) throws IOException {
+    DataInputStream input = new DataInputStream(inputStream);
+
+    byte[] preamble = new byte[PREAMBLE_LENGTH];
+    int read = 0;
+    while (read < PREAMBLE_LENGTH) {
+      int count = input.read(preamble, read, PREAMBLE_LENGTH - read);
+      if (count == -1) return null;
+      read += count;
+    }
+
+    DataInputStream preambleInput = new DataInputStream(new ByteArrayInputStream(preamble));
+    if (preambleInput.readInt() != MAGIC) return null;
+    if (preambleInput.readByte() != VERSION) return null;
+    int length = preambleInput.readInt();
+    if (length < 0 || length > MAX_HEADER_LENGTH) return null;
+
+    byte[] fields = new byte[length];
+    input.readFully(fields);
+    DataInputStream fieldsInput = new DataInputStream(new ByteArrayInputStream(fields));
+
+    boolean encrypted = fieldsInput.readBoolean();
+    long timeAtWhichWasPersisted = fieldsInput.readLong();
+    Long lifeTime = fieldsInput.readBoolean() ? fieldsInput.readLong() : null;
+    byte expirable = fieldsInput.readByte();
+    String dataClassName = readNullableString(fieldsInput);
+    String dataCollectionClassName = readNullableString(fieldsInput);
+    String dataKeyMapClassName = readNullableString(fieldsInput);
+    String key = fieldsInput.available() > 0 ? readNullableString(fieldsInput) : null;
+
+    return new RecordHeader(encrypted, timeAtWhichWasPersisted, lifeTime,
+        expirable == -1 ? null : expirable == 1, dataClassName, dataCollectionClassName,
+        dataKeyMapClassName, key);
+  }
+
+  void write(OutputStream outputStream) throws IOException {
+    ByteArrayOutputStream fields = new ByteArrayOutputStream(256);
+    DataOutputStream fieldsOutput = new DataOutputStream(fields);
+
+    fieldsOutput.writeBoolean(encrypted);
+    fieldsOutput.writeLong(timeAtWhichWasPersisted);
+    fieldsOutput.writeBoolean(lifeTime != null);
+    if (lifeTime != null) fieldsOutput.writeLong(lifeTime);
+    fieldsOutput.writeByte(expirable == null ? -1 : expirable ? 1 : 0);
+    writeNullableString(fieldsOutput, dataClassName);
+    writeNullableString(fieldsOutput, dataCollectionClassName);
+    writeNullableString(fieldsOutput, dataKeyMapClassName);
+    writeNullableString(fieldsOutput, key);
+    fieldsOutput.flush();
+
+    DataOutputStream output = new DataOutputStream(outputStream);
+    output.writeInt(MAGIC);
+    output.writeByte(VERSION);
+    output.writeInt(fields.size());
+    fields.writeTo(output);
+    output.flush();
+  }
+
+  /**
+   * Build a record from this header with the data supplied. When the data is null, the record
+   * just carries the metadata.
+   */
+  <T> Record<T> toRecord(T data) {
+    return new Record<>(data, timeAtWhichWasPersisted, lifeTime, expirable, dataClassName,
+        dataCollectionClassName, dataKeyMapClassName);
+  }
+
+  private static void writeNullableString(DataOutputStream output, String value)
+      throws IOException {
+    output.writeBoolean(value != null);
+    if (value != null) output.writeUTF(value);
+  }
+
+  private static String readNullableString(DataInputStream input) throws IOException {
+    return input.readBoolean() ? input.readUTF() : null;
+  }
+}
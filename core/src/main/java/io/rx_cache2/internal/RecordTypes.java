@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the parameterized type of a {@link Record} from the class names which describe its
+ * data, caching the result so neither {@link Class#forName(String)} nor the parameterized type
+ * construction are repeated for every record read.
+ */
+final class RecordTypes {
+  private final Serializer serializer;
+  private final ConcurrentHashMap<String, Type> types;
+
+  RecordTypes(Serializer serializer) {
+    this.serializer = serializer;
+    this.types = new ConcurrentHashMap<>();
+  }
+
+  Type recordType(String dataClassName, String dataCollectionClassName,
+      String dataKeyMapClassName) throws ClassNotFoundException {
+    String descriptor = dataClassName + "|" + dataCollectionClassName + "|" + dataKeyMapClassName;
+
+    Type type = types.get(descriptor);
+    if (type != null) return type;
+
+    type = resolve(dataClassName, dataCollectionClassName, dataKeyMapClassName);
+    Type previous = types.putIfAbsent(descriptor, type);
+    return previous != null ? previous : type;
+  }
+
+  private Type resolve(String dataClassName, String dataCollectionClassName,
+      String dataKeyMapClassName) throws ClassNotFoundException {
+    Class classData = classOrObject(dataClassName);
+    Class classCollectionData = classOrObject(dataCollectionClassName);
+
+    boolean isCollection = Collection.class.isAssignableFrom(classCollectionData);
+    boolean isArray = classCollectionData.isArray();
+    boolean isMap = Map.class.isAssignableFrom(classCollectionData);
+
+    if (isCollection) {
+      Type typeCollection = serializer.newParameterizedType(classCollectionData, classData);
+      return serializer.newParameterizedType(Record.class, typeCollection);
+    } else if (isArray) {
+      return serializer.newParameterizedType(Record.class, classCollectionData);
+    } else if (isMap) {
+      Class classKeyMap = classOrObject(dataKeyMapClassName);
+      Type typeMap = serializer.newParameterizedType(classCollectionData, classKeyMap, classData);
+      return serializer.newParameterizedType(Record.class, typeMap);
+    } else {
+      return serializer.newParameterizedType(Record.class, classData);
+    }
+  }
+
+  private static Class classOrObject(String className) throws ClassNotFoundException {
+    return className == null ? Object.class : Class.forName(className);
+  }
+}
@@ -19,9 +19,14 @@ package io.rx_cache2.internal;
 import javax.inject.Singleton;
 
 import dagger.Component;
+import io.rx_cache2.internal.stats.StatsRecorder;
 
 @Component(modules = RxCacheModule.class)
 @Singleton
 public interface RxCacheComponent {
   ProcessorProviders providers();
+
+  Persistence persistence();
+
+  StatsRecorder statsRecorder();
 }
@@ -18,10 +18,18 @@ package io.rx_cache2.internal;
 
 import dagger.Module;
 import dagger.Provides;
+import io.rx_cache2.CopyStrategy;
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.EvictionPolicy;
+import io.rx_cache2.FsyncPolicy;
 import io.rx_cache2.MigrationCache;
-import io.rx_cache2.internal.cache.memory.ReferenceMapMemory;
+import io.rx_cache2.SweepListener;
+import io.rx_cache2.internal.cache.RecordSweeper;
+import io.rx_cache2.internal.cache.memory.ConcurrentReferenceMemory;
+import io.rx_cache2.internal.cache.memory.TinyLfuMemory;
 import io.rx_cache2.internal.encrypt.BuiltInEncryptor;
 import io.rx_cache2.internal.encrypt.Encryptor;
+import io.rx_cache2.internal.stats.StatsRecorder;
 import io.victoralbertos.jolyglot.JolyglotGenerics;
 import java.io.File;
 import java.util.ArrayList;
@@ -36,23 +44,57 @@ public final class RxCacheModule {
   private final String encryptKey;
   private final List<MigrationCache> migrations;
   private final JolyglotGenerics jolyglot;
+  private final Serializer serializer;
+  private final FsyncPolicy fsyncPolicy;
+  private final Integer maxMemoryEntries;
+  private final Integer maxPendingWrites;
+  private final CopyStrategy copyStrategy;
+  private final Integer sweepParallelism, sweepMaxRecordsPerSecond;
+  private final SweepListener sweepListener;
+  private final EvictionPolicy evictionPolicy;
+  private final CacheTracer tracer;
 
   public RxCacheModule(File cacheDirectory, Boolean useExpiredDataIfLoaderNotAvailable,
       Integer maxMgPersistenceCache,
       String encryptKey, List<MigrationCache> migrations, JolyglotGenerics jolyglot) {
+    this(cacheDirectory, useExpiredDataIfLoaderNotAvailable, maxMgPersistenceCache, encryptKey,
+        migrations, jolyglot, null, null, null, null, null, null, null, null, null, null);
+  }
+
+  public RxCacheModule(File cacheDirectory, Boolean useExpiredDataIfLoaderNotAvailable,
+      Integer maxMgPersistenceCache,
+      String encryptKey, List<MigrationCache> migrations, JolyglotGenerics jolyglot,
+      Serializer serializer, FsyncPolicy fsyncPolicy, Integer maxMemoryEntries,
+      Integer maxPendingWrites, CopyStrategy copyStrategy, Integer sweepParallelism,
+      Integer sweepMaxRecordsPerSecond, SweepListener sweepListener,
+      EvictionPolicy evictionPolicy, CacheTracer tracer) {
     this.cacheDirectory = cacheDirectory;
     this.useExpiredDataIfLoaderNotAvailable = useExpiredDataIfLoaderNotAvailable;
     this.maxMgPersistenceCache = maxMgPersistenceCache;
     this.encryptKey = encryptKey;
     this.migrations = migrations;
     this.jolyglot = jolyglot;
+    this.serializer = serializer;
+    this.fsyncPolicy = fsyncPolicy;
+    this.maxMemoryEntries = maxMemoryEntries;
+    this.maxPendingWrites = maxPendingWrites;
+    this.copyStrategy = copyStrategy;
+    this.sweepParallelism = sweepParallelism;
+    this.sweepMaxRecordsPerSecond = sweepMaxRecordsPerSecond;
+    this.sweepListener = sweepListener;
+    this.evictionPolicy = evictionPolicy;
+    this.tracer = tracer;
   }
 
   @Singleton @Provides File provideCacheDirectory() {
     return cacheDirectory;
   }
 
-  @Singleton @Provides Persistence providePersistence(io.rx_cache2.internal.Disk disk) {
+  @Singleton @Provides Persistence providePersistence(io.rx_cache2.internal.Disk disk,
+      StatsRecorder statsRecorder) {
+    if (maxPendingWrites != null) {
+      return new WriteBehindPersistence(disk, maxPendingWrites, statsRecorder);
+    }
     return disk;
   }
 
@@ -61,13 +103,22 @@ public final class RxCacheModule {
   }
 
   @Singleton @Provides io.rx_cache2.internal.Memory provideMemory() {
-    return new ReferenceMapMemory();
+    if (maxMemoryEntries != null) return new TinyLfuMemory(maxMemoryEntries);
+    return new ConcurrentReferenceMemory();
   }
 
   @Singleton @Provides Integer maxMbPersistenceCache() {
     return maxMgPersistenceCache != null ? maxMgPersistenceCache : 100;
   }
 
+  @Singleton @Provides EvictionPolicy provideEvictionPolicy() {
+    return evictionPolicy != null ? evictionPolicy : EvictionPolicy.LRU;
+  }
+
+  @Singleton @Provides CacheTracer provideTracer() {
+    return tracer != null ? tracer : CacheTracer.NONE;
+  }
+
   @Singleton @Provides Encryptor provideEncryptor() {
     return new BuiltInEncryptor();
   }
@@ -84,6 +135,26 @@ public final class RxCacheModule {
     return jolyglot;
   }
 
+  @Singleton @Provides Serializer provideSerializer() {
+    return serializer != null ? serializer : new JolyglotSerializer(jolyglot);
+  }
+
+  @Singleton @Provides FsyncPolicy provideFsyncPolicy() {
+    return fsyncPolicy != null ? fsyncPolicy : FsyncPolicy.NEVER;
+  }
+
+  @Singleton @Provides CopyStrategy provideCopyStrategy() {
+    return copyStrategy != null ? copyStrategy : CopyStrategy.SERIALIZATION;
+  }
+
+  @Singleton @Provides RecordSweeper provideRecordSweeper(Persistence persistence,
+      String encryptKey) {
+    int parallelism = sweepParallelism != null ? sweepParallelism
+        : Runtime.getRuntime().availableProcessors();
+    return new RecordSweeper(persistence, encryptKey, parallelism, sweepMaxRecordsPerSecond,
+        sweepListener);
+  }
+
   @Provides io.rx_cache2.internal.ProcessorProviders provideProcessorProviders(
       io.rx_cache2.internal.ProcessorProvidersBehaviour processorProvidersBehaviour) {
     return processorProvidersBehaviour;
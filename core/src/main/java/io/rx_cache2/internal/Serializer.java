@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.rx_cache2.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+/**
+ * Converts the objects handled by RxCache to bytes and back, both to persist them and to retrieve
+ * deep copies of the cached data. {@link JolyglotSerializer} is the default implementation and
+ * {@link BinarySerializer} a compact alternative which can be configured through
+ * `RxCache.Builder#serializer(Serializer)`.
+ *
+ * Implementations must be thread safe, and they must neither close nor read beyond the data
+ * previously written on the streams supplied.
+ */
+public interface Serializer {
+
+  /**
+   * Write the data on the output stream.
+   *
+   * @param data the object to be serialized.
+   * @param type the type of the data or null if it has to be inferred from its class.
+   * @param outputStream the stream where the data is written to.
+   */
+  void serialize(Object data, Type type, OutputStream outputStream) throws IOException;
+
+  /**
+   * Read from the input stream an object previously written with
+   * {@link #serialize(Object, Type, OutputStream)}.
+   *
+   * @param inputStream the stream where the data is read from.
+   * @param type the type of the object to be retrieved.
+   */
+  <T> T deserialize(InputStream inputStream, Type type) throws IOException;
+
+  /**
+   * Read from the file an object previously written with
+   * {@link #serialize(Object, Type, OutputStream)}, when the file holds nothing else. It lets the
+   * implementations backed by parsers which read files stream it rather than buffer it.
+   *
+   * @param file the file where the data is read from.
+   * @param type the type of the object to be retrieved.
+   */
+  <T> T deserialize(File file, Type type) throws IOException;
+
+  /**
+   * Build a parameterized type understood by this serializer.
+   *
+   * @param rawType the raw type.
+   * @param typeArguments the type arguments of the raw type.
+   */
+  Type newParameterizedType(Type rawType, Type... typeArguments);
+
+  /**
+   * Build the type of an array whose component is the type supplied.
+   */
+  Type arrayOf(Type componentType);
+}
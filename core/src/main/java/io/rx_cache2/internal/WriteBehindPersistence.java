@@ -0,0 +1,317 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal;
+
+import io.rx_cache2.internal.stats.StatsRecorder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistence which returns from {@link #saveRecord(String, Record, boolean, String)} as soon as
+ * the record is queued, and leaves the serialization, encryption and writing of it to a background
+ * thread. The records queued are visible to the reads as if they had already been written.
+ *
+ * Saving a record whose key is already queued replaces the queued one, so only the last record
+ * of a key is written. Once the queue holds maxPendingWrites keys, saving a new key blocks until
+ * the writer makes room for it. The writer drains the whole queue on each iteration, writing
+ * every record queued at that moment as a batch.
+ *
+ * Evicting a key drops its queued record and waits for it if it is being written, so an evicted
+ * record is never written afterwards. Call {@link #flush()} to wait for every queued record to be
+ * written, i.e. before shutting down.
+ *
+ * The writer thread is started when a record is queued and it stops once the queue has been empty
+ * for {@link #WRITER_KEEP_ALIVE_MILLIS}, so an instance no longer used does not keep a thread.
+ *
+ * The records queued are not accounted by {@link #storedMB()} until they are written, as their
+ * size is not known before they are serialized. The records queued, coalesced, written and failed
+ * are recorded by the {@link StatsRecorder}.
+ */
+public final class WriteBehindPersistence implements Persistence {
+  //VisibleForTesting
+  static final long WRITER_KEEP_ALIVE_MILLIS = 1000;
+  private final Persistence persistence;
+  private final int maxPendingWrites;
+  private final Object lock, writeLock;
+  private final LinkedHashMap<String, PendingWrite> pending;
+  private final Map<String, PendingWrite> writing;
+  private final StatsRecorder statsRecorder;
+  private Thread writer;
+
+  public WriteBehindPersistence(Persistence persistence, int maxPendingWrites,
+      StatsRecorder statsRecorder) {
+    this.persistence = persistence;
+    this.maxPendingWrites = maxPendingWrites;
+    this.statsRecorder = statsRecorder;
+    this.lock = new Object();
+    this.writeLock = new Object();
+    this.pending = new LinkedHashMap<>();
+    this.writing = new HashMap<>();
+  }
+
+  @Override public void saveRecord(String key, Record record, boolean isEncrypted,
+      String encryptKey) {
+    PendingWrite write = new PendingWrite(key, record, isEncrypted, encryptKey);
+
+    synchronized (lock) {
+      try {
+        boolean coalesced = pending.containsKey(key);
+        if (!coalesced) {
+          while (pending.size() >= maxPendingWrites) lock.wait();
+        }
+
+        pending.put(key, write);
+        statsRecorder.recordQueuedWrite(coalesced);
+        startWriterIfNeeded();
+        lock.notifyAll();
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    //Interrupted while waiting for room, so it is written right away without holding the queue
+    synchronized (writeLock) {
+      persistence.saveRecord(key, record, isEncrypted, encryptKey);
+    }
+  }
+
+  @Override public void save(String key, Object object, boolean isEncrypted, String encryptKey) {
+    cancel(key);
+    persistence.save(key, object, isEncrypted, encryptKey);
+  }
+
+  @Override public void evict(String key) {
+    cancel(key);
+    persistence.evict(key);
+  }
+
+  /**
+   * If the record queued for the key is the one persisted at the time supplied, it is dropped and
+   * the key evicted. If another record is queued for it, the key is kept. Otherwise, it is up to
+   * the persistence written to.
+   */
+  @Override public boolean evictIfPersistedAt(String key, long timeAtWhichWasPersisted) {
+    PendingWrite write;
+    synchronized (lock) {
+      write = pending.get(key);
+      if (write == null) write = writing.get(key);
+
+      if (write != null) {
+        if (write.record.getTimeAtWhichWasPersisted() != timeAtWhichWasPersisted) return false;
+
+        pending.remove(key);
+        writing.remove(key);
+        lock.notifyAll();
+      }
+    }
+
+    if (write == null) return persistence.evictIfPersistedAt(key, timeAtWhichWasPersisted);
+
+    //The record persisted, if any, is older than the queued one, so it is evicted as well
+    synchronized (writeLock) {
+      persistence.evict(key);
+    }
+    return true;
+  }
+
+  @Override public void evictAll() {
+    synchronized (lock) {
+      pending.clear();
+      writing.clear();
+      lock.notifyAll();
+    }
+
+    synchronized (writeLock) {
+      persistence.evictAll();
+    }
+  }
+
+  @Override public List<String> allKeys() {
+    Set<String> keys = new LinkedHashSet<>(persistence.allKeys());
+    synchronized (lock) {
+      keys.addAll(writing.keySet());
+      keys.addAll(pending.keySet());
+    }
+    return new ArrayList<>(keys);
+  }
+
+  @Override public int storedMB() {
+    return persistence.storedMB();
+  }
+
+  @Override public <T> T retrieve(String key, Class<T> clazz, boolean isEncrypted,
+      String encryptKey) {
+    return persistence.retrieve(key, clazz, isEncrypted, encryptKey);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override public <T> Record<T> retrieveRecord(String key, boolean isEncrypted,
+      String encryptKey) {
+    Record<T> record = queuedRecord(key);
+    if (record != null) return record;
+    return persistence.retrieveRecord(key, isEncrypted, encryptKey);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override public <T> Record<T> retrieveRecordMetadata(String key, String encryptKey) {
+    Record<T> record = queuedRecord(key);
+    if (record != null) return record;
+    return persistence.retrieveRecordMetadata(key, encryptKey);
+  }
+
+  /**
+   * Blocks until every record queued has been written.
+   */
+  public void flush() {
+    synchronized (lock) {
+      try {
+        while (!pending.isEmpty() || !writing.isEmpty()) lock.wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  //VisibleForTesting
+  boolean isWriterRunning() {
+    synchronized (lock) {
+      return writer != null;
+    }
+  }
+
+  private Record queuedRecord(String key) {
+    synchronized (lock) {
+      PendingWrite write = pending.get(key);
+      if (write == null) write = writing.get(key);
+      return write != null ? write.record : null;
+    }
+  }
+
+  /**
+   * Drops the record queued for the key and, if it is being written, waits for it.
+   */
+  private void cancel(String key) {
+    boolean beingWritten;
+    synchronized (lock) {
+      pending.remove(key);
+      beingWritten = writing.remove(key) != null;
+      lock.notifyAll();
+    }
+
+    if (beingWritten) {
+      synchronized (writeLock) {
+        //The write in progress has finished.
+      }
+    }
+  }
+
+  private void startWriterIfNeeded() {
+    if (writer != null) return;
+
+    writer = new Thread(new Runnable() {
+      @Override public void run() {
+        while (true) {
+          List<PendingWrite> batch;
+          try {
+            batch = takeBatch();
+          } catch (InterruptedException e) {
+            synchronized (lock) {
+              writer = null;
+            }
+            return;
+          }
+
+          if (batch == null) return;
+          for (PendingWrite write : batch) write(write);
+        }
+      }
+    }, "RxCache-WriteBehind");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Takes every record queued, or returns null and stops the writer if none is queued before
+   * {@link #WRITER_KEEP_ALIVE_MILLIS}.
+   */
+  private List<PendingWrite> takeBatch() throws InterruptedException {
+    synchronized (lock) {
+      long deadline = System.currentTimeMillis() + WRITER_KEEP_ALIVE_MILLIS;
+      while (pending.isEmpty()) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          writer = null;
+          return null;
+        }
+        lock.wait(remaining);
+      }
+
+      List<PendingWrite> batch = new ArrayList<>(pending.values());
+      writing.putAll(pending);
+      pending.clear();
+      lock.notifyAll();
+      return batch;
+    }
+  }
+
+  private void write(PendingWrite write) {
+    synchronized (writeLock) {
+      synchronized (lock) {
+        if (writing.get(write.key) != write) return;
+      }
+
+      boolean succeeded = false;
+      try {
+        persistence.saveRecord(write.key, write.record, write.isEncrypted, write.encryptKey);
+        succeeded = true;
+      } catch (RuntimeException ignore) {
+        //Counted as failed, the record is not retried as a newer one could have replaced it
+      }
+
+      if (succeeded) {
+        statsRecorder.recordWrite();
+      } else {
+        statsRecorder.recordFailedWrite();
+      }
+
+      synchronized (lock) {
+        if (writing.get(write.key) == write) writing.remove(write.key);
+        lock.notifyAll();
+      }
+    }
+  }
+
+  private static final class PendingWrite {
+    private final String key;
+    private final Record record;
+    private final boolean isEncrypted;
+    private final String encryptKey;
+
+    PendingWrite(String key, Record record, boolean isEncrypted, String encryptKey) {
+      this.key = key;
+      this.record = record;
+      this.isEncrypted = isEncrypted;
+      this.encryptKey = encryptKey;
+    }
+  }
+}
@@ -21,18 +21,33 @@ import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableOnSubscribe;
 import io.reactivex.functions.Consumer;
 import io.reactivex.schedulers.Schedulers;
+import io.rx_cache2.EvictionPolicy;
+import io.rx_cache2.internal.CacheKey;
 import io.rx_cache2.internal.Locale;
 import io.rx_cache2.internal.Memory;
 import io.rx_cache2.internal.Persistence;
 import io.rx_cache2.internal.Record;
+import io.rx_cache2.internal.stats.StatsRecorder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
+/**
+ * Once the persistence layer reaches 95% of its size limit, evicts its expirable records until
+ * it goes down to 70% of it. The records are evicted in the order set by the
+ * {@link EvictionPolicy}, from the accesses tracked by {@link RecordAccesses} and the metadata
+ * which the persistence layer keeps of every record, so their data is never read.
+ */
 @Singleton
 public final class EvictExpirableRecordsPersistence extends Action {
   private final Integer maxMgPersistenceCache;
   private final String encryptKey;
+  private final RecordAccesses recordAccesses;
+  private final EvictionPolicy evictionPolicy;
+  private final StatsRecorder statsRecorder;
   private static final float PERCENTAGE_MEMORY_STORED_TO_START = 0.95f;
   //VisibleForTesting
   public static final float PERCENTAGE_MEMORY_STORED_TO_STOP = 0.7f;
@@ -40,10 +55,14 @@ public final class EvictExpirableRecordsPersistence extends Action {
   private boolean couldBeExpirableRecords, isEncrypted;
 
   @Inject public EvictExpirableRecordsPersistence(Memory memory, Persistence persistence,
-      Integer maxMgPersistenceCache, String encryptKey) {
+      Integer maxMgPersistenceCache, String encryptKey, RecordAccesses recordAccesses,
+      EvictionPolicy evictionPolicy, StatsRecorder statsRecorder) {
     super(memory, persistence);
     this.maxMgPersistenceCache = maxMgPersistenceCache;
     this.encryptKey = encryptKey;
+    this.recordAccesses = recordAccesses;
+    this.evictionPolicy = evictionPolicy;
+    this.statsRecorder = statsRecorder;
     this.couldBeExpirableRecords = true;
     this.oEvictingTask = oEvictingTask();
   }
@@ -70,22 +89,23 @@ public final class EvictExpirableRecordsPersistence extends Action {
           return;
         }
 
-        List<String> allKeys = persistence.allKeys();
+        List<Candidate> candidates = candidates();
 
         float releasedMBSoFar = 0f;
-        for (String key : allKeys) {
+        for (Candidate candidate : candidates) {
           if (reachedPercentageMemoryToStop(storedMB, releasedMBSoFar)) {
             break;
           }
 
-          Record record = persistence.retrieveRecord(key, isEncrypted, encryptKey);
-          if (record == null) continue;
-          if (!record.getExpirable()) continue;
+          persistence.evict(candidate.key);
+          if (candidate.cacheKey != null) recordAccesses.remove(candidate.cacheKey);
+          if (evictionPolicy == EvictionPolicy.GDSF) recordAccesses.inflate(candidate.priority);
+          emitter.onNext(candidate.key);
 
-          persistence.evict(key);
-          emitter.onNext(key);
+          statsRecorder.recordEvictions(
+              candidate.cacheKey != null ? candidate.cacheKey.providerKey() : null, 1);
 
-          releasedMBSoFar += record.getSizeOnMb();
+          releasedMBSoFar += candidate.sizeOnMb;
         }
 
         couldBeExpirableRecords = reachedPercentageMemoryToStop(storedMB, releasedMBSoFar);
@@ -102,6 +122,75 @@ public final class EvictExpirableRecordsPersistence extends Action {
     return oEvictingTask.share();
   }
 
+  /**
+   * The expirable records persisted, sorted by the eviction policy.
+   */
+  private List<Candidate> candidates() {
+    List<String> allKeys = persistence.allKeys();
+    List<CacheKey> cacheKeys = new ArrayList<>(allKeys.size());
+    for (String key : allKeys) {
+      cacheKeys.add(CacheKey.parse(key));
+    }
+    recordAccesses.retainAll(cacheKeys);
+
+    List<Candidate> candidates = new ArrayList<>(allKeys.size());
+    for (int i = 0; i < allKeys.size(); i++) {
+      String key = allKeys.get(i);
+      Record record = persistence.retrieveRecordMetadata(key, encryptKey);
+      if (record == null) continue;
+      if (!record.getExpirable()) continue;
+
+      CacheKey cacheKey = cacheKeys.get(i);
+      candidates.add(new Candidate(key, cacheKey, record,
+          cacheKey != null ? recordAccesses.get(cacheKey) : null));
+    }
+
+    Collections.sort(candidates, comparator(evictionPolicy));
+    return candidates;
+  }
+
+  private static Comparator<Candidate> comparator(EvictionPolicy evictionPolicy) {
+    switch (evictionPolicy) {
+      case LFU:
+        return new Comparator<Candidate>() {
+          @Override public int compare(Candidate one, Candidate other) {
+            int byHits = compareLongs(one.hits, other.hits);
+            return byHits != 0 ? byHits : compareByRecency(one, other);
+          }
+        };
+      case GDSF:
+        return new Comparator<Candidate>() {
+          @Override public int compare(Candidate one, Candidate other) {
+            int byPriority = Double.compare(one.priority, other.priority);
+            return byPriority != 0 ? byPriority : compareByRecency(one, other);
+          }
+        };
+      case TTL_FIRST:
+        return new Comparator<Candidate>() {
+          @Override public int compare(Candidate one, Candidate other) {
+            int byExpiration = compareLongs(one.expiration, other.expiration);
+            return byExpiration != 0 ? byExpiration : compareByRecency(one, other);
+          }
+        };
+      default:
+        return new Comparator<Candidate>() {
+          @Override public int compare(Candidate one, Candidate other) {
+            return compareByRecency(one, other);
+          }
+        };
+    }
+  }
+
+  private static int compareByRecency(Candidate one, Candidate other) {
+    int byAccess = compareLongs(one.lastAccess, other.lastAccess);
+    return byAccess != 0 ? byAccess
+        : compareLongs(one.timeAtWhichWasPersisted, other.timeAtWhichWasPersisted);
+  }
+
+  private static int compareLongs(long one, long other) {
+    return one < other ? -1 : (one == other ? 0 : 1);
+  }
+
   private boolean reachedPercentageMemoryToStop(int storedMBWhenStarted, float releasedMBSoFar) {
     float currentStoredMB = storedMBWhenStarted - releasedMBSoFar;
     float requiredStoredMBToStop = maxMgPersistenceCache * PERCENTAGE_MEMORY_STORED_TO_STOP;
@@ -112,4 +201,28 @@ public final class EvictExpirableRecordsPersistence extends Action {
     int requiredStoredMBToStart = (int) (maxMgPersistenceCache * PERCENTAGE_MEMORY_STORED_TO_START);
     return storedMB >= requiredStoredMBToStart;
   }
+
+  private static final class Candidate {
+    final String key;
+    //Null if the key was not composed from a CacheKey
+    final CacheKey cacheKey;
+    final float sizeOnMb;
+    final long timeAtWhichWasPersisted, expiration, lastAccess, hits;
+    final double priority;
+
+    Candidate(String key, CacheKey cacheKey, Record record, RecordAccesses.Access access) {
+      this.key = key;
+      this.cacheKey = cacheKey;
+      this.sizeOnMb = record.getSizeOnMb();
+      this.timeAtWhichWasPersisted = record.getTimeAtWhichWasPersisted();
+
+      Long lifeTime = record.getLifeTime();
+      this.expiration = lifeTime != null ? timeAtWhichWasPersisted + lifeTime : Long.MAX_VALUE;
+
+      long sizeBytes = (long) (sizeOnMb * 1024 * 1024);
+      this.lastAccess = access != null ? access.lastAccess() : 0;
+      this.hits = access != null ? access.hits() : 0;
+      this.priority = access != null ? access.priority(sizeBytes) : 0;
+    }
+  }
 }
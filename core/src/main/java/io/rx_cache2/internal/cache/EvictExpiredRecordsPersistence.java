@@ -17,40 +17,53 @@
 package io.rx_cache2.internal.cache;
 
 import io.reactivex.Observable;
+import io.reactivex.functions.Predicate;
+import io.rx_cache2.CacheTracer;
 import io.rx_cache2.internal.Memory;
 import io.rx_cache2.internal.Persistence;
 import io.rx_cache2.internal.Record;
-import java.util.List;
+import io.rx_cache2.internal.stats.StatsRecorder;
+import java.util.concurrent.Callable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
 public final class EvictExpiredRecordsPersistence extends Action {
+  private static final String SWEEP_NAME = "expired records";
   private final HasRecordExpired hasRecordExpired;
-  private final String encryptKey;
+  private final RecordSweeper recordSweeper;
+  private final StatsRecorder statsRecorder;
+  private final CacheTracer tracer;
 
   @Inject public EvictExpiredRecordsPersistence(Memory memory, Persistence persistence,
-      HasRecordExpired hasRecordExpired, String encryptKey) {
+      HasRecordExpired hasRecordExpired, RecordSweeper recordSweeper,
+      StatsRecorder statsRecorder, CacheTracer tracer) {
     super(memory, persistence);
     this.hasRecordExpired = hasRecordExpired;
-    this.encryptKey = encryptKey;
+    this.recordSweeper = recordSweeper;
+    this.statsRecorder = statsRecorder;
+    this.tracer = tracer;
   }
 
+  /**
+   * Evicts the expired records with the {@link RecordSweeper} when it is subscribed. It does not
+   * prevent the records from being retrieved or saved meanwhile: a record found expired is only
+   * evicted if it has not been saved again since, so a record saved concurrently is kept.
+   */
   public Observable<Integer> startEvictingExpiredRecords() {
-    List<String> allKeys = persistence.allKeys();
+    return Observable.fromCallable(new Callable<Integer>() {
+      @Override public Integer call() throws Exception {
+        CacheTracer.Span span = tracer.start(CacheTracer.Operation.EXPIRED_SWEEP);
+        int evicted = recordSweeper.sweep(SWEEP_NAME, new Predicate<Record>() {
+          @Override public boolean test(Record record) throws Exception {
+            return hasRecordExpired.hasRecordExpired(record);
+          }
+        });
 
-    for (String key : allKeys) {
-      Record record = persistence.retrieveRecord(key, false, encryptKey);
-
-      if (record == null && encryptKey != null && !encryptKey.isEmpty()) {
-        record = persistence.retrieveRecord(key, true, encryptKey);
-      }
-
-      if (record != null && hasRecordExpired.hasRecordExpired(record)) {
-        persistence.evict(key);
+        statsRecorder.recordEvictions(null, evicted);
+        span.finish(null, null, 0);
+        return 1;
       }
-    }
-
-    return Observable.just(1);
+    });
   }
 }
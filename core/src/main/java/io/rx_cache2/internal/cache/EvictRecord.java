@@ -20,41 +20,62 @@ import java.util.List;
 
 import javax.inject.Inject;
 
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.internal.CacheKey;
 import io.rx_cache2.internal.Memory;
 import io.rx_cache2.internal.Persistence;
+import io.rx_cache2.internal.stats.StatsRecorder;
 
 public final class EvictRecord extends Action {
+  private final KeyIndex keyIndex;
+  private final StatsRecorder statsRecorder;
+  private final CacheTracer tracer;
 
-  @Inject public EvictRecord(Memory memory, Persistence persistence) {
+  @Inject public EvictRecord(Memory memory, Persistence persistence, KeyIndex keyIndex,
+      StatsRecorder statsRecorder, CacheTracer tracer) {
     super(memory, persistence);
+    this.keyIndex = keyIndex;
+    this.statsRecorder = statsRecorder;
+    this.tracer = tracer;
   }
 
   void evictRecordsMatchingProviderKey(String providerKey) {
-    List<String> keysMatchingKeyProvider = getKeysOnMemoryMatchingProviderKey(providerKey);
+    CacheTracer.Span span = tracer.start(CacheTracer.Operation.EVICT);
+    List<CacheKey> keysMatchingKeyProvider = keyIndex.removeProviderKey(providerKey);
 
-    for (String keyMatchingKeyProvider : keysMatchingKeyProvider) {
+    for (CacheKey keyMatchingKeyProvider : keysMatchingKeyProvider) {
       memory.evict(keyMatchingKeyProvider);
-      persistence.evict(keyMatchingKeyProvider);
+      persistence.evict(keyMatchingKeyProvider.composedKey());
     }
+
+    statsRecorder.recordEvictions(providerKey, keysMatchingKeyProvider.size());
+    span.finish(providerKey, null, 0);
   }
 
   void evictRecordsMatchingDynamicKey(String providerKey, String dynamicKey) {
-    List<String> keysMatchingDynamicKey =
-        getKeysOnMemoryMatchingDynamicKey(providerKey, dynamicKey);
+    CacheTracer.Span span = tracer.start(CacheTracer.Operation.EVICT);
+    List<CacheKey> keysMatchingDynamicKey = keyIndex.removeDynamicKey(providerKey, dynamicKey);
 
-    for (String keyMatchingDynamicKey : keysMatchingDynamicKey) {
+    for (CacheKey keyMatchingDynamicKey : keysMatchingDynamicKey) {
       memory.evict(keyMatchingDynamicKey);
-      persistence.evict(keyMatchingDynamicKey);
+      persistence.evict(keyMatchingDynamicKey.composedKey());
     }
+
+    statsRecorder.recordEvictions(providerKey, keysMatchingDynamicKey.size());
+    span.finish(providerKey, null, 0);
   }
 
   void evictRecordMatchingDynamicKeyGroup(String providerKey, String dynamicKey,
       String dynamicKeyGroup) {
-    String composedKey =
-        getKeyOnMemoryMatchingDynamicKeyGroup(providerKey, dynamicKey, dynamicKeyGroup);
+    CacheTracer.Span span = tracer.start(CacheTracer.Operation.EVICT);
+    CacheKey key = CacheKey.of(providerKey, dynamicKey, dynamicKeyGroup);
+
+    keyIndex.remove(key);
+    memory.evict(key);
+    persistence.evict(key.composedKey());
 
-    memory.evict(composedKey);
-    persistence.evict(composedKey);
+    statsRecorder.recordEvictions(providerKey, 1);
+    span.finish(providerKey, null, 0);
   }
 
   //VisibleForTesting
@@ -63,7 +84,10 @@ public final class EvictRecord extends Action {
   }
 
   void evictAll() {
+    CacheTracer.Span span = tracer.start(CacheTracer.Operation.EVICT);
+    keyIndex.clear();
     memory.evictAll();
     persistence.evictAll();
+    span.finish(null, null, 0);
   }
 }
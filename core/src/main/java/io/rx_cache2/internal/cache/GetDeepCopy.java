@@ -1,5 +1,8 @@
 package io.rx_cache2.internal.cache;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.List;
@@ -7,18 +10,48 @@ import java.util.Map;
 
 import javax.inject.Inject;
 
+import io.rx_cache2.CopyStrategy;
 import io.rx_cache2.internal.Memory;
-import io.victoralbertos.jolyglot.JolyglotGenerics;
+import io.rx_cache2.internal.Serializer;
 
 public final class GetDeepCopy extends Action {
-  private final JolyglotGenerics jolyglot;
+  private final Serializer serializer;
+  private final CopyStrategy copyStrategy;
+  private final ReflectiveCloner reflectiveCloner;
 
-  @Inject public GetDeepCopy(Memory memory, io.rx_cache2.internal.Persistence persistence, JolyglotGenerics jolyglot) {
+  @Inject public GetDeepCopy(Memory memory, io.rx_cache2.internal.Persistence persistence, Serializer serializer,
+      CopyStrategy copyStrategy) {
     super(memory, persistence);
-    this.jolyglot = jolyglot;
+    this.serializer = serializer;
+    this.copyStrategy = copyStrategy;
+    this.reflectiveCloner = new ReflectiveCloner();
   }
 
   public <T> T deepCopy(T data) {
+    return deepCopy(data, copyStrategy);
+  }
+
+  /**
+   * Copy the data following the strategy supplied, or the default one if it is null. If the
+   * reflective copy is not supported by the data, it is serialized instead.
+   */
+  public <T> T deepCopy(T data, CopyStrategy copyStrategy) {
+    if (copyStrategy == null) copyStrategy = this.copyStrategy;
+
+    if (copyStrategy == CopyStrategy.NONE) return data;
+
+    if (copyStrategy == CopyStrategy.REFLECTION) {
+      try {
+        return reflectiveCloner.copy(data);
+      } catch (CloneNotSupportedException ignore) {
+        //Fall back to the serialization.
+      }
+    }
+
+    return serializedCopy(data);
+  }
+
+  private <T> T serializedCopy(T data) {
     try {
       Class classData = data.getClass();
       boolean isCollection = Collection.class.isAssignableFrom(classData);
@@ -39,7 +72,7 @@ public final class GetDeepCopy extends Action {
     }
   }
 
-  private <T> T getDeepCopyCollection(T data) {
+  private <T> T getDeepCopyCollection(T data) throws IOException {
     Collection<T> collection = (Collection<T>) data;
     if (collection.isEmpty()) return data;
 
@@ -47,43 +80,46 @@ public final class GetDeepCopy extends Action {
     if (List.class.isAssignableFrom(classData)) classData = List.class;
 
     Class classItemCollection = collection.toArray()[0].getClass();
-    Type typeCollection = jolyglot.newParameterizedType(classData, classItemCollection);
-    String dataString = jolyglot.toJson(data);
+    Type typeCollection = serializer.newParameterizedType(classData, classItemCollection);
 
-    return jolyglot.fromJson(dataString, typeCollection);
+    return copy(data, typeCollection);
   }
 
-  private <T> T getDeepCopyArray(T data) {
+  private <T> T getDeepCopyArray(T data) throws IOException {
     T[] array = (T[]) data;
     if (array.length == 0) return data;
 
     Class classItemArray = array[0].getClass();
-    Type typeRecord = jolyglot.arrayOf(classItemArray);
-    String dataString = jolyglot.toJson(data);
+    Type typeRecord = serializer.arrayOf(classItemArray);
 
-    return jolyglot.fromJson(dataString, typeRecord);
+    return copy(data, typeRecord);
   }
 
-  private <T, K, V> T getDeepCopyMap(T data) {
+  private <T, K, V> T getDeepCopyMap(T data) throws IOException {
     Map<K, V> map = (Map<K, V>) data;
     if (map.isEmpty()) return data;
 
     Class classData = Map.class;
     Class classValueMap = map.values().toArray()[0].getClass();
     Class classKeyMap = map.keySet().toArray()[0].getClass();
-    Type typeMap = jolyglot.newParameterizedType(classData, classKeyMap, classValueMap);
-    String dataString = jolyglot.toJson(data);
+    Type typeMap = serializer.newParameterizedType(classData, classKeyMap, classValueMap);
 
-    return jolyglot.fromJson(dataString, typeMap);
+    return copy(data, typeMap);
   }
 
-  private <T> T getDeepCopyObject(T data) {
+  private <T> T getDeepCopyObject(T data) throws IOException {
     if (data == null) return data;
 
     Class classData = data.getClass();
-    Type type = jolyglot.newParameterizedType(classData);
-    String dataString = jolyglot.toJson(data);
+    Type type = serializer.newParameterizedType(classData);
+
+    return copy(data, type);
+  }
+
+  private <T> T copy(T data, Type type) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    serializer.serialize(data, null, outputStream);
 
-    return jolyglot.fromJson(dataString, type);
+    return serializer.deserialize(new ByteArrayInputStream(outputStream.toByteArray()), type);
   }
 }
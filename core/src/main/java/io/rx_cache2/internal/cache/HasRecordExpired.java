@@ -33,4 +33,18 @@ public final class HasRecordExpired {
     long expirationDate = record.getTimeAtWhichWasPersisted() + lifeTime;
     return now > expirationDate;
   }
+
+  /**
+   * Whether the supplied fraction of the life time of the record has elapsed, so it should be
+   * reloaded before it expires. A fraction which is not between 0 and 1 disables it.
+   */
+  public boolean isWithinRefreshAheadWindow(Record record, float refreshAhead) {
+    if (refreshAhead <= 0 || refreshAhead >= 1) return false;
+
+    Long lifeTime = record.getLifeTime();
+    if (lifeTime == null) return false;
+
+    long elapsed = System.currentTimeMillis() - record.getTimeAtWhichWasPersisted();
+    return elapsed > lifeTime * refreshAhead;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.rx_cache2.internal.CacheKey;
+import io.rx_cache2.internal.Persistence;
+
+/**
+ * Indexes the keys of the records by provider key and dynamic key, so evicting a provider
+ * or a dynamic key only visits the keys which match it, whether their record is still in memory or
+ * only persisted. It is filled with the keys already persisted the first time it is used, and kept
+ * up to date by {@link SaveRecord} and {@link EvictRecord}.
+ *
+ * The keys of a provider are updated holding its lock, and its sets are dropped as soon as they
+ * are empty. A provider removed from the index is marked as such, so a key added concurrently is
+ * either evicted along with it or added to a new set of the provider, never lost.
+ */
+@Singleton
+public final class KeyIndex {
+  private final Persistence persistence;
+  private final ConcurrentHashMap<String, ProviderKeys> providers;
+  private volatile boolean loaded;
+
+  @Inject public KeyIndex(Persistence persistence) {
+    this.persistence = persistence;
+    this.providers = new ConcurrentHashMap<>();
+  }
+
+  void add(CacheKey key) {
+    load();
+    addLoaded(key);
+  }
+
+  List<CacheKey> removeProviderKey(String providerKey) {
+    load();
+
+    ProviderKeys providerKeys = providers.remove(providerKey);
+    if (providerKeys == null) return new ArrayList<>();
+
+    synchronized (providerKeys) {
+      providerKeys.removed = true;
+
+      List<CacheKey> keys = new ArrayList<>();
+      for (Set<CacheKey> dynamicKeyKeys : providerKeys.dynamicKeys.values()) {
+        keys.addAll(dynamicKeyKeys);
+      }
+      return keys;
+    }
+  }
+
+  List<CacheKey> removeDynamicKey(String providerKey, String dynamicKey) {
+    load();
+
+    ProviderKeys providerKeys = providers.get(providerKey);
+    if (providerKeys == null) return new ArrayList<>();
+
+    synchronized (providerKeys) {
+      if (providerKeys.removed) return new ArrayList<>();
+
+      Set<CacheKey> keys = providerKeys.dynamicKeys.remove(String.valueOf(dynamicKey));
+      pruneIfEmpty(providerKey, providerKeys);
+      return keys != null ? new ArrayList<>(keys) : new ArrayList<CacheKey>();
+    }
+  }
+
+  void remove(CacheKey key) {
+    load();
+
+    ProviderKeys providerKeys = providers.get(key.providerKey());
+    if (providerKeys == null) return;
+
+    synchronized (providerKeys) {
+      if (providerKeys.removed) return;
+
+      Set<CacheKey> keys = providerKeys.dynamicKeys.get(key.dynamicKey());
+      if (keys == null) return;
+
+      keys.remove(key);
+      if (keys.isEmpty()) providerKeys.dynamicKeys.remove(key.dynamicKey());
+      pruneIfEmpty(key.providerKey(), providerKeys);
+    }
+  }
+
+  void clear() {
+    loaded = true;
+
+    for (String providerKey : providers.keySet()) {
+      removeProviderKey(providerKey);
+    }
+  }
+
+  //VisibleForTesting
+  int providersSize() {
+    return providers.size();
+  }
+
+  private void addLoaded(CacheKey key) {
+    while (true) {
+      ProviderKeys providerKeys = providers.get(key.providerKey());
+      if (providerKeys == null) {
+        ProviderKeys created = new ProviderKeys();
+        providerKeys = providers.putIfAbsent(key.providerKey(), created);
+        if (providerKeys == null) providerKeys = created;
+      }
+
+      synchronized (providerKeys) {
+        //Removed after it was looked up, so the key belongs to the one which replaces it
+        if (providerKeys.removed) continue;
+
+        Set<CacheKey> keys = providerKeys.dynamicKeys.get(key.dynamicKey());
+        if (keys == null) {
+          keys = new HashSet<>();
+          providerKeys.dynamicKeys.put(key.dynamicKey(), keys);
+        }
+        keys.add(key);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Drop the provider once it has no keys left. It must be called holding its lock.
+   */
+  private void pruneIfEmpty(String providerKey, ProviderKeys providerKeys) {
+    if (!providerKeys.dynamicKeys.isEmpty()) return;
+
+    providerKeys.removed = true;
+    providers.remove(providerKey, providerKeys);
+  }
+
+  private void load() {
+    if (loaded) return;
+
+    synchronized (this) {
+      if (loaded) return;
+
+      for (String composedKey : persistence.allKeys()) {
+        CacheKey key = CacheKey.parse(composedKey);
+        if (key != null) addLoaded(key);
+      }
+
+      loaded = true;
+    }
+  }
+
+  /**
+   * The keys of a provider by dynamic key, which are guarded by its lock.
+   */
+  private static final class ProviderKeys {
+    final Map<String, Set<CacheKey>> dynamicKeys = new HashMap<>();
+    boolean removed;
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import io.rx_cache2.internal.CacheKey;
+
+/**
+ * Tracks when and how often the records are accessed, by their {@link CacheKey}, so
+ * {@link EvictExpirableRecordsPersistence} is able to evict the coldest records first. Both the
+ * records retrieved, whether from memory or from persistence, and the ones saved count as accessed.
+ *
+ * Recording an access does not block: it is appended to a lossy buffer which is applied by
+ * whichever thread acquires its lock, as {@link io.rx_cache2.internal.cache.memory.TinyLfuMemory}
+ * does with its reads. The accesses are ordered by a logical clock rather than by the system time,
+ * and they are only kept in memory: the records persisted before the cache was created are
+ * considered as not accessed.
+ */
+@Singleton
+public final class RecordAccesses {
+  private static final int BUFFER_DRAIN_THRESHOLD = 32;
+  private static final int BUFFER_MAX_SIZE = 4 * 1024;
+
+  private final ConcurrentLinkedQueue<CacheKey> buffer;
+  private final AtomicInteger bufferSize;
+  private final ReentrantLock lock;
+  //Guarded by lock
+  private final Map<CacheKey, Access> accesses;
+  private long clock;
+  private double inflation;
+
+  @Inject public RecordAccesses() {
+    this.buffer = new ConcurrentLinkedQueue<>();
+    this.bufferSize = new AtomicInteger();
+    this.lock = new ReentrantLock();
+    this.accesses = new HashMap<>();
+  }
+
+  void recordAccess(CacheKey key) {
+    //Accesses are dropped when the buffer is full, the eviction policy only needs a sample of them
+    if (bufferSize.get() < BUFFER_MAX_SIZE) {
+      buffer.offer(key);
+      bufferSize.incrementAndGet();
+    }
+
+    if (bufferSize.get() >= BUFFER_DRAIN_THRESHOLD && lock.tryLock()) {
+      try {
+        drainBuffer();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * A copy of the accesses of the record, or null if it has not been accessed.
+   */
+  Access get(CacheKey key) {
+    lock.lock();
+    try {
+      drainBuffer();
+      Access access = accesses.get(key);
+      return access != null ? new Access(access) : null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  void remove(CacheKey key) {
+    lock.lock();
+    try {
+      drainBuffer();
+      accesses.remove(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Forgets the accesses of the records which are not persisted anymore.
+   */
+  void retainAll(Collection<CacheKey> keys) {
+    Set<CacheKey> persisted = new HashSet<>(keys);
+    lock.lock();
+    try {
+      drainBuffer();
+      accesses.keySet().retainAll(persisted);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Raises the priority which the next accesses start from to the one of a record just evicted,
+   * as Greedy-Dual-Size-Frequency requires.
+   */
+  void inflate(double priority) {
+    lock.lock();
+    try {
+      drainBuffer();
+      if (priority > inflation) inflation = priority;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void drainBuffer() {
+    CacheKey key;
+    while ((key = buffer.poll()) != null) {
+      bufferSize.decrementAndGet();
+
+      Access access = accesses.get(key);
+      if (access == null) {
+        access = new Access();
+        accesses.put(key, access);
+      }
+      access.hit(++clock, inflation);
+    }
+  }
+
+  static final class Access {
+    private long lastAccess;
+    private int hits;
+    private double inflation;
+
+    Access() {
+    }
+
+    Access(Access access) {
+      this.lastAccess = access.lastAccess;
+      this.hits = access.hits;
+      this.inflation = access.inflation;
+    }
+
+    void hit(long tick, double inflation) {
+      this.lastAccess = tick;
+      this.hits++;
+      this.inflation = inflation;
+    }
+
+    long lastAccess() {
+      return lastAccess;
+    }
+
+    int hits() {
+      return hits;
+    }
+
+    /**
+     * The priority given by Greedy-Dual-Size-Frequency to a record of the supplied size.
+     */
+    double priority(long sizeBytes) {
+      return inflation + (double) hits / Math.max(sizeBytes, 1);
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache;
+
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
+import io.rx_cache2.SweepListener;
+import io.rx_cache2.SweepProgress;
+import io.rx_cache2.internal.Persistence;
+import io.rx_cache2.internal.Record;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Goes through every persisted record reading its metadata and evicts the ones which match a
+ * predicate. A record is only evicted if it has not been saved again since its metadata was read,
+ * so a record replaced meanwhile is kept. The records are distributed between parallelism threads
+ * of the io scheduler, which take the next record as soon as they finish the previous one, so a
+ * slow record does not delay the others.
+ *
+ * If maxRecordsPerSecond is supplied, the threads together never process more records per second
+ * than it, so the sweep does not monopolize the storage. The progress is reported to the
+ * {@link SweepListener}, if any, every {@link #PROGRESS_INTERVAL} records and when it completes.
+ */
+public final class RecordSweeper {
+  //VisibleForTesting
+  static final int PROGRESS_INTERVAL = 1000;
+
+  private final Persistence persistence;
+  private final String encryptKey;
+  private final int parallelism;
+  private final Integer maxRecordsPerSecond;
+  private final SweepListener sweepListener;
+
+  public RecordSweeper(Persistence persistence, String encryptKey) {
+    this(persistence, encryptKey, 1, null, null);
+  }
+
+  public RecordSweeper(Persistence persistence, String encryptKey, int parallelism,
+      Integer maxRecordsPerSecond, SweepListener sweepListener) {
+    this.persistence = persistence;
+    this.encryptKey = encryptKey;
+    this.parallelism = parallelism;
+    this.maxRecordsPerSecond = maxRecordsPerSecond;
+    this.sweepListener = sweepListener;
+  }
+
+  /**
+   * Evicts the persisted records whose metadata matches the predicate, blocking until every record
+   * has been processed.
+   *
+   * @param name What the sweep evicts, used to report its progress.
+   * @return The number of records evicted.
+   */
+  public int sweep(String name, final Predicate<Record> evict) {
+    final List<String> keys = persistence.allKeys();
+    final Progress progress = new Progress(name, keys.size());
+    final Throttle throttle = new Throttle(maxRecordsPerSecond);
+    final AtomicInteger next = new AtomicInteger();
+
+    Runnable worker = new Runnable() {
+      @Override public void run() {
+        int index;
+        while ((index = next.getAndIncrement()) < keys.size()) {
+          if (!throttle.acquire()) return;
+          sweep(keys.get(index), evict, progress);
+        }
+      }
+    };
+
+    int workers = Math.min(parallelism, keys.size());
+    if (workers <= 1) {
+      worker.run();
+    } else {
+      runInParallel(worker, workers);
+    }
+
+    report(progress, true);
+    return progress.evicted.get();
+  }
+
+  private void runInParallel(final Runnable worker, int workers) {
+    final CountDownLatch finished = new CountDownLatch(workers);
+    List<Disposable> disposables = new ArrayList<>(workers);
+
+    for (int i = 0; i < workers; i++) {
+      disposables.add(Schedulers.io().scheduleDirect(new Runnable() {
+        @Override public void run() {
+          try {
+            worker.run();
+          } finally {
+            finished.countDown();
+          }
+        }
+      }));
+    }
+
+    try {
+      finished.await();
+    } catch (InterruptedException e) {
+      for (Disposable disposable : disposables) disposable.dispose();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void sweep(String key, Predicate<Record> evict, Progress progress) {
+    try {
+      Record record = persistence.retrieveRecordMetadata(key, encryptKey);
+
+      if (record != null && evict.test(record)
+          && persistence.evictIfPersistedAt(key, record.getTimeAtWhichWasPersisted())) {
+        progress.evicted.incrementAndGet();
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+
+    int processed = progress.processed.incrementAndGet();
+    if (processed % PROGRESS_INTERVAL == 0 && processed < progress.total) report(progress, false);
+  }
+
+  private void report(Progress progress, boolean completed) {
+    if (sweepListener == null) return;
+
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - progress.start);
+    sweepListener.onProgress(new SweepProgress(progress.name, progress.processed.get(),
+        progress.total, progress.evicted.get(), elapsedMillis, completed));
+  }
+
+  private static final class Progress {
+    private final String name;
+    private final int total;
+    private final long start;
+    private final AtomicInteger processed, evicted;
+
+    Progress(String name, int total) {
+      this.name = name;
+      this.total = total;
+      this.start = System.nanoTime();
+      this.processed = new AtomicInteger();
+      this.evicted = new AtomicInteger();
+    }
+  }
+
+  /**
+   * Spaces the records processed evenly, giving to every one its own slot of time.
+   */
+  private static final class Throttle {
+    private final long intervalNanos;
+    private final AtomicLong nextSlot;
+
+    Throttle(Integer maxRecordsPerSecond) {
+      this.intervalNanos =
+          maxRecordsPerSecond != null ? TimeUnit.SECONDS.toNanos(1) / maxRecordsPerSecond : 0;
+      this.nextSlot = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Waits for the next slot, returning false if the thread is interrupted meanwhile.
+     */
+    boolean acquire() {
+      if (intervalNanos == 0) return true;
+
+      long slot;
+      while (true) {
+        long previous = nextSlot.get();
+        slot = Math.max(previous, System.nanoTime());
+        if (nextSlot.compareAndSet(previous, slot + intervalNanos)) break;
+      }
+
+      long waitNanos = slot - System.nanoTime();
+      if (waitNanos <= 0) return true;
+
+      try {
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+  }
+}
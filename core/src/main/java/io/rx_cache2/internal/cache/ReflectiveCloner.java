@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deep copies objects field by field. The constructor and the fields of every class are looked up
+ * once and then reused, so copying an object costs about as much as assigning its fields.
+ *
+ * Strings, boxed primitives and enums are shared as they are immutable. Collections and maps are
+ * copied into a new instance of their class if it has a constructor without arguments, or into
+ * the closest general purpose implementation otherwise. Any other object requires a constructor
+ * without arguments and must not belong to the java packages, otherwise the copy fails with
+ * {@link CloneNotSupportedException}.
+ */
+final class ReflectiveCloner {
+  private final ConcurrentHashMap<Class<?>, ClassCopier> copiers;
+
+  ReflectiveCloner() {
+    this.copiers = new ConcurrentHashMap<>();
+  }
+
+  <T> T copy(T object) throws CloneNotSupportedException {
+    return copy(object, new IdentityHashMap<Object, Object>());
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T copy(T object, IdentityHashMap<Object, Object> copies)
+      throws CloneNotSupportedException {
+    if (object == null || isImmutable(object.getClass())) return object;
+
+    Object copy = copies.get(object);
+    if (copy != null) return (T) copy;
+
+    Class<?> clazz = object.getClass();
+    if (clazz.isArray()) return (T) copyArray(object, copies);
+    if (object instanceof Collection) return (T) copyCollection((Collection<Object>) object, copies);
+    if (object instanceof Map) return (T) copyMap((Map<Object, Object>) object, copies);
+
+    return (T) copier(clazz).copy(object, copies);
+  }
+
+  private Object copyArray(Object array, IdentityHashMap<Object, Object> copies)
+      throws CloneNotSupportedException {
+    int length = Array.getLength(array);
+    Class<?> componentType = array.getClass().getComponentType();
+    Object copy = Array.newInstance(componentType, length);
+    copies.put(array, copy);
+
+    if (componentType.isPrimitive()) {
+      System.arraycopy(array, 0, copy, 0, length);
+    } else {
+      Object[] source = (Object[]) array, target = (Object[]) copy;
+      for (int i = 0; i < length; i++) target[i] = copy(source[i], copies);
+    }
+
+    return copy;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Collection<Object> copyCollection(Collection<Object> collection,
+      IdentityHashMap<Object, Object> copies) throws CloneNotSupportedException {
+    Collection<Object> copy = (Collection<Object>) newInstance(collection.getClass());
+    if (copy == null) {
+      if (collection instanceof SortedSet) {
+        copy = new TreeSet<>(((SortedSet<Object>) collection).comparator());
+      } else if (collection instanceof Set) {
+        copy = new LinkedHashSet<>(collection.size());
+      } else {
+        copy = new ArrayList<>(collection.size());
+      }
+    }
+    copies.put(collection, copy);
+
+    for (Object item : collection) copy.add(copy(item, copies));
+    return copy;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<Object, Object> copyMap(Map<Object, Object> map,
+      IdentityHashMap<Object, Object> copies) throws CloneNotSupportedException {
+    Map<Object, Object> copy = (Map<Object, Object>) newInstance(map.getClass());
+    if (copy == null) {
+      if (map instanceof SortedMap) {
+        copy = new TreeMap<>(((SortedMap<Object, Object>) map).comparator());
+      } else {
+        copy = new LinkedHashMap<>(map.size());
+      }
+    }
+    copies.put(map, copy);
+
+    for (Map.Entry<Object, Object> entry : map.entrySet()) {
+      copy.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+    }
+    return copy;
+  }
+
+  /**
+   * Instantiates a collection or a map through its public constructor without arguments, or
+   * returns null if it does not have one. Sorted ones are never instantiated this way as their
+   * comparator would be lost.
+   */
+  private Object newInstance(Class<?> clazz) {
+    if (SortedSet.class.isAssignableFrom(clazz) || SortedMap.class.isAssignableFrom(clazz)) {
+      return null;
+    }
+
+    try {
+      return clazz.getConstructor().newInstance();
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private ClassCopier copier(Class<?> clazz) throws CloneNotSupportedException {
+    ClassCopier copier = copiers.get(clazz);
+    if (copier == null) {
+      copier = new ClassCopier(clazz);
+      ClassCopier previous = copiers.putIfAbsent(clazz, copier);
+      if (previous != null) copier = previous;
+    }
+    return copier;
+  }
+
+  private static boolean isImmutable(Class<?> clazz) {
+    return clazz == String.class || clazz == Integer.class || clazz == Long.class
+        || clazz == Double.class || clazz == Float.class || clazz == Boolean.class
+        || clazz == Short.class || clazz == Byte.class || clazz == Character.class
+        || clazz == BigInteger.class || clazz == BigDecimal.class || clazz == Class.class
+        || clazz.isEnum() || (clazz.getSuperclass() != null && clazz.getSuperclass().isEnum());
+  }
+
+  /**
+   * The constructor and the fields required to copy the instances of a class.
+   */
+  private final class ClassCopier {
+    private final Constructor<?> constructor;
+    private final Field[] fields;
+
+    ClassCopier(Class<?> clazz) throws CloneNotSupportedException {
+      if (clazz.getName().startsWith("java.") || clazz.getName().startsWith("javax.")) {
+        throw new CloneNotSupportedException(clazz.getName());
+      }
+
+      try {
+        constructor = clazz.getDeclaredConstructor();
+        constructor.setAccessible(true);
+      } catch (Exception e) {
+        throw new CloneNotSupportedException(clazz.getName());
+      }
+
+      List<Field> fields = new ArrayList<>();
+      for (Class<?> current = clazz; current != Object.class; current = current.getSuperclass()) {
+        if (current.getName().startsWith("java.")) {
+          throw new CloneNotSupportedException(clazz.getName());
+        }
+
+        for (Field field : current.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) continue;
+          field.setAccessible(true);
+          fields.add(field);
+        }
+      }
+      this.fields = fields.toArray(new Field[fields.size()]);
+    }
+
+    Object copy(Object object, IdentityHashMap<Object, Object> copies)
+        throws CloneNotSupportedException {
+      try {
+        Object copy = constructor.newInstance();
+        copies.put(object, copy);
+
+        for (Field field : fields) {
+          if (field.getType().isPrimitive()) {
+            field.set(copy, field.get(object));
+          } else {
+            field.set(copy, ReflectiveCloner.this.copy(field.get(object), copies));
+          }
+        }
+
+        return copy;
+      } catch (CloneNotSupportedException e) {
+        throw e;
+      } catch (Exception e) {
+        CloneNotSupportedException exception =
+            new CloneNotSupportedException(object.getClass().getName());
+        exception.initCause(e);
+        throw exception;
+      }
+    }
+  }
+}
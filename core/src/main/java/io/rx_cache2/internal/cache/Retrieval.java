@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache;
+
+import io.rx_cache2.internal.Record;
+
+/**
+ * A record retrieved by {@link TwoLayersCache} along with whether it has to be revalidated. That
+ * depends on the config of the call rather than on the record, so it is not kept in the record,
+ * which the memory shares between every call.
+ */
+public final class Retrieval<T> {
+  private final Record<T> record;
+  private final boolean stale, refreshAhead;
+
+  Retrieval(Record<T> record, boolean stale, boolean refreshAhead) {
+    this.record = record;
+    this.stale = stale;
+    this.refreshAhead = refreshAhead;
+  }
+
+  public Record<T> getRecord() {
+    return record;
+  }
+
+  /**
+   * Whether the record has expired but it was kept to be revalidated instead of evicted.
+   */
+  public boolean isStale() {
+    return stale;
+  }
+
+  /**
+   * Whether the record is within its refresh ahead window, so it has to be reloaded before it
+   * expires.
+   */
+  public boolean isRefreshAhead() {
+    return refreshAhead;
+  }
+}
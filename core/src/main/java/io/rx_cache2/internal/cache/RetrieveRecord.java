@@ -18,6 +18,8 @@ package io.rx_cache2.internal.cache;
 
 import javax.inject.Inject;
 
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.internal.CacheKey;
 import io.rx_cache2.internal.Persistence;
 import io.rx_cache2.internal.Record;
 import io.rx_cache2.Source;
@@ -27,36 +29,70 @@ public final class RetrieveRecord extends Action {
   private final EvictRecord evictRecord;
   private final HasRecordExpired hasRecordExpired;
   private final String encryptKey;
+  private final RecordAccesses recordAccesses;
+  private final CacheTracer tracer;
 
   @Inject public RetrieveRecord(Memory memory, Persistence persistence, EvictRecord evictRecord,
-      HasRecordExpired hasRecordExpired, String encryptKey) {
+      HasRecordExpired hasRecordExpired, String encryptKey, RecordAccesses recordAccesses,
+      CacheTracer tracer) {
     super(memory, persistence);
     this.evictRecord = evictRecord;
     this.hasRecordExpired = hasRecordExpired;
     this.encryptKey = encryptKey;
+    this.recordAccesses = recordAccesses;
+    this.tracer = tracer;
   }
 
   <T> Record<T> retrieveRecord(String providerKey, String dynamicKey, String dynamicKeyGroup,
       boolean useExpiredDataIfLoaderNotAvailable, Long lifeTime, boolean isEncrypted) {
-    String composedKey = composeKey(providerKey, dynamicKey, dynamicKeyGroup);
+    Retrieval<T> retrieval = retrieveRecord(providerKey, dynamicKey, dynamicKeyGroup,
+        useExpiredDataIfLoaderNotAvailable, lifeTime, isEncrypted, false, 0f);
+    return retrieval != null ? retrieval.getRecord() : null;
+  }
+
+  <T> Retrieval<T> retrieveRecord(String providerKey, String dynamicKey, String dynamicKeyGroup,
+      boolean useExpiredDataIfLoaderNotAvailable, Long lifeTime, boolean isEncrypted,
+      boolean staleWhileRevalidate, float refreshAhead) {
+    CacheTracer.Span span = tracer.start(CacheTracer.Operation.RETRIEVE);
+    Retrieval<T> retrieval = null;
+    try {
+      retrieval = lookUp(providerKey, dynamicKey, dynamicKeyGroup,
+          useExpiredDataIfLoaderNotAvailable, lifeTime, isEncrypted, staleWhileRevalidate,
+          refreshAhead);
+      return retrieval;
+    } finally {
+      span.finish(providerKey, retrieval != null ? retrieval.getRecord().getSource() : null, 0);
+    }
+  }
+
+  private <T> Retrieval<T> lookUp(String providerKey, String dynamicKey, String dynamicKeyGroup,
+      boolean useExpiredDataIfLoaderNotAvailable, Long lifeTime, boolean isEncrypted,
+      boolean staleWhileRevalidate, float refreshAhead) {
+    CacheKey key = CacheKey.of(providerKey, dynamicKey, dynamicKeyGroup);
 
-    Record<T> record = memory.getIfPresent(composedKey);
+    Record<T> record = memory.getIfPresent(key);
 
     if (record != null) {
       record.setSource(Source.MEMORY);
     } else {
       try {
-        record = persistence.retrieveRecord(composedKey, isEncrypted, encryptKey);
+        record = persistence.retrieveRecord(key.composedKey(), isEncrypted, encryptKey);
         record.setSource(Source.PERSISTENCE);
-        memory.put(composedKey, record);
+        memory.put(key, record);
       } catch (Exception ignore) {
         return null;
       }
     }
 
+    recordAccesses.recordAccess(key);
     record.setLifeTime(lifeTime);
 
-    if (hasRecordExpired.hasRecordExpired(record)) {
+    boolean expired = hasRecordExpired.hasRecordExpired(record);
+    boolean stale = expired && staleWhileRevalidate;
+    boolean withinRefreshAheadWindow =
+        !expired && hasRecordExpired.isWithinRefreshAheadWindow(record, refreshAhead);
+
+    if (expired && !staleWhileRevalidate) {
       if (!dynamicKeyGroup.isEmpty()) {
         evictRecord.evictRecordMatchingDynamicKeyGroup(providerKey, dynamicKey,
             dynamicKeyGroup);
@@ -66,9 +102,9 @@ public final class RetrieveRecord extends Action {
         evictRecord.evictRecordsMatchingProviderKey(providerKey);
       }
 
-      return useExpiredDataIfLoaderNotAvailable ? record : null;
+      return useExpiredDataIfLoaderNotAvailable ? new Retrieval<>(record, false, false) : null;
     }
 
-    return record;
+    return new Retrieval<>(record, stale, withinRefreshAheadWindow);
   }
 }
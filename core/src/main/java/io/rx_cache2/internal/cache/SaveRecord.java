@@ -18,6 +18,8 @@ package io.rx_cache2.internal.cache;
 
 import javax.inject.Inject;
 
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.internal.CacheKey;
 import io.rx_cache2.internal.Locale;
 import io.rx_cache2.internal.Memory;
 import io.rx_cache2.internal.Persistence;
@@ -28,27 +30,41 @@ public final class SaveRecord extends Action {
   private final io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence
       evictExpirableRecordsPersistence;
   private final String encryptKey;
+  private final KeyIndex keyIndex;
+  private final RecordAccesses recordAccesses;
+  private final CacheTracer tracer;
 
   @Inject public SaveRecord(Memory memory, Persistence persistence, Integer maxMgPersistenceCache,
-      io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence evictExpirableRecordsPersistence, String encryptKey) {
+      io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence evictExpirableRecordsPersistence, String encryptKey,
+      KeyIndex keyIndex, RecordAccesses recordAccesses, CacheTracer tracer) {
     super(memory, persistence);
     this.maxMgPersistenceCache = maxMgPersistenceCache;
     this.evictExpirableRecordsPersistence = evictExpirableRecordsPersistence;
     this.encryptKey = encryptKey;
+    this.keyIndex = keyIndex;
+    this.recordAccesses = recordAccesses;
+    this.tracer = tracer;
   }
 
   void save(final String providerKey, final String dynamicKey, final String dynamicKeyGroup,
       final Object data, final Long lifeTime, final boolean isExpirable,
       final boolean isEncrypted) {
-    String composedKey = composeKey(providerKey, dynamicKey, dynamicKeyGroup);
+    CacheTracer.Span span = tracer.start(CacheTracer.Operation.SAVE);
+    try {
+      CacheKey key = CacheKey.of(providerKey, dynamicKey, dynamicKeyGroup);
 
-    Record record = new Record(data, isExpirable, lifeTime);
-    memory.put(composedKey, record);
+      Record record = new Record(data, isExpirable, lifeTime);
+      keyIndex.add(key);
+      memory.put(key, record);
 
-    if (persistence.storedMB() >= maxMgPersistenceCache) {
-      System.out.println(Locale.RECORD_CAN_NOT_BE_PERSISTED_BECAUSE_WOULD_EXCEED_THRESHOLD_LIMIT);
-    } else {
-      persistence.saveRecord(composedKey, record, isEncrypted, encryptKey);
+      if (persistence.storedMB() >= maxMgPersistenceCache) {
+        System.out.println(Locale.RECORD_CAN_NOT_BE_PERSISTED_BECAUSE_WOULD_EXCEED_THRESHOLD_LIMIT);
+      } else {
+        persistence.saveRecord(key.composedKey(), record, isEncrypted, encryptKey);
+        recordAccesses.recordAccess(key);
+      }
+    } finally {
+      span.finish(providerKey, null, 0);
     }
 
     evictExpirableRecordsPersistence.startTaskIfNeeded(isEncrypted);
@@ -20,24 +20,49 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import io.rx_cache2.internal.Record;
+import io.rx_cache2.internal.stats.StatsRecorder;
 
 @Singleton
 public final class TwoLayersCache {
   private final EvictRecord evictRecord;
   private final io.rx_cache2.internal.cache.RetrieveRecord retrieveRecord;
   private final SaveRecord saveRecord;
+  private final StatsRecorder statsRecorder;
 
   @Inject public TwoLayersCache(EvictRecord evictRecord, io.rx_cache2.internal.cache.RetrieveRecord retrieveRecord,
-      SaveRecord saveRecord) {
+      SaveRecord saveRecord, StatsRecorder statsRecorder) {
     this.evictRecord = evictRecord;
     this.retrieveRecord = retrieveRecord;
     this.saveRecord = saveRecord;
+    this.statsRecorder = statsRecorder;
   }
 
   public <T> Record<T> retrieve(String providerKey, String dynamicKey, String dynamicKeyGroup,
       boolean useExpiredDataIfLoaderNotAvailable, Long lifeTime, boolean isEncrypted) {
-    return retrieveRecord.retrieveRecord(providerKey, dynamicKey, dynamicKeyGroup,
-        useExpiredDataIfLoaderNotAvailable, lifeTime, isEncrypted);
+    Retrieval<T> retrieval = retrieve(providerKey, dynamicKey, dynamicKeyGroup,
+        useExpiredDataIfLoaderNotAvailable, lifeTime, isEncrypted, false, 0f);
+    return retrieval != null ? retrieval.getRecord() : null;
+  }
+
+  /**
+   * Retrieve the record as {@link #retrieve} does but, if it has expired and staleWhileRevalidate
+   * is true, keep it and return it marked as stale instead of evicting it. If it has not expired
+   * but the refreshAhead fraction of its life time has elapsed, it is returned marked as
+   * refresh ahead.
+   */
+  public <T> Retrieval<T> retrieve(String providerKey, String dynamicKey, String dynamicKeyGroup,
+      boolean useExpiredDataIfLoaderNotAvailable, Long lifeTime, boolean isEncrypted,
+      boolean staleWhileRevalidate, float refreshAhead) {
+    long start = System.nanoTime();
+    Retrieval<T> retrieval = retrieveRecord.retrieveRecord(providerKey, dynamicKey,
+        dynamicKeyGroup, useExpiredDataIfLoaderNotAvailable, lifeTime, isEncrypted,
+        staleWhileRevalidate, refreshAhead);
+
+    if (retrieval != null) {
+      statsRecorder.recordRetrieval(providerKey, retrieval.getRecord().getSource(),
+          System.nanoTime() - start);
+    }
+    return retrieval;
   }
 
   public void save(String providerKey, String dynamicKey, String dynamicKeyGroup, Object data,
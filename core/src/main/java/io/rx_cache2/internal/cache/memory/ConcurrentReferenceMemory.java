@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache.memory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.rx_cache2.internal.CacheKey;
+import io.rx_cache2.internal.Memory;
+import io.rx_cache2.internal.Record;
+
+/**
+ * Memory which holds its keys strongly and its records through soft or weak references, so the
+ * garbage collector is able to release them when it requires to, like {@link ReferenceMapMemory}.
+ *
+ * Unlike it, the records are kept in a {@link ConcurrentHashMap} so neither reads nor writes
+ * take a monitor. The entries whose record has been collected are purged from the
+ * {@link ReferenceQueue} on writes and bulk operations, never on reads: a read which finds a
+ * collected record just reports it as absent.
+ */
+public final class ConcurrentReferenceMemory implements Memory {
+  private final ConcurrentHashMap<CacheKey, ValueReference> data;
+  private final ReferenceQueue<Record> queue;
+  private final AtomicBoolean draining;
+  private final Strength strength;
+
+  public ConcurrentReferenceMemory() {
+    this(Strength.SOFT);
+  }
+
+  public ConcurrentReferenceMemory(Strength strength) {
+    this.data = new ConcurrentHashMap<>();
+    this.queue = new ReferenceQueue<>();
+    this.draining = new AtomicBoolean();
+    this.strength = strength;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override public <T> Record<T> getIfPresent(CacheKey key) {
+    ValueReference reference = data.get(key);
+    if (reference == null) return null;
+    return reference.record();
+  }
+
+  @Override public <T> void put(CacheKey key, Record<T> record) {
+    drainQueue();
+    data.put(key, strength.reference(key, record, queue));
+  }
+
+  @Override public Set<CacheKey> keySet() {
+    drainQueue();
+    return data.keySet();
+  }
+
+  @Override public void evict(CacheKey key) {
+    data.remove(key);
+  }
+
+  @Override public void evictAll() {
+    data.clear();
+    drainQueue();
+  }
+
+  /**
+   * Removes the entries whose record has been collected. Only one thread drains at a time, the
+   * others move on rather than waiting for it.
+   */
+  private void drainQueue() {
+    if (!draining.compareAndSet(false, true)) return;
+
+    try {
+      Reference<? extends Record> reference;
+      while ((reference = queue.poll()) != null) {
+        ValueReference valueReference = (ValueReference) reference;
+        data.remove(valueReference.key(), valueReference);
+      }
+    } finally {
+      draining.set(false);
+    }
+  }
+
+  //VisibleForTesting
+  void collect(CacheKey key) {
+    ValueReference reference = data.get(key);
+    if (reference == null) return;
+
+    ((Reference) reference).clear();
+    ((Reference) reference).enqueue();
+  }
+
+  //VisibleForTesting
+  int size() {
+    return data.size();
+  }
+
+  /**
+   * The reference type used to hold the records.
+   */
+  public enum Strength {
+    /**
+     * Records are released when the garbage collector requires memory.
+     */
+    SOFT {
+      @Override ValueReference reference(CacheKey key, Record record, ReferenceQueue<Record> queue) {
+        return new SoftValueReference(key, record, queue);
+      }
+    },
+
+    /**
+     * Records are released as soon as nothing else references them.
+     */
+    WEAK {
+      @Override ValueReference reference(CacheKey key, Record record, ReferenceQueue<Record> queue) {
+        return new WeakValueReference(key, record, queue);
+      }
+    };
+
+    abstract ValueReference reference(CacheKey key, Record record, ReferenceQueue<Record> queue);
+  }
+
+  private interface ValueReference {
+    CacheKey key();
+
+    Record record();
+  }
+
+  private static final class SoftValueReference extends SoftReference<Record>
+      implements ValueReference {
+    private final CacheKey key;
+
+    SoftValueReference(CacheKey key, Record record, ReferenceQueue<Record> queue) {
+      super(record, queue);
+      this.key = key;
+    }
+
+    @Override public CacheKey key() {
+      return key;
+    }
+
+    @Override public Record record() {
+      return get();
+    }
+  }
+
+  private static final class WeakValueReference extends WeakReference<Record>
+      implements ValueReference {
+    private final CacheKey key;
+
+    WeakValueReference(CacheKey key, Record record, ReferenceQueue<Record> queue) {
+      super(record, queue);
+      this.key = key;
+    }
+
+    @Override public CacheKey key() {
+      return key;
+    }
+
+    @Override public Record record() {
+      return get();
+    }
+  }
+}
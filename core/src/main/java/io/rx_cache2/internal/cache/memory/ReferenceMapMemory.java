@@ -21,34 +21,35 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import io.rx_cache2.internal.CacheKey;
 import io.rx_cache2.internal.Memory;
 import io.rx_cache2.internal.Record;
 
 public final class ReferenceMapMemory implements Memory {
-  private final Map<String, io.rx_cache2.internal.Record> referenceMap;
+  private final Map<CacheKey, io.rx_cache2.internal.Record> referenceMap;
 
   public ReferenceMapMemory() {
-    referenceMap = Collections.synchronizedMap(new io.rx_cache2.internal.cache.memory.apache.ReferenceMap<String, Record>());
+    referenceMap = Collections.synchronizedMap(new io.rx_cache2.internal.cache.memory.apache.ReferenceMap<CacheKey, Record>());
   }
 
-  @Override public <T> io.rx_cache2.internal.Record<T> getIfPresent(String key) {
+  @Override public <T> io.rx_cache2.internal.Record<T> getIfPresent(CacheKey key) {
     return referenceMap.get(key);
   }
 
-  @Override public <T> void put(String key, io.rx_cache2.internal.Record<T> record) {
+  @Override public <T> void put(CacheKey key, io.rx_cache2.internal.Record<T> record) {
     referenceMap.put(key, record);
   }
 
-  @Override public Set<String> keySet() {
+  @Override public Set<CacheKey> keySet() {
     return referenceMap.keySet();
   }
 
-  @Override public void evict(String key) {
+  @Override public void evict(CacheKey key) {
     referenceMap.remove(key);
   }
 
   @Override public void evictAll() {
-    Set<String> keys = referenceMap.keySet();
+    Set<CacheKey> keys = referenceMap.keySet();
 
     synchronized (referenceMap) {
       Iterator iterator = keys.iterator();
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache.memory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import io.rx_cache2.internal.CacheKey;
+import io.rx_cache2.internal.Memory;
+import io.rx_cache2.internal.Record;
+
+/**
+ * Memory bounded by a maximum number of records, evicting them following the W-TinyLFU policy:
+ * new records enter a small LRU window and, once they leave it, they are only admitted into the
+ * main segmented LRU if they have been used more frequently than the record that would be evicted
+ * in their place. Frequencies are estimated with a {@link FrequencySketch}, so records only read
+ * once do not flush the frequently read ones.
+ *
+ * Reads do not block: the records are kept in a {@link ConcurrentHashMap} and the reads are
+ * recorded in a lossy buffer which is applied to the policy by whichever thread acquires its lock.
+ * Writes update the policy under that lock.
+ */
+public final class TinyLfuMemory implements Memory {
+  private static final int WINDOW = 0, PROBATION = 1, PROTECTED = 2, REMOVED = 3;
+  private static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+  private static final int READ_BUFFER_MAX_SIZE = 4 * 1024;
+
+  private final ConcurrentHashMap<CacheKey, Node> data;
+  private final ConcurrentLinkedQueue<Node> readBuffer;
+  private final AtomicInteger readBufferSize;
+  private final ReentrantLock evictionLock;
+  private final FrequencySketch sketch;
+  private final long maximumSize, maximumWindowSize, maximumProtectedSize;
+
+  private final Deque window, probation, protectedDeque;
+  private long windowSize, probationSize, protectedSize;
+
+  public TinyLfuMemory(long maximumSize) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be positive");
+    }
+
+    this.data = new ConcurrentHashMap<>();
+    this.readBuffer = new ConcurrentLinkedQueue<>();
+    this.readBufferSize = new AtomicInteger();
+    this.evictionLock = new ReentrantLock();
+    this.sketch = new FrequencySketch(maximumSize);
+    this.maximumSize = maximumSize;
+    this.maximumWindowSize = Math.max(1, maximumSize / 100);
+    this.maximumProtectedSize = (long) ((maximumSize - maximumWindowSize) * 0.8);
+    this.window = new Deque();
+    this.probation = new Deque();
+    this.protectedDeque = new Deque();
+  }
+
+  @Override public <T> Record<T> getIfPresent(CacheKey key) {
+    Node node = data.get(key);
+    if (node == null) return null;
+
+    recordRead(node);
+    return node.record;
+  }
+
+  @Override public <T> void put(CacheKey key, Record<T> record) {
+    evictionLock.lock();
+    try {
+      drainReadBuffer();
+
+      Node node = data.get(key);
+      if (node != null) {
+        node.record = record;
+        onAccess(node);
+      } else {
+        node = new Node(key, record);
+        data.put(key, node);
+        sketch.increment(key);
+        node.queue = WINDOW;
+        window.addLast(node);
+        windowSize++;
+      }
+
+      evictEntries();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override public Set<CacheKey> keySet() {
+    return data.keySet();
+  }
+
+  @Override public void evict(CacheKey key) {
+    evictionLock.lock();
+    try {
+      Node node = data.remove(key);
+      if (node != null) unlink(node);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override public void evictAll() {
+    evictionLock.lock();
+    try {
+      for (Node node : data.values()) {
+        unlink(node);
+      }
+      data.clear();
+      readBuffer.clear();
+      readBufferSize.set(0);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  //VisibleForTesting
+  long size() {
+    evictionLock.lock();
+    try {
+      return windowSize + probationSize + protectedSize;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void recordRead(Node node) {
+    //Reads are dropped when the buffer is full, the policy only needs a sample of them
+    if (readBufferSize.get() < READ_BUFFER_MAX_SIZE) {
+      readBuffer.offer(node);
+      readBufferSize.incrementAndGet();
+    }
+
+    if (readBufferSize.get() >= READ_BUFFER_DRAIN_THRESHOLD && evictionLock.tryLock()) {
+      try {
+        drainReadBuffer();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void drainReadBuffer() {
+    Node node;
+    while ((node = readBuffer.poll()) != null) {
+      readBufferSize.decrementAndGet();
+      if (node.queue != REMOVED) onAccess(node);
+    }
+  }
+
+  private void onAccess(Node node) {
+    sketch.increment(node.key);
+
+    switch (node.queue) {
+      case WINDOW:
+        window.moveToLast(node);
+        break;
+      case PROBATION:
+        probation.remove(node);
+        probationSize--;
+        node.queue = PROTECTED;
+        protectedDeque.addLast(node);
+        protectedSize++;
+        demoteProtected();
+        break;
+      case PROTECTED:
+        protectedDeque.moveToLast(node);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void demoteProtected() {
+    while (protectedSize > maximumProtectedSize) {
+      Node demoted = protectedDeque.pollFirst();
+      protectedSize--;
+      demoted.queue = PROBATION;
+      probation.addLast(demoted);
+      probationSize++;
+    }
+  }
+
+  private void evictEntries() {
+    //The records which leave the window become candidates to be admitted at the probation tail
+    while (windowSize > maximumWindowSize && window.first() != null) {
+      Node candidate = window.pollFirst();
+      windowSize--;
+      candidate.queue = PROBATION;
+      probation.addLast(candidate);
+      probationSize++;
+    }
+
+    while (windowSize + probationSize + protectedSize > maximumSize) {
+      Node victim = probation.first();
+      Node candidate = probation.last();
+
+      if (victim == null) {
+        victim = protectedDeque.first() != null ? protectedDeque.first() : window.first();
+        candidate = null;
+      }
+
+      Node evicted = candidate == null || candidate == victim
+          || sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+      data.remove(evicted.key);
+      unlink(evicted);
+    }
+  }
+
+  private void unlink(Node node) {
+    switch (node.queue) {
+      case WINDOW:
+        window.remove(node);
+        windowSize--;
+        break;
+      case PROBATION:
+        probation.remove(node);
+        probationSize--;
+        break;
+      case PROTECTED:
+        protectedDeque.remove(node);
+        protectedSize--;
+        break;
+      default:
+        break;
+    }
+    node.queue = REMOVED;
+  }
+
+  private static final class Node {
+    final CacheKey key;
+    volatile Record record;
+    int queue;
+    Node previous, next;
+
+    Node(CacheKey key, Record record) {
+      this.key = key;
+      this.record = record;
+    }
+  }
+
+  /**
+   * Doubly linked list ordered from the least to the most recently used node, only accessed while
+   * holding the eviction lock.
+   */
+  private static final class Deque {
+    private Node first, last;
+
+    Node first() {
+      return first;
+    }
+
+    Node last() {
+      return last;
+    }
+
+    void addLast(Node node) {
+      node.previous = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+    }
+
+    Node pollFirst() {
+      Node node = first;
+      if (node != null) remove(node);
+      return node;
+    }
+
+    void moveToLast(Node node) {
+      if (node == last) return;
+      remove(node);
+      addLast(node);
+    }
+
+    void remove(Node node) {
+      if (node.previous == null) {
+        first = node.next;
+      } else {
+        node.previous.next = node.next;
+      }
+
+      if (node.next == null) {
+        last = node.previous;
+      } else {
+        node.next.previous = node.previous;
+      }
+
+      node.previous = null;
+      node.next = null;
+    }
+  }
+}
@@ -22,71 +22,157 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
-import javax.crypto.CipherOutputStream;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
 
 /**
- * Encrypt/Decrypt the file data
+ * Encrypt/Decrypt the file data with AES-GCM, using a random IV for every record which is written
+ * ahead of the encrypted data.
+ *
+ * The data is encrypted in chunks of {@link #CHUNK_LENGTH} bytes, each one authenticated on its
+ * own with a nonce derived from the IV and the index of the chunk, so it can be decrypted as it is
+ * read without buffering the whole record. The last chunk is flagged as such in its associated
+ * data, which detects truncated records.
+ *
+ * The AES key is derived from the encrypt key with PBKDF2 just once and cached, and the ciphers are
+ * reused per thread, so the returned streams must be consumed before requesting another one on the
+ * same thread. Data encrypted by previous versions (AES with a key generated by a seeded
+ * SHA1PRNG) is identified by the lack of the format prefix and it is still decrypted.
  */
 public final class BuiltInEncryptor implements Encryptor {
   private static final int KEY_LENGTH = 128;
       // Max 128 bits by default. See http://stackoverflow.com/a/24907555/5502014
   private static final int FILE_BUF = 1024;
-  private Cipher encryptCipher;
-  private Cipher decryptCipher;
+  private static final byte[] PREFIX = {'R', 'X', 'E', 'N', 'C', 1};
+  private static final int IV_LENGTH = 12;
+  private static final int TAG_LENGTH = 128;
+  private static final int CHUNK_LENGTH = 64 * 1024;
+  private static final int KDF_ITERATIONS = 10000;
+  //The key must be derived again without any other state than the encrypt key, hence the fixed
+  //salt. The random IV of every record keeps the ciphertexts of equal records apart
+  private static final byte[] KDF_SALT = "io.rx_cache2.BuiltInEncryptor".getBytes();
 
-  @Override public void encrypt(String key, File decryptedFile, File encryptedFile) {
-    initCiphers(key);
+  private final ConcurrentHashMap<String, SecretKey> keys = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, SecretKey> legacyKeys = new ConcurrentHashMap<>();
+  private final SecureRandom secureRandom = new SecureRandom();
+  private final ThreadLocal<Cipher> encryptCiphers = new CipherThreadLocal("AES/GCM/NoPadding");
+  private final ThreadLocal<Cipher> decryptCiphers = new CipherThreadLocal("AES/GCM/NoPadding");
+  private final ThreadLocal<Cipher> legacyCiphers = new CipherThreadLocal("AES");
 
+  @Override public void encrypt(String key, File decryptedFile, File encryptedFile) {
     try {
-      CipherInputStream cis =
-          new CipherInputStream(new FileInputStream(decryptedFile), encryptCipher);
-      write(cis, new FileOutputStream(encryptedFile));
+      write(new FileInputStream(decryptedFile),
+          encrypt(key, new FileOutputStream(encryptedFile)));
     } catch (Exception e) {
       e.printStackTrace();
     }
   }
 
   @Override public void decrypt(String key, File encryptedFile, File decryptedFile) {
-    initCiphers(key);
-
     try {
-      CipherOutputStream cos =
-          new CipherOutputStream(new FileOutputStream(decryptedFile), decryptCipher);
-      write(new FileInputStream(encryptedFile), cos);
+      write(decrypt(key, new FileInputStream(encryptedFile)),
+          new FileOutputStream(decryptedFile));
     } catch (Exception e) {
       e.printStackTrace();
     }
   }
 
-  private void initCiphers(String key) {
+  @Override public OutputStream encrypt(String key, OutputStream outputStream)
+      throws IOException {
+    byte[] iv = new byte[IV_LENGTH];
+    secureRandom.nextBytes(iv);
+
+    SecretKey secretKey;
     try {
-      SecretKeySpec secretKey = generateSecretKey(key);
+      secretKey = key(key);
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+
+    outputStream.write(PREFIX);
+    outputStream.write(iv);
+    return new ChunkedCipherOutputStream(outputStream, encryptCiphers.get(), secretKey, iv);
+  }
+
+  @Override public InputStream decrypt(String key, InputStream inputStream) throws IOException {
+    PushbackInputStream pushbackInputStream = new PushbackInputStream(inputStream, PREFIX.length);
 
-      encryptCipher = Cipher.getInstance("AES");
-      encryptCipher.init(Cipher.ENCRYPT_MODE, secretKey);
+    byte[] prefix = new byte[PREFIX.length];
+    int read = readFully(pushbackInputStream, prefix);
 
-      decryptCipher = Cipher.getInstance("AES");
-      decryptCipher.init(Cipher.DECRYPT_MODE, secretKey);
+    try {
+      if (read == PREFIX.length && Arrays.equals(prefix, PREFIX)) {
+        byte[] iv = new byte[IV_LENGTH];
+        if (readFully(pushbackInputStream, iv) != IV_LENGTH) {
+          throw new IOException("Truncated encrypted data");
+        }
+
+        return new ChunkedCipherInputStream(pushbackInputStream, decryptCiphers.get(), key(key),
+            iv);
+      }
+
+      pushbackInputStream.unread(prefix, 0, read);
+      Cipher cipher = legacyCiphers.get();
+      cipher.init(Cipher.DECRYPT_MODE, legacyKey(key));
+      return new CipherInputStream(pushbackInputStream, cipher);
+    } catch (IOException e) {
+      throw e;
     } catch (Exception e) {
-      e.printStackTrace();
+      throw new IOException(e);
     }
   }
 
-  private SecretKeySpec generateSecretKey(String key) throws Exception {
+  private SecretKey key(String key) throws Exception {
+    SecretKey secretKey = keys.get(key);
+    if (secretKey != null) return secretKey;
+
+    SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+    PBEKeySpec keySpec = new PBEKeySpec(key.toCharArray(), KDF_SALT, KDF_ITERATIONS, KEY_LENGTH);
+    secretKey = new SecretKeySpec(factory.generateSecret(keySpec).getEncoded(), "AES");
+    keySpec.clearPassword();
+
+    keys.putIfAbsent(key, secretKey);
+    return secretKey;
+  }
+
+  private SecretKey legacyKey(String key) throws Exception {
+    SecretKey secretKey = legacyKeys.get(key);
+    if (secretKey != null) return secretKey;
+
     SecureRandom secureRandom = SecureRandom.getInstance("SHA1PRNG");
     secureRandom.setSeed(key.getBytes("UTF-8"));
     KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
     keyGenerator.init(KEY_LENGTH, secureRandom);
-    SecretKey secretKey = keyGenerator.generateKey();
+    secretKey = new SecretKeySpec(keyGenerator.generateKey().getEncoded(), "AES");
+
+    legacyKeys.putIfAbsent(key, secretKey);
+    return secretKey;
+  }
+
+  private static int readFully(InputStream inputStream, byte[] bytes) throws IOException {
+    return readFully(inputStream, bytes, bytes.length);
+  }
 
-    return new SecretKeySpec(secretKey.getEncoded(), "AES");
+  private static int readFully(InputStream inputStream, byte[] bytes, int length)
+      throws IOException {
+    int read = 0;
+    while (read < length) {
+      int count = inputStream.read(bytes, read, length - read);
+      if (count == -1) break;
+      read += count;
+    }
+    return read;
   }
 
   private void write(InputStream is, OutputStream os) {
@@ -102,6 +188,11 @@ public final class BuiltInEncryptor implements Encryptor {
     } finally {
       try {
         is.close();
+      } catch (IOException ex) {
+        ex.printStackTrace();
+      }
+
+      try {
         os.flush();
         os.close();
       } catch (IOException ex) {
@@ -109,4 +200,153 @@ public final class BuiltInEncryptor implements Encryptor {
       }
     }
   }
+
+  private static GCMParameterSpec chunkParameters(byte[] iv, int chunk) {
+    byte[] nonce = iv.clone();
+    for (int i = 0; i < 4; i++) {
+      nonce[IV_LENGTH - 1 - i] ^= (byte) (chunk >>> (8 * i));
+    }
+    return new GCMParameterSpec(TAG_LENGTH, nonce);
+  }
+
+  private static final class ChunkedCipherOutputStream extends OutputStream {
+    private final OutputStream outputStream;
+    private final Cipher cipher;
+    private final SecretKey secretKey;
+    private final byte[] iv;
+    private final byte[] buffer = new byte[CHUNK_LENGTH];
+    private int buffered, chunk;
+    private boolean closed;
+
+    ChunkedCipherOutputStream(OutputStream outputStream, Cipher cipher, SecretKey secretKey,
+        byte[] iv) {
+      this.outputStream = outputStream;
+      this.cipher = cipher;
+      this.secretKey = secretKey;
+      this.iv = iv;
+    }
+
+    @Override public void write(int b) throws IOException {
+      write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override public void write(byte[] bytes, int offset, int length) throws IOException {
+      while (length > 0) {
+        //A full chunk is only written once it is known not to be the last one
+        if (buffered == CHUNK_LENGTH) writeChunk(false);
+
+        int count = Math.min(length, CHUNK_LENGTH - buffered);
+        System.arraycopy(bytes, offset, buffer, buffered, count);
+        buffered += count;
+        offset += count;
+        length -= count;
+      }
+    }
+
+    @Override public void close() throws IOException {
+      if (closed) return;
+      closed = true;
+
+      try {
+        writeChunk(true);
+        outputStream.flush();
+      } finally {
+        outputStream.close();
+      }
+    }
+
+    private void writeChunk(boolean last) throws IOException {
+      try {
+        cipher.init(Cipher.ENCRYPT_MODE, secretKey, chunkParameters(iv, chunk++));
+        cipher.updateAAD(new byte[] {(byte) (last ? 1 : 0)});
+        outputStream.write(cipher.doFinal(buffer, 0, buffered));
+        buffered = 0;
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+    }
+  }
+
+  private static final class ChunkedCipherInputStream extends InputStream {
+    private final PushbackInputStream inputStream;
+    private final Cipher cipher;
+    private final SecretKey secretKey;
+    private final byte[] iv;
+    private final byte[] encrypted = new byte[CHUNK_LENGTH + TAG_LENGTH / 8];
+    private byte[] decrypted = new byte[0];
+    private int position, chunk;
+    private boolean last;
+
+    ChunkedCipherInputStream(PushbackInputStream inputStream, Cipher cipher, SecretKey secretKey,
+        byte[] iv) {
+      this.inputStream = inputStream;
+      this.cipher = cipher;
+      this.secretKey = secretKey;
+      this.iv = iv;
+    }
+
+    @Override public int read() throws IOException {
+      if (!fill()) return -1;
+      return decrypted[position++] & 0xFF;
+    }
+
+    @Override public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0) return 0;
+      if (!fill()) return -1;
+
+      int count = Math.min(length, decrypted.length - position);
+      System.arraycopy(decrypted, position, bytes, offset, count);
+      position += count;
+      return count;
+    }
+
+    @Override public int available() {
+      return decrypted.length - position;
+    }
+
+    @Override public void close() throws IOException {
+      inputStream.close();
+    }
+
+    private boolean fill() throws IOException {
+      while (position == decrypted.length) {
+        if (last) return false;
+
+        int read = readFully(inputStream, encrypted, encrypted.length);
+        int next = inputStream.read();
+        if (next == -1) {
+          last = true;
+        } else {
+          inputStream.unread(next);
+        }
+
+        try {
+          cipher.init(Cipher.DECRYPT_MODE, secretKey, chunkParameters(iv, chunk++));
+          cipher.updateAAD(new byte[] {(byte) (last ? 1 : 0)});
+          decrypted = cipher.doFinal(encrypted, 0, read);
+          position = 0;
+        } catch (Exception e) {
+          throw new IOException(e);
+        }
+      }
+
+      return true;
+    }
+  }
+
+  private static final class CipherThreadLocal extends ThreadLocal<Cipher> {
+    private final String transformation;
+
+    CipherThreadLocal(String transformation) {
+      this.transformation = transformation;
+    }
+
+    @Override protected Cipher initialValue() {
+      try {
+        return Cipher.getInstance(transformation);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  }
 }
@@ -17,6 +17,9 @@
 package io.rx_cache2.internal.encrypt;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * Interface to Encrypt/Decrypt the file data
@@ -40,4 +43,22 @@ public interface Encryptor {
    * @param decryptedFile Output file with the data without encrypt
    */
   void decrypt(String key, File encryptedFile, File decryptedFile);
+
+  /**
+   * Wraps the {@code outputStream} so the data written through it is encrypted. The data is not
+   * completely written until the returned stream is closed, which closes the wrapped one too.
+   *
+   * @param key Key used by the algorithm to encrypt/decrypt the data
+   * @param outputStream Output stream where the encrypted data is written to
+   */
+  OutputStream encrypt(String key, OutputStream outputStream) throws IOException;
+
+  /**
+   * Wraps the {@code inputStream} so the data read through it is decrypted, without writing the
+   * decrypted data anywhere.
+   *
+   * @param key Key used by the algorithm to encrypt/decrypt the data
+   * @param inputStream Input stream where the encrypted data is read from
+   */
+  InputStream decrypt(String key, InputStream inputStream) throws IOException;
 }
@@ -16,69 +16,28 @@
 
 package io.rx_cache2.internal.encrypt;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.nio.channels.FileChannel;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 
 import javax.inject.Inject;
 
+/**
+ * Encrypts and decrypts the records persisted as they are streamed to and from their files, so
+ * their decrypted content is never written to disk.
+ */
 public final class FileEncryptor {
-  private static final String SUFFIX_TMP = "-tmp";
   private final Encryptor encryptor;
 
   @Inject public FileEncryptor(Encryptor encryptor) {
     this.encryptor = encryptor;
   }
 
-  public File encrypt(String key, File file) {
-    if (!file.exists()) return file;
-
-    String filenameInput = file.getAbsolutePath();
-    file = rename(file, new File(filenameInput + SUFFIX_TMP));
-    File fileOutput = new File(filenameInput);
-
-    encryptor.encrypt(key, file, fileOutput);
-    file.delete();
-
-    return fileOutput;
+  public OutputStream encrypt(String key, OutputStream outputStream) throws IOException {
+    return encryptor.encrypt(key, outputStream);
   }
 
-  public File decrypt(String key, File file) {
-    if (!file.exists()) return file;
-
-    String filenameInput = file.getAbsolutePath();
-    File fileOutput = new File(filenameInput + SUFFIX_TMP);
-    encryptor.decrypt(key, file, fileOutput);
-
-    return fileOutput;
-  }
-
-  private File rename(File fileSrc, File fileDst) {
-    FileChannel inputChannel = null;
-    FileChannel outputChannel = null;
-
-    try {
-      inputChannel = new FileInputStream(fileSrc).getChannel();
-      outputChannel = new FileOutputStream(fileDst).getChannel();
-
-      inputChannel.transferTo(0, inputChannel.size(), outputChannel);
-      fileSrc.delete();
-    } catch (Exception e) {
-      e.printStackTrace();
-    } finally {
-      try {
-        if (inputChannel != null) {
-          inputChannel.close();
-        }
-        if (outputChannel != null) {
-          outputChannel.close();
-        }
-      } catch (Exception e) {
-        e.printStackTrace();
-      }
-    }
-
-    return fileDst;
+  public InputStream decrypt(String key, InputStream inputStream) throws IOException {
+    return encryptor.decrypt(key, inputStream);
   }
 }
@@ -17,17 +17,18 @@
 package io.rx_cache2.internal.migration;
 
 import io.reactivex.Observable;
+import io.reactivex.functions.Predicate;
+import io.rx_cache2.internal.cache.RecordSweeper;
 import java.util.List;
 import javax.inject.Inject;
 
 public final class DeleteRecordMatchingClassName {
-  private final io.rx_cache2.internal.Persistence persistence;
-  private final String encryptKey;
+  private static final String SWEEP_NAME = "migrated classes";
+  private final RecordSweeper recordSweeper;
   private List<Class> classes;
 
-  @Inject public DeleteRecordMatchingClassName(io.rx_cache2.internal.Persistence persistence, String encryptKey) {
-    this.persistence = persistence;
-    this.encryptKey = encryptKey;
+  @Inject public DeleteRecordMatchingClassName(RecordSweeper recordSweeper) {
+    this.recordSweeper = recordSweeper;
   }
 
   public DeleteRecordMatchingClassName with(List<Class> classes) {
@@ -38,19 +39,11 @@ public final class DeleteRecordMatchingClassName {
   public Observable<Integer> react() {
     if (classes.isEmpty()) return Observable.just(1);
 
-    List<String> allKeys = persistence.allKeys();
-
-    for (String key : allKeys) {
-      io.rx_cache2.internal.Record record = persistence.retrieveRecord(key, false, encryptKey);
-
-      if (record == null) {
-        record = persistence.retrieveRecord(key, true, encryptKey);
+    recordSweeper.sweep(SWEEP_NAME, new Predicate<io.rx_cache2.internal.Record>() {
+      @Override public boolean test(io.rx_cache2.internal.Record record) throws Exception {
+        return evictRecord(record);
       }
-
-      if (evictRecord(record)) {
-        persistence.evict(key);
-      }
-    }
+    });
 
     return Observable.just(1);
   }
@@ -18,10 +18,14 @@ package io.rx_cache2.internal.migration;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableSource;
+import io.reactivex.functions.Action;
 import io.reactivex.functions.Function;
+import io.rx_cache2.CacheTracer;
 import io.rx_cache2.MigrationCache;
 import io.rx_cache2.internal.Persistence;
+import io.rx_cache2.internal.cache.RecordSweeper;
 import java.util.List;
+import java.util.concurrent.Callable;
 import javax.inject.Inject;
 
 public final class DoMigrations {
@@ -32,18 +36,47 @@ public final class DoMigrations {
   private final io.rx_cache2.internal.migration.UpgradeCacheVersion upgradeCacheVersion;
   private final GetClassesToEvictFromMigrations getClassesToEvictFromMigrations;
   private final List<MigrationCache> migrations;
+  private final CacheTracer tracer;
 
   @Inject public DoMigrations(Persistence persistence, List<MigrationCache> migrations,
-      String encryptKey) {
+      RecordSweeper recordSweeper, CacheTracer tracer) {
     this.getClassesToEvictFromMigrations = new GetClassesToEvictFromMigrations();
     this.getCacheVersion = new io.rx_cache2.internal.migration.GetCacheVersion(persistence);
     this.getPendingMigrations = new io.rx_cache2.internal.migration.GetPendingMigrations();
     this.migrations = migrations;
     this.upgradeCacheVersion = new io.rx_cache2.internal.migration.UpgradeCacheVersion(persistence);
-    this.deleteRecordMatchingClassName = new io.rx_cache2.internal.migration.DeleteRecordMatchingClassName(persistence, encryptKey);
+    this.deleteRecordMatchingClassName = new io.rx_cache2.internal.migration.DeleteRecordMatchingClassName(recordSweeper);
+    this.tracer = tracer;
+  }
+
+  /**
+   * If any of the migrations evicts classes. Otherwise migrating only reads and writes the version
+   * of the cache, so the records can be retrieved while it is done.
+   */
+  public boolean evictsClasses() {
+    if (migrations == null) return false;
+
+    for (MigrationCache migration : migrations) {
+      if (migration.evictClasses() != null && migration.evictClasses().length > 0) return true;
+    }
+
+    return false;
   }
 
   public Observable<Integer> react() {
+    return Observable.defer(new Callable<ObservableSource<Integer>>() {
+      @Override public ObservableSource<Integer> call() throws Exception {
+        final CacheTracer.Span span = tracer.start(CacheTracer.Operation.MIGRATION);
+        return migrate().doOnTerminate(new Action() {
+          @Override public void run() throws Exception {
+            span.finish(null, null, 0);
+          }
+        });
+      }
+    });
+  }
+
+  private Observable<Integer> migrate() {
     return getCacheVersion.react()
         .flatMap(new Function<Integer, ObservableSource<List<MigrationCache>>>() {
           @Override public ObservableSource<List<MigrationCache>> apply(Integer currentCacheVersion)
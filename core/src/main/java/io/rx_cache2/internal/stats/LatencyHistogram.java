@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.stats;
+
+import io.rx_cache2.LatencyStats;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds whose buckets grow exponentially, as HdrHistogram does:
+ * every power of two is split into {@link #SUB_BUCKETS} linear buckets, so the relative error of
+ * any latency recorded is at most 1/16 while recording it is just an increment. Latencies longer
+ * than {@link #MAX_VALUE} nanoseconds (more than an hour) are recorded as such.
+ */
+final class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 4;
+  //VisibleForTesting
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 41;
+  private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+  private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+  private final AtomicLongArray buckets;
+  private final StripedCounter totalNanos;
+  private final AtomicLong maxNanos;
+
+  LatencyHistogram() {
+    this.buckets = new AtomicLongArray(BUCKETS);
+    this.totalNanos = new StripedCounter();
+    this.maxNanos = new AtomicLong();
+  }
+
+  void record(long nanos) {
+    if (nanos < 0) nanos = 0;
+
+    buckets.getAndIncrement(index(Math.min(nanos, MAX_VALUE)));
+    totalNanos.add(nanos);
+
+    long max;
+    while (nanos > (max = maxNanos.get())) {
+      if (maxNanos.compareAndSet(max, nanos)) break;
+    }
+  }
+
+  /**
+   * Adds the latencies recorded by this histogram to the merge.
+   */
+  void mergeInto(Merge merge) {
+    for (int i = 0; i < BUCKETS; i++) {
+      merge.buckets[i] += buckets.get(i);
+    }
+    merge.totalNanos += totalNanos.sum();
+    merge.maxNanos = Math.max(merge.maxNanos, maxNanos.get());
+  }
+
+  LatencyStats stats() {
+    Merge merge = new Merge();
+    mergeInto(merge);
+    return merge.stats();
+  }
+
+  //VisibleForTesting
+  static int index(long value) {
+    if (value < SUB_BUCKETS) return (int) value;
+
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+    return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * The largest latency which falls into the bucket.
+   */
+  //VisibleForTesting
+  static long upperBound(int index) {
+    if (index < SUB_BUCKETS) return index;
+
+    int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+    int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+    return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * The latencies of several histograms added together.
+   */
+  static final class Merge {
+    private final long[] buckets = new long[BUCKETS];
+    private long totalNanos, maxNanos;
+
+    LatencyStats stats() {
+      long count = 0;
+      for (long bucket : buckets) count += bucket;
+
+      return new LatencyStats(count, totalNanos, maxNanos, percentile(count, 0.5),
+          percentile(count, 0.9), percentile(count, 0.99), percentile(count, 0.999));
+    }
+
+    private long percentile(long count, double percentile) {
+      if (count == 0) return 0;
+
+      long rank = (long) Math.ceil(count * percentile);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += buckets[i];
+        if (seen >= rank) return Math.min(upperBound(i), maxNanos);
+      }
+      return maxNanos;
+    }
+  }
+}
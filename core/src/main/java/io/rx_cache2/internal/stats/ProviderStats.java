@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.stats;
+
+import io.rx_cache2.CacheStats;
+
+/**
+ * The counters and the latency histograms of a provider.
+ */
+final class ProviderStats {
+  final StripedCounter memoryHits, persistenceHits, misses, loads, loadFailures, coalescedLoads,
+      evictions, queuedWrites, coalescedWrites, writes, failedWrites;
+  final LatencyHistogram memoryLatency, persistenceLatency, loaderLatency;
+
+  ProviderStats() {
+    this.memoryHits = new StripedCounter();
+    this.persistenceHits = new StripedCounter();
+    this.misses = new StripedCounter();
+    this.loads = new StripedCounter();
+    this.loadFailures = new StripedCounter();
+    this.coalescedLoads = new StripedCounter();
+    this.evictions = new StripedCounter();
+    this.queuedWrites = new StripedCounter();
+    this.coalescedWrites = new StripedCounter();
+    this.writes = new StripedCounter();
+    this.failedWrites = new StripedCounter();
+    this.memoryLatency = new LatencyHistogram();
+    this.persistenceLatency = new LatencyHistogram();
+    this.loaderLatency = new LatencyHistogram();
+  }
+
+  CacheStats snapshot() {
+    return new CacheStats(memoryHits.sum(), persistenceHits.sum(), misses.sum(), loads.sum(),
+        loadFailures.sum(), coalescedLoads.sum(), evictions.sum(), queuedWrites.sum(),
+        coalescedWrites.sum(), writes.sum(), failedWrites.sum(), memoryLatency.stats(),
+        persistenceLatency.stats(), loaderLatency.stats());
+  }
+}
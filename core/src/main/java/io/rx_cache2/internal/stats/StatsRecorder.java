@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.stats;
+
+import io.rx_cache2.CacheStats;
+import io.rx_cache2.Source;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Records the statistics of the cache by provider key. Recording only updates the counters of the
+ * provider, which are striped, so it barely adds contention between threads; the statistics of
+ * every provider are added together when they are retrieved.
+ *
+ * @see CacheStats
+ */
+@Singleton
+public final class StatsRecorder {
+  private final ConcurrentHashMap<String, ProviderStats> providers;
+  //The evictions which can not be attributed to a provider and the writes done in the background
+  private final ProviderStats unattributed;
+
+  @Inject public StatsRecorder() {
+    this.providers = new ConcurrentHashMap<>();
+    this.unattributed = new ProviderStats();
+  }
+
+  /**
+   * Records the retrieval of a record from the layer which is its source.
+   */
+  public void recordRetrieval(String providerKey, Source source, long nanos) {
+    if (source == Source.MEMORY) {
+      of(providerKey).memoryLatency.record(nanos);
+    } else if (source == Source.PERSISTENCE) {
+      of(providerKey).persistenceLatency.record(nanos);
+    }
+  }
+
+  /**
+   * Records a request served from the layer which is the source of the record, or a miss if the
+   * source is null.
+   */
+  public void recordRequest(String providerKey, Source source) {
+    ProviderStats stats = of(providerKey);
+
+    if (source == Source.MEMORY) {
+      stats.memoryHits.increment();
+    } else if (source == Source.PERSISTENCE) {
+      stats.persistenceHits.increment();
+    } else {
+      stats.misses.increment();
+    }
+  }
+
+  public void recordLoad(String providerKey, long nanos) {
+    ProviderStats stats = of(providerKey);
+    stats.loads.increment();
+    stats.loaderLatency.record(nanos);
+  }
+
+  public void recordLoadFailure(String providerKey, long nanos) {
+    ProviderStats stats = of(providerKey);
+    stats.loadFailures.increment();
+    stats.loaderLatency.record(nanos);
+  }
+
+  /**
+   * Records a miss which shared the loader of another request in progress for the same record.
+   */
+  public void recordCoalescedLoad(String providerKey) {
+    of(providerKey).coalescedLoads.increment();
+  }
+
+  /**
+   * Records the records evicted of the provider, or of an unknown one if it is null.
+   */
+  public void recordEvictions(String providerKey, int evictions) {
+    if (evictions <= 0) return;
+
+    ProviderStats stats = providerKey != null ? of(providerKey) : unattributed;
+    stats.evictions.add(evictions);
+  }
+
+  /**
+   * Records a record queued to be written in the background, which replaced a queued record of
+   * the same key if coalesced is true.
+   */
+  public void recordQueuedWrite(boolean coalesced) {
+    unattributed.queuedWrites.increment();
+    if (coalesced) unattributed.coalescedWrites.increment();
+  }
+
+  public void recordWrite() {
+    unattributed.writes.increment();
+  }
+
+  public void recordFailedWrite() {
+    unattributed.failedWrites.increment();
+  }
+
+  /**
+   * The statistics of every provider added together.
+   */
+  public CacheStats snapshot() {
+    List<ProviderStats> all = new ArrayList<>(providers.values());
+    all.add(unattributed);
+
+    long memoryHits = 0, persistenceHits = 0, misses = 0, loads = 0, loadFailures = 0,
+        coalescedLoads = 0, evictions = 0, queuedWrites = 0, coalescedWrites = 0, writes = 0,
+        failedWrites = 0;
+    LatencyHistogram.Merge memoryLatency = new LatencyHistogram.Merge();
+    LatencyHistogram.Merge persistenceLatency = new LatencyHistogram.Merge();
+    LatencyHistogram.Merge loaderLatency = new LatencyHistogram.Merge();
+
+    for (ProviderStats stats : all) {
+      memoryHits += stats.memoryHits.sum();
+      persistenceHits += stats.persistenceHits.sum();
+      misses += stats.misses.sum();
+      loads += stats.loads.sum();
+      loadFailures += stats.loadFailures.sum();
+      coalescedLoads += stats.coalescedLoads.sum();
+      evictions += stats.evictions.sum();
+      queuedWrites += stats.queuedWrites.sum();
+      coalescedWrites += stats.coalescedWrites.sum();
+      writes += stats.writes.sum();
+      failedWrites += stats.failedWrites.sum();
+      stats.memoryLatency.mergeInto(memoryLatency);
+      stats.persistenceLatency.mergeInto(persistenceLatency);
+      stats.loaderLatency.mergeInto(loaderLatency);
+    }
+
+    return new CacheStats(memoryHits, persistenceHits, misses, loads, loadFailures,
+        coalescedLoads, evictions, queuedWrites, coalescedWrites, writes, failedWrites,
+        memoryLatency.stats(), persistenceLatency.stats(), loaderLatency.stats());
+  }
+
+  /**
+   * The statistics of the provider, which are empty if nothing has been recorded for it.
+   */
+  public CacheStats snapshot(String providerKey) {
+    ProviderStats stats = providers.get(providerKey);
+    return stats != null ? stats.snapshot() : new ProviderStats().snapshot();
+  }
+
+  /**
+   * The keys of the providers which have recorded statistics.
+   */
+  public Set<String> providerKeys() {
+    return Collections.unmodifiableSet(providers.keySet());
+  }
+
+  private ProviderStats of(String providerKey) {
+    ProviderStats stats = providers.get(providerKey);
+    if (stats == null) {
+      ProviderStats created = new ProviderStats();
+      stats = providers.putIfAbsent(providerKey, created);
+      if (stats == null) stats = created;
+    }
+    return stats;
+  }
+}
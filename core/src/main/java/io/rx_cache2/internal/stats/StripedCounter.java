@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.stats;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter which spreads the threads which update it over several cells, each one on its own cache
+ * line, so concurrent updates rarely contend on the same one. Reading it sums every cell, so it is
+ * meant to be updated often and read seldom.
+ */
+final class StripedCounter {
+  //Longs in a cache line of 64 bytes
+  private static final int PADDING = 8;
+  private static final int STRIPES = stripes();
+  private final AtomicLongArray cells;
+
+  StripedCounter() {
+    this.cells = new AtomicLongArray(STRIPES * PADDING);
+  }
+
+  void increment() {
+    add(1);
+  }
+
+  void add(long value) {
+    cells.getAndAdd(cell(), value);
+  }
+
+  long sum() {
+    long sum = 0;
+    for (int i = 0; i < cells.length(); i += PADDING) {
+      sum += cells.get(i);
+    }
+    return sum;
+  }
+
+  private static int cell() {
+    long id = Thread.currentThread().getId();
+    int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+    return ((hash >>> 16) & (STRIPES - 1)) * PADDING;
+  }
+
+  private static int stripes() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    int stripes = 1;
+    while (stripes < processors * 2) stripes <<= 1;
+    return stripes;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.rx_cache2.internal;
+
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.FsyncPolicy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+import io.rx_cache2.Source;
+import io.rx_cache2.internal.common.BaseTest;
+import io.rx_cache2.internal.encrypt.BuiltInEncryptor;
+import io.rx_cache2.internal.encrypt.FileEncryptor;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNull;
+
+public class BinarySerializerTest extends BaseTest {
+    private final static String KEY = "store/store";
+    private final static String VALUE = "dummy";
+    private final BinarySerializer serializer = new BinarySerializer();
+
+    @Test public void When_An_Object_Graph_Is_Serialized_Then_Deserialize_It() throws IOException {
+        Graph graph = new Graph();
+        graph.count = 3;
+        graph.ratio = 0.5d;
+        graph.source = Source.CLOUD;
+        graph.mocks = new LinkedList<>(Arrays.asList(new Mock(VALUE), new Mock(VALUE + 1)));
+        graph.mocksById = new HashMap<>();
+        graph.mocksById.put(1, new Mock(VALUE));
+        graph.ids = new int[] {1, 2};
+        graph.cached = "cached";
+
+        Graph copy = copy(graph, Graph.class);
+
+        assertThat(copy.count, is(3));
+        assertThat(copy.ratio, is(0.5d));
+        assertThat(copy.source, is(Source.CLOUD));
+        assertThat(copy.mocks.get(1).getMessage(), is(VALUE + 1));
+        assertThat(copy.mocks instanceof LinkedList, is(true));
+        assertThat(copy.mocksById.get(1).getMessage(), is(VALUE));
+        assertThat(copy.ids[1], is(2));
+        assertNull(copy.cached);
+    }
+
+    @Test public void When_A_Record_Is_Serialized_Then_Deserialize_It() throws IOException {
+        List<Mock> mocks = Arrays.asList(new Mock(VALUE), new Mock(VALUE + 1));
+        Type type = serializer.newParameterizedType(Record.class, Object.class);
+
+        Record<List<Mock>> record = copy(new Record<>(mocks, true, 1000L), type);
+
+        assertThat(record.getData().get(1).getMessage(), is(VALUE + 1));
+        assertThat(record.getLifeTime(), is(1000L));
+        assertThat(record.getDataClassName(), is(Mock.class.getName()));
+    }
+
+    @Test(expected = IOException.class)
+    public void When_The_Stream_Was_Not_Written_By_It_Then_Throw() throws IOException {
+        serializer.deserialize(new ByteArrayInputStream("{}".getBytes("UTF-8")), Mock.class);
+    }
+
+    @Test public void When_Disk_Uses_It_Then_Retrieve_Records() {
+        Disk disk = new Disk(temporaryFolder.getRoot(),
+            new FileEncryptor(new BuiltInEncryptor()), serializer, FsyncPolicy.NEVER, CacheTracer.NONE);
+
+        Map<Integer, Mock> mocks = new HashMap<>();
+        mocks.put(1, new Mock(VALUE));
+        disk.save(KEY, new Record<>(mocks), false, null);
+        disk.save(KEY + 1, new Record<>(new Mock(VALUE)), true, "key");
+
+        Record<Map<Integer, Mock>> record = disk.retrieveRecord(KEY, false, null);
+        assertThat(record.getData().get(1).getMessage(), is(VALUE));
+
+        Record<Mock> encrypted = disk.retrieveRecord(KEY + 1, true, "key");
+        assertThat(encrypted.getData().getMessage(), is(VALUE));
+    }
+
+    private <T> T copy(Object data, Type type) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        serializer.serialize(data, type, outputStream);
+        return serializer.deserialize(new ByteArrayInputStream(outputStream.toByteArray()), type);
+    }
+
+    static class Graph {
+        int count;
+        double ratio;
+        Source source;
+        LinkedList<Mock> mocks;
+        Map<Integer, Mock> mocksById;
+        int[] ids;
+        transient String cached;
+    }
+}
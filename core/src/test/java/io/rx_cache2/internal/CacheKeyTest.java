@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertNull;
+
+public class CacheKeyTest {
+    private static final String PROVIDER_KEY = "get_mocks";
+    private static final String DYNAMIC_KEY = "filter_1", DYNAMIC_KEY_GROUP = "page_1";
+
+    @Test public void Check_Composed_Key() {
+        CacheKey key = CacheKey.of(PROVIDER_KEY, DYNAMIC_KEY, DYNAMIC_KEY_GROUP);
+        assertThat(key.composedKey(), is("get_mocks$d$d$d$filter_1$g$g$g$page_1"));
+        assertThat(CacheKey.of(PROVIDER_KEY, null, "").composedKey(), is("get_mocks$d$d$d$null$g$g$g$"));
+    }
+
+    @Test public void Check_Equality_From_Parts() {
+        CacheKey key = CacheKey.of(PROVIDER_KEY, DYNAMIC_KEY, DYNAMIC_KEY_GROUP);
+
+        assertThat(key, is(CacheKey.of(PROVIDER_KEY, DYNAMIC_KEY, DYNAMIC_KEY_GROUP)));
+        assertThat(key.hashCode(), is(CacheKey.of(PROVIDER_KEY, DYNAMIC_KEY, DYNAMIC_KEY_GROUP).hashCode()));
+        assertThat(key, is(not(CacheKey.of(PROVIDER_KEY, DYNAMIC_KEY_GROUP, DYNAMIC_KEY))));
+    }
+
+    @Test public void Check_Parse_Composed_Key() {
+        CacheKey key = CacheKey.parse(CacheKey.of(PROVIDER_KEY, DYNAMIC_KEY, DYNAMIC_KEY_GROUP).composedKey());
+
+        assertThat(key.providerKey(), is(PROVIDER_KEY));
+        assertThat(key.dynamicKey(), is(DYNAMIC_KEY));
+        assertThat(key.dynamicKeyGroup(), is(DYNAMIC_KEY_GROUP));
+        assertThat(key, is(CacheKey.of(PROVIDER_KEY, DYNAMIC_KEY, DYNAMIC_KEY_GROUP)));
+
+        assertNull(CacheKey.parse("not_composed"));
+    }
+
+    @Test public void When_Key_Has_Slashes_Then_Escape_Them_In_File_Name() {
+        String key = CacheKey.of(PROVIDER_KEY, "a/b%", "").composedKey();
+        String fileName = CacheKey.toFileName(key);
+
+        assertThat(fileName, is("get_mocks$d$d$d$a%2Fb%25$g$g$g$"));
+        assertThat(CacheKey.fromFileName(fileName), is(key));
+    }
+
+    @Test public void When_Keys_Differ_Only_By_Slashes_Then_File_Names_Do_Not_Collide() {
+        String fileName = CacheKey.toFileName(CacheKey.of(PROVIDER_KEY, "a/b", "").composedKey());
+        String otherFileName = CacheKey.toFileName(CacheKey.of(PROVIDER_KEY, "a_b", "").composedKey());
+        String escapedFileName = CacheKey.toFileName(CacheKey.of(PROVIDER_KEY, "a%2Fb", "").composedKey());
+
+        assertThat(fileName, is(not(otherFileName)));
+        assertThat(fileName, is(not(escapedFileName)));
+        assertThat(otherFileName, is("get_mocks$d$d$d$a_b$g$g$g$"));
+    }
+
+    @Test public void When_Key_Is_Too_Long_Then_Hash_File_Name() {
+        StringBuilder dynamicKey = new StringBuilder();
+        for (int i = 0; i < 300; i++) dynamicKey.append('ñ');
+
+        String fileName = CacheKey.toFileName(CacheKey.of(PROVIDER_KEY, dynamicKey.toString(), "").composedKey());
+        String otherFileName = CacheKey.toFileName(CacheKey.of(PROVIDER_KEY, dynamicKey.toString(), "1").composedKey());
+
+        assert(fileName.getBytes(Charset.forName("UTF-8")).length <= CacheKey.MAX_FILE_NAME_BYTES);
+        assert(fileName.startsWith(PROVIDER_KEY));
+        assertThat(fileName, is(not(otherFileName)));
+        assertNull(CacheKey.fromFileName(fileName));
+    }
+}
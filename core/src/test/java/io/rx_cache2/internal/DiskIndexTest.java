@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal;
+
+import io.rx_cache2.internal.common.BaseTest;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DiskIndexTest extends BaseTest {
+    private final static String VALUE = "dummy";
+
+    @Test public void When_Records_Are_Saved_And_Evicted_Then_Index_Tracks_Keys_And_Size() {
+        for (int i = 0; i < 10; i++) {
+            disk.save(String.valueOf(i), new Record(new Mock(VALUE)), false, null);
+        }
+        disk.evict("0");
+
+        DiskIndex diskIndex = DiskIndex.of(temporaryFolder.getRoot());
+        assertThat(diskIndex.keys().size(), is(9));
+        assertNull(diskIndex.get("0"));
+        assertThat(diskIndex.totalBytes(), is(sizeRecordFiles()));
+    }
+
+    @Test public void When_Index_Is_Collected_Then_Its_Instance_Is_Removed() throws IOException {
+        File cacheDirectory = temporaryFolder.newFolder();
+        DiskIndex.of(cacheDirectory);
+        assertTrue(DiskIndex.hasInstance(cacheDirectory));
+
+        for (int i = 0; i < 50 && DiskIndex.hasInstance(cacheDirectory); i++) {
+            System.gc();
+            Thread.yield();
+        }
+
+        assertFalse(DiskIndex.hasInstance(cacheDirectory));
+    }
+
+    @Test public void When_Index_Is_Reloaded_Then_Journal_Is_Replayed() {
+        Record<Mock> record = new Record<>(new Mock(VALUE), false, 1000L);
+        disk.save("1", record, false, null);
+        disk.save("2", new Record(new Mock(VALUE)), false, null);
+        disk.evict("2");
+
+        DiskIndex reloaded = new DiskIndex(temporaryFolder.getRoot());
+        assertThat(reloaded.keys().size(), is(1));
+        assertThat(reloaded.totalBytes(), is(sizeRecordFiles()));
+
+        DiskIndex.Entry entry = reloaded.get("1");
+        assertThat(entry.lifeTime, is(1000L));
+        assertThat(entry.expirable, is(false));
+        assertThat(entry.timeAtWhichWasPersisted, is(record.getTimeAtWhichWasPersisted()));
+        assertThat(entry.dataClassName, is(Mock.class.getName()));
+    }
+
+    @Test public void When_Journal_Is_Missing_Then_Index_Is_Rebuilt_From_Directory() {
+        for (int i = 0; i < 10; i++) {
+            disk.save(String.valueOf(i), new Record(new Mock(VALUE)), false, null);
+        }
+
+        assertTrue(new File(temporaryFolder.getRoot(), DiskIndex.JOURNAL_FILE).delete());
+
+        DiskIndex rebuilt = new DiskIndex(temporaryFolder.getRoot());
+        assertThat(rebuilt.keys().size(), is(10));
+        assertThat(rebuilt.totalBytes(), is(sizeRecordFiles()));
+        //The metadata is read back from the headers of the records
+        assertThat(rebuilt.get("0").dataClassName, is(Mock.class.getName()));
+        assertThat(rebuilt.get("0").expirable, is(true));
+    }
+
+    @Test public void When_Journal_Misses_Records_Then_Index_Is_Reconciled_With_Directory() throws IOException {
+        disk.save("1", new Record(new Mock(VALUE)), false, null);
+        disk.save("2", new Record(new Mock(VALUE)), false, null);
+        File journalFile = new File(temporaryFolder.getRoot(), DiskIndex.JOURNAL_FILE);
+        byte[] journal = read(journalFile);
+
+        //Saved after the journal was copied, as if the process crashed before journaling it
+        disk.save("3", new Record(new Mock(VALUE)), false, null);
+        write(journalFile, journal);
+        assertTrue(new File(temporaryFolder.getRoot(), "2").delete());
+
+        DiskIndex reconciled = new DiskIndex(temporaryFolder.getRoot());
+        assertThat(reconciled.keys().size(), is(2));
+        assertNull(reconciled.get("2"));
+        assertThat(reconciled.get("3").dataClassName, is(Mock.class.getName()));
+        assertThat(reconciled.totalBytes(), is(sizeRecordFiles()));
+
+        DiskIndex reloaded = new DiskIndex(temporaryFolder.getRoot());
+        assertThat(reloaded.keys().size(), is(2));
+        assertThat(reloaded.totalBytes(), is(sizeRecordFiles()));
+    }
+
+    @Test public void When_Index_Is_Loaded_Then_Temp_Files_Are_Deleted() throws IOException {
+        disk.save("1", new Record(new Mock(VALUE)), false, null);
+        File leftover = File.createTempFile(DiskIndex.TEMP_FILE_PREFIX, null, temporaryFolder.getRoot());
+
+        DiskIndex reloaded = new DiskIndex(temporaryFolder.getRoot());
+        assertThat(reloaded.keys().size(), is(1));
+        assertFalse(leftover.exists());
+    }
+
+    @Test public void When_Evict_All_Then_Temp_Files_Of_Saves_In_Progress_Are_Kept() throws IOException {
+        disk.save("1", new Record(new Mock(VALUE)), false, null);
+        File inProgress = File.createTempFile(DiskIndex.TEMP_FILE_PREFIX, null, temporaryFolder.getRoot());
+
+        disk.evictAll();
+        assertTrue(inProgress.exists());
+        assertThat(disk.allKeys().size(), is(0));
+    }
+
+    private static byte[] read(File file) throws IOException {
+        DataInputStream input = new DataInputStream(new FileInputStream(file));
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            input.readFully(bytes);
+            return bytes;
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void write(File file, byte[] bytes) throws IOException {
+        FileOutputStream output = new FileOutputStream(file, false);
+        try {
+            output.write(bytes);
+        } finally {
+            output.close();
+        }
+    }
+
+    private long sizeRecordFiles() {
+        long bytes = 0;
+
+        for (File file : temporaryFolder.getRoot().listFiles()) {
+            if (!DiskIndex.isIndexFile(file.getName())) bytes += file.length();
+        }
+
+        return bytes;
+    }
+}
@@ -18,13 +18,25 @@ package io.rx_cache2.internal;
 
 import org.junit.Test;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.FsyncPolicy;
+import io.rx_cache2.Source;
 import io.rx_cache2.internal.common.BaseTest;
+import io.rx_cache2.internal.encrypt.BuiltInEncryptor;
+import io.rx_cache2.internal.encrypt.FileEncryptor;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
@@ -169,4 +181,174 @@ public class DiskTest extends BaseTest {
         assertThat(((Map) value3).get("foo"), is((Object) (VALUE + 2)));
         assertThat(((Map) value3).get("bar"), is((Object) (VALUE + 3)));
     }
+
+    @Test public void When_A_Record_Is_Supplied_Retrieve_Its_Metadata_Without_Data() {
+        disk.save(KEY, new io.rx_cache2.internal.Record(new Mock(VALUE), false, 1000L), false, null);
+
+        io.rx_cache2.internal.Record<Mock> diskRecord = disk.retrieveRecordMetadata(KEY, null);
+        assertNull(diskRecord.getData());
+        assertThat(diskRecord.getDataClassName(), is(Mock.class.getName()));
+        assertThat(diskRecord.getLifeTime(), is(1000L));
+        assertThat(diskRecord.getExpirable(), is(false));
+        assertTrue(diskRecord.getSizeOnMb() > 0);
+    }
+
+    @Test public void When_A_Record_Is_Encrypted_Retrieve_Its_Metadata_Without_Decrypt_It() {
+        disk.save(KEY, new io.rx_cache2.internal.Record(new Mock(VALUE)), true, "key");
+
+        io.rx_cache2.internal.Record<Mock> diskRecord = disk.retrieveRecordMetadata(KEY, null);
+        assertNull(diskRecord.getData());
+        assertThat(diskRecord.getDataClassName(), is(Mock.class.getName()));
+    }
+
+    @Test public void When_A_Record_Is_Indexed_Retrieve_Its_Metadata_Without_Read_It() throws Exception {
+        disk.save(KEY, new io.rx_cache2.internal.Record(new Mock(VALUE), true, 1000L), false, null);
+        File file = new File(temporaryFolder.getRoot(), CacheKey.toFileName(KEY));
+        float sizeOnMb = file.length() / 1024f / 1024f;
+
+        FileWriter fileWriter = new FileWriter(file);
+        fileWriter.write("not a record");
+        fileWriter.close();
+
+        io.rx_cache2.internal.Record<Mock> diskRecord = disk.retrieveRecordMetadata(KEY, null);
+        assertThat(diskRecord.getDataClassName(), is(Mock.class.getName()));
+        assertThat(diskRecord.getLifeTime(), is(1000L));
+        assertThat(diskRecord.getExpirable(), is(true));
+        assertThat(diskRecord.getSizeOnMb(), is(sizeOnMb));
+    }
+
+    @Test public void When_A_Legacy_Record_Is_Supplied_Retrieve_It_And_Its_Metadata() throws Exception {
+        io.rx_cache2.internal.Record record = new io.rx_cache2.internal.Record(new Mock(VALUE));
+        FileWriter fileWriter = new FileWriter(new File(temporaryFolder.getRoot(), CacheKey.toFileName(KEY)));
+        fileWriter.write(Jolyglot$.newInstance().toJson(record));
+        fileWriter.close();
+
+        io.rx_cache2.internal.Record<Mock> diskRecord = disk.retrieveRecord(KEY, false, null);
+        assertThat(diskRecord.getData().getMessage(), is(VALUE));
+
+        diskRecord = disk.retrieveRecordMetadata(KEY, null);
+        assertThat(diskRecord.getDataClassName(), is(Mock.class.getName()));
+    }
+
+    @Test public void When_A_Write_Is_Interrupted_Then_Previous_Record_Remains() {
+        disk.save(KEY, new io.rx_cache2.internal.Record(new Mock(VALUE)), false, null);
+
+        Disk failingDisk = new Disk(temporaryFolder.getRoot(),
+            new FileEncryptor(new BuiltInEncryptor()), new FailingSerializer(), FsyncPolicy.NEVER, CacheTracer.NONE);
+        try {
+            failingDisk.save(KEY, new io.rx_cache2.internal.Record(new Mock(VALUE + 1)), false, null);
+        } catch (RuntimeException expected) {
+        }
+
+        io.rx_cache2.internal.Record<Mock> diskRecord = disk.retrieveRecord(KEY, false, null);
+        assertThat(diskRecord.getData().getMessage(), is(VALUE));
+        assertThat(temporaryFolder.getRoot().list(new FilenameFilter() {
+            @Override public boolean accept(File dir, String name) {
+                return name.startsWith(DiskIndex.TEMP_FILE_PREFIX);
+            }
+        }).length, is(0));
+    }
+
+    @Test public void When_Fsync_Per_Write_Then_Retrieve_Record() {
+        Disk syncedDisk = new Disk(temporaryFolder.getRoot(),
+            new FileEncryptor(new BuiltInEncryptor()), new JolyglotSerializer(Jolyglot$.newInstance()),
+            FsyncPolicy.PER_WRITE, CacheTracer.NONE);
+        syncedDisk.save(KEY, new io.rx_cache2.internal.Record(new Mock(VALUE)), true, "key");
+
+        io.rx_cache2.internal.Record<Mock> diskRecord = syncedDisk.retrieveRecord(KEY, true, "key");
+        assertThat(diskRecord.getData().getMessage(), is(VALUE));
+    }
+
+    @Test public void When_Fsync_Periodic_Then_Sync_Records_In_Batch() {
+        Disk syncedDisk = new Disk(temporaryFolder.getRoot(),
+            new FileEncryptor(new BuiltInEncryptor()), new JolyglotSerializer(Jolyglot$.newInstance()),
+            FsyncPolicy.PERIODIC, CacheTracer.NONE);
+        syncedDisk.save(KEY, new io.rx_cache2.internal.Record(new Mock(VALUE)), false, null);
+        syncedDisk.save(KEY + 1, new io.rx_cache2.internal.Record(new Mock(VALUE)), false, null);
+        assertThat(syncedDisk.diskSync().pendingCount(), is(2));
+
+        syncedDisk.diskSync().syncPending();
+        assertThat(syncedDisk.diskSync().pendingCount(), is(0));
+
+        io.rx_cache2.internal.Record<Mock> diskRecord = syncedDisk.retrieveRecord(KEY + 1, false, null);
+        assertThat(diskRecord.getData().getMessage(), is(VALUE));
+    }
+
+    @Test public void When_Fsync_Periodic_And_Record_Evicted_Then_Do_Not_Recreate_It() {
+        Disk syncedDisk = new Disk(temporaryFolder.getRoot(),
+            new FileEncryptor(new BuiltInEncryptor()), new JolyglotSerializer(Jolyglot$.newInstance()),
+            FsyncPolicy.PERIODIC, CacheTracer.NONE);
+        syncedDisk.save(KEY, new io.rx_cache2.internal.Record(new Mock(VALUE)), false, null);
+        String[] files = temporaryFolder.getRoot().list();
+        syncedDisk.evict(KEY);
+
+        syncedDisk.diskSync().syncPending();
+        assertThat(temporaryFolder.getRoot().list().length, is(files.length - 1));
+    }
+
+    @Test public void When_Encrypted_Record_Is_Retrieved_Then_No_Decrypted_File_Is_Written() {
+        disk.save(KEY, new io.rx_cache2.internal.Record(new Mock(VALUE)), true, "key");
+        String[] files = temporaryFolder.getRoot().list();
+
+        io.rx_cache2.internal.Record<Mock> diskRecord = disk.retrieveRecord(KEY, true, "key");
+        assertThat(diskRecord.getData().getMessage(), is(VALUE));
+        assertThat(temporaryFolder.getRoot().list().length, is(files.length));
+    }
+
+    @Test public void When_Traced_Then_Span_Encryption_And_Decryption_With_Key_And_Bytes() {
+        final List<String> spans = new ArrayList<>();
+        CacheTracer tracer = new CacheTracer() {
+            @Override public Span start(final Operation operation) {
+                return new Span() {
+                    @Override public void finish(String key, Source source, long bytes) {
+                        if (operation == Operation.ENCRYPT || operation == Operation.DECRYPT) {
+                            spans.add(operation + " " + key + " " + (bytes > 0));
+                        }
+                    }
+                };
+            }
+        };
+        Disk tracedDisk = new Disk(temporaryFolder.getRoot(),
+            new FileEncryptor(new BuiltInEncryptor()), new JolyglotSerializer(Jolyglot$.newInstance()),
+            FsyncPolicy.NEVER, tracer);
+
+        tracedDisk.save(KEY, new io.rx_cache2.internal.Record(new Mock(VALUE)), true, "key");
+        io.rx_cache2.internal.Record<Mock> diskRecord = tracedDisk.retrieveRecord(KEY, true, "key");
+
+        assertThat(diskRecord.getData().getMessage(), is(VALUE));
+        assertThat(spans, is(Arrays.asList("ENCRYPT " + KEY + " true", "DECRYPT " + KEY + " true")));
+    }
+
+    @Test public void When_Encrypted_Object_Is_Supplied_Retrieve_It() {
+        disk.save(KEY, new Mock(VALUE), true, "key");
+
+        assertNull(disk.retrieve(KEY, Mock.class, false, null));
+        assertThat(disk.retrieve(KEY, Mock.class, true, "key").getMessage(), is(VALUE));
+    }
+
+    private static class FailingSerializer implements Serializer {
+        private final Serializer serializer = new JolyglotSerializer(Jolyglot$.newInstance());
+
+        @Override public void serialize(Object data, Type type, OutputStream outputStream)
+            throws IOException {
+            outputStream.write("{\"data\":".getBytes("UTF-8"));
+            throw new IOException("Interrupted");
+        }
+
+        @Override public <T> T deserialize(InputStream inputStream, Type type) throws IOException {
+            return serializer.deserialize(inputStream, type);
+        }
+
+        @Override public <T> T deserialize(File file, Type type) throws IOException {
+            return serializer.deserialize(file, type);
+        }
+
+        @Override public Type newParameterizedType(Type rawType, Type... typeArguments) {
+            return serializer.newParameterizedType(rawType, typeArguments);
+        }
+
+        @Override public Type arrayOf(Type componentType) {
+            return serializer.arrayOf(componentType);
+        }
+    }
 }
@@ -19,9 +19,17 @@ package io.rx_cache2.internal;
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
 import io.reactivex.ObservableOnSubscribe;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
 import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+import io.rx_cache2.CacheStats;
+import io.rx_cache2.CacheTracer;
 import io.rx_cache2.ConfigProvider;
+import io.rx_cache2.CopyStrategy;
 import io.rx_cache2.EvictProvider;
+import io.rx_cache2.EvictionPolicy;
+import io.rx_cache2.MigrationCache;
 import io.rx_cache2.Reply;
 import io.rx_cache2.Source;
 import io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence;
@@ -29,12 +37,21 @@ import io.rx_cache2.internal.cache.EvictExpiredRecordsPersistence;
 import io.rx_cache2.internal.cache.EvictRecord;
 import io.rx_cache2.internal.cache.GetDeepCopy;
 import io.rx_cache2.internal.cache.HasRecordExpired;
+import io.rx_cache2.internal.cache.KeyIndex;
+import io.rx_cache2.internal.cache.RecordAccesses;
+import io.rx_cache2.internal.cache.RecordSweeper;
 import io.rx_cache2.internal.cache.RetrieveRecord;
 import io.rx_cache2.internal.cache.SaveRecord;
 import io.rx_cache2.internal.cache.TwoLayersCache;
 import io.rx_cache2.internal.cache.memory.ReferenceMapMemory;
 import io.rx_cache2.internal.common.BaseTest;
+import io.rx_cache2.internal.common.GatedPersistence;
 import io.rx_cache2.internal.migration.DoMigrations;
+import io.rx_cache2.internal.stats.StatsRecorder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Test;
 
 import static junit.framework.TestCase.assertNotNull;
@@ -59,14 +76,15 @@ public class ProcessorProvidersTest extends BaseTest {
         hasRecordExpired = new HasRecordExpired();
 
         io.rx_cache2.internal.Memory memory = new ReferenceMapMemory();
-        EvictRecord evictRecord = new EvictRecord(memory,disk);
-        SaveRecord saveRecord = new SaveRecord(memory, disk, 100, new EvictExpirableRecordsPersistence(memory, disk, 100, null), null);
-        RetrieveRecord retrieveRecord = new RetrieveRecord(memory,disk, evictRecord, hasRecordExpired, null);
+        KeyIndex keyIndex = new KeyIndex(disk);
+        EvictRecord evictRecord = new EvictRecord(memory,disk, keyIndex, new StatsRecorder(), CacheTracer.NONE);
+        SaveRecord saveRecord = new SaveRecord(memory, disk, 100, new EvictExpirableRecordsPersistence(memory, disk, 100, null, new RecordAccesses(), EvictionPolicy.LRU, new StatsRecorder()), null, keyIndex, new RecordAccesses(), CacheTracer.NONE);
+        RetrieveRecord retrieveRecord = new RetrieveRecord(memory,disk, evictRecord, hasRecordExpired, null, new RecordAccesses(), CacheTracer.NONE);
 
-        evictExpiredRecordsPersistence = new EvictExpiredRecordsPersistence(memory, disk, hasRecordExpired, null);
-        twoLayersCacheMock = new TwoLayersCache(evictRecord, retrieveRecord, saveRecord);
-        getDeepCopy = new GetDeepCopy(memory, disk, Jolyglot$.newInstance());
-        doMigrations = new DoMigrations(disk, null, null);
+        evictExpiredRecordsPersistence = new EvictExpiredRecordsPersistence(memory, disk, hasRecordExpired, new RecordSweeper(disk, null), new StatsRecorder(), CacheTracer.NONE);
+        twoLayersCacheMock = new TwoLayersCache(evictRecord, retrieveRecord, saveRecord, new StatsRecorder());
+        getDeepCopy = new GetDeepCopy(memory, disk, new JolyglotSerializer(Jolyglot$.newInstance()), CopyStrategy.SERIALIZATION);
+        doMigrations = new DoMigrations(disk, null, new RecordSweeper(disk, null), CacheTracer.NONE);
     }
 
     @Test public void When_First_Retrieve_Then_Source_Retrieved_Is_Cloud() {
@@ -96,6 +114,199 @@ public class ProcessorProvidersTest extends BaseTest {
         assertNotNull(mock);
     }
 
+    @Test public void When_Concurrent_Misses_Then_Share_A_Single_Loader_Subscription() {
+        final AtomicInteger subscriptions = new AtomicInteger();
+        PublishSubject<Object> response = PublishSubject.create();
+        Observable<Object> loader = response.doOnSubscribe(new Consumer<Disposable>() {
+            @Override public void accept(Disposable disposable) throws Exception {
+                subscriptions.incrementAndGet();
+            }
+        });
+
+        StatsRecorder statsRecorder = new StatsRecorder();
+        processorProvidersUT = new ProcessorProvidersBehaviour(twoLayersCacheMock, false, evictExpiredRecordsPersistence,
+            getDeepCopy, doMigrations, new InFlightLoads(statsRecorder), statsRecorder);
+
+        TestObserver<Object> first = processorProvidersUT.getData(configProvider(loader)).test();
+        TestObserver<Object> second = processorProvidersUT.getData(configProvider(loader)).test();
+        response.onNext(new Mock("message"));
+        response.onComplete();
+
+        first.awaitTerminalEvent();
+        second.awaitTerminalEvent();
+        first.assertValueCount(1);
+        second.assertValueCount(1);
+        assertThat(subscriptions.get(), is(1));
+        assertThat(statsRecorder.snapshot().getLoads(), is(1L));
+        assertThat(statsRecorder.snapshot().getCoalescedLoads(), is(1L));
+
+        TestObserver<Object> afterwards = processorProvidersUT.getData(configProvider(Observable.<Object>just(new Mock("message")))).test();
+        afterwards.awaitTerminalEvent();
+        afterwards.assertValueCount(1);
+        assertThat(statsRecorder.snapshot().getCoalescedLoads(), is(1L));
+    }
+
+    @Test public void When_Stale_While_Revalidate_And_Cache_Expired_Then_Get_Stale_And_Refresh_In_Background()
+        throws InterruptedException {
+        final AtomicInteger subscriptions = new AtomicInteger();
+        PublishSubject<Object> response = PublishSubject.create();
+        Observable<Object> loader = response.doOnSubscribe(new Consumer<Disposable>() {
+            @Override public void accept(Disposable disposable) throws Exception {
+                subscriptions.incrementAndGet();
+            }
+        });
+
+        ConfigProvider configProvider = new ConfigProvider("mockKey", null, 1L, true, true, false, true, 0f, null,
+            "", "", loader, new EvictProvider(false));
+        twoLayersCacheMock.save("mockKey", "", "", new Mock("stale"), 1L, true, false);
+        Thread.sleep(10);
+
+        processorProvidersUT = new ProcessorProvidersBehaviour(twoLayersCacheMock, false, evictExpiredRecordsPersistence,
+            getDeepCopy, doMigrations, new InFlightLoads(new StatsRecorder()), new StatsRecorder());
+
+        TestObserver<Object> observer = processorProvidersUT.getData(configProvider).test();
+        observer.awaitTerminalEvent();
+        Reply<Mock> reply = (Reply) observer.values().get(0);
+        assertThat(reply.getSource(), is(not(Source.CLOUD)));
+        assertThat(reply.getData().getMessage(), is("stale"));
+
+        for (int i = 0; i < 100 && subscriptions.get() == 0; i++) Thread.sleep(10);
+        assertThat(subscriptions.get(), is(1));
+
+        response.onNext(new Mock("fresh"));
+        response.onComplete();
+
+        Record<Mock> record = twoLayersCacheMock.retrieve("mockKey", "", "", false, null, false);
+        assertThat(record.getData().getMessage(), is("fresh"));
+    }
+
+    @Test public void When_Refresh_Ahead_Window_Elapsed_Then_Get_Cache_And_Refresh_In_Background()
+        throws InterruptedException {
+        final AtomicInteger subscriptions = new AtomicInteger();
+        PublishSubject<Object> response = PublishSubject.create();
+        Observable<Object> loader = response.doOnSubscribe(new Consumer<Disposable>() {
+            @Override public void accept(Disposable disposable) throws Exception {
+                subscriptions.incrementAndGet();
+            }
+        });
+
+        ConfigProvider configProvider = new ConfigProvider("mockKey", null, 60000L, true, true, false, false, 0.0001f, null,
+            "", "", loader, new EvictProvider(false));
+        twoLayersCacheMock.save("mockKey", "", "", new Mock("cached"), 60000L, true, false);
+        Thread.sleep(10);
+
+        processorProvidersUT = new ProcessorProvidersBehaviour(twoLayersCacheMock, false, evictExpiredRecordsPersistence,
+            getDeepCopy, doMigrations, new InFlightLoads(new StatsRecorder()), new StatsRecorder());
+
+        TestObserver<Object> observer = processorProvidersUT.getData(configProvider).test();
+        observer.awaitTerminalEvent();
+        Reply<Mock> reply = (Reply) observer.values().get(0);
+        assertThat(reply.getSource(), is(not(Source.CLOUD)));
+        assertThat(reply.getData().getMessage(), is("cached"));
+
+        for (int i = 0; i < 100 && subscriptions.get() == 0; i++) Thread.sleep(10);
+        assertThat(subscriptions.get(), is(1));
+
+        response.onNext(new Mock("fresh"));
+        response.onComplete();
+
+        Record<Mock> record = twoLayersCacheMock.retrieve("mockKey", "", "", false, null, false);
+        assertThat(record.getData().getMessage(), is("fresh"));
+    }
+
+    @Test public void When_Copy_Strategy_Then_Copy_Cached_Data_Accordingly() {
+        processorProvidersUT = new ProcessorProvidersBehaviour(twoLayersCacheMock, false, evictExpiredRecordsPersistence,
+            getDeepCopy, doMigrations, new InFlightLoads(new StatsRecorder()), new StatsRecorder());
+        Mock cached = new Mock("message");
+        twoLayersCacheMock.save("mockKey", "", "", cached, null, true, false);
+
+        for (CopyStrategy copyStrategy : CopyStrategy.values()) {
+            ConfigProvider configProvider = new ConfigProvider("mockKey", null, null, false, true, false, false, 0f,
+                copyStrategy, "", "", Observable.just(new Mock("loaded")), new EvictProvider(false));
+
+            TestObserver<Object> observer = processorProvidersUT.getData(configProvider).test();
+            observer.awaitTerminalEvent();
+            Mock mock = (Mock) observer.values().get(0);
+            assertThat(mock.getMessage(), is("message"));
+            assertThat(mock == cached, is(copyStrategy == CopyStrategy.NONE));
+        }
+    }
+
+    @Test public void When_Expired_Records_Are_Being_Evicted_Then_Do_Not_Wait_For_It() throws InterruptedException {
+        GatedPersistence gated = GatedPersistence.gatingAllKeys(disk);
+        processorProvidersUT = new ProcessorProvidersBehaviour(twoLayersCacheMock, false,
+            new EvictExpiredRecordsPersistence(new ReferenceMapMemory(), gated, hasRecordExpired, new RecordSweeper(gated, null), new StatsRecorder(), CacheTracer.NONE),
+            getDeepCopy, doMigrations, new InFlightLoads(new StatsRecorder()), new StatsRecorder());
+        gated.awaitGated();
+
+        TestObserver<Object> observer = processorProvidersUT.process(configProvider(Observable.<Object>just(new Mock("message")))).test();
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        observer.assertValueCount(1);
+
+        gated.open();
+    }
+
+    @Test public void When_Migrations_Evict_Classes_Then_Wait_For_Them() throws InterruptedException {
+        GatedPersistence gated = GatedPersistence.gatingAllKeys(disk);
+        List<MigrationCache> migrations = Arrays.asList(new MigrationCache(1, new Class[] {Mock.class}));
+        processorProvidersUT = new ProcessorProvidersBehaviour(twoLayersCacheMock, false, evictExpiredRecordsPersistence,
+            getDeepCopy, new DoMigrations(gated, migrations, new RecordSweeper(gated, null), CacheTracer.NONE), new InFlightLoads(new StatsRecorder()), new StatsRecorder());
+        gated.awaitGated();
+
+        TestObserver<Object> observer = processorProvidersUT.process(configProvider(Observable.<Object>just(new Mock("message")))).test();
+        observer.awaitTerminalEvent(200, TimeUnit.MILLISECONDS);
+        observer.assertNoValues();
+
+        gated.open();
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        observer.assertValueCount(1);
+    }
+
+    @Test public void When_Migrations_Do_Not_Evict_Classes_Then_Do_Not_Wait_For_Them() throws InterruptedException {
+        GatedPersistence gated = GatedPersistence.gatingRetrieves(disk);
+        List<MigrationCache> migrations = Arrays.asList(new MigrationCache(1, new Class[] {}));
+        processorProvidersUT = new ProcessorProvidersBehaviour(twoLayersCacheMock, false, evictExpiredRecordsPersistence,
+            getDeepCopy, new DoMigrations(gated, migrations, new RecordSweeper(gated, null), CacheTracer.NONE), new InFlightLoads(new StatsRecorder()), new StatsRecorder());
+        gated.awaitGated();
+
+        TestObserver<Object> observer = processorProvidersUT.process(configProvider(Observable.<Object>just(new Mock("message")))).test();
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        observer.assertValueCount(1);
+
+        gated.open();
+    }
+
+    @Test public void When_Requests_Are_Served_Then_Record_Their_Stats() {
+        StatsRecorder statsRecorder = new StatsRecorder();
+        processorProvidersUT = new ProcessorProvidersBehaviour(twoLayersCacheMock, false, evictExpiredRecordsPersistence,
+            getDeepCopy, doMigrations, new InFlightLoads(statsRecorder), statsRecorder);
+
+        Observable<Object> loader = Observable.<Object>just(new Mock("message"));
+        processorProvidersUT.getData(configProvider(loader)).test().awaitTerminalEvent();
+        processorProvidersUT.getData(configProvider(loader)).test().awaitTerminalEvent();
+
+        ConfigProvider failing = new ConfigProvider("failingKey", null, null, false, true, false,
+            "", "", Observable.error(new RuntimeException()), new EvictProvider(false));
+        processorProvidersUT.getData(failing).test().awaitTerminalEvent();
+
+        CacheStats stats = statsRecorder.snapshot("mockKey");
+        assertThat(stats.getMisses(), is(1L));
+        assertThat(stats.getMemoryHits(), is(1L));
+        assertThat(stats.getLoads(), is(1L));
+        assertThat(stats.getLoaderLatency().getCount(), is(1L));
+
+        stats = statsRecorder.snapshot("failingKey");
+        assertThat(stats.getMisses(), is(1L));
+        assertThat(stats.getLoadFailures(), is(1L));
+
+        assertThat(statsRecorder.snapshot().getRequests(), is(3L));
+    }
+
+    private ConfigProvider configProvider(Observable<Object> loader) {
+        return new ConfigProvider("mockKey", null, null, false, true, false,
+            "", "", loader, new EvictProvider(false));
+    }
+
     @Test public void When_No_Loader_And_Not_Cache_Then_Get_Throw_Exception() {
         TestObserver observerMock = getSubscriberCompleted(false, false, false, Loader.NULL, false);
         assertThat(observerMock.errorCount(), is(1));
@@ -110,7 +321,7 @@ public class ProcessorProvidersTest extends BaseTest {
 
     @Test public void When_No_Loader_And_Cache_Expired_But_Use_Expired_Data_If_Loader_Not_Available_Then_Get_Mock() {
         processorProvidersUT = new io.rx_cache2.internal.ProcessorProvidersBehaviour(twoLayersCacheMock, false, evictExpiredRecordsPersistence,
-            getDeepCopy, doMigrations);
+            getDeepCopy, doMigrations, new InFlightLoads(new StatsRecorder()), new StatsRecorder());
 
         TestObserver observerMock =
             getSubscriberCompleted(true, true, false, Loader.NULL, true);
@@ -126,7 +337,7 @@ public class ProcessorProvidersTest extends BaseTest {
 
     @Test public void When_Loader_Throws_Exception_And_Cache_Expired_But_Use_Expired_Data_If_Loader_Not_Available_Then_Get_Mock() {
         processorProvidersUT = new io.rx_cache2.internal.ProcessorProvidersBehaviour(twoLayersCacheMock, false, evictExpiredRecordsPersistence,
-            getDeepCopy, doMigrations);
+            getDeepCopy, doMigrations, new InFlightLoads(new StatsRecorder()), new StatsRecorder());
 
         TestObserver observerMock = getSubscriberCompleted(true, true, false, Loader.EXCEPTION, true);
         assertThat(observerMock.errorCount(), is(0));
@@ -159,7 +370,7 @@ public class ProcessorProvidersTest extends BaseTest {
         if (hasCache) twoLayersCacheMock.save("mockKey", "", "", new Mock("message"), configProvider.getLifeTimeMillis(), configProvider.isExpirable(), configProvider.isEncrypted());
 
         processorProvidersUT = new ProcessorProvidersBehaviour(twoLayersCacheMock, useExpiredDataIfLoaderNotAvailable, evictExpiredRecordsPersistence,
-            getDeepCopy, doMigrations);
+            getDeepCopy, doMigrations, new InFlightLoads(new StatsRecorder()), new StatsRecorder());
 
         TestObserver observerMock = processorProvidersUT.getData(configProvider).test();
         observerMock.awaitTerminalEvent();
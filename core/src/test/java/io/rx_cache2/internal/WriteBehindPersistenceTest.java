@@ -0,0 +1,145 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal;
+
+import io.rx_cache2.internal.common.BaseTest;
+import io.rx_cache2.internal.common.GatedPersistence;
+import io.rx_cache2.internal.stats.StatsRecorder;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNull;
+
+public class WriteBehindPersistenceTest extends BaseTest {
+    private final static String KEY = "key", OTHER_KEY = "other_key";
+    private final StatsRecorder statsRecorder = new StatsRecorder();
+
+    @Test public void When_Save_Then_Retrieve_It_Before_It_Is_Written_And_Persist_It_On_Flush() {
+        GatedPersistence gated = GatedPersistence.gatingSaves(disk);
+        WriteBehindPersistence writeBehind = new WriteBehindPersistence(gated, 10, statsRecorder);
+
+        writeBehind.saveRecord(KEY, record("1"), false, null);
+        Record<Mock> record = writeBehind.retrieveRecord(KEY, false, null);
+        assertThat(record.getData().getMessage(), is("1"));
+        assertThat(writeBehind.allKeys().contains(KEY), is(true));
+
+        gated.open();
+        writeBehind.flush();
+
+        record = disk.retrieveRecord(KEY, false, null);
+        assertThat(record.getData().getMessage(), is("1"));
+        assertThat(statsRecorder.snapshot().getWrites(), is(1L));
+    }
+
+    @Test public void When_Save_Same_Key_While_Queued_Then_Write_Only_The_Last_One() throws InterruptedException {
+        GatedPersistence gated = GatedPersistence.gatingSaves(disk);
+        WriteBehindPersistence writeBehind = new WriteBehindPersistence(gated, 10, statsRecorder);
+
+        writeBehind.saveRecord(KEY, record("1"), false, null);
+        gated.awaitGated();
+
+        writeBehind.saveRecord(OTHER_KEY, record("1"), false, null);
+        writeBehind.saveRecord(OTHER_KEY, record("2"), false, null);
+        writeBehind.saveRecord(OTHER_KEY, record("3"), false, null);
+
+        gated.open();
+        writeBehind.flush();
+
+        Record<Mock> record = disk.retrieveRecord(OTHER_KEY, false, null);
+        assertThat(record.getData().getMessage(), is("3"));
+        assertThat(statsRecorder.snapshot().getQueuedWrites(), is(4L));
+        assertThat(statsRecorder.snapshot().getCoalescedWrites(), is(2L));
+        assertThat(statsRecorder.snapshot().getWrites(), is(2L));
+    }
+
+    @Test public void When_Queue_Is_Full_Then_Block_Until_There_Is_Room() throws InterruptedException {
+        GatedPersistence gated = GatedPersistence.gatingSaves(disk);
+        final WriteBehindPersistence writeBehind = new WriteBehindPersistence(gated, 1, statsRecorder);
+
+        writeBehind.saveRecord(KEY, record("1"), false, null);
+        gated.awaitGated();
+        writeBehind.saveRecord(OTHER_KEY, record("1"), false, null);
+
+        Thread saving = new Thread(new Runnable() {
+            @Override public void run() {
+                writeBehind.saveRecord("third_key", record("1"), false, null);
+            }
+        });
+        saving.start();
+        saving.join(200);
+        assertThat(saving.isAlive(), is(true));
+
+        gated.open();
+        saving.join(5000);
+        assertThat(saving.isAlive(), is(false));
+
+        writeBehind.flush();
+        assertThat(statsRecorder.snapshot().getWrites(), is(3L));
+    }
+
+    @Test public void When_Evict_Queued_Record_Then_Do_Not_Write_It() throws InterruptedException {
+        GatedPersistence gated = GatedPersistence.gatingSaves(disk);
+        WriteBehindPersistence writeBehind = new WriteBehindPersistence(gated, 10, statsRecorder);
+
+        writeBehind.saveRecord(KEY, record("1"), false, null);
+        gated.awaitGated();
+        writeBehind.saveRecord(OTHER_KEY, record("1"), false, null);
+        writeBehind.evict(OTHER_KEY);
+        assertNull(writeBehind.retrieveRecord(OTHER_KEY, false, null));
+
+        gated.open();
+        writeBehind.flush();
+
+        assertNull(disk.retrieveRecord(OTHER_KEY, false, null));
+        assertThat(statsRecorder.snapshot().getWrites(), is(1L));
+    }
+
+    @Test public void When_Write_Fails_Then_Count_It_As_Failed() {
+        WriteBehindPersistence writeBehind = new WriteBehindPersistence(disk, 10, statsRecorder);
+
+        //Encrypting without key fails
+        writeBehind.saveRecord(KEY, record("1"), true, null);
+        writeBehind.saveRecord(OTHER_KEY, record("1"), false, null);
+        writeBehind.flush();
+
+        assertThat(statsRecorder.snapshot().getWrites(), is(1L));
+        assertThat(statsRecorder.snapshot().getFailedWrites(), is(1L));
+    }
+
+    @Test public void When_Queue_Is_Idle_Then_Stop_Writer_And_Start_It_Again_On_Save() throws InterruptedException {
+        WriteBehindPersistence writeBehind = new WriteBehindPersistence(disk, 10, statsRecorder);
+
+        writeBehind.saveRecord(KEY, record("1"), false, null);
+        writeBehind.flush();
+        assertThat(writeBehind.isWriterRunning(), is(true));
+
+        Thread.sleep(WriteBehindPersistence.WRITER_KEEP_ALIVE_MILLIS + 500);
+        assertThat(writeBehind.isWriterRunning(), is(false));
+
+        writeBehind.saveRecord(OTHER_KEY, record("1"), false, null);
+        writeBehind.flush();
+
+        Record<Mock> record = disk.retrieveRecord(OTHER_KEY, false, null);
+        assertThat(record.getData().getMessage(), is("1"));
+        assertThat(statsRecorder.snapshot().getWrites(), is(2L));
+    }
+
+    private static Record<Mock> record(String value) {
+        return new Record<>(new Mock(value), true, null);
+    }
+}
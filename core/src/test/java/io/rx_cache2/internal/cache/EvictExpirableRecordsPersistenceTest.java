@@ -17,14 +17,19 @@
 package io.rx_cache2.internal.cache;
 
 import io.reactivex.observers.TestObserver;
+import io.rx_cache2.EvictionPolicy;
+import io.rx_cache2.internal.CacheKey;
 import io.rx_cache2.internal.Locale;
 import io.rx_cache2.internal.Memory;
 import io.rx_cache2.internal.Mock;
 import io.rx_cache2.internal.Record;
 import io.rx_cache2.internal.cache.memory.ReferenceMapMemory;
 import io.rx_cache2.internal.common.BaseTest;
+import io.rx_cache2.internal.stats.StatsRecorder;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.junit.Test;
 import org.junit.experimental.theories.DataPoint;
 import org.junit.experimental.theories.Theories;
@@ -46,7 +51,7 @@ public class EvictExpirableRecordsPersistenceTest extends BaseTest {
     }
 
     @Test public void When_Not_Reached_Memory_Threshold_Not_Emit() {
-        evictExpirableRecordsPersistenceUT = new io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence(memory, disk, 10, null);
+        evictExpirableRecordsPersistenceUT = new io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence(memory, disk, 10, null, new RecordAccesses(), EvictionPolicy.LRU, new StatsRecorder());
 
         populate(true);
         assertThat(disk.allKeys().size(), is(100));
@@ -62,7 +67,7 @@ public class EvictExpirableRecordsPersistenceTest extends BaseTest {
     @DataPoint public static Integer _5_MB = 5;
     @DataPoint public static Integer _7_MB = 7;
     @Theory @Test public void When_Reached_Memory_Threshold_Perform_Task(int maxMgPersistenceCache) {
-        evictExpirableRecordsPersistenceUT = new io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence(memory, disk, maxMgPersistenceCache, null);
+        evictExpirableRecordsPersistenceUT = new io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence(memory, disk, maxMgPersistenceCache, null, new RecordAccesses(), EvictionPolicy.LRU, new StatsRecorder());
 
         populate(true);
         assertThat(disk.allKeys().size(), is(mocksCount()));
@@ -78,7 +83,7 @@ public class EvictExpirableRecordsPersistenceTest extends BaseTest {
     @Test public void When_Reached_Memory_Threshold_But_Not_Expirable_Records_Do_Not_Evict() {
         int maxMgPersistenceCache = 5;
 
-        evictExpirableRecordsPersistenceUT = new io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence(memory, disk, maxMgPersistenceCache, null);
+        evictExpirableRecordsPersistenceUT = new io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence(memory, disk, maxMgPersistenceCache, null, new RecordAccesses(), EvictionPolicy.LRU, new StatsRecorder());
 
         populate(false);
         assertThat(disk.allKeys().size(), is(mocksCount()));
@@ -98,12 +103,96 @@ public class EvictExpirableRecordsPersistenceTest extends BaseTest {
         testObserver.assertValue(Locale.RECORD_CAN_NOT_BE_EVICTED_BECAUSE_NO_ONE_IS_EXPIRABLE);
     }
 
+    @Test public void When_Policy_Is_LRU_Then_Evict_Least_Recently_Accessed_First() {
+        RecordAccesses recordAccesses = new RecordAccesses();
+        evictExpirableRecordsPersistenceUT = new EvictExpirableRecordsPersistence(memory, disk, 6,
+            null, recordAccesses, EvictionPolicy.LRU, new StatsRecorder());
+
+        populate(true);
+        access(recordAccesses, 0, 50, 3);
+        access(recordAccesses, 50, 100, 1);
+
+        Set<String> evicted = evict();
+        assertThat(evicted.isEmpty(), is(false));
+        assertThat(keys(0, 50).containsAll(evicted), is(true));
+    }
+
+    @Test public void When_Policy_Is_LFU_Then_Evict_Least_Frequently_Accessed_First() {
+        RecordAccesses recordAccesses = new RecordAccesses();
+        evictExpirableRecordsPersistenceUT = new EvictExpirableRecordsPersistence(memory, disk, 6,
+            null, recordAccesses, EvictionPolicy.LFU, new StatsRecorder());
+
+        populate(true);
+        access(recordAccesses, 0, 50, 3);
+        access(recordAccesses, 50, 100, 1);
+
+        Set<String> evicted = evict();
+        assertThat(evicted.isEmpty(), is(false));
+        assertThat(keys(50, 100).containsAll(evicted), is(true));
+    }
+
+    @Test public void When_Policy_Is_GDSF_Then_Evict_Largest_Records_Accessed_As_Often_First() {
+        RecordAccesses recordAccesses = new RecordAccesses();
+        evictExpirableRecordsPersistenceUT = new EvictExpirableRecordsPersistence(memory, disk, 6,
+            null, recordAccesses, EvictionPolicy.GDSF, new StatsRecorder());
+
+        populate(0, 50, mocksCount() / 2, true, 1l);
+        populate(50, 100, mocksCount() * 2, true, 1l);
+        access(recordAccesses, 50, 100, 1);
+        access(recordAccesses, 0, 50, 1);
+
+        Set<String> evicted = evict();
+        assertThat(evicted.isEmpty(), is(false));
+        assertThat(keys(50, 100).containsAll(evicted), is(true));
+    }
+
+    @Test public void When_Policy_Is_TTL_First_Then_Evict_Sooner_To_Expire_First() {
+        RecordAccesses recordAccesses = new RecordAccesses();
+        evictExpirableRecordsPersistenceUT = new EvictExpirableRecordsPersistence(memory, disk, 6,
+            null, recordAccesses, EvictionPolicy.TTL_FIRST, new StatsRecorder());
+
+        populate(0, 50, mocksCount(), true, 60 * 60 * 1000l);
+        populate(50, 100, mocksCount(), true, 60 * 1000l);
+        access(recordAccesses, 0, 50, 1);
+
+        Set<String> evicted = evict();
+        assertThat(evicted.isEmpty(), is(false));
+        assertThat(keys(50, 100).containsAll(evicted), is(true));
+    }
+
+    private Set<String> evict() {
+        TestObserver<String> testObserver = evictExpirableRecordsPersistenceUT.startTaskIfNeeded(false).test();
+        testObserver.awaitTerminalEvent();
+        testObserver.assertNoErrors();
+        return new HashSet<>(testObserver.values());
+    }
+
+    private void access(RecordAccesses recordAccesses, int from, int to, int times) {
+        for (int time = 0; time < times; time++) {
+            for (int i = from; i < to; i++) {
+                recordAccesses.recordAccess(CacheKey.of(String.valueOf(i), "", ""));
+            }
+        }
+    }
+
+    private Set<String> keys(int from, int to) {
+        Set<String> keys = new HashSet<>();
+        for (int i = from; i < to; i++) {
+            keys.add(key(i));
+        }
+        return keys;
+    }
+
     //7 mb
     private void populate(boolean expirable) {
-        for (int i = 0; i < mocksCount(); i++) {
-            List<Mock> mocks = new ArrayList(mocksCount());
+        populate(0, mocksCount(), mocksCount(), expirable, 1l);
+    }
+
+    private void populate(int from, int to, int mocksPerRecord, boolean expirable, Long lifeTime) {
+        for (int i = from; i < to; i++) {
+            List<Mock> mocks = new ArrayList(mocksPerRecord);
 
-            for (int z = 0; z < mocksCount(); z++) {
+            for (int z = 0; z < mocksPerRecord; z++) {
                 Mock mock = new Mock("Contrary to popular belief, Lorem Ipsum is not simply random text. It has roots in a piece of classical Latin literature from 45 BC," +
                         "making it over 2000 years old.Contrary to popular belief, Lorem Ipsum is not simply random text. It has roots in a piece of classical Latin literature from 45 BC, " +
                         "making it over 2000 years old. Contrary to popular belief, Lorem Ipsum is not simply random text. It has roots in a piece of classical Latin literature from 45 BC, " +
@@ -111,11 +200,15 @@ public class EvictExpirableRecordsPersistenceTest extends BaseTest {
                 mocks.add(mock);
             }
 
-            Record<List<Mock>> record = new Record<>(mocks, expirable, 1l);
-            disk.saveRecord(String.valueOf(i), record, false, null);
+            Record<List<Mock>> record = new Record<>(mocks, expirable, lifeTime);
+            disk.saveRecord(key(i), record, false, null);
         }
     }
 
+    private String key(int i) {
+        return CacheKey.of(String.valueOf(i), "", "").composedKey();
+    }
+
     private int mocksCount() {
         return 100;
     }
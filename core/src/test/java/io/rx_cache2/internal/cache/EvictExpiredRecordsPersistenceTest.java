@@ -1,11 +1,14 @@
 package io.rx_cache2.internal.cache;
 
 import io.reactivex.observers.TestObserver;
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.EvictionPolicy;
 import io.rx_cache2.internal.Memory;
 import io.rx_cache2.internal.Mock;
 import io.rx_cache2.internal.Record;
 import io.rx_cache2.internal.cache.memory.ReferenceMapMemory;
 import io.rx_cache2.internal.common.BaseTest;
+import io.rx_cache2.internal.stats.StatsRecorder;
 import java.util.List;
 import org.junit.Test;
 
@@ -21,15 +24,17 @@ public class EvictExpiredRecordsPersistenceTest extends BaseTest {
     private io.rx_cache2.internal.cache.HasRecordExpired hasRecordExpired;
     private io.rx_cache2.internal.cache.TwoLayersCache twoLayersCache;
     private Memory memory;
+    private KeyIndex keyIndex;
     private static final long ONE_SECOND_LIFE = 1000, THIRTY_SECOND_LIFE = 30000, MORE_THAN_ONE_SECOND_LIFE = 1250;
 
     @Override public void setUp() {
         super.setUp();
 
         memory = new ReferenceMapMemory();
-        twoLayersCache = new TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        keyIndex = new KeyIndex(disk);
+        twoLayersCache = new TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
         hasRecordExpired = new io.rx_cache2.internal.cache.HasRecordExpired();
-        evictExpiredRecordsPersistenceUT = new EvictExpiredRecordsPersistence(memory, disk, hasRecordExpired, null);
+        evictExpiredRecordsPersistenceUT = new EvictExpiredRecordsPersistence(memory, disk, hasRecordExpired, new RecordSweeper(disk, null), new StatsRecorder(), CacheTracer.NONE);
     }
 
     @Test public void Evict_Just_Expired_Records() {
@@ -60,14 +65,14 @@ public class EvictExpiredRecordsPersistenceTest extends BaseTest {
     }
 
     private io.rx_cache2.internal.cache.SaveRecord saveRecord(Memory memory) {
-        return new SaveRecord(memory, disk, 100, new EvictExpirableRecordsPersistence(memory, disk, 100, null), null);
+        return new SaveRecord(memory, disk, 100, new EvictExpirableRecordsPersistence(memory, disk, 100, null, new RecordAccesses(), EvictionPolicy.LRU, new StatsRecorder()), null, keyIndex, new RecordAccesses(), CacheTracer.NONE);
     }
 
     private io.rx_cache2.internal.cache.EvictRecord evictRecord(Memory memory) {
-        return new io.rx_cache2.internal.cache.EvictRecord(memory, disk);
+        return new io.rx_cache2.internal.cache.EvictRecord(memory, disk, keyIndex, new StatsRecorder(), CacheTracer.NONE);
     }
 
     private io.rx_cache2.internal.cache.RetrieveRecord retrieveRecord(Memory memory) {
-        return new io.rx_cache2.internal.cache.RetrieveRecord(memory, disk, new EvictRecord(memory, disk), new HasRecordExpired(), null);
+        return new io.rx_cache2.internal.cache.RetrieveRecord(memory, disk, new EvictRecord(memory, disk, keyIndex, new StatsRecorder(), CacheTracer.NONE), new HasRecordExpired(), null, new RecordAccesses(), CacheTracer.NONE);
     }
 }
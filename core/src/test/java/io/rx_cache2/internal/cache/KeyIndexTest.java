@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache;
+
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.FsyncPolicy;
+import io.rx_cache2.internal.CacheKey;
+import io.rx_cache2.internal.Disk;
+import io.rx_cache2.internal.Jolyglot$;
+import io.rx_cache2.internal.JolyglotSerializer;
+import io.rx_cache2.internal.Record;
+import io.rx_cache2.internal.common.BaseTest;
+import io.rx_cache2.internal.encrypt.BuiltInEncryptor;
+import io.rx_cache2.internal.encrypt.FileEncryptor;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class KeyIndexTest extends BaseTest {
+    private static final String PROVIDER_KEY = "get_mocks";
+    private static final String DYNAMIC_KEY_1 = "filter_1", DYNAMIC_KEY_2 = "filter_2";
+    private static final String DYNAMIC_KEY_GROUP_1 = "page_1", DYNAMIC_KEY_GROUP_2 = "page_2";
+
+    private KeyIndex keyIndexUT;
+
+    @Override public void setUp() {
+        super.setUp();
+        keyIndexUT = new KeyIndex(disk);
+    }
+
+    @Test public void Check_Keys_Matching_Provider_Key() {
+        addAll();
+        keyIndexUT.add(CacheKey.of(PROVIDER_KEY + 1, DYNAMIC_KEY_1, DYNAMIC_KEY_GROUP_1));
+
+        List<CacheKey> keysMatchingProviderKey = sorted(keyIndexUT.removeProviderKey(PROVIDER_KEY));
+        assertThat(keysMatchingProviderKey.get(0), is(key(DYNAMIC_KEY_1, DYNAMIC_KEY_GROUP_1)));
+        assertThat(keysMatchingProviderKey.get(1), is(key(DYNAMIC_KEY_1, DYNAMIC_KEY_GROUP_2)));
+        assertThat(keysMatchingProviderKey.get(2), is(key(DYNAMIC_KEY_2, DYNAMIC_KEY_GROUP_1)));
+        assertThat(keysMatchingProviderKey.get(3), is(key(DYNAMIC_KEY_2, DYNAMIC_KEY_GROUP_2)));
+        assertThat(keysMatchingProviderKey.size(), is(4));
+
+        assertThat(keyIndexUT.removeProviderKey(PROVIDER_KEY).size(), is(0));
+        assertThat(keyIndexUT.removeProviderKey(PROVIDER_KEY + 1).size(), is(1));
+    }
+
+    @Test public void Check_Keys_Matching_Dynamic_Key() {
+        addAll();
+
+        List<CacheKey> keysMatchingDynamicKey1 = sorted(keyIndexUT.removeDynamicKey(PROVIDER_KEY, DYNAMIC_KEY_1));
+        assertThat(keysMatchingDynamicKey1.get(0), is(key(DYNAMIC_KEY_1, DYNAMIC_KEY_GROUP_1)));
+        assertThat(keysMatchingDynamicKey1.get(1), is(key(DYNAMIC_KEY_1, DYNAMIC_KEY_GROUP_2)));
+        assertThat(keysMatchingDynamicKey1.size(), is(2));
+
+        keyIndexUT.remove(key(DYNAMIC_KEY_2, DYNAMIC_KEY_GROUP_1));
+
+        List<CacheKey> keysMatchingDynamicKey2 = keyIndexUT.removeDynamicKey(PROVIDER_KEY, DYNAMIC_KEY_2);
+        assertThat(keysMatchingDynamicKey2.get(0), is(key(DYNAMIC_KEY_2, DYNAMIC_KEY_GROUP_2)));
+        assertThat(keysMatchingDynamicKey2.size(), is(1));
+    }
+
+    @Test public void When_Every_Key_Is_Removed_Then_Drop_The_Provider() {
+        addAll();
+
+        keyIndexUT.removeDynamicKey(PROVIDER_KEY, DYNAMIC_KEY_1);
+        keyIndexUT.remove(key(DYNAMIC_KEY_2, DYNAMIC_KEY_GROUP_1));
+        assertThat(keyIndexUT.providersSize(), is(1));
+
+        keyIndexUT.remove(key(DYNAMIC_KEY_2, DYNAMIC_KEY_GROUP_2));
+        assertThat(keyIndexUT.providersSize(), is(0));
+    }
+
+    @Test public void When_Keys_Are_Added_While_Provider_Is_Removed_Then_Do_Not_Lose_Any()
+        throws InterruptedException {
+        final int keys = 20000;
+        final Set<CacheKey> removed = Collections.newSetFromMap(new ConcurrentHashMap<CacheKey, Boolean>());
+        final AtomicBoolean adding = new AtomicBoolean(true);
+
+        Thread remover = new Thread() {
+            @Override public void run() {
+                while (adding.get()) {
+                    removed.addAll(keyIndexUT.removeProviderKey(PROVIDER_KEY));
+                }
+            }
+        };
+        remover.start();
+
+        for (int i = 0; i < keys; i++) {
+            keyIndexUT.add(key(String.valueOf(i % 10), String.valueOf(i)));
+        }
+        adding.set(false);
+        remover.join();
+
+        removed.addAll(keyIndexUT.removeProviderKey(PROVIDER_KEY));
+        assertThat(removed.size(), is(keys));
+    }
+
+    @Test public void When_Records_Are_Persisted_Then_Rebuild_Index_From_Them() {
+        disk.saveRecord(key(DYNAMIC_KEY_1, DYNAMIC_KEY_GROUP_1).composedKey(), new Record<>("1", true, null), false, null);
+        disk.saveRecord(key(DYNAMIC_KEY_1, DYNAMIC_KEY_GROUP_2).composedKey(), new Record<>("2", true, null), false, null);
+        disk.saveRecord(key(DYNAMIC_KEY_2, "").composedKey(), new Record<>("3", true, null), false, null);
+
+        List<CacheKey> keysMatchingDynamicKey1 = sorted(keyIndexUT.removeDynamicKey(PROVIDER_KEY, DYNAMIC_KEY_1));
+        assertThat(keysMatchingDynamicKey1.size(), is(2));
+        assertThat(keysMatchingDynamicKey1.get(0), is(key(DYNAMIC_KEY_1, DYNAMIC_KEY_GROUP_1)));
+
+        assertThat(keyIndexUT.removeProviderKey(PROVIDER_KEY).get(0), is(key(DYNAMIC_KEY_2, "")));
+    }
+
+    @Test public void When_Restarted_Then_Recover_Keys_With_Slashes_And_Long_Keys() throws IOException {
+        StringBuilder longDynamicKey = new StringBuilder();
+        for (int i = 0; i < 300; i++) longDynamicKey.append('a');
+
+        CacheKey slashKey = key("a/b", DYNAMIC_KEY_GROUP_1);
+        CacheKey underscoreKey = key("a_b", DYNAMIC_KEY_GROUP_1);
+        CacheKey longKey = key(longDynamicKey.toString(), DYNAMIC_KEY_GROUP_1);
+
+        disk.saveRecord(slashKey.composedKey(), new Record<>("1", true, null), false, null);
+        disk.saveRecord(underscoreKey.composedKey(), new Record<>("2", true, null), false, null);
+        disk.saveRecord(longKey.composedKey(), new Record<>("3", true, null), false, null);
+
+        //A new cache directory holding the same files, as a process which restarts would find them
+        for (boolean withJournal : new boolean[] {false, true}) {
+            File restartedDirectory = temporaryFolder.newFolder();
+            for (File file : temporaryFolder.getRoot().listFiles()) {
+                if (!file.isFile()) continue;
+                if (!withJournal && file.getName().startsWith("rx_cache.journal")) continue;
+                copy(file, new File(restartedDirectory, file.getName()));
+            }
+
+            Disk restartedDisk = new Disk(restartedDirectory,
+                new FileEncryptor(new BuiltInEncryptor()), new JolyglotSerializer(Jolyglot$.newInstance()),
+                FsyncPolicy.NEVER, CacheTracer.NONE);
+            KeyIndex restartedKeyIndex = new KeyIndex(restartedDisk);
+
+            assertThat(restartedKeyIndex.removeDynamicKey(PROVIDER_KEY, "a/b"), is(Arrays.asList(slashKey)));
+            assertThat(restartedKeyIndex.removeDynamicKey(PROVIDER_KEY, "a_b"), is(Arrays.asList(underscoreKey)));
+            assertThat(restartedKeyIndex.removeDynamicKey(PROVIDER_KEY, longDynamicKey.toString()),
+                is(Arrays.asList(longKey)));
+
+            restartedDisk.evict(longKey.composedKey());
+            assertThat(restartedDisk.allKeys().size(), is(2));
+        }
+    }
+
+    private void addAll() {
+        keyIndexUT.add(key(DYNAMIC_KEY_1, DYNAMIC_KEY_GROUP_1));
+        keyIndexUT.add(key(DYNAMIC_KEY_1, DYNAMIC_KEY_GROUP_2));
+        keyIndexUT.add(key(DYNAMIC_KEY_2, DYNAMIC_KEY_GROUP_1));
+        keyIndexUT.add(key(DYNAMIC_KEY_2, DYNAMIC_KEY_GROUP_2));
+    }
+
+    private CacheKey key(String dynamicKey, String dynamicKeyGroup) {
+        return CacheKey.of(PROVIDER_KEY, dynamicKey, dynamicKeyGroup);
+    }
+
+    private static void copy(File from, File to) throws IOException {
+        InputStream input = new FileInputStream(from);
+        OutputStream output = new FileOutputStream(to);
+        try {
+            byte[] buffer = new byte[8 * 1024];
+            for (int count; (count = input.read(buffer)) != -1; ) output.write(buffer, 0, count);
+        } finally {
+            input.close();
+            output.close();
+        }
+    }
+
+    private List<CacheKey> sorted(List<CacheKey> keys) {
+        Collections.sort(keys, new Comparator<CacheKey>() {
+            @Override public int compare(CacheKey key1, CacheKey key2) {
+                return key1.composedKey().compareTo(key2.composedKey());
+            }
+        });
+        return keys;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache;
+
+import io.reactivex.functions.Predicate;
+import io.rx_cache2.SweepListener;
+import io.rx_cache2.SweepProgress;
+import io.rx_cache2.internal.Mock;
+import io.rx_cache2.internal.Record;
+import io.rx_cache2.internal.common.BaseTest;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertTrue;
+
+public class RecordSweeperTest extends BaseTest {
+    private static final int RECORDS = RecordSweeper.PROGRESS_INTERVAL + 500;
+    private final List<SweepProgress> progresses = new CopyOnWriteArrayList<>();
+    private final SweepListener sweepListener = new SweepListener() {
+        @Override public void onProgress(SweepProgress progress) {
+            progresses.add(progress);
+        }
+    };
+
+    @Test public void When_Sweep_In_Parallel_Then_Evict_Just_Matching_Records_And_Report_Progress() {
+        for (int i = 0; i < RECORDS; i++) {
+            disk.saveRecord(i + (i % 2 == 0 ? "_evict" : "_keep"), new Record<>(new Mock(i % 2 == 0 ? "evict" : "keep"), true, 1000L), false, null);
+        }
+
+        RecordSweeper recordSweeperUT = new RecordSweeper(disk, null, 4, null, sweepListener);
+        int evicted = recordSweeperUT.sweep("test", new Predicate<Record>() {
+            @Override public boolean test(Record record) throws Exception {
+                return record.getLifeTime() == 1000L;
+            }
+        });
+
+        assertThat(evicted, is(RECORDS));
+        assertThat(disk.allKeys().size(), is(0));
+
+        SweepProgress completed = progresses.get(progresses.size() - 1);
+        assertThat(progresses.size(), is(2));
+        assertThat(progresses.get(0).isCompleted(), is(false));
+        assertThat(completed.isCompleted(), is(true));
+        assertThat(completed.getName(), is("test"));
+        assertThat(completed.getProcessed(), is(RECORDS));
+        assertThat(completed.getTotal(), is(RECORDS));
+        assertThat(completed.getEvicted(), is(RECORDS));
+    }
+
+    @Test public void When_Sweep_Then_Evict_Only_Records_Matching_Predicate() {
+        for (int i = 0; i < 100; i++) {
+            disk.saveRecord(i + "_evict", new Record<>(new Mock("evict"), true, 1000L), false, null);
+            disk.saveRecord(i + "_keep", new Record<>(new Mock("keep"), true, 2000L), false, null);
+        }
+
+        RecordSweeper recordSweeperUT = new RecordSweeper(disk, null, 3, null, null);
+        int evicted = recordSweeperUT.sweep("test", new Predicate<Record>() {
+            @Override public boolean test(Record record) throws Exception {
+                return record.getLifeTime() == 1000L;
+            }
+        });
+
+        assertThat(evicted, is(100));
+        List<String> keys = disk.allKeys();
+        assertThat(keys.size(), is(100));
+        for (String key : keys) assertTrue(key.endsWith("_keep"));
+    }
+
+    @Test public void When_Record_Saved_Again_While_Swept_Then_Keep_It() throws InterruptedException {
+        disk.saveRecord("key", new Record<>(new Mock("expired"), true, 1000L), false, null);
+        Thread.sleep(10);
+
+        RecordSweeper recordSweeperUT = new RecordSweeper(disk, null);
+        int evicted = recordSweeperUT.sweep("test", new Predicate<Record>() {
+            @Override public boolean test(Record record) throws Exception {
+                disk.saveRecord("key", new Record<>(new Mock("fresh"), true, 1000L), false, null);
+                return true;
+            }
+        });
+
+        assertThat(evicted, is(0));
+        Record<Mock> record = disk.retrieveRecord("key", false, null);
+        assertThat(record.getData().getMessage(), is("fresh"));
+    }
+
+    @Test public void When_Max_Records_Per_Second_Then_Throttle_Sweep() {
+        for (int i = 0; i < 20; i++) {
+            disk.saveRecord(String.valueOf(i), new Record<>(new Mock("keep"), true, null), false, null);
+        }
+
+        RecordSweeper recordSweeperUT = new RecordSweeper(disk, null, 4, 100, sweepListener);
+        recordSweeperUT.sweep("test", new Predicate<Record>() {
+            @Override public boolean test(Record record) throws Exception {
+                return false;
+            }
+        });
+
+        SweepProgress completed = progresses.get(progresses.size() - 1);
+        assertThat(completed.getProcessed(), is(20));
+        assertTrue(completed.getElapsedMillis() >= 150);
+        assertTrue(completed.getRecordsPerSecond() <= 110);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import io.rx_cache2.internal.Mock;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class ReflectiveClonerTest {
+    private ReflectiveCloner clonerUT;
+
+    @Before public void setUp() {
+        clonerUT = new ReflectiveCloner();
+    }
+
+    @Test public void When_Copy_Object_Then_Get_Equal_Object_Not_Shared() throws CloneNotSupportedException {
+        Mock mock = new Mock("message");
+
+        Mock copy = clonerUT.copy(mock);
+
+        assertThat(copy, is(not(sameInstance(mock))));
+        assertThat(copy.getMessage(), is("message"));
+    }
+
+    @Test public void When_Copy_Collections_Maps_And_Arrays_Then_Copy_Their_Items() throws CloneNotSupportedException {
+        Graph graph = new Graph();
+        graph.mocks = new ArrayList<>(Arrays.asList(new Mock("1"), new Mock("2")));
+        graph.mocksByKey = new HashMap<>();
+        graph.mocksByKey.put("1", graph.mocks.get(0));
+        graph.array = new Mock[] {new Mock("3")};
+        graph.ids = new int[] {1, 2};
+        graph.sorted = new TreeSet<>(Collections.reverseOrder());
+        graph.sorted.addAll(Arrays.asList("a", "b"));
+        graph.unmodifiable = Collections.unmodifiableList(Arrays.asList(new Mock("4")));
+
+        Graph copy = clonerUT.copy(graph);
+
+        assertThat(copy.mocks, is(not(sameInstance(graph.mocks))));
+        assertThat(copy.mocks.get(1), is(not(sameInstance(graph.mocks.get(1)))));
+        assertThat(copy.mocks.get(1).getMessage(), is("2"));
+        assertThat(copy.mocksByKey.get("1"), is(sameInstance(copy.mocks.get(0))));
+        assertThat(copy.array[0].getMessage(), is("3"));
+        assertThat(copy.array[0], is(not(sameInstance(graph.array[0]))));
+        assertThat(copy.ids[1], is(2));
+        assertThat(copy.ids, is(not(sameInstance(graph.ids))));
+        assertThat(copy.sorted.first(), is("b"));
+        assertThat(copy.unmodifiable.get(0).getMessage(), is("4"));
+        assertThat(copy.unmodifiable, is(instanceOf(List.class)));
+    }
+
+    @Test public void When_Copy_Cyclic_Graph_Then_Keep_The_Cycle() throws CloneNotSupportedException {
+        Node node = new Node();
+        node.next = new Node();
+        node.next.next = node;
+
+        Node copy = clonerUT.copy(node);
+
+        assertThat(copy, is(not(sameInstance(node))));
+        assertThat(copy.next.next, is(sameInstance(copy)));
+    }
+
+    @Test(expected = CloneNotSupportedException.class)
+    public void When_Copy_Object_Without_Constructor_Without_Arguments_Then_Throw_Exception()
+        throws CloneNotSupportedException {
+        clonerUT.copy(new WithoutDefaultConstructor("message"));
+    }
+
+    private static class Graph {
+        private List<Mock> mocks;
+        private Map<String, Mock> mocksByKey;
+        private Mock[] array;
+        private int[] ids;
+        private TreeSet<String> sorted;
+        private List<Mock> unmodifiable;
+    }
+
+    private static class Node {
+        private Node next;
+    }
+
+    private static class WithoutDefaultConstructor {
+        private final String message;
+
+        WithoutDefaultConstructor(String message) {
+            this.message = message;
+        }
+    }
+}
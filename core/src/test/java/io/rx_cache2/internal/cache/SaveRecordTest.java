@@ -16,10 +16,13 @@
 
 package io.rx_cache2.internal.cache;
 
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.EvictionPolicy;
 import io.rx_cache2.internal.Memory;
 import io.rx_cache2.internal.Mock;
 import io.rx_cache2.internal.cache.memory.ReferenceMapMemory;
 import io.rx_cache2.internal.common.BaseTest;
+import io.rx_cache2.internal.stats.StatsRecorder;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.Test;
@@ -47,7 +50,7 @@ public class SaveRecordTest extends BaseTest {
     }
 
     @Test @Theory public void When_Max_Persistence_Exceed_Do_Not_Persists_Data(Integer maxMB) {
-        saveRecordUT = new SaveRecord(memory, disk, maxMB, new io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence(memory, disk, 100, null), null);
+        saveRecordUT = new SaveRecord(memory, disk, maxMB, new io.rx_cache2.internal.cache.EvictExpirableRecordsPersistence(memory, disk, 100, null, new RecordAccesses(), EvictionPolicy.LRU, new StatsRecorder()), null, new KeyIndex(disk), new RecordAccesses(), CacheTracer.NONE);
 
         int records = 250;
 
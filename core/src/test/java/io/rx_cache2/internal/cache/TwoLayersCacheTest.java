@@ -16,12 +16,18 @@
 
 package io.rx_cache2.internal.cache;
 
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.EvictionPolicy;
 import io.rx_cache2.Source;
 import io.rx_cache2.internal.Memory;
 import io.rx_cache2.internal.Mock;
 import io.rx_cache2.internal.Record;
 import io.rx_cache2.internal.cache.memory.ReferenceMapMemory;
 import io.rx_cache2.internal.common.BaseTest;
+import io.rx_cache2.internal.stats.StatsRecorder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Test;
 
 import static junit.framework.TestCase.assertNotNull;
@@ -35,6 +41,7 @@ import static org.hamcrest.core.IsNull.nullValue;
 public class TwoLayersCacheTest extends BaseTest {
     private io.rx_cache2.internal.cache.TwoLayersCache twoLayersCacheUT;
     private Memory memory;
+    private KeyIndex keyIndex;
 
     private static final long ONE_SECOND_LIFE = 1000, THREE_SECOND_LIFE = 3000, MORE_THAN_ONE_SECOND_LIFE = 1250, DUMMY_LIFE_TIME = -1;
     private static final String PROVIDER_KEY = "get_mocks",  MOCK_VALUE = "mock_value";
@@ -42,10 +49,11 @@ public class TwoLayersCacheTest extends BaseTest {
     @Override public void setUp() {
         super.setUp();
         memory = new ReferenceMapMemory();
+        keyIndex = new KeyIndex(disk);
     }
 
     @Test public void When_Save_And_Object_Not_Expired_And_Memory_Not_Destroyed_Retrieve_It_From_Memory() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
 
@@ -57,7 +65,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Save_And_Record_Has_Not_Expired_And_Memory_Destroyed_Retrieve_It_From_Disk() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
         twoLayersCacheUT.mockMemoryDestroyed();
@@ -74,7 +82,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Save_And_Provider_Record_Has_Expired_Get_Null() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
         waitTime(MORE_THAN_ONE_SECOND_LIFE);
@@ -85,8 +93,39 @@ public class TwoLayersCacheTest extends BaseTest {
         assertThat(record, is(nullValue()));
     }
 
+    @Test public void When_Stale_While_Revalidate_And_Record_Has_Expired_Get_It_As_Stale() {
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
+
+        twoLayersCacheUT.save(PROVIDER_KEY, "", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
+        waitTime(MORE_THAN_ONE_SECOND_LIFE);
+        Retrieval<Mock> retrieval = twoLayersCacheUT.retrieve(PROVIDER_KEY, "", "", false, ONE_SECOND_LIFE, false, true, 0f);
+        assertThat(retrieval.getRecord().getData().getMessage(), is(MOCK_VALUE));
+        assertThat(retrieval.isStale(), is(true));
+
+        retrieval = twoLayersCacheUT.retrieve(PROVIDER_KEY, "", "", false, THREE_SECOND_LIFE, false, true, 0f);
+        assertThat(retrieval.getRecord().getData().getMessage(), is(MOCK_VALUE));
+        assertThat(retrieval.isStale(), is(false));
+    }
+
+    @Test public void When_Refresh_Ahead_Window_Elapsed_Get_It_As_Refresh_Ahead() {
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
+
+        twoLayersCacheUT.save(PROVIDER_KEY, "", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
+        waitTime(MORE_THAN_ONE_SECOND_LIFE);
+        Retrieval<Mock> retrieval = twoLayersCacheUT.retrieve(PROVIDER_KEY, "", "", false, THREE_SECOND_LIFE, false, false, 0.5f);
+        assertThat(retrieval.isRefreshAhead(), is(false));
+
+        retrieval = twoLayersCacheUT.retrieve(PROVIDER_KEY, "", "", false, THREE_SECOND_LIFE, false, false, 0.3f);
+        assertThat(retrieval.getRecord().getData().getMessage(), is(MOCK_VALUE));
+        assertThat(retrieval.isRefreshAhead(), is(true));
+        assertThat(retrieval.isStale(), is(false));
+
+        retrieval = twoLayersCacheUT.retrieve(PROVIDER_KEY, "", "", false, ONE_SECOND_LIFE, false, false, 0.3f);
+        assertThat(retrieval, is(nullValue()));
+    }
+
     @Test public void When_Save_And_Dynamic_Key_Record_Has_Expired_Only_Get_Null_For_Dynamic_Key() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "1", "", new Mock(MOCK_VALUE), ONE_SECOND_LIFE, true, false);
         twoLayersCacheUT.save(PROVIDER_KEY, "2", "", new Mock(MOCK_VALUE), ONE_SECOND_LIFE, true, false);
@@ -103,7 +142,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Save_And_Dynamic_Key_Group_Record_Has_Expired_Only_Get_Null_For_Dynamic_Key() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "1", "1", new Mock(MOCK_VALUE), ONE_SECOND_LIFE, true, false);
         twoLayersCacheUT.save(PROVIDER_KEY, "1", "2", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
@@ -128,7 +167,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Save_And_Record_Has_Not_Expired_Date_Do_Not_Get_Null() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
         waitTime(MORE_THAN_ONE_SECOND_LIFE);
@@ -144,7 +183,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Save_And_Evict_Get_Null() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
         twoLayersCacheUT.evictProviderKey(PROVIDER_KEY);
@@ -153,8 +192,22 @@ public class TwoLayersCacheTest extends BaseTest {
         assertThat(record, is(nullValue()));
     }
 
+    @Test public void When_Memory_Destroyed_And_Evict_Provider_Then_Evict_Persisted_Records() {
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
+
+        twoLayersCacheUT.save(PROVIDER_KEY, "1", "1", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
+        twoLayersCacheUT.save(PROVIDER_KEY, "2", "1", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
+        twoLayersCacheUT.mockMemoryDestroyed();
+
+        twoLayersCacheUT.evictProviderKey(PROVIDER_KEY);
+
+        assertThat(disk.allKeys().size(), is(0));
+        Record<Mock> record = twoLayersCacheUT.retrieve(PROVIDER_KEY, "1", "1", false, THREE_SECOND_LIFE, false);
+        assertThat(record, is(nullValue()));
+    }
+
     @Test public void When_Save_And_Evict_All_Get_Null() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
         twoLayersCacheUT.save(PROVIDER_KEY, "" +1, "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
@@ -174,7 +227,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Save_And_Not_Evict_Dynamic_Keys_Get_All() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "filter_1", "", new Mock(MOCK_VALUE+1), DUMMY_LIFE_TIME, true, false);
         twoLayersCacheUT.save(PROVIDER_KEY, "filter_2", "", new Mock(MOCK_VALUE + 2), DUMMY_LIFE_TIME, true, false);
@@ -190,7 +243,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Save_Dynamic_Key_And_Re_Save_Dynamic_Key_Get_Last_Value() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "1", "", new Mock(MOCK_VALUE + 1), DUMMY_LIFE_TIME, true, false);
         twoLayersCacheUT.save(PROVIDER_KEY, "1", "", new Mock(MOCK_VALUE + 2), DUMMY_LIFE_TIME, true, false);
@@ -201,7 +254,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Save_Dynamic_Keys_And_Evict_Provider_Key_Get_All_Null() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "filer_1", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
         twoLayersCacheUT.save(PROVIDER_KEY, "filer_2", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
@@ -215,7 +268,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Save_Dynamic_Key_And_Evict_One_Dynamic_Key_Get_Others() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "filer_1", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
         twoLayersCacheUT.save(PROVIDER_KEY, "filer_2", "", new Mock(MOCK_VALUE + 1), DUMMY_LIFE_TIME, true, false);
@@ -233,7 +286,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Save_Dynamic_Key_Group_And_Evict_One_Dynamic_Key_Group_Get_Others() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "filer_1", "page_1", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
         twoLayersCacheUT.save(PROVIDER_KEY, "filer_1", "page_2", new Mock(MOCK_VALUE + 1), DUMMY_LIFE_TIME, true, false);
@@ -247,7 +300,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Expiration_Date_Has_Been_Modified_Then_Reflect_This_Change() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "1", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
         waitTime(MORE_THAN_ONE_SECOND_LIFE);
@@ -275,7 +328,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Expired_Date_And_Not_Use_ExpiredDataIfLoaderNotAvailable_Then_Get_Null() {
-        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new io.rx_cache2.internal.cache.TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "1", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
         waitTime(MORE_THAN_ONE_SECOND_LIFE);
@@ -285,7 +338,7 @@ public class TwoLayersCacheTest extends BaseTest {
     }
 
     @Test public void When_Expired_Date_But_Use_ExpiredDataIfLoaderNotAvailable_Then_GetMock() {
-        twoLayersCacheUT = new TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory));
+        twoLayersCacheUT = new TwoLayersCache(evictRecord(memory), retrieveRecord(memory), saveRecord(memory), new StatsRecorder());
 
         twoLayersCacheUT.save(PROVIDER_KEY, "1", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
         waitTime(MORE_THAN_ONE_SECOND_LIFE);
@@ -294,16 +347,49 @@ public class TwoLayersCacheTest extends BaseTest {
         assertThat(record.getData().getMessage(), is(MOCK_VALUE));
     }
 
+    @Test public void When_Traced_Then_Finish_A_Span_For_Every_Operation() {
+        RecordingTracer tracer = new RecordingTracer();
+        EvictRecord evictRecord = new EvictRecord(memory, disk, keyIndex, new StatsRecorder(), tracer);
+        twoLayersCacheUT = new TwoLayersCache(evictRecord,
+            new RetrieveRecord(memory, disk, evictRecord, new HasRecordExpired(), null, new RecordAccesses(), tracer),
+            new SaveRecord(memory, disk, 100, new EvictExpirableRecordsPersistence(memory, disk, 100, null, new RecordAccesses(), EvictionPolicy.LRU, new StatsRecorder()), null, keyIndex, new RecordAccesses(), tracer), new StatsRecorder());
+
+        twoLayersCacheUT.save(PROVIDER_KEY, "", "", new Mock(MOCK_VALUE), DUMMY_LIFE_TIME, true, false);
+        twoLayersCacheUT.retrieve(PROVIDER_KEY, "", "", false, ONE_SECOND_LIFE, false);
+        twoLayersCacheUT.mockMemoryDestroyed();
+        twoLayersCacheUT.retrieve(PROVIDER_KEY, "", "", false, ONE_SECOND_LIFE, false);
+        twoLayersCacheUT.evictProviderKey(PROVIDER_KEY);
+        twoLayersCacheUT.retrieve(PROVIDER_KEY, "", "", false, ONE_SECOND_LIFE, false);
+
+        assertThat(tracer.spans, is(Arrays.asList(
+            "SAVE " + PROVIDER_KEY + " null",
+            "RETRIEVE " + PROVIDER_KEY + " MEMORY",
+            "RETRIEVE " + PROVIDER_KEY + " PERSISTENCE",
+            "EVICT " + PROVIDER_KEY + " null",
+            "RETRIEVE " + PROVIDER_KEY + " null")));
+    }
+
+    private static class RecordingTracer implements CacheTracer {
+        private final List<String> spans = new ArrayList<>();
+
+        @Override public Span start(final Operation operation) {
+            return new Span() {
+                @Override public void finish(String key, Source source, long bytes) {
+                    spans.add(operation + " " + key + " " + source);
+                }
+            };
+        }
+    }
 
     protected io.rx_cache2.internal.cache.SaveRecord saveRecord(Memory memory) {
-        return new SaveRecord(memory, disk, 100, new EvictExpirableRecordsPersistence(memory, disk, 100, null), null);
+        return new SaveRecord(memory, disk, 100, new EvictExpirableRecordsPersistence(memory, disk, 100, null, new RecordAccesses(), EvictionPolicy.LRU, new StatsRecorder()), null, keyIndex, new RecordAccesses(), CacheTracer.NONE);
     }
 
     protected io.rx_cache2.internal.cache.EvictRecord evictRecord(Memory memory) {
-        return new io.rx_cache2.internal.cache.EvictRecord(memory, disk);
+        return new io.rx_cache2.internal.cache.EvictRecord(memory, disk, keyIndex, new StatsRecorder(), CacheTracer.NONE);
     }
 
     protected io.rx_cache2.internal.cache.RetrieveRecord retrieveRecord(Memory memory) {
-        return new io.rx_cache2.internal.cache.RetrieveRecord(memory, disk, new EvictRecord(memory, disk), new HasRecordExpired(), null);
+        return new io.rx_cache2.internal.cache.RetrieveRecord(memory, disk, new EvictRecord(memory, disk, keyIndex, new StatsRecorder(), CacheTracer.NONE), new HasRecordExpired(), null, new RecordAccesses(), CacheTracer.NONE);
     }
 }
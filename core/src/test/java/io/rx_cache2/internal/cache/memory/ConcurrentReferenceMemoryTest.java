@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache.memory;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.rx_cache2.internal.CacheKey;
+import io.rx_cache2.internal.Record;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNull;
+
+public class ConcurrentReferenceMemoryTest {
+
+    @Test public void When_Put_Then_Get_Record() {
+        ConcurrentReferenceMemory memory = new ConcurrentReferenceMemory();
+
+        memory.put(key("key"), record(1));
+        memory.put(key("key"), record(2));
+
+        Record<Integer> record = memory.getIfPresent(key("key"));
+        assertThat(record.getData(), is(2));
+        assertThat(memory.keySet().size(), is(1));
+    }
+
+    @Test public void When_Record_Is_Collected_Then_Miss_And_Purge_On_Write() {
+        ConcurrentReferenceMemory memory =
+            new ConcurrentReferenceMemory(ConcurrentReferenceMemory.Strength.WEAK);
+
+        memory.put(key("1"), record(1));
+        memory.put(key("2"), record(2));
+        memory.collect(key("1"));
+
+        assertNull(memory.getIfPresent(key("1")));
+        assertThat(memory.size(), is(2));
+
+        memory.put(key("3"), record(3));
+        assertThat(memory.size(), is(2));
+        assertThat(memory.keySet().contains(key("1")), is(false));
+    }
+
+    @Test public void When_Collected_Record_Is_Replaced_Then_Purge_Keeps_The_New_One() {
+        ConcurrentReferenceMemory memory = new ConcurrentReferenceMemory();
+
+        memory.put(key("1"), record(1));
+        memory.collect(key("1"));
+        memory.put(key("1"), record(2));
+        memory.put(key("2"), record(3));
+
+        Record<Integer> record = memory.getIfPresent(key("1"));
+        assertThat(record.getData(), is(2));
+    }
+
+    @Test public void When_Evict_Then_Records_Are_Removed() {
+        ConcurrentReferenceMemory memory = new ConcurrentReferenceMemory();
+
+        memory.put(key("1"), record(1));
+        memory.put(key("2"), record(2));
+        memory.evict(key("1"));
+
+        assertNull(memory.getIfPresent(key("1")));
+        assertThat(memory.keySet().size(), is(1));
+
+        memory.evictAll();
+        assertThat(memory.keySet().size(), is(0));
+    }
+
+    @Test public void When_Concurrent_Reads_And_Writes_Then_Do_Not_Lose_Records() throws Exception {
+        final ConcurrentReferenceMemory memory = new ConcurrentReferenceMemory();
+        final int threads = 8, keys = 500;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        final AtomicInteger failures = new AtomicInteger();
+
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            new Thread() {
+                @Override public void run() {
+                    for (int i = 0; i < keys; i++) {
+                        CacheKey key = key(thread + "-" + i);
+                        memory.put(key, record(i));
+                        if (memory.getIfPresent(key) == null) failures.incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+            }.start();
+        }
+
+        latch.await();
+        assertThat(failures.get(), is(0));
+        assertThat(memory.keySet().size(), is(threads * keys));
+    }
+
+    private CacheKey key(String providerKey) {
+        return CacheKey.of(providerKey, "", "");
+    }
+
+    private Record<Integer> record(int value) {
+        return new Record<>(value, true, null);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.cache.memory;
+
+import org.junit.Test;
+
+import io.rx_cache2.internal.CacheKey;
+import io.rx_cache2.internal.Record;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TinyLfuMemoryTest {
+
+    @Test public void When_Capacity_Is_Exceeded_Then_Evict_Records() {
+        TinyLfuMemory memory = new TinyLfuMemory(100);
+
+        for (int i = 0; i < 1000; i++) {
+            memory.put(key(String.valueOf(i)), record(i));
+        }
+
+        assertThat(memory.keySet().size(), is(100));
+        assertThat(memory.size(), is(100L));
+    }
+
+    @Test public void When_Records_Are_Read_Frequently_Then_Survive_A_Scan() {
+        TinyLfuMemory memory = new TinyLfuMemory(100);
+
+        for (int i = 0; i < 50; i++) {
+            memory.put(key("hot" + i), record(i));
+        }
+        for (int read = 0; read < 10; read++) {
+            for (int i = 0; i < 50; i++) {
+                assertNotNull(memory.getIfPresent(key("hot" + i)));
+            }
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            memory.put(key("scan" + i), record(i));
+        }
+
+        int hotRecords = 0;
+        for (int i = 0; i < 50; i++) {
+            if (memory.getIfPresent(key("hot" + i)) != null) hotRecords++;
+        }
+        assertThat(hotRecords, is(50));
+    }
+
+    @Test public void When_Put_Existing_Key_Then_Replace_Record() {
+        TinyLfuMemory memory = new TinyLfuMemory(10);
+
+        memory.put(key("key"), record(1));
+        memory.put(key("key"), record(2));
+
+        Record<Integer> record = memory.getIfPresent(key("key"));
+        assertThat(record.getData(), is(2));
+        assertThat(memory.size(), is(1L));
+    }
+
+    @Test public void When_Evict_Then_Records_Are_Removed() {
+        TinyLfuMemory memory = new TinyLfuMemory(10);
+
+        memory.put(key("1"), record(1));
+        memory.put(key("2"), record(2));
+        memory.evict(key("1"));
+
+        assertNull(memory.getIfPresent(key("1")));
+        assertThat(memory.size(), is(1L));
+
+        memory.evictAll();
+        assertThat(memory.keySet().size(), is(0));
+        assertThat(memory.size(), is(0L));
+    }
+
+    private CacheKey key(String providerKey) {
+        return CacheKey.of(providerKey, "", "");
+    }
+
+    private Record<Integer> record(int value) {
+        return new Record<>(value, true, null);
+    }
+}
@@ -16,7 +16,10 @@
 
 package io.rx_cache2.internal.common;
 
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.FsyncPolicy;
 import io.rx_cache2.internal.Jolyglot$;
+import io.rx_cache2.internal.JolyglotSerializer;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.rules.TemporaryFolder;
@@ -32,7 +35,8 @@ public class BaseTest {
 
     @Before public void setUp() {
         disk = new Disk(temporaryFolder.getRoot(),
-                new FileEncryptor(new BuiltInEncryptor()), Jolyglot$.newInstance());
+                new FileEncryptor(new BuiltInEncryptor()), new JolyglotSerializer(Jolyglot$.newInstance()),
+                FsyncPolicy.NEVER, CacheTracer.NONE);
     }
 
     protected void waitTime(long millis) {
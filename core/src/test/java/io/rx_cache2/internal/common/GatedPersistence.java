@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.common;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import io.rx_cache2.internal.Persistence;
+import io.rx_cache2.internal.Record;
+
+/**
+ * Blocks either the writes of records, the retrieval of objects or the retrieval of the keys until
+ * it is opened, so the operations which depend on them remain in progress meanwhile.
+ */
+public final class GatedPersistence implements Persistence {
+    private final Persistence persistence;
+    private final boolean gateSaves, gateRetrieves, gateAllKeys;
+    private final CountDownLatch gated = new CountDownLatch(1), gate = new CountDownLatch(1);
+
+    private GatedPersistence(Persistence persistence, boolean gateSaves, boolean gateRetrieves,
+        boolean gateAllKeys) {
+        this.persistence = persistence;
+        this.gateSaves = gateSaves;
+        this.gateRetrieves = gateRetrieves;
+        this.gateAllKeys = gateAllKeys;
+    }
+
+    public static GatedPersistence gatingSaves(Persistence persistence) {
+        return new GatedPersistence(persistence, true, false, false);
+    }
+
+    public static GatedPersistence gatingRetrieves(Persistence persistence) {
+        return new GatedPersistence(persistence, false, true, false);
+    }
+
+    public static GatedPersistence gatingAllKeys(Persistence persistence) {
+        return new GatedPersistence(persistence, false, false, true);
+    }
+
+    /**
+     * Waits until an operation is blocked by the gate.
+     */
+    public void awaitGated() throws InterruptedException {
+        gated.await();
+    }
+
+    public void open() {
+        gate.countDown();
+    }
+
+    private void pass() {
+        gated.countDown();
+        try {
+            gate.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override public void saveRecord(String key, Record record, boolean isEncrypted, String encryptKey) {
+        if (gateSaves) pass();
+        persistence.saveRecord(key, record, isEncrypted, encryptKey);
+    }
+
+    @Override public void save(String key, Object object, boolean isEncrypted, String encryptKey) {
+        persistence.save(key, object, isEncrypted, encryptKey);
+    }
+
+    @Override public void evict(String key) {
+        persistence.evict(key);
+    }
+
+    @Override public boolean evictIfPersistedAt(String key, long timeAtWhichWasPersisted) {
+        return persistence.evictIfPersistedAt(key, timeAtWhichWasPersisted);
+    }
+
+    @Override public void evictAll() {
+        persistence.evictAll();
+    }
+
+    @Override public List<String> allKeys() {
+        if (gateAllKeys) pass();
+        return persistence.allKeys();
+    }
+
+    @Override public int storedMB() {
+        return persistence.storedMB();
+    }
+
+    @Override public <T> T retrieve(String key, Class<T> clazz, boolean isEncrypted, String encryptKey) {
+        if (gateRetrieves) pass();
+        return persistence.retrieve(key, clazz, isEncrypted, encryptKey);
+    }
+
+    @Override public <T> Record<T> retrieveRecord(String key, boolean isEncrypted, String encryptKey) {
+        return persistence.retrieveRecord(key, isEncrypted, encryptKey);
+    }
+
+    @Override public <T> Record<T> retrieveRecordMetadata(String key, String encryptKey) {
+        return persistence.retrieveRecordMetadata(key, encryptKey);
+    }
+}
@@ -26,10 +26,22 @@ import org.junit.rules.TemporaryFolder;
 import org.junit.runners.MethodSorters;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.KeyGenerator;
+import javax.crypto.spec.SecretKeySpec;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
@@ -110,6 +122,87 @@ public class BuiltInEncryptorTest {
         assertEquals(getFileContent(fileIn), getFileContent(fileOut));
     }
 
+    @Test public void _08_When_Encrypt_Through_Stream_And_Decrypt_Then_Retrieve_Original_Content() throws IOException {
+        fileIn = getFile(FILENAME_IN, "A Dummy Content");
+        fileOut = getFile(FILENAME_OUT);
+        fileEncrypted = getFile(FILENAME_ENCRYPTED);
+
+        OutputStream outputStream = encryptor.encrypt("key", new FileOutputStream(fileEncrypted));
+        outputStream.write(getFileContent(fileIn).getBytes("UTF-8"));
+        outputStream.close();
+
+        encryptor.decrypt("key", fileEncrypted, fileOut);
+        assertEquals(getFileContent(fileIn), getFileContent(fileOut));
+    }
+
+    @Test public void _09_When_Encrypt_Same_Content_Twice_Then_Encrypted_Content_Differs() {
+        fileIn = getFile(FILENAME_IN, "A Dummy Content");
+        File fileEncrypted2 = getFile(FILENAME_ENCRYPTED + 2);
+        fileEncrypted = getFile(FILENAME_ENCRYPTED);
+
+        encryptor.encrypt("key", fileIn, fileEncrypted);
+        encryptor.encrypt("key", fileIn, fileEncrypted2);
+        assertNotEquals(getFileContent(fileEncrypted), getFileContent(fileEncrypted2));
+    }
+
+    @Test public void _10_When_Decrypt_Legacy_Content_Then_Retrieve_Original_Content() throws Exception {
+        fileIn = getFile(FILENAME_IN, "A Dummy Content");
+        fileOut = getFile(FILENAME_OUT);
+        fileEncrypted = getFile(FILENAME_ENCRYPTED);
+
+        SecureRandom secureRandom = SecureRandom.getInstance("SHA1PRNG");
+        secureRandom.setSeed("key".getBytes("UTF-8"));
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(128, secureRandom);
+        Cipher legacyCipher = Cipher.getInstance("AES");
+        legacyCipher.init(Cipher.ENCRYPT_MODE,
+            new SecretKeySpec(keyGenerator.generateKey().getEncoded(), "AES"));
+        OutputStream outputStream =
+            new CipherOutputStream(new FileOutputStream(fileEncrypted), legacyCipher);
+        outputStream.write(getFileContent(fileIn).getBytes("UTF-8"));
+        outputStream.close();
+
+        encryptor.decrypt("key", fileEncrypted, fileOut);
+        assertEquals(getFileContent(fileIn), getFileContent(fileOut));
+    }
+
+    @Test public void _11_When_Encrypt_And_Decrypt_Concurrently_Then_Retrieve_Original_Content() throws Exception {
+        final String content = "A Dummy Content";
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++) {
+            final String key = "key" + i % 2;
+            threads[i] = new Thread(new Runnable() {
+                @Override public void run() {
+                    try {
+                        for (int j = 0; j < 50; j++) {
+                            ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+                            OutputStream outputStream = encryptor.encrypt(key, encrypted);
+                            outputStream.write(content.getBytes("UTF-8"));
+                            outputStream.close();
+
+                            InputStream inputStream = encryptor.decrypt(key,
+                                new ByteArrayInputStream(encrypted.toByteArray()));
+                            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+                            int read;
+                            while ((read = inputStream.read()) != -1) decrypted.write(read);
+                            inputStream.close();
+
+                            if (!content.equals(decrypted.toString("UTF-8"))) failures.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) thread.join();
+        assertEquals(0, failures.get());
+    }
+
     private File getFile(String filename) {
         return getFile(filename, "");
     }
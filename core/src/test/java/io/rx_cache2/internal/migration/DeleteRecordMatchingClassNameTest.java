@@ -1,6 +1,7 @@
 package io.rx_cache2.internal.migration;
 
 import io.rx_cache2.internal.Record;
+import io.rx_cache2.internal.cache.RecordSweeper;
 import io.rx_cache2.internal.common.BaseTest;
 import java.util.Arrays;
 import org.junit.Test;
@@ -14,7 +15,7 @@ public class DeleteRecordMatchingClassNameTest extends BaseTest {
 
     @Override public void setUp() {
         super.setUp();
-        deleteRecordMatchingClassNameUT = new io.rx_cache2.internal.migration.DeleteRecordMatchingClassName(disk, null);
+        deleteRecordMatchingClassNameUT = new io.rx_cache2.internal.migration.DeleteRecordMatchingClassName(new RecordSweeper(disk, null));
     }
 
     @Test public void When_Class_Matches_Delete_Record_1() {
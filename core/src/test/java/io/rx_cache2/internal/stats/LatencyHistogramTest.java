@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.stats;
+
+import io.rx_cache2.LatencyStats;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test public void When_Value_Is_Recorded_Then_Its_Bucket_Bounds_It_Within_A_Sixteenth() {
+        for (long value = 0; value < 1L << 40; value = value * 3 / 2 + 1) {
+            long upperBound = LatencyHistogram.upperBound(LatencyHistogram.index(value));
+
+            assertTrue(value + " above " + upperBound, upperBound >= value);
+            assertTrue(value + " below " + upperBound,
+                upperBound - value <= value / LatencyHistogram.SUB_BUCKETS);
+        }
+    }
+
+    @Test public void When_Values_Are_Recorded_Then_Approximate_Their_Percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyStats stats = histogram.stats();
+        assertThat(stats.getCount(), is(1000L));
+        assertThat(stats.getMaxNanos(), is(1000000L));
+        assertThat(stats.getMeanNanos(), is(500500L));
+        assertWithinASixteenth(stats.getP50Nanos(), 500000L);
+        assertWithinASixteenth(stats.getP90Nanos(), 900000L);
+        assertWithinASixteenth(stats.getP99Nanos(), 990000L);
+        assertThat(stats.getP999Nanos(), is(1000000L));
+    }
+
+    @Test public void When_Histograms_Are_Merged_Then_Add_Their_Values() {
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) fast.record(1000L);
+        for (int i = 0; i < 10; i++) slow.record(1000000L);
+
+        LatencyHistogram.Merge merge = new LatencyHistogram.Merge();
+        fast.mergeInto(merge);
+        slow.mergeInto(merge);
+        LatencyStats stats = merge.stats();
+
+        assertThat(stats.getCount(), is(100L));
+        assertThat(stats.getMaxNanos(), is(1000000L));
+        assertWithinASixteenth(stats.getP50Nanos(), 1000L);
+        assertWithinASixteenth(stats.getP99Nanos(), 1000000L);
+    }
+
+    @Test public void When_Nothing_Is_Recorded_Then_Stats_Are_Empty() {
+        LatencyStats stats = new LatencyHistogram().stats();
+        assertThat(stats.getCount(), is(0L));
+        assertThat(stats.getMeanNanos(), is(0L));
+        assertThat(stats.getP99Nanos(), is(0L));
+    }
+
+    private void assertWithinASixteenth(long actual, long expected) {
+        assertTrue(actual + " is not " + expected,
+            actual >= expected && actual - expected <= expected / LatencyHistogram.SUB_BUCKETS);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2.internal.stats;
+
+import io.rx_cache2.CacheStats;
+import io.rx_cache2.Source;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class StatsRecorderTest {
+    private final StatsRecorder statsRecorderUT = new StatsRecorder();
+
+    @Test public void When_Requests_Are_Recorded_Then_Count_Them_By_Provider() {
+        statsRecorderUT.recordRequest("users", Source.MEMORY);
+        statsRecorderUT.recordRequest("users", Source.MEMORY);
+        statsRecorderUT.recordRequest("users", Source.PERSISTENCE);
+        statsRecorderUT.recordRequest("users", null);
+        statsRecorderUT.recordRequest("repos", null);
+
+        CacheStats users = statsRecorderUT.snapshot("users");
+        assertThat(users.getRequests(), is(4L));
+        assertThat(users.getMemoryHits(), is(2L));
+        assertThat(users.getPersistenceHits(), is(1L));
+        assertThat(users.getMisses(), is(1L));
+        assertThat(users.getHitRatio(), is(0.75));
+        assertThat(users.getMemoryHitRatio(), is(0.5));
+
+        CacheStats all = statsRecorderUT.snapshot();
+        assertThat(all.getRequests(), is(5L));
+        assertThat(all.getMisses(), is(2L));
+    }
+
+    @Test public void When_Loads_Are_Recorded_Then_Measure_Their_Latency() {
+        statsRecorderUT.recordLoad("users", 2000000L);
+        statsRecorderUT.recordLoadFailure("users", 4000000L);
+
+        CacheStats users = statsRecorderUT.snapshot("users");
+        assertThat(users.getLoads(), is(1L));
+        assertThat(users.getLoadFailures(), is(1L));
+        assertThat(users.getLoaderLatency().getCount(), is(2L));
+        assertThat(users.getLoaderLatency().getMaxNanos(), is(4000000L));
+    }
+
+    @Test public void When_Coalesced_Loads_Are_Recorded_Then_Count_Them_By_Provider() {
+        statsRecorderUT.recordCoalescedLoad("users");
+        statsRecorderUT.recordCoalescedLoad("users");
+        statsRecorderUT.recordCoalescedLoad("repos");
+
+        assertThat(statsRecorderUT.snapshot("users").getCoalescedLoads(), is(2L));
+        assertThat(statsRecorderUT.snapshot().getCoalescedLoads(), is(3L));
+    }
+
+    @Test public void When_Evictions_Are_Not_Attributed_Then_Only_Count_Them_Globally() {
+        statsRecorderUT.recordEvictions("users", 2);
+        statsRecorderUT.recordEvictions(null, 3);
+
+        assertThat(statsRecorderUT.snapshot("users").getEvictions(), is(2L));
+        assertThat(statsRecorderUT.snapshot().getEvictions(), is(5L));
+        assertThat(statsRecorderUT.providerKeys().size(), is(1));
+    }
+
+    @Test public void When_Writes_Are_Recorded_Then_Only_Count_Them_Globally() {
+        statsRecorderUT.recordQueuedWrite(false);
+        statsRecorderUT.recordQueuedWrite(true);
+        statsRecorderUT.recordWrite();
+        statsRecorderUT.recordFailedWrite();
+
+        CacheStats all = statsRecorderUT.snapshot();
+        assertThat(all.getQueuedWrites(), is(2L));
+        assertThat(all.getCoalescedWrites(), is(1L));
+        assertThat(all.getWrites(), is(1L));
+        assertThat(all.getFailedWrites(), is(1L));
+        assertThat(statsRecorderUT.providerKeys().size(), is(0));
+    }
+
+    @Test public void When_Provider_Has_Not_Recorded_Then_Its_Stats_Are_Empty() {
+        CacheStats stats = statsRecorderUT.snapshot("unknown");
+        assertThat(stats.getRequests(), is(0L));
+        assertThat(stats.getHitRatio(), is(0d));
+    }
+
+    @Test public void When_Recorded_Concurrently_Then_Do_Not_Lose_Any() throws InterruptedException {
+        final int threads = 8, requests = 20000;
+
+        List<Thread> recorders = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread recorder = new Thread(new Runnable() {
+                @Override public void run() {
+                    for (int request = 0; request < requests; request++) {
+                        statsRecorderUT.recordRequest("users", Source.MEMORY);
+                        statsRecorderUT.recordRetrieval("users", Source.MEMORY, request);
+                    }
+                }
+            });
+            recorders.add(recorder);
+            recorder.start();
+        }
+        for (Thread recorder : recorders) recorder.join();
+
+        CacheStats stats = statsRecorderUT.snapshot("users");
+        assertThat(stats.getMemoryHits(), is((long) threads * requests));
+        assertThat(stats.getMemoryLatency().getCount(), is((long) threads * requests));
+    }
+}
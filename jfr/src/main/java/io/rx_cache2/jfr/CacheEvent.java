@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.rx_cache2.jfr;
+
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.Source;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Flight Recorder event of an operation of the cache, which is its own {@link CacheTracer.Span}:
+ * it begins when it is started and it is committed when it is finished, so its duration is the one
+ * of the operation. The fields are only filled once the recording is known to keep the event.
+ */
+@Category("RxCache")
+@StackTrace(false)
+abstract class CacheEvent extends Event implements CacheTracer.Span {
+  @Label("Key")
+  @Description("The provider key of the record, or the name of its file for the operations on disk")
+  String key;
+
+  @Label("Source")
+  @Description("The layer the record was retrieved from")
+  String source;
+
+  @Label("Bytes")
+  @Description("The size of the file read or written")
+  @DataAmount
+  long bytes;
+
+  @Override public void finish(String key, Source source, long bytes) {
+    end();
+    if (!shouldCommit()) return;
+
+    this.key = key;
+    this.source = source != null ? source.name() : null;
+    this.bytes = bytes;
+    commit();
+  }
+
+  @Name("io.rx_cache2.Retrieve")
+  @Label("Retrieve")
+  @Description("The retrieval of a record, from memory or from persistence")
+  static final class Retrieve extends CacheEvent {
+  }
+
+  @Name("io.rx_cache2.Save")
+  @Label("Save")
+  @Description("The saving of a record, both in memory and in persistence")
+  static final class Save extends CacheEvent {
+  }
+
+  @Name("io.rx_cache2.Evict")
+  @Label("Evict")
+  @Description("The eviction of the records of a provider, a dynamic key or a dynamic key group")
+  static final class Evict extends CacheEvent {
+  }
+
+  @Name("io.rx_cache2.DiskRead")
+  @Label("Disk Read")
+  @Description("The read of a record from its file")
+  static final class DiskRead extends CacheEvent {
+  }
+
+  @Name("io.rx_cache2.DiskWrite")
+  @Label("Disk Write")
+  @Description("The write of a record to its file")
+  static final class DiskWrite extends CacheEvent {
+  }
+
+  @Name("io.rx_cache2.Encrypt")
+  @Label("Encrypt")
+  @Description("The encryption, and serialization, of a record as it is written")
+  static final class Encrypt extends CacheEvent {
+  }
+
+  @Name("io.rx_cache2.Decrypt")
+  @Label("Decrypt")
+  @Description("The decryption, and deserialization, of a record as it is read")
+  static final class Decrypt extends CacheEvent {
+  }
+
+  @Name("io.rx_cache2.Migration")
+  @Label("Migration")
+  @Description("The migrations done when the cache starts")
+  static final class Migration extends CacheEvent {
+  }
+
+  @Name("io.rx_cache2.ExpiredSweep")
+  @Label("Expired Sweep")
+  @Description("The sweep which evicts the expired records when the cache starts")
+  static final class ExpiredSweep extends CacheEvent {
+  }
+}
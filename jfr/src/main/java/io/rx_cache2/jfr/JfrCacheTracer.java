@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.rx_cache2.jfr;
+
+import io.rx_cache2.CacheTracer;
+import jdk.jfr.EventType;
+
+/**
+ * Traces the operations of the cache as Java Flight Recorder events, named after them within the
+ * io.rx_cache2 namespace (i.e. io.rx_cache2.Retrieve or io.rx_cache2.DiskWrite), so they are
+ * recorded along with the GC and I/O events of the JVM:
+ *
+ * <pre>
+ * new RxCache.Builder()
+ *     .tracer(new JfrCacheTracer())
+ *     .persistence(cacheDirectory, jolyglot);
+ * </pre>
+ *
+ * While no recording has an event enabled, starting its operation just checks a flag and returns
+ * {@link Span#NONE}, so nothing is allocated nor timed.
+ */
+public final class JfrCacheTracer implements CacheTracer {
+  private final EventType[] eventTypes;
+
+  public JfrCacheTracer() {
+    Operation[] operations = Operation.values();
+    this.eventTypes = new EventType[operations.length];
+    for (Operation operation : operations) {
+      eventTypes[operation.ordinal()] = EventType.getEventType(eventClass(operation));
+    }
+  }
+
+  @Override public Span start(Operation operation) {
+    if (!eventTypes[operation.ordinal()].isEnabled()) return Span.NONE;
+
+    CacheEvent event = newEvent(operation);
+    event.begin();
+    return event;
+  }
+
+  private static Class<? extends CacheEvent> eventClass(Operation operation) {
+    switch (operation) {
+      case RETRIEVE:
+        return CacheEvent.Retrieve.class;
+      case SAVE:
+        return CacheEvent.Save.class;
+      case EVICT:
+        return CacheEvent.Evict.class;
+      case DISK_READ:
+        return CacheEvent.DiskRead.class;
+      case DISK_WRITE:
+        return CacheEvent.DiskWrite.class;
+      case ENCRYPT:
+        return CacheEvent.Encrypt.class;
+      case DECRYPT:
+        return CacheEvent.Decrypt.class;
+      case MIGRATION:
+        return CacheEvent.Migration.class;
+      case EXPIRED_SWEEP:
+        return CacheEvent.ExpiredSweep.class;
+      default:
+        throw new IllegalArgumentException(operation.name());
+    }
+  }
+
+  private static CacheEvent newEvent(Operation operation) {
+    switch (operation) {
+      case RETRIEVE:
+        return new CacheEvent.Retrieve();
+      case SAVE:
+        return new CacheEvent.Save();
+      case EVICT:
+        return new CacheEvent.Evict();
+      case DISK_READ:
+        return new CacheEvent.DiskRead();
+      case DISK_WRITE:
+        return new CacheEvent.DiskWrite();
+      case ENCRYPT:
+        return new CacheEvent.Encrypt();
+      case DECRYPT:
+        return new CacheEvent.Decrypt();
+      case MIGRATION:
+        return new CacheEvent.Migration();
+      case EXPIRED_SWEEP:
+        return new CacheEvent.ExpiredSweep();
+      default:
+        throw new IllegalArgumentException(operation.name());
+    }
+  }
+}
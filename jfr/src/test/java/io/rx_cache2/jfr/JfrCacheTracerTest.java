@@ -0,0 +1,96 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.rx_cache2.jfr;
+
+import io.reactivex.Observable;
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.internal.RxCache;
+import io.victoralbertos.jolyglot.GsonSpeaker;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class JfrCacheTracerTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test public void When_Not_Recording_Then_Do_Not_Allocate_Spans() {
+    JfrCacheTracer tracer = new JfrCacheTracer();
+
+    for (CacheTracer.Operation operation : CacheTracer.Operation.values()) {
+      assertThat(tracer.start(operation), is(sameInstance(CacheTracer.Span.NONE)));
+    }
+  }
+
+  @Test public void When_Recording_Then_Emit_The_Events_Of_The_Operations() throws Exception {
+    Recording recording = new Recording();
+    recording.enable("io.rx_cache2.Retrieve");
+    recording.enable("io.rx_cache2.Save");
+    recording.enable("io.rx_cache2.DiskWrite");
+    recording.enable("io.rx_cache2.Evict");
+    recording.start();
+
+    Path dump = temporaryFolder.newFile("rx_cache.jfr").toPath();
+    try {
+      Providers providers = new RxCache.Builder()
+          .tracer(new JfrCacheTracer())
+          .persistence(temporaryFolder.getRoot(), new GsonSpeaker())
+          .using(Providers.class);
+
+      providers.getMessages(Observable.just(Arrays.asList("message"))).blockingFirst();
+      providers.getMessages(Observable.just(Arrays.asList("message"))).blockingFirst();
+
+      recording.stop();
+      recording.dump(dump);
+    } finally {
+      recording.close();
+    }
+
+    List<String> events = new ArrayList<>();
+    for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+      events.add(event.getEventType().getName() + " " + event.getString("key") + " "
+          + event.getString("source"));
+    }
+
+    assertThat(events.contains("io.rx_cache2.Retrieve getMessages null"), is(true));
+    assertThat(events.contains("io.rx_cache2.Save getMessages null"), is(true));
+    assertThat(events.contains("io.rx_cache2.Retrieve getMessages MEMORY"), is(true));
+
+    for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+      if (event.getEventType().getName().equals("io.rx_cache2.DiskWrite")) {
+        assertThat(event.getLong("bytes") > 0, is(true));
+        return;
+      }
+    }
+    throw new AssertionError("No disk write was recorded");
+  }
+
+  interface Providers {
+    Observable<List<String>> getMessages(Observable<List<String>> messages);
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.rx_cache2;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * If set, the compiler of RxCache generates an implementation of the providers interface named
+ * after it with the _RxCache suffix (i.e. RxProviders_RxCache, or Outer_RxProviders_RxCache for an
+ * interface nested in Outer). The configuration of every provider is resolved from its annotations
+ * at compile time and its calls are dispatched straight to the cache, so {@link
+ * io.rx_cache2.internal.RxCache#using(Class)} returns the generated implementation rather than a
+ * {@link java.lang.reflect.Proxy} which reflects over the method on every call.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface GenerateProviders {
+}
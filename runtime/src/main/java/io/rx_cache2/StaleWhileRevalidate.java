@@ -0,0 +1,36 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.rx_cache2;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * When the record of a provider annotated with StaleWhileRevalidate has expired, its data is
+ * returned immediately, as if it had not expired, and the loader is subscribed in the background
+ * to replace it. If the loader fails the expired record is kept, so it will be returned again by
+ * the next call.
+ *
+ * @see LifeCache
+ */
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface StaleWhileRevalidate {
+}
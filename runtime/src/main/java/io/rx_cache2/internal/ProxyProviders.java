@@ -16,33 +16,39 @@
 
 package io.rx_cache2.internal;
 
-import io.reactivex.BackpressureStrategy;
-import io.reactivex.Maybe;
 import io.reactivex.Observable;
-import io.reactivex.ObservableSource;
-import io.reactivex.Single;
 import io.rx_cache2.EncryptKey;
 import io.rx_cache2.Migration;
 import io.rx_cache2.MigrationCache;
 import io.rx_cache2.SchemeMigration;
+import io.rx_cache2.internal.stats.StatsRecorder;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Callable;
 
 public final class ProxyProviders implements InvocationHandler {
+  private static final String GENERATED_PROVIDERS_SUFFIX = "_RxCache";
   private final io.rx_cache2.internal.ProcessorProviders processorProviders;
+  private final Persistence persistence;
+  private final StatsRecorder statsRecorder;
   private final ProxyTranslator proxyTranslator;
 
   public ProxyProviders(RxCache.Builder builder, Class<?> providersClass) {
-    processorProviders = DaggerRxCacheComponent.builder()
+    RxCacheComponent component = DaggerRxCacheComponent.builder()
         .rxCacheModule(new RxCacheModule(builder.getCacheDirectory(),
             builder.useExpiredDataIfLoaderNotAvailable(),
             builder.getMaxMBPersistenceCache(), getEncryptKey(providersClass),
-            getMigrations(providersClass), builder.getJolyglot()))
-        .build().providers();
+            getMigrations(providersClass), builder.getJolyglot(),
+            builder.getSerializer(), builder.getFsyncPolicy(), builder.getMaxMemoryEntries(),
+            builder.getMaxPendingWrites(), builder.getCopyStrategy(), builder.getSweepParallelism(),
+            builder.getSweepMaxRecordsPerSecond(), builder.getSweepListener(),
+            builder.getEvictionPolicy(), builder.getTracer()))
+        .build();
+    processorProviders = component.providers();
+    persistence = component.persistence();
+    statsRecorder = component.statsRecorder();
 
     proxyTranslator = new ProxyTranslator();
   }
@@ -69,33 +75,57 @@ public final class ProxyProviders implements InvocationHandler {
     return migrations;
   }
 
-  @Override public Object invoke(final Object proxy, final Method method, final Object[] args)
-      throws Throwable {
-    return Observable.defer(new Callable<ObservableSource<?>>() {
-      @Override public ObservableSource<?> call() throws Exception {
-        Observable observable =
-            processorProviders.process(proxyTranslator.processMethod(method, args));
-        Class<?> methodType = method.getReturnType();
-
-        if (methodType == Observable.class) return Observable.just(observable);
+  /**
+   * Retrieve an instance of the implementation of the providers generated by the compiler for the
+   * interfaces annotated with {@link io.rx_cache2.GenerateProviders}, or null if there is none.
+   */
+  <T> T newGeneratedProviders(Class<T> providersClass) {
+    Class<?> generatedClass;
+    try {
+      generatedClass = Class.forName(generatedProvidersName(providersClass), true,
+          providersClass.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
 
-        if (methodType == Single.class) return Observable.just(Single.fromObservable(observable));
+    try {
+      return providersClass.cast(generatedClass.getConstructor(ProcessorProviders.class)
+          .newInstance(processorProviders));
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
 
-        if (methodType == Maybe.class) {
-          return Observable.just(Maybe.fromSingle(Single.fromObservable(observable)));
-        }
+  private static String generatedProvidersName(Class<?> providersClass) {
+    String name = providersClass.getSimpleName() + GENERATED_PROVIDERS_SUFFIX;
+    for (Class<?> enclosing = providersClass.getEnclosingClass(); enclosing != null;
+        enclosing = enclosing.getEnclosingClass()) {
+      name = enclosing.getSimpleName() + "_" + name;
+    }
 
-        if (method.getReturnType() == io.reactivex.Flowable.class) {
-          return Observable.just(observable.toFlowable(BackpressureStrategy.MISSING));
-        }
+    Package providersPackage = providersClass.getPackage();
+    if (providersPackage == null || providersPackage.getName().isEmpty()) return name;
+    return providersPackage.getName() + "." + name;
+  }
 
-        String errorMessage = method.getName() + io.rx_cache2.internal.Locale.INVALID_RETURN_TYPE;
-        throw new RuntimeException(errorMessage);
-      }
-    }).blockingFirst();
+  @Override public Object invoke(final Object proxy, final Method method, final Object[] args)
+      throws Throwable {
+    ProxyTranslator.InvocationPlan invocationPlan = proxyTranslator.invocationPlan(method);
+    Observable observable = processorProviders.process(invocationPlan.configProvider(args));
+    return invocationPlan.adapt(observable);
   }
 
   Observable<Void> evictAll() {
     return processorProviders.evictAll();
   }
+
+  StatsRecorder statsRecorder() {
+    return statsRecorder;
+  }
+
+  void flush() {
+    if (persistence instanceof WriteBehindPersistence) {
+      ((WriteBehindPersistence) persistence).flush();
+    }
+  }
 }
\ No newline at end of file
@@ -16,11 +16,14 @@
 
 package io.rx_cache2.internal;
 
+import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.rx_cache2.ConfigProvider;
+import io.rx_cache2.CopyStrategy;
+import io.rx_cache2.DeepCopy;
 import io.rx_cache2.DynamicKey;
 import io.rx_cache2.DynamicKeyGroup;
 import io.rx_cache2.Encrypt;
@@ -28,76 +31,83 @@ import io.rx_cache2.EvictProvider;
 import io.rx_cache2.Expirable;
 import io.rx_cache2.LifeCache;
 import io.rx_cache2.ProviderKey;
+import io.rx_cache2.RefreshAhead;
 import io.rx_cache2.Reply;
+import io.rx_cache2.StaleWhileRevalidate;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.inject.Inject;
 
 public final class ProxyTranslator {
-  private final Map<Method, ConfigProvider> configProviderMethodCache;
+  private static final EvictProvider NOT_EVICTING = new EvictProvider(false);
+  private static final int NONE = -1;
+  private final ConcurrentMap<Method, InvocationPlan> invocationPlanMethodCache;
 
   @Inject ProxyTranslator() {
-    configProviderMethodCache = new HashMap<>();
+    invocationPlanMethodCache = new ConcurrentHashMap<>();
   }
 
   ConfigProvider processMethod(Method method, Object[] objectsMethod) {
-    ConfigProvider prev = loadConfigProviderMethod(method);
-
-    ConfigProvider configProvider = new ConfigProvider(prev.getProviderKey(),
-        null, prev.getLifeTimeMillis(), prev.requiredDetailedResponse(), prev.isExpirable(),
-        prev.isEncrypted(), getDynamicKey(method, objectsMethod),
-        getDynamicKeyGroup(method, objectsMethod),
-        getLoaderObservable(method, objectsMethod),
-        evictProvider(method, objectsMethod));
-
-    return configProvider;
+    return invocationPlan(method).configProvider(objectsMethod);
   }
 
-  private String getProviderKey(Method method) {
-    final ProviderKey annotation = method.getAnnotation(ProviderKey.class);
-    if(annotation != null) {
-      return annotation.value();
-    } else {
-      return method.getName();
-    }
-  }
+  /**
+   * Retrieve the plan to invoke the provider, which is built from the method the first time it
+   * is called and reused from then on.
+   */
+  InvocationPlan invocationPlan(Method method) {
+    InvocationPlan invocationPlan = invocationPlanMethodCache.get(method);
+    if (invocationPlan != null) return invocationPlan;
 
-  private String getDynamicKey(Method method, Object[] objectsMethod) {
-    DynamicKey dynamicKey = getObjectFromMethodParam(method, DynamicKey.class, objectsMethod);
-    if (dynamicKey != null) return dynamicKey.getDynamicKey().toString();
+    invocationPlan = newInvocationPlan(method);
+    InvocationPlan prev = invocationPlanMethodCache.putIfAbsent(method, invocationPlan);
+    return prev != null ? prev : invocationPlan;
+  }
 
-    DynamicKeyGroup dynamicKeyGroup =
-        getObjectFromMethodParam(method, DynamicKeyGroup.class, objectsMethod);
-    if (dynamicKeyGroup != null) return dynamicKeyGroup.getDynamicKey().toString();
+  private InvocationPlan newInvocationPlan(Method method) {
+    ReactiveType returnType = getReturnType(method);
 
-    return "";
-  }
+    ConfigProvider configProvider = new ConfigProvider(getProviderKey(method),
+        null, getLifeTimeCache(method),
+        requiredDetailResponse(method), getExpirable(method), isEncrypted(method),
+        isStaleWhileRevalidate(method), getRefreshAhead(method), getCopyStrategy(method),
+        null, null, null, null);
 
-  private String getDynamicKeyGroup(Method method, Object[] objectsMethod) {
-    DynamicKeyGroup dynamicKeyGroup =
-        getObjectFromMethodParam(method, DynamicKeyGroup.class, objectsMethod);
-    return dynamicKeyGroup != null ? dynamicKeyGroup.getGroup().toString() : "";
-  }
+    Class<?>[] params = method.getParameterTypes();
+    int dynamicKeyIndex = getIndexFromMethodParam(method, DynamicKey.class, params);
+    int dynamicKeyGroupIndex = getIndexFromMethodParam(method, DynamicKeyGroup.class, params);
 
-  private Observable getLoaderObservable(Method method, Object[] objectsMethod) {
-    Observable<?> observable = getObjectFromMethodParam(method, Observable.class, objectsMethod);
-    if (observable != null) return observable;
+    ReactiveType loaderType = null;
+    int loaderIndex = NONE;
+    for (ReactiveType candidate : ReactiveType.values()) {
+      loaderIndex = getIndexFromMethodParam(method, candidate.typeClass, params);
+      if (loaderIndex != NONE) {
+        loaderType = candidate;
+        break;
+      }
+    }
 
-    Single single = getObjectFromMethodParam(method, Single.class, objectsMethod);
-    if (single != null) return single.toObservable();
+    if (loaderType == null) {
+      String errorMessage =
+          method.getName() + io.rx_cache2.internal.Locale.NOT_REACTIVE_TYPE_FOR_LOADER_WAS_FOUND;
+      throw new IllegalArgumentException(errorMessage);
+    }
 
-    Maybe maybe = getObjectFromMethodParam(method, Maybe.class, objectsMethod);
-    if (maybe != null) return maybe.toObservable();
+    int evictProviderIndex = getIndexFromMethodParam(method, EvictProvider.class, params);
 
-    Flowable flowable = getObjectFromMethodParam(method, Flowable.class, objectsMethod);
-    if (flowable != null) return flowable.toObservable();
+    return new InvocationPlan(configProvider, returnType, loaderType, loaderIndex,
+        dynamicKeyIndex, dynamicKeyGroupIndex, evictProviderIndex);
+  }
 
-    String errorMessage =
-        method.getName() + io.rx_cache2.internal.Locale.NOT_REACTIVE_TYPE_FOR_LOADER_WAS_FOUND;
-    throw new IllegalArgumentException(errorMessage);
+  private String getProviderKey(Method method) {
+    final ProviderKey annotation = method.getAnnotation(ProviderKey.class);
+    if(annotation != null) {
+      return annotation.value();
+    } else {
+      return method.getName();
+    }
   }
 
   private Long getLifeTimeCache(Method method) {
@@ -118,34 +128,45 @@ public final class ProxyTranslator {
     return false;
   }
 
-  private boolean requiredDetailResponse(Method method) {
-    if (method.getReturnType() == Observable.class || method.getReturnType() == Single.class
-        || method.getReturnType() == Maybe.class || method.getReturnType() == Flowable.class) {
-      return method.getGenericReturnType().toString().contains(Reply.class.getName());
+  private boolean isStaleWhileRevalidate(Method method) {
+    return method.getAnnotation(StaleWhileRevalidate.class) != null;
+  }
+
+  private float getRefreshAhead(Method method) {
+    RefreshAhead refreshAhead = method.getAnnotation(RefreshAhead.class);
+    if (refreshAhead == null) return 0f;
+    return refreshAhead.value();
+  }
+
+  private CopyStrategy getCopyStrategy(Method method) {
+    DeepCopy deepCopy = method.getAnnotation(DeepCopy.class);
+    if (deepCopy == null) return null;
+    return deepCopy.value();
+  }
+
+  private ReactiveType getReturnType(Method method) {
+    for (ReactiveType candidate : ReactiveType.values()) {
+      if (method.getReturnType() == candidate.typeClass) return candidate;
     }
 
     String errorMessage = method.getName() + io.rx_cache2.internal.Locale.INVALID_RETURN_TYPE;
     throw new IllegalArgumentException(errorMessage);
   }
 
-  private EvictProvider evictProvider(Method method, Object[] objectsMethod) {
-    EvictProvider evictProvider =
-        getObjectFromMethodParam(method, EvictProvider.class, objectsMethod);
-    if (evictProvider != null) {
-      return evictProvider;
-    } else {
-      return new EvictProvider(false);
-    }
+  private boolean requiredDetailResponse(Method method) {
+    return method.getGenericReturnType().toString().contains(Reply.class.getName());
   }
 
-  private <T> T getObjectFromMethodParam(Method method, Class<T> expectedClass,
-      Object[] objectsMethod) {
+  /**
+   * Retrieve the index of the param assignable to the class supplied, or -1 if there is none.
+   */
+  private int getIndexFromMethodParam(Method method, Class<?> expectedClass, Class<?>[] params) {
     int countSameObjectsType = 0;
-    T expectedObject = null;
+    int expectedIndex = NONE;
 
-    for (Object objectParam : objectsMethod) {
-      if (expectedClass.isAssignableFrom(objectParam.getClass())) {
-        expectedObject = (T) objectParam;
+    for (int i = 0; i < params.length; i++) {
+      if (expectedClass.isAssignableFrom(params[i])) {
+        expectedIndex = i;
         countSameObjectsType++;
       }
     }
@@ -154,25 +175,114 @@ public final class ProxyTranslator {
       String errorMessage =
           method.getName()
               + io.rx_cache2.internal.Locale.JUST_ONE_INSTANCE
-              + expectedObject.getClass().getSimpleName();
+              + params[expectedIndex].getSimpleName();
       throw new IllegalArgumentException(errorMessage);
     }
 
-    return expectedObject;
+    return expectedIndex;
+  }
+
+  /**
+   * What a provider needs to be invoked, resolved once from its method: the config built from its
+   * annotations, the index of every argument by its role and the reactive types of its loader and
+   * of its return.
+   */
+  static final class InvocationPlan {
+    private final ConfigProvider configProvider;
+    private final ReactiveType returnType, loaderType;
+    private final int loaderIndex, dynamicKeyIndex, dynamicKeyGroupIndex, evictProviderIndex;
+
+    InvocationPlan(ConfigProvider configProvider, ReactiveType returnType,
+        ReactiveType loaderType, int loaderIndex, int dynamicKeyIndex, int dynamicKeyGroupIndex,
+        int evictProviderIndex) {
+      this.configProvider = configProvider;
+      this.returnType = returnType;
+      this.loaderType = loaderType;
+      this.loaderIndex = loaderIndex;
+      this.dynamicKeyIndex = dynamicKeyIndex;
+      this.dynamicKeyGroupIndex = dynamicKeyGroupIndex;
+      this.evictProviderIndex = evictProviderIndex;
+    }
+
+    ConfigProvider configProvider(Object[] objectsMethod) {
+      DynamicKeyGroup dynamicKeyGroup = dynamicKeyGroupIndex != NONE
+          ? (DynamicKeyGroup) objectsMethod[dynamicKeyGroupIndex] : null;
+
+      String dynamicKey;
+      if (dynamicKeyIndex != NONE) {
+        dynamicKey = ((DynamicKey) objectsMethod[dynamicKeyIndex]).getDynamicKey().toString();
+      } else if (dynamicKeyGroup != null) {
+        dynamicKey = dynamicKeyGroup.getDynamicKey().toString();
+      } else {
+        dynamicKey = "";
+      }
+
+      EvictProvider evictProvider = evictProviderIndex != NONE
+          ? (EvictProvider) objectsMethod[evictProviderIndex] : NOT_EVICTING;
+
+      return configProvider.with(dynamicKey,
+          dynamicKeyGroup != null ? dynamicKeyGroup.getGroup().toString() : "",
+          loaderType.toObservable(objectsMethod[loaderIndex]), evictProvider);
+    }
+
+    /**
+     * Adapt the observable supplied by the cache to the reactive type returned by the provider.
+     */
+    Object adapt(Observable<?> observable) {
+      return returnType.fromObservable(observable);
+    }
   }
 
-  private ConfigProvider loadConfigProviderMethod(Method method) {
-    ConfigProvider result;
-    synchronized (configProviderMethodCache) {
-      result = configProviderMethodCache.get(method);
-      if (result == null) {
-        result = new ConfigProvider(getProviderKey(method),
-            null, getLifeTimeCache(method),
-            requiredDetailResponse(method), getExpirable(method), isEncrypted(method),
-            null, null, null, null);
-        configProviderMethodCache.put(method, result);
+  /**
+   * The reactive types supported as loader and as return type of the providers, in the order in
+   * which the loader is looked for among the arguments.
+   */
+  enum ReactiveType {
+    OBSERVABLE(Observable.class) {
+      @Override Observable<?> toObservable(Object loader) {
+        return (Observable<?>) loader;
+      }
+
+      @Override Object fromObservable(Observable<?> observable) {
+        return observable;
+      }
+    },
+    SINGLE(Single.class) {
+      @Override Observable<?> toObservable(Object loader) {
+        return ((Single<?>) loader).toObservable();
+      }
+
+      @Override Object fromObservable(Observable<?> observable) {
+        return Single.fromObservable(observable);
+      }
+    },
+    MAYBE(Maybe.class) {
+      @Override Observable<?> toObservable(Object loader) {
+        return ((Maybe<?>) loader).toObservable();
+      }
+
+      @Override Object fromObservable(Observable<?> observable) {
+        return Maybe.fromSingle(Single.fromObservable(observable));
+      }
+    },
+    FLOWABLE(Flowable.class) {
+      @Override Observable<?> toObservable(Object loader) {
+        return ((Flowable<?>) loader).toObservable();
+      }
+
+      @Override Object fromObservable(Observable<?> observable) {
+        return observable.toFlowable(BackpressureStrategy.MISSING);
       }
+    };
+
+    final Class<?> typeClass;
+
+    ReactiveType(Class<?> typeClass) {
+      this.typeClass = typeClass;
     }
-    return result;
+
+    abstract Observable<?> toObservable(Object loader);
+
+    abstract Object fromObservable(Observable<?> observable);
   }
 }
@@ -17,6 +17,12 @@
 package io.rx_cache2.internal;
 
 import io.reactivex.Observable;
+import io.rx_cache2.CacheStats;
+import io.rx_cache2.CacheTracer;
+import io.rx_cache2.CopyStrategy;
+import io.rx_cache2.EvictionPolicy;
+import io.rx_cache2.FsyncPolicy;
+import io.rx_cache2.SweepListener;
 import io.victoralbertos.jolyglot.JolyglotGenerics;
 import java.io.File;
 import java.lang.reflect.Proxy;
@@ -33,6 +39,9 @@ public final class RxCache {
   public <T> T using(final Class<T> classProviders) {
     proxyProviders = new ProxyProviders(builder, classProviders);
 
+    T generatedProviders = proxyProviders.newGeneratedProviders(classProviders);
+    if (generatedProviders != null) return generatedProviders;
+
     return (T) Proxy.newProxyInstance(
         classProviders.getClassLoader(),
         new Class<?>[] {classProviders},
@@ -43,14 +52,46 @@ public final class RxCache {
     return proxyProviders.evictAll();
   }
 
+  /**
+   * Retrieve a snapshot of the statistics of every provider added together.
+   */
+  public CacheStats stats() {
+    return proxyProviders.statsRecorder().snapshot();
+  }
+
+  /**
+   * Retrieve a snapshot of the statistics of the provider whose key is supplied, which is the
+   * value of its {@link io.rx_cache2.ProviderKey} or the name of its method.
+   */
+  public CacheStats stats(String providerKey) {
+    return proxyProviders.statsRecorder().snapshot(providerKey);
+  }
+
+  /**
+   * Blocks until every record queued by the write behind mode has been persisted. It returns
+   * immediately if {@link Builder#writeBehind(Integer)} was not supplied.
+   */
+  public void flush() {
+    proxyProviders.flush();
+  }
+
   /**
    * Builder for building an specific RxCache instance
    */
   public static class Builder {
     private boolean useExpiredDataIfLoaderNotAvailable;
     private Integer maxMBPersistenceCache;
+    private EvictionPolicy evictionPolicy;
     private File cacheDirectory;
     private JolyglotGenerics jolyglot;
+    private Serializer serializer;
+    private FsyncPolicy fsyncPolicy;
+    private Integer maxMemoryEntries;
+    private Integer maxPendingWrites;
+    private CopyStrategy copyStrategy;
+    private Integer sweepParallelism, sweepMaxRecordsPerSecond;
+    private SweepListener sweepListener;
+    private CacheTracer tracer;
 
     /**
      * If true RxCache will serve Records already expired, instead of evict them and throw an
@@ -74,6 +115,147 @@ public final class RxCache {
       return this;
     }
 
+    /**
+     * Sets which expirable records are evicted first when the persistence layer reaches its max
+     * memory. If not supplied, {@link EvictionPolicy#LRU} will be the default option
+     *
+     * @return BuilderRxCache The builder of RxCache
+     */
+    public Builder evictionPolicy(EvictionPolicy evictionPolicy) {
+      this.evictionPolicy = evictionPolicy;
+      return this;
+    }
+
+    /**
+     * Sets the max number of records kept on the memory layer, which evicts the least frequently
+     * used ones when it is exceeded. If not supplied, the memory layer is unbounded and its records
+     * are only released when the garbage collector requires it
+     *
+     * @return BuilderRxCache The builder of RxCache
+     */
+    public Builder setMaxMemoryEntries(Integer maxMemoryEntries) {
+      if (maxMemoryEntries != null && maxMemoryEntries <= 0) {
+        throw new InvalidParameterException(io.rx_cache2.internal.Locale.MAX_MEMORY_ENTRIES_MUST_BE_POSITIVE);
+      }
+
+      this.maxMemoryEntries = maxMemoryEntries;
+      return this;
+    }
+
+    /**
+     * Persists the records in a background thread instead of the one which emits the data of the
+     * loader, so the data is returned as soon as it is kept in memory. Repeated writes of the same
+     * record are coalesced, and once maxPendingWrites records are waiting to be persisted saving a
+     * new one blocks until there is room for it. Call {@link RxCache#flush()} before shutting down
+     * to wait for the pending writes. If not supplied, the records are persisted before the data
+     * is returned.
+     *
+     * The records waiting to be persisted are not counted against
+     * {@link #setMaxMBPersistenceCache(Integer)} until they are written, so the limit becomes
+     * approximate: the persistence layer may exceed it by up to maxPendingWrites records. The
+     * writes are reported by {@link RxCache#stats()}
+     *
+     * @return BuilderRxCache The builder of RxCache
+     */
+    public Builder writeBehind(Integer maxPendingWrites) {
+      if (maxPendingWrites != null && maxPendingWrites <= 0) {
+        throw new InvalidParameterException(io.rx_cache2.internal.Locale.MAX_PENDING_WRITES_MUST_BE_POSITIVE);
+      }
+
+      this.maxPendingWrites = maxPendingWrites;
+      return this;
+    }
+
+    /**
+     * Sets how the data is copied before it is emitted, for the providers which are not annotated
+     * with {@link io.rx_cache2.DeepCopy}. If not supplied, {@link CopyStrategy#SERIALIZATION}
+     * will be the default option
+     *
+     * @return BuilderRxCache The builder of RxCache
+     */
+    public Builder copyStrategy(CopyStrategy copyStrategy) {
+      this.copyStrategy = copyStrategy;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads which go through the persisted records evicting the expired ones,
+     * and the ones of the classes evicted by the migrations. If not supplied, the number of
+     * available processors will be the default option
+     *
+     * @return BuilderRxCache The builder of RxCache
+     */
+    public Builder sweepParallelism(Integer sweepParallelism) {
+      if (sweepParallelism != null && sweepParallelism <= 0) {
+        throw new InvalidParameterException(io.rx_cache2.internal.Locale.SWEEP_PARALLELISM_MUST_BE_POSITIVE);
+      }
+
+      this.sweepParallelism = sweepParallelism;
+      return this;
+    }
+
+    /**
+     * Sets the max number of persisted records read per second when they are swept, so the sweep
+     * does not monopolize the storage. If not supplied, the records are read as fast as possible
+     *
+     * @return BuilderRxCache The builder of RxCache
+     */
+    public Builder sweepMaxRecordsPerSecond(Integer sweepMaxRecordsPerSecond) {
+      if (sweepMaxRecordsPerSecond != null && sweepMaxRecordsPerSecond <= 0) {
+        throw new InvalidParameterException(io.rx_cache2.internal.Locale.SWEEP_MAX_RECORDS_PER_SECOND_MUST_BE_POSITIVE);
+      }
+
+      this.sweepMaxRecordsPerSecond = sweepMaxRecordsPerSecond;
+      return this;
+    }
+
+    /**
+     * Sets the {@link SweepListener} which receives the progress and the throughput of the sweeps
+     *
+     * @return BuilderRxCache The builder of RxCache
+     */
+    public Builder sweepListener(SweepListener sweepListener) {
+      this.sweepListener = sweepListener;
+      return this;
+    }
+
+    /**
+     * Sets the {@link CacheTracer} which traces the retrievals, saves, evictions, disk reads and
+     * writes, encryptions, migrations and sweeps, i.e. the JfrCacheTracer of the rx_cache2-jfr
+     * module. If not supplied, nothing is traced
+     *
+     * @return BuilderRxCache The builder of RxCache
+     */
+    public Builder tracer(CacheTracer tracer) {
+      this.tracer = tracer;
+      return this;
+    }
+
+    /**
+     * Sets the {@link Serializer} used to persist the records and to retrieve deep copies of them,
+     * as {@link BinarySerializer}. If not supplied, the data is serialized as json using the
+     * {@link JolyglotGenerics} supplied to {@link #persistence(File, JolyglotGenerics)}. Records
+     * persisted by a different serializer are treated as not cached.
+     *
+     * @return BuilderRxCache The builder of RxCache
+     */
+    public Builder serializer(Serializer serializer) {
+      this.serializer = serializer;
+      return this;
+    }
+
+    /**
+     * Sets when the records written are forced to the storage device. Records are always written
+     * to a temporary file which atomically replaces the previous one, so an interrupted write never
+     * corrupts a record. If not supplied, {@link FsyncPolicy#NEVER} will be the default option
+     *
+     * @return BuilderRxCache The builder of RxCache
+     */
+    public Builder fsyncPolicy(FsyncPolicy fsyncPolicy) {
+      this.fsyncPolicy = fsyncPolicy;
+      return this;
+    }
+
     /**
      * Sets the File cache system and the implementation of {@link JolyglotGenerics} to serialise
      * and deserialize objects
@@ -110,6 +292,10 @@ public final class RxCache {
       return maxMBPersistenceCache;
     }
 
+    public EvictionPolicy getEvictionPolicy() {
+      return evictionPolicy;
+    }
+
     public File getCacheDirectory() {
       return cacheDirectory;
     }
@@ -117,5 +303,41 @@ public final class RxCache {
     public JolyglotGenerics getJolyglot() {
       return jolyglot;
     }
+
+    public Serializer getSerializer() {
+      return serializer;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+      return fsyncPolicy;
+    }
+
+    public Integer getMaxMemoryEntries() {
+      return maxMemoryEntries;
+    }
+
+    public Integer getMaxPendingWrites() {
+      return maxPendingWrites;
+    }
+
+    public CopyStrategy getCopyStrategy() {
+      return copyStrategy;
+    }
+
+    public Integer getSweepParallelism() {
+      return sweepParallelism;
+    }
+
+    public Integer getSweepMaxRecordsPerSecond() {
+      return sweepMaxRecordsPerSecond;
+    }
+
+    public SweepListener getSweepListener() {
+      return sweepListener;
+    }
+
+    public CacheTracer getTracer() {
+      return tracer;
+    }
   }
 }
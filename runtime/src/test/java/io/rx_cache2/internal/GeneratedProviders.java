@@ -0,0 +1,39 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.rx_cache2.internal;
+
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.rx_cache2.DynamicKey;
+import io.rx_cache2.GenerateProviders;
+import io.rx_cache2.LifeCache;
+import io.rx_cache2.Reply;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Its implementation, GeneratedProviders_RxCache, is generated by the compiler of RxCache when the
+ * runtime tests are compiled.
+ */
+@GenerateProviders
+public interface GeneratedProviders {
+  @LifeCache(duration = 1, timeUnit = TimeUnit.MINUTES)
+  Observable<List<Mock>> getMocks(Observable<List<Mock>> oMocks);
+
+  Single<Reply<List<Mock>>> getMocksDynamicKey(Single<List<Mock>> oMocks, DynamicKey dynamicKey);
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 Victor Albertos
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.rx_cache2.internal;
+
+import io.reactivex.Observable;
+import io.reactivex.Single;
+import io.rx_cache2.DynamicKey;
+import io.rx_cache2.Reply;
+import io.rx_cache2.Source;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class GeneratedProvidersTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+  private RxCache rxCache;
+
+  @Before public void setUp() {
+    rxCache = new RxCache.Builder()
+        .persistence(temporaryFolder.getRoot(), Jolyglot$.newInstance());
+  }
+
+  @Test public void When_Implementation_Is_Generated_Then_Use_It() {
+    GeneratedProviders providers = rxCache.using(GeneratedProviders.class);
+    assertThat(providers, instanceOf(GeneratedProviders_RxCache.class));
+
+    List<Mock> mocks = providers.getMocks(Observable.just(Arrays.asList(new Mock("mock"))))
+        .blockingFirst();
+    assertThat(mocks.get(0).getMessage(), is("mock"));
+
+    Reply<List<Mock>> reply = providers.getMocksDynamicKey(
+        Single.just(Arrays.asList(new Mock("1"))), new DynamicKey(1)).blockingGet();
+    assertThat(reply.getSource(), is(Source.CLOUD));
+
+    reply = providers.getMocksDynamicKey(
+        Single.just(Arrays.asList(new Mock("2"))), new DynamicKey(1)).blockingGet();
+    assertThat(reply.getSource(), is(Source.MEMORY));
+    assertThat(reply.getData().get(0).getMessage(), is("1"));
+
+    assertThat(rxCache.stats("getMocksDynamicKey").getHits(), is(1L));
+  }
+
+  @Test public void When_Implementation_Is_Not_Generated_Then_Use_A_Proxy() {
+    ProvidersRxCache providers = rxCache.using(ProvidersRxCache.class);
+    assertThat(Proxy.isProxyClass(providers.getClass()), is(true));
+  }
+}
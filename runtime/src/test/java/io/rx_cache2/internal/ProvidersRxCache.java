@@ -26,7 +26,11 @@ import io.rx_cache2.EvictDynamicKey;
 import io.rx_cache2.EvictDynamicKeyGroup;
 import io.rx_cache2.EvictProvider;
 import io.rx_cache2.Expirable;
+import io.rx_cache2.CopyStrategy;
+import io.rx_cache2.DeepCopy;
 import io.rx_cache2.LifeCache;
+import io.rx_cache2.RefreshAhead;
+import io.rx_cache2.StaleWhileRevalidate;
 import io.rx_cache2.ProviderKey;
 import io.rx_cache2.Reply;
 import java.util.List;
@@ -53,6 +57,17 @@ public interface ProvidersRxCache {
   @LifeCache(duration = 1, timeUnit = TimeUnit.SECONDS)
   Observable<Reply<List<io.rx_cache2.internal.Mock>>> getMocksListResponseOneSecond(Observable<List<io.rx_cache2.internal.Mock>> mocks);
 
+  @StaleWhileRevalidate
+  @LifeCache(duration = 1, timeUnit = TimeUnit.SECONDS)
+  Observable<Reply<List<io.rx_cache2.internal.Mock>>> getMocksStaleWhileRevalidate(Observable<List<io.rx_cache2.internal.Mock>> mocks);
+
+  @RefreshAhead(0.5f)
+  @LifeCache(duration = 1, timeUnit = TimeUnit.SECONDS)
+  Observable<Reply<List<io.rx_cache2.internal.Mock>>> getMocksRefreshAhead(Observable<List<io.rx_cache2.internal.Mock>> mocks);
+
+  @DeepCopy(CopyStrategy.NONE)
+  Observable<List<io.rx_cache2.internal.Mock>> getMocksWithoutCopy(Observable<List<io.rx_cache2.internal.Mock>> mocks);
+
   Observable<Reply<Map<Integer, io.rx_cache2.internal.Mock>>> getMocksMapResponse(Observable<Map<Integer, io.rx_cache2.internal.Mock>> mocks);
 
   Observable<Reply<io.rx_cache2.internal.Mock[]>> getMocksArrayResponse(Observable<io.rx_cache2.internal.Mock[]> mocks);
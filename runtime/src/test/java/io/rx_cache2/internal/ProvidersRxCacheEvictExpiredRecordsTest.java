@@ -67,7 +67,7 @@ public class ProvidersRxCacheEvictExpiredRecordsTest extends BaseTestEvictingTas
 
   @Test public void _2_Perform_Evicting_Task_And_Check_Results() {
     waitTime(1000);
-    assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+    assertEquals(0, recordFiles(temporaryFolder.getRoot()).length);
     assertEquals(0, getSizeMB(temporaryFolder.getRoot()));
   }
 
@@ -94,7 +94,7 @@ public class ProvidersRxCacheEvictExpiredRecordsTest extends BaseTestEvictingTas
 
   @Test public void _5_Populate_Disk_With_Expired_Encrypted_Records() {
     deleteAllFiles();
-    assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+    assertEquals(0, recordFiles(temporaryFolder.getRoot()).length);
 
     for (int i = 0; i < 50; i++) {
       waitTime(50);
@@ -110,7 +110,7 @@ public class ProvidersRxCacheEvictExpiredRecordsTest extends BaseTestEvictingTas
 
   @Test public void _6_Perform_Evicting_Task_And_Check_Results() {
     waitTime(1000);
-    assertEquals(0, temporaryFolder.getRoot().listFiles().length);
+    assertEquals(0, recordFiles(temporaryFolder.getRoot()).length);
     assertEquals(0, getSizeMB(temporaryFolder.getRoot()));
   }
 
@@ -22,10 +22,13 @@ import io.reactivex.Observable;
 import io.reactivex.functions.Function;
 import io.reactivex.observers.TestObserver;
 import io.rx_cache2.DynamicKey;
+import io.rx_cache2.CacheStats;
 import io.rx_cache2.EvictProvider;
 import io.rx_cache2.ProviderHelper;
 import io.rx_cache2.Reply;
 import io.rx_cache2.Source;
+import java.io.File;
+import java.io.FileFilter;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -471,7 +474,7 @@ public class ProvidersRxCacheTest {
       subscriber.awaitTerminalEvent();
     }
 
-    assertThat(temporaryFolder.getRoot().listFiles().length, is(SIZE));
+    assertThat(recordFiles().length, is(SIZE));
 
     subscriberEvict = new TestObserver<>();
     rxCache.evictAll().subscribe(subscriberEvict);
@@ -481,7 +484,91 @@ public class ProvidersRxCacheTest {
     subscriberEvict.assertNoErrors();
     subscriberEvict.assertNoValues();
 
-    assertThat(temporaryFolder.getRoot().listFiles().length, is(0));
+    assertThat(recordFiles().length, is(0));
+  }
+
+  @Test public void _16_When_Stale_While_Revalidate_Then_Get_Stale_And_Refresh_It() throws InterruptedException {
+    initProviders(false);
+
+    TestObserver<Reply<List<io.rx_cache2.internal.Mock>>> subscriber = new TestObserver<>();
+    providersRxCache.getMocksStaleWhileRevalidate(createObservableMocks(SIZE)).subscribe(subscriber);
+    subscriber.awaitTerminalEvent();
+    assertThat(subscriber.values().get(0).getSource(), is(Source.CLOUD));
+
+    waitTime(1100);
+
+    subscriber = new TestObserver<>();
+    providersRxCache.getMocksStaleWhileRevalidate(createObservableMocks(1)).subscribe(subscriber);
+    subscriber.awaitTerminalEvent();
+    Reply<List<io.rx_cache2.internal.Mock>> reply = subscriber.values().get(0);
+    assertThat(reply.getSource(), is(Source.MEMORY));
+    assertThat(reply.getData().size(), is(SIZE));
+
+    waitTime(500);
+
+    subscriber = new TestObserver<>();
+    providersRxCache.getMocksStaleWhileRevalidate(createObservableMocks(2)).subscribe(subscriber);
+    subscriber.awaitTerminalEvent();
+    reply = subscriber.values().get(0);
+    assertThat(reply.getSource(), is(Source.MEMORY));
+    assertThat(reply.getData().size(), is(1));
+  }
+
+  @Test public void _17_When_Refresh_Ahead_Then_Refresh_Before_Expiring() throws InterruptedException {
+    initProviders(false);
+
+    TestObserver<Reply<List<io.rx_cache2.internal.Mock>>> subscriber = new TestObserver<>();
+    providersRxCache.getMocksRefreshAhead(createObservableMocks(SIZE)).subscribe(subscriber);
+    subscriber.awaitTerminalEvent();
+    assertThat(subscriber.values().get(0).getSource(), is(Source.CLOUD));
+
+    waitTime(600);
+
+    subscriber = new TestObserver<>();
+    providersRxCache.getMocksRefreshAhead(createObservableMocks(1)).subscribe(subscriber);
+    subscriber.awaitTerminalEvent();
+    Reply<List<io.rx_cache2.internal.Mock>> reply = subscriber.values().get(0);
+    assertThat(reply.getSource(), is(Source.MEMORY));
+    assertThat(reply.getData().size(), is(SIZE));
+
+    waitTime(600);
+
+    subscriber = new TestObserver<>();
+    providersRxCache.getMocksRefreshAhead(createObservableMocks(2)).subscribe(subscriber);
+    subscriber.awaitTerminalEvent();
+    reply = subscriber.values().get(0);
+    assertThat(reply.getSource(), is(Source.MEMORY));
+    assertThat(reply.getData().size(), is(1));
+  }
+
+  @Test public void _18_When_Providers_Are_Called_Then_Record_Their_Stats() {
+    initProviders(false);
+
+    providersRxCache.getMocks(createObservableMocks(SIZE)).blockingFirst();
+    providersRxCache.getMocks(createObservableMocks(SIZE)).blockingFirst();
+    providersRxCache.getMocksEvictProvider(createObservableMocks(SIZE), new EvictProvider(true))
+        .blockingFirst();
+
+    CacheStats stats = rxCache.stats("getMocks");
+    assertThat(stats.getRequests(), is(2L));
+    assertThat(stats.getMisses(), is(1L));
+    assertThat(stats.getMemoryHits(), is(1L));
+    assertThat(stats.getLoads(), is(1L));
+    assertThat(stats.getMemoryLatency().getCount(), is(1L));
+
+    stats = rxCache.stats("getMocksEvictProvider");
+    assertThat(stats.getRequests(), is(0L));
+    assertThat(stats.getLoads(), is(1L));
+
+    assertThat(rxCache.stats().getLoads(), is(2L));
+  }
+
+  private File[] recordFiles() {
+    return temporaryFolder.getRoot().listFiles(new FileFilter() {
+      @Override public boolean accept(File file) {
+        return !file.getName().startsWith("rx_cache.journal");
+      }
+    });
   }
 
   private Object deepCopy(Object object, Type type) {
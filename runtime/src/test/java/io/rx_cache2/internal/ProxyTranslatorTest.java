@@ -21,6 +21,7 @@ import io.reactivex.Maybe;
 import io.reactivex.Observable;
 import io.reactivex.Single;
 import io.rx_cache2.ConfigProvider;
+import io.rx_cache2.CopyStrategy;
 import io.rx_cache2.DynamicKey;
 import io.rx_cache2.DynamicKeyGroup;
 import io.rx_cache2.EvictDynamicKey;
@@ -31,6 +32,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -110,6 +112,51 @@ public class ProxyTranslatorTest {
     assertThat(configProvider.getLifeTimeMillis(), is(65000l));
   }
 
+  @Test public void When_Stale_While_Revalidate_Then_Config_Provider_Is_Stale_While_Revalidate()
+      throws NoSuchMethodException {
+    Method mockMethod =
+        io.rx_cache2.internal.ProvidersRxCache.class.getDeclaredMethod("getMocksStaleWhileRevalidate",
+            Observable.class);
+    ConfigProvider configProvider = proxyTranslatorUT.processMethod(mockMethod, dataMethod);
+    assertThat(configProvider.isStaleWhileRevalidate(), is(true));
+
+    mockMethod =
+        io.rx_cache2.internal.ProvidersRxCache.class.getDeclaredMethod("getMocksLifeTimeSeconds",
+            Observable.class);
+    configProvider = proxyTranslatorUT.processMethod(mockMethod, dataMethod);
+    assertThat(configProvider.isStaleWhileRevalidate(), is(false));
+  }
+
+  @Test public void When_Refresh_Ahead_Then_Config_Provider_Has_Refresh_Ahead()
+      throws NoSuchMethodException {
+    Method mockMethod =
+        io.rx_cache2.internal.ProvidersRxCache.class.getDeclaredMethod("getMocksRefreshAhead",
+            Observable.class);
+    ConfigProvider configProvider = proxyTranslatorUT.processMethod(mockMethod, dataMethod);
+    assertThat(configProvider.getRefreshAhead(), is(0.5f));
+
+    mockMethod =
+        io.rx_cache2.internal.ProvidersRxCache.class.getDeclaredMethod("getMocksLifeTimeSeconds",
+            Observable.class);
+    configProvider = proxyTranslatorUT.processMethod(mockMethod, dataMethod);
+    assertThat(configProvider.getRefreshAhead(), is(0f));
+  }
+
+  @Test public void When_Deep_Copy_Then_Config_Provider_Has_Copy_Strategy()
+      throws NoSuchMethodException {
+    Method mockMethod =
+        io.rx_cache2.internal.ProvidersRxCache.class.getDeclaredMethod("getMocksWithoutCopy",
+            Observable.class);
+    ConfigProvider configProvider = proxyTranslatorUT.processMethod(mockMethod, dataMethod);
+    assertThat(configProvider.getCopyStrategy(), is(CopyStrategy.NONE));
+
+    mockMethod =
+        io.rx_cache2.internal.ProvidersRxCache.class.getDeclaredMethod("getMocksLifeTimeSeconds",
+            Observable.class);
+    configProvider = proxyTranslatorUT.processMethod(mockMethod, dataMethod);
+    assertNull(configProvider.getCopyStrategy());
+  }
+
   @Test public void When_Return_Response_Then_Required_Detail_Response_Is_True()
       throws NoSuchMethodException {
     Method mockMethod =
@@ -179,6 +226,36 @@ public class ProxyTranslatorTest {
     assertThat(configProvider.getDynamicKey(), is("1"));
   }
 
+  @Test public void When_Dynamic_Key_Group_Then_Dynamic_Key_And_Group() throws NoSuchMethodException {
+    Method mockMethod = io.rx_cache2.internal.ProvidersRxCache.class.getDeclaredMethod(
+        "getMockEvictDynamicKeyGroupProvidingDynamicKeyGroup", Observable.class,
+        DynamicKeyGroup.class, EvictDynamicKeyGroup.class);
+    Object[] data =
+        {Observable.just(new Object[]{}), new DynamicKeyGroup(1, "group"), new EvictDynamicKeyGroup(true)};
+    ConfigProvider configProvider = proxyTranslatorUT.processMethod(mockMethod, data);
+
+    assertThat(configProvider.getDynamicKey(), is("1"));
+    assertThat(configProvider.getDynamicKeyGroup(), is("group"));
+    assertThat(configProvider.evictProvider().evict(), is(true));
+  }
+
+  @Test public void When_Process_Method_Again_Then_Reuse_Invocation_Plan()
+      throws NoSuchMethodException {
+    Method mockMethod = io.rx_cache2.internal.ProvidersRxCache.class.getDeclaredMethod(
+        "getMocksPaginate", Observable.class, DynamicKey.class);
+    ProxyTranslator.InvocationPlan invocationPlan = proxyTranslatorUT.invocationPlan(mockMethod);
+    assertThat(proxyTranslatorUT.invocationPlan(mockMethod), is(sameInstance(invocationPlan)));
+
+    ConfigProvider configProvider = proxyTranslatorUT.processMethod(mockMethod,
+        new Object[] {Observable.just(new Object[]{}), new DynamicKey(1)});
+    assertThat(configProvider.getDynamicKey(), is("1"));
+
+    configProvider = proxyTranslatorUT.processMethod(mockMethod,
+        new Object[] {Observable.just(new Object[]{}), new DynamicKey(2)});
+    assertThat(configProvider.getDynamicKey(), is("2"));
+    assertThat(configProvider.evictProvider().evict(), is(false));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void When_Not_Loader_Provided_Throw_Exception() throws NoSuchMethodException {
     Method mockMethod = io.rx_cache2.internal.ProvidersRxCache.class.getDeclaredMethod(
@@ -43,6 +43,24 @@ public class RxCacheBuilderValidationTest {
         .persistence(temporaryFolder.getRoot(), null);
   }
 
+  @Test(expected = InvalidParameterException.class)
+  public void Max_Pending_Writes_Not_Positive() {
+    new RxCache.Builder()
+        .writeBehind(0);
+  }
+
+  @Test(expected = InvalidParameterException.class)
+  public void Sweep_Parallelism_Not_Positive() {
+    new RxCache.Builder()
+        .sweepParallelism(0);
+  }
+
+  @Test(expected = InvalidParameterException.class)
+  public void Sweep_Max_Records_Per_Second_Not_Positive() {
+    new RxCache.Builder()
+        .sweepMaxRecordsPerSecond(-1);
+  }
+
   @Test(expected = InvalidParameterException.class)
   public void Cache_Directory_Not_Exist() {
     File cacheDir = new File(temporaryFolder.getRoot(), "non_existent_folder");
@@ -19,6 +19,7 @@ package io.rx_cache2.internal.common;
 import io.reactivex.Observable;
 import io.rx_cache2.internal.Mock;
 import java.io.File;
+import java.io.FileFilter;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,7 +36,7 @@ public class BaseTestEvictingTask {
   protected int getSizeMB(File dir) {
     long bytes = 0;
 
-    File[] files = dir.listFiles();
+    File[] files = recordFiles(dir);
     for (File file : files) {
       bytes += file.length();
     }
@@ -43,6 +44,17 @@ public class BaseTestEvictingTask {
     return (int) Math.ceil(bytes / 1024.0 / 1024.0);
   }
 
+  /**
+   * The files persisted by Disk, excluding the journal of its index.
+   */
+  protected File[] recordFiles(File dir) {
+    return dir.listFiles(new FileFilter() {
+      @Override public boolean accept(File file) {
+        return !file.getName().startsWith("rx_cache.journal");
+      }
+    });
+  }
+
   protected Observable<List<Mock>> createObservableMocks() {
     List<Mock> mocks = new ArrayList();
 